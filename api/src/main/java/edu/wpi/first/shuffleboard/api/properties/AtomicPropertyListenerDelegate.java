@@ -1,13 +1,14 @@
 package edu.wpi.first.shuffleboard.api.properties;
 
-import edu.wpi.first.shuffleboard.api.util.AsyncUtils;
 import edu.wpi.first.shuffleboard.api.util.EqualityUtils;
 
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
+import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
 import javafx.beans.property.Property;
 import javafx.beans.value.ChangeListener;
@@ -24,9 +25,16 @@ public final class AtomicPropertyListenerDelegate<T> {
 
   private static final WeakReference EMPTY_REF = new WeakReference<>(null);
   private WeakReference<ObservableValue<? extends T>> bound = EMPTY_REF;
-  private final List<InvalidationListener> invalidationListeners = new ArrayList<>();
-  private final List<ImmediateChangeListener<? super T>> immediateListeners = new ArrayList<>();
-  private final List<ChangeListener<? super T>> changeListeners = new ArrayList<>();
+  private final List<InvalidationListener> invalidationListeners = new CopyOnWriteArrayList<>();
+  private final List<ImmediateChangeListener<? super T>> immediateListeners = new CopyOnWriteArrayList<>();
+  private final List<ChangeListener<? super T>> changeListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * The coalesced change that has not yet been delivered to the listeners, or {@code null} if there is no such change.
+   * The old and new values are swapped together so a delivery never sees the old value of one change paired with the
+   * new value of another.
+   */
+  private final AtomicReference<PendingChange<T>> pendingChange = new AtomicReference<>();
 
   private final AtomicProperty<T> atomicProperty;
   private final ChangeListener<? super T> bindingListener;
@@ -67,16 +75,41 @@ public final class AtomicPropertyListenerDelegate<T> {
   }
 
   /**
-   * Fires all listeners when the value of the property changes. Invalidation listeners are scheduled first (but may not
-   * <i>run</i> first if this is not called from the JavaFX application thread), then, if the value has changed,
-   * the immediate listeners are called, and then the change listeners are scheduled to be called from the JavaFX
-   * application thread.
+   * Fires all listeners when the value of the property changes. If the value has changed, the immediate listeners are
+   * called first. Then, if this is called from the JavaFX application thread, the invalidation and change listeners
+   * are called immediately; otherwise, they are called later from the application thread by the
+   * {@link PropertyDispatcher}. If the value changes several times before they are called, the changes are coalesced
+   * and the listeners are only notified of the latest value.
    */
   public void invalidated(T oldValue, T newValue) {
-    invalidationListeners.forEach(l -> AsyncUtils.runAsync(() -> l.invalidated(atomicProperty)));
     if (EqualityUtils.isDifferent(oldValue, newValue)) {
       immediateListeners.forEach(l -> l.changed(atomicProperty, oldValue, newValue));
-      changeListeners.forEach(l -> AsyncUtils.runAsync(() -> l.changed(atomicProperty, oldValue, newValue)));
+    }
+    if (invalidationListeners.isEmpty() && changeListeners.isEmpty()) {
+      return;
+    }
+    final PendingChange<T> previous = pendingChange.getAndUpdate(
+        pending -> new PendingChange<>(pending == null ? oldValue : pending.oldValue, newValue));
+    final boolean firstPendingChange = previous == null;
+    if (!firstPendingChange) {
+      PropertyDispatcher.getDefault().recordCoalesced();
+    }
+    if (Platform.isFxApplicationThread()) {
+      deliverPendingChange();
+    } else if (firstPendingChange) {
+      PropertyDispatcher.getDefault().submit(this::deliverPendingChange);
+    }
+  }
+
+  private void deliverPendingChange() {
+    final PendingChange<T> change = pendingChange.getAndSet(null);
+    if (change == null) {
+      // Already delivered
+      return;
+    }
+    invalidationListeners.forEach(l -> l.invalidated(atomicProperty));
+    if (EqualityUtils.isDifferent(change.oldValue, change.newValue)) {
+      changeListeners.forEach(l -> l.changed(atomicProperty, change.oldValue, change.newValue));
     }
   }
 
@@ -104,4 +137,19 @@ public final class AtomicPropertyListenerDelegate<T> {
     invalidationListeners.remove(listener);
   }
 
+  /**
+   * An immutable pair of the old value of the earliest undelivered change and the new value of the latest one.
+   */
+  private static final class PendingChange<T> {
+
+    private final T oldValue;
+    private final T newValue;
+
+    PendingChange(T oldValue, T newValue) {
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+    }
+
+  }
+
 }
@@ -0,0 +1,142 @@
+package edu.wpi.first.shuffleboard.api.properties;
+
+import edu.wpi.first.shuffleboard.api.util.AsyncUtils;
+import edu.wpi.first.shuffleboard.api.util.SharedExecutors;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers change notifications for atomic properties to the JavaFX application thread in batches. Instead of
+ * scheduling one task on the application thread for every change to every property, properties that change from a
+ * background thread {@link #submit submit} a single delivery task, and only submit another once that has run. Any
+ * further changes made in the meantime are coalesced into the pending delivery, so listeners only see the latest
+ * value. All pending deliveries are run together by a single task on the application thread.
+ *
+ * <p>The rate at which batches are delivered can be capped with {@link #setMaxRefreshRate(int)}. By default, batches
+ * are delivered as soon as the application thread is free to run them; capped batches are delayed with the
+ * {@link SharedExecutors#getScheduler() shared scheduler}.
+ */
+public final class PropertyDispatcher {
+
+  private static final PropertyDispatcher defaultInstance = new PropertyDispatcher();
+
+  private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+  private volatile long minDrainPeriodNanos = 0;
+  private volatile long lastDrainNanos = 0;
+
+  private final LongAdder submittedCount = new LongAdder();
+  private final LongAdder coalescedCount = new LongAdder();
+  private final LongAdder drainCount = new LongAdder();
+
+  PropertyDispatcher() {
+  }
+
+  /**
+   * Gets the default dispatcher, which is used by all atomic properties.
+   */
+  public static PropertyDispatcher getDefault() {
+    return defaultInstance;
+  }
+
+  /**
+   * Submits a delivery task to run on the JavaFX application thread with the next batch.
+   *
+   * @param delivery the task to run
+   */
+  public void submit(Runnable delivery) {
+    submittedCount.increment();
+    pending.add(delivery);
+    pendingCount.incrementAndGet();
+    if (drainScheduled.compareAndSet(false, true)) {
+      scheduleDrain();
+    }
+  }
+
+  /**
+   * Records that a change was merged into a delivery that had already been submitted.
+   */
+  void recordCoalesced() {
+    coalescedCount.increment();
+  }
+
+  private void scheduleDrain() {
+    final long delay = lastDrainNanos + minDrainPeriodNanos - System.nanoTime();
+    if (minDrainPeriodNanos <= 0 || delay <= 0) {
+      AsyncUtils.runAsync(this::drain);
+    } else {
+      SharedExecutors.getScheduler().schedule(() -> AsyncUtils.runAsync(this::drain), delay, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void drain() {
+    drainScheduled.set(false);
+    lastDrainNanos = System.nanoTime();
+    drainCount.increment();
+    // Only run the tasks that were submitted before this batch started; anything submitted while the batch is
+    // running will be delivered with the next one
+    int remaining = pendingCount.get();
+    try {
+      Runnable delivery;
+      while (remaining > 0 && (delivery = pending.poll()) != null) {
+        pendingCount.decrementAndGet();
+        remaining--;
+        delivery.run();
+      }
+    } finally {
+      if (pendingCount.get() > 0 && drainScheduled.compareAndSet(false, true)) {
+        scheduleDrain();
+      }
+    }
+  }
+
+  /**
+   * Sets the maximum number of times per second that batches of changes are delivered to the JavaFX application
+   * thread. Changes made by the application thread itself are always delivered immediately.
+   *
+   * @param maxRefreshRate the maximum refresh rate, in batches per second. Use 0 for no limit
+   */
+  public void setMaxRefreshRate(int maxRefreshRate) {
+    if (maxRefreshRate < 0) {
+      throw new IllegalArgumentException("Refresh rate cannot be negative: " + maxRefreshRate);
+    }
+    minDrainPeriodNanos = maxRefreshRate == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / maxRefreshRate;
+  }
+
+  /**
+   * Gets the maximum number of times per second that batches of changes are delivered, or 0 if there is no limit.
+   */
+  public int getMaxRefreshRate() {
+    final long period = minDrainPeriodNanos;
+    return period == 0 ? 0 : (int) (TimeUnit.SECONDS.toNanos(1) / period);
+  }
+
+  /**
+   * Gets the total number of delivery tasks that have been submitted.
+   */
+  public long getSubmittedCount() {
+    return submittedCount.sum();
+  }
+
+  /**
+   * Gets the total number of changes that were merged into an already-pending delivery instead of being delivered on
+   * their own. Listeners never see the intermediate values of these changes.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
+  }
+
+  /**
+   * Gets the total number of batches that have been delivered.
+   */
+  public long getDrainCount() {
+    return drainCount.sum();
+  }
+
+}
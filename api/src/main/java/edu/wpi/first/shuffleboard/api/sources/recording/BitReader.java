@@ -0,0 +1,92 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+/**
+ * Reads a stream of bits written by a {@link BitWriter} from a region of a byte array.
+ */
+final class BitReader {
+
+  private final byte[] bytes;
+  private final long endBit;
+  private long bitPosition;
+
+  /**
+   * Creates a reader for a region of a byte array.
+   *
+   * @param bytes  the array to read from
+   * @param offset the position of the first byte of the stream in the array
+   * @param length the number of bytes in the stream
+   */
+  BitReader(byte[] bytes, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > bytes.length) {
+      throw new IllegalArgumentException(
+          "Region out of bounds: offset = " + offset + ", length = " + length + ", array length = " + bytes.length);
+    }
+    this.bytes = bytes;
+    this.bitPosition = offset * 8L;
+    this.endBit = (offset + (long) length) * 8L;
+  }
+
+  /**
+   * Reads a single bit.
+   */
+  boolean readBit() {
+    return readBits(1) != 0;
+  }
+
+  /**
+   * Reads a number of bits, most significant bit first.
+   *
+   * @param count the number of bits to read, from 0 to 64
+   *
+   * @return the bits, in the lowest bits of the returned value
+   */
+  long readBits(int count) {
+    if (count < 0 || count > 64) {
+      throw new IllegalArgumentException("Can only read 0 to 64 bits at a time, but was " + count);
+    }
+    if (bitPosition + count > endBit) {
+      throw new IllegalArgumentException("Not enough bits to read " + count + " at bit " + bitPosition);
+    }
+    long value = 0;
+    int remaining = count;
+    while (remaining > 0) {
+      final int index = (int) (bitPosition >>> 3);
+      final int available = 8 - (int) (bitPosition & 7);
+      final int n = Math.min(available, remaining);
+      final int chunk = ((bytes[index] & 0xFF) >>> (available - n)) & ((1 << n) - 1);
+      value = (value << n) | chunk;
+      bitPosition += n;
+      remaining -= n;
+    }
+    return value;
+  }
+
+  /**
+   * Reads a number written with {@link BitWriter#writeGamma(long)}.
+   */
+  long readGamma() {
+    int zeros = 0;
+    while (!readBit()) {
+      zeros++;
+      if (zeros > 63) {
+        throw new IllegalArgumentException("Malformed gamma code at bit " + bitPosition);
+      }
+    }
+    return (1L << zeros) | readBits(zeros);
+  }
+
+  /**
+   * Skips to the next byte boundary.
+   */
+  void alignToByte() {
+    bitPosition = (bitPosition + 7) & ~7L;
+  }
+
+  /**
+   * Gets the position in the array of the byte containing the next bit to be read.
+   */
+  int bytePosition() {
+    return (int) (bitPosition >>> 3);
+  }
+
+}
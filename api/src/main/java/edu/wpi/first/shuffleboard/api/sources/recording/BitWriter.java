@@ -0,0 +1,112 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import java.util.Arrays;
+
+/**
+ * Writes a stream of bits into a growable byte array. Bits are written most significant first, so the first bit
+ * written is the highest bit of the first byte.
+ */
+final class BitWriter {
+
+  private byte[] bytes;
+  private long bitLength = 0;
+
+  BitWriter() {
+    this(64);
+  }
+
+  BitWriter(int initialCapacity) {
+    bytes = new byte[Math.max(1, initialCapacity)];
+  }
+
+  /**
+   * Writes a single bit.
+   */
+  void writeBit(boolean bit) {
+    writeBits(bit ? 1 : 0, 1);
+  }
+
+  /**
+   * Writes the lowest bits of a value, most significant bit first.
+   *
+   * @param value the value to write the bits of
+   * @param count the number of bits to write, from 0 to 64
+   */
+  void writeBits(long value, int count) {
+    if (count < 0 || count > 64) {
+      throw new IllegalArgumentException("Can only write 0 to 64 bits at a time, but was " + count);
+    }
+    ensureCapacity(bitLength + count);
+    int remaining = count;
+    while (remaining > 0) {
+      final int index = (int) (bitLength >>> 3);
+      final int free = 8 - (int) (bitLength & 7);
+      final int n = Math.min(free, remaining);
+      final int chunk = (int) (value >>> (remaining - n)) & ((1 << n) - 1);
+      bytes[index] |= (byte) (chunk << (free - n));
+      bitLength += n;
+      remaining -= n;
+    }
+  }
+
+  /**
+   * Writes a positive number with the Elias gamma code: the number of bits in the number, less one, as a run of zeros,
+   * followed by the bits of the number. Small numbers take very few bits; 1 takes a single bit.
+   *
+   * @param value the number to write. Must be at least 1
+   */
+  void writeGamma(long value) {
+    if (value < 1) {
+      throw new IllegalArgumentException("Only positive numbers can be gamma coded, but was " + value);
+    }
+    final int bits = 64 - Long.numberOfLeadingZeros(value);
+    writeBits(0, bits - 1);
+    writeBits(value, bits);
+  }
+
+  /**
+   * Pads the stream with zeros up to the next byte boundary.
+   */
+  void alignToByte() {
+    bitLength = (bitLength + 7) & ~7L;
+  }
+
+  /**
+   * Writes whole bytes. The stream must be {@link #alignToByte() aligned} to a byte boundary.
+   *
+   * @param src the bytes to write
+   */
+  void writeBytes(byte[] src) { // NOPMD varargs
+    if ((bitLength & 7) != 0) {
+      throw new IllegalStateException("Not aligned to a byte boundary");
+    }
+    ensureCapacity(bitLength + src.length * 8L);
+    System.arraycopy(src, 0, bytes, (int) (bitLength >>> 3), src.length);
+    bitLength += src.length * 8L;
+  }
+
+  private void ensureCapacity(long bits) {
+    final long needed = (bits + 7) >>> 3;
+    if (needed > bytes.length) {
+      if (needed > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("Bit stream is too large");
+      }
+      bytes = Arrays.copyOf(bytes, (int) Math.max(needed, Math.min(Integer.MAX_VALUE - 8L, bytes.length * 2L)));
+    }
+  }
+
+  /**
+   * Gets the number of bytes needed to hold the bits written so far.
+   */
+  int byteLength() {
+    return (int) ((bitLength + 7) >>> 3);
+  }
+
+  /**
+   * Gets the bits written so far. The final byte is padded with zeros.
+   */
+  byte[] toByteArray() {
+    return Arrays.copyOf(bytes, byteLength());
+  }
+
+}
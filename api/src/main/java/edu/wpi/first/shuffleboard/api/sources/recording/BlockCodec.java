@@ -0,0 +1,368 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import edu.wpi.first.shuffleboard.api.data.DataType;
+import edu.wpi.first.shuffleboard.api.data.DataTypes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the data points of a single source in a compressed block. Timestamps are stored as
+ * delta-of-deltas, which take a single bit for a source that is recorded at a steady rate; values are encoded based
+ * on their type:
+ * <ul>
+ * <li>Numbers are stored as the XOR of each value with the previous one, so unchanged values take a single bit and
+ * values that change slightly only store the bits that changed</li>
+ * <li>Booleans are stored as the lengths of runs of the same value</li>
+ * <li>Strings are stored as indexes into a dictionary of the distinct strings in the block, with a single bit for a
+ * value that is the same as the previous one</li>
+ * <li>Anything else is stored as the serialized values, back to back, after the timestamps</li>
+ * </ul>
+ *
+ * <p>This is based on the encoding used by Facebook's Gorilla time series database.
+ */
+final class BlockCodec {
+
+  /**
+   * Encoding for values of types without a special encoding. Values are serialized with their type's serializer.
+   */
+  static final byte RAW = 0;
+
+  /**
+   * Encoding for {@link DataTypes#Number number} values.
+   */
+  static final byte NUMBER = 1;
+
+  /**
+   * Encoding for {@link DataTypes#Boolean boolean} values.
+   */
+  static final byte BOOLEAN = 2;
+
+  /**
+   * Encoding for {@link DataTypes#String string} values.
+   */
+  static final byte STRING = 3;
+
+  private BlockCodec() {
+    throw new UnsupportedOperationException("This is a utility class!");
+  }
+
+  /**
+   * Gets the encoding to use for values of the given type.
+   */
+  static byte encodingFor(DataType<?> type) {
+    if (type == DataTypes.Number) {
+      return NUMBER;
+    } else if (type == DataTypes.Boolean) {
+      return BOOLEAN;
+    } else if (type == DataTypes.String) {
+      return STRING;
+    } else {
+      return RAW;
+    }
+  }
+
+  /**
+   * Encodes data points from a single source with a single data type.
+   *
+   * @param encoding the encoding to use, as given by {@link #encodingFor(DataType)}
+   * @param points   the points to encode, in ascending order of timestamp. There must be at least one
+   *
+   * @return the encoded block
+   */
+  @SuppressWarnings("unchecked")
+  static byte[] encode(byte encoding, List<TimestampedData> points) {
+    final int count = points.size();
+    final BitWriter out = new BitWriter(count * 2 + 16);
+    final long[] timestamps = new long[count];
+    for (int i = 0; i < count; i++) {
+      timestamps[i] = points.get(i).getTimestamp();
+    }
+    writeTimestamps(out, timestamps);
+    switch (encoding) {
+      case NUMBER:
+        final double[] numbers = new double[count];
+        for (int i = 0; i < count; i++) {
+          numbers[i] = ((Number) points.get(i).getData()).doubleValue();
+        }
+        writeNumbers(out, numbers);
+        break;
+      case BOOLEAN:
+        final boolean[] booleans = new boolean[count];
+        for (int i = 0; i < count; i++) {
+          booleans[i] = (Boolean) points.get(i).getData();
+        }
+        writeBooleans(out, booleans);
+        break;
+      case STRING:
+        final String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+          strings[i] = (String) points.get(i).getData();
+        }
+        writeStrings(out, strings);
+        break;
+      default:
+        out.alignToByte();
+        for (TimestampedData point : points) {
+          out.writeBytes(Serialization.encode(point.getData(), (DataType) point.getDataType()));
+        }
+        break;
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Writes timestamps as delta-of-deltas. The first timestamp is written in full; each one after that is written as
+   * the difference between its delta from the previous timestamp and the previous delta, which is zero for a steady
+   * rate.
+   */
+  static void writeTimestamps(BitWriter out, long[] timestamps) { // NOPMD varargs
+    out.writeBits(timestamps[0], 64);
+    long previousDelta = 0;
+    for (int i = 1; i < timestamps.length; i++) {
+      final long delta = timestamps[i] - timestamps[i - 1];
+      final long deltaOfDelta = delta - previousDelta;
+      previousDelta = delta;
+      if (deltaOfDelta == 0) {
+        out.writeBit(false);
+      } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+        out.writeBits(0b10, 2);
+        out.writeBits(deltaOfDelta + 63, 7);
+      } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+        out.writeBits(0b110, 3);
+        out.writeBits(deltaOfDelta + 255, 9);
+      } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+        out.writeBits(0b1110, 4);
+        out.writeBits(deltaOfDelta + 2047, 12);
+      } else {
+        out.writeBits(0b1111, 4);
+        out.writeBits(deltaOfDelta, 64);
+      }
+    }
+  }
+
+  /**
+   * Reads timestamps written by {@link #writeTimestamps(BitWriter, long[])}.
+   */
+  static long[] readTimestamps(BitReader in, int count) {
+    final long[] timestamps = new long[count];
+    if (count == 0) {
+      return timestamps;
+    }
+    timestamps[0] = in.readBits(64);
+    long delta = 0;
+    for (int i = 1; i < count; i++) {
+      final long deltaOfDelta;
+      if (!in.readBit()) {
+        deltaOfDelta = 0;
+      } else if (!in.readBit()) {
+        deltaOfDelta = in.readBits(7) - 63;
+      } else if (!in.readBit()) {
+        deltaOfDelta = in.readBits(9) - 255;
+      } else if (!in.readBit()) {
+        deltaOfDelta = in.readBits(12) - 2047;
+      } else {
+        deltaOfDelta = in.readBits(64);
+      }
+      delta += deltaOfDelta;
+      timestamps[i] = timestamps[i - 1] + delta;
+    }
+    return timestamps;
+  }
+
+  /**
+   * Writes numbers as the XOR of each value with the previous one. A value equal to the previous one is written as a
+   * single zero bit. Otherwise, only the meaningful bits of the XOR (the bits between its leading and trailing zeros)
+   * are written; if they fit in the meaningful bits of the previous XOR, the previous number of leading and trailing
+   * zeros is reused, and otherwise the number of leading zeros and the number of meaningful bits is written first.
+   */
+  static void writeNumbers(BitWriter out, double[] values) { // NOPMD varargs
+    long previous = Double.doubleToRawLongBits(values[0]);
+    out.writeBits(previous, 64);
+    int previousLeading = Integer.MAX_VALUE;
+    int previousTrailing = 0;
+    for (int i = 1; i < values.length; i++) {
+      final long bits = Double.doubleToRawLongBits(values[i]);
+      final long xor = bits ^ previous;
+      previous = bits;
+      if (xor == 0) {
+        out.writeBit(false);
+        continue;
+      }
+      out.writeBit(true);
+      // Leading zeros are written with 5 bits, so anything past 31 is counted as part of the meaningful bits
+      final int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+      final int trailing = Long.numberOfTrailingZeros(xor);
+      if (leading >= previousLeading && trailing >= previousTrailing) {
+        out.writeBit(false);
+        out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+      } else {
+        final int meaningful = 64 - leading - trailing;
+        out.writeBit(true);
+        out.writeBits(leading, 5);
+        out.writeBits(meaningful - 1, 6);
+        out.writeBits(xor >>> trailing, meaningful);
+        previousLeading = leading;
+        previousTrailing = trailing;
+      }
+    }
+  }
+
+  /**
+   * Reads numbers written by {@link #writeNumbers(BitWriter, double[])}.
+   *
+   * @return the raw bits of the numbers, as given by {@link Double#doubleToRawLongBits(double)}
+   */
+  static long[] readNumbers(BitReader in, int count) {
+    final long[] values = new long[count];
+    if (count == 0) {
+      return values;
+    }
+    long previous = in.readBits(64);
+    values[0] = previous;
+    int leading = 0;
+    int trailing = 0;
+    for (int i = 1; i < count; i++) {
+      if (in.readBit()) {
+        if (in.readBit()) {
+          leading = (int) in.readBits(5);
+          trailing = 64 - leading - ((int) in.readBits(6) + 1);
+        }
+        previous ^= in.readBits(64 - leading - trailing) << trailing;
+      }
+      values[i] = previous;
+    }
+    return values;
+  }
+
+  /**
+   * Writes booleans as the first value, followed by the lengths of the runs of alternating values.
+   */
+  static void writeBooleans(BitWriter out, boolean[] values) { // NOPMD varargs
+    out.writeBit(values[0]);
+    int run = 1;
+    for (int i = 1; i < values.length; i++) {
+      if (values[i] == values[i - 1]) {
+        run++;
+      } else {
+        out.writeGamma(run);
+        run = 1;
+      }
+    }
+    out.writeGamma(run);
+  }
+
+  /**
+   * Reads booleans written by {@link #writeBooleans(BitWriter, boolean[])}.
+   */
+  static boolean[] readBooleans(BitReader in, int count) {
+    final boolean[] values = new boolean[count];
+    if (count == 0) {
+      return values;
+    }
+    boolean value = in.readBit();
+    int i = 0;
+    while (i < count) {
+      final long run = in.readGamma();
+      if (run > count - i) {
+        throw new IllegalArgumentException("Boolean run of " + run + " is longer than the remaining " + (count - i));
+      }
+      for (long j = 0; j < run; j++) {
+        values[i++] = value;
+      }
+      value = !value;
+    }
+    return values;
+  }
+
+  /**
+   * Writes strings as a dictionary of the distinct values, followed by an index into the dictionary for each value.
+   * Values that are the same as the previous one are written as a single zero bit.
+   */
+  static void writeStrings(BitWriter out, String[] values) { // NOPMD varargs
+    final Map<String, Integer> dictionary = new HashMap<>();
+    final int[] indexes = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      final String value = values[i];
+      indexes[i] = dictionary.computeIfAbsent(value, __ -> dictionary.size());
+    }
+    final String[] entries = new String[dictionary.size()];
+    dictionary.forEach((value, index) -> entries[index] = value);
+    out.writeGamma(entries.length);
+    for (String entry : entries) {
+      final byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+      out.writeGamma(bytes.length + 1L);
+      for (byte b : bytes) {
+        out.writeBits(b, 8);
+      }
+    }
+    final int indexBits = bitsForIndex(entries.length);
+    out.writeBits(indexes[0], indexBits);
+    for (int i = 1; i < indexes.length; i++) {
+      if (indexes[i] == indexes[i - 1]) {
+        out.writeBit(false);
+      } else {
+        out.writeBit(true);
+        out.writeBits(indexes[i], indexBits);
+      }
+    }
+  }
+
+  /**
+   * Reads the dictionary of strings written by {@link #writeStrings(BitWriter, String[])}. The dictionary indexes of
+   * the values follow, and are read with {@link #readStringIndexes(BitReader, int, int)}.
+   */
+  static String[] readStringDictionary(BitReader in) {
+    final long size = in.readGamma();
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("String dictionary is too large: " + size);
+    }
+    final String[] entries = new String[(int) size];
+    for (int i = 0; i < entries.length; i++) {
+      final long length = in.readGamma() - 1;
+      if (length > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("String is too large: " + length);
+      }
+      final byte[] bytes = new byte[(int) length];
+      for (int j = 0; j < bytes.length; j++) {
+        bytes[j] = (byte) in.readBits(8);
+      }
+      entries[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return entries;
+  }
+
+  /**
+   * Reads the dictionary indexes of strings written by {@link #writeStrings(BitWriter, String[])}.
+   */
+  static int[] readStringIndexes(BitReader in, int count, int dictionarySize) {
+    final int[] indexes = new int[count];
+    if (count == 0) {
+      return indexes;
+    }
+    final int indexBits = bitsForIndex(dictionarySize);
+    indexes[0] = readIndex(in, indexBits, dictionarySize);
+    for (int i = 1; i < count; i++) {
+      indexes[i] = in.readBit() ? readIndex(in, indexBits, dictionarySize) : indexes[i - 1];
+    }
+    return indexes;
+  }
+
+  private static int readIndex(BitReader in, int indexBits, int dictionarySize) {
+    final long index = in.readBits(indexBits);
+    if (index >= dictionarySize) {
+      throw new IllegalArgumentException("String index " + index + " is out of bounds for " + dictionarySize);
+    }
+    return (int) index;
+  }
+
+  /**
+   * Gets the number of bits needed to write an index into a dictionary of the given size.
+   */
+  private static int bitsForIndex(int dictionarySize) {
+    return dictionarySize <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(dictionarySize - 1);
+  }
+
+}
@@ -59,6 +59,22 @@ public interface Converter {
    */
   void export(Recording recording, Path destination) throws IOException;
 
+  /**
+   * Converts the data in a recording file that matches a query, then exports the result to a file. The default
+   * implementation loads the matching data into memory and {@link #export(Recording, Path) exports} it; converters
+   * that can write data as it is read should override this to consume {@link RecordingReader#scan(RecordingQuery)}
+   * directly.
+   *
+   * @param reader      the reader for the recording file to export
+   * @param query       the query selecting the data to export
+   * @param destination the destination file to export to
+   *
+   * @throws IOException if the file could not be written
+   */
+  default void export(RecordingReader reader, RecordingQuery query, Path destination) throws IOException {
+    export(reader.toRecording(query), destination);
+  }
+
   /**
    * Gets the settings for this converter. Defaults to an empty list; implementations may override this behavior
    * to provide custom settings.
@@ -0,0 +1,177 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import edu.wpi.first.shuffleboard.api.data.DataType;
+import edu.wpi.first.shuffleboard.api.data.DataTypes;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, multi-producer, single-consumer ring buffer of recorded data points. Producers claim a slot with a single
+ * compare-and-set and write the data into preallocated arrays; numbers and booleans are stored in primitive slots, so
+ * recording them does not allocate. The recorder's save thread is the only consumer, and converts the buffered data
+ * into {@link TimestampedData} objects when it drains the buffer.
+ *
+ * <p>Offering data never blocks. If the buffer is full, the offer is rejected and the producer is responsible for
+ * handling the data some other way.
+ */
+final class IngestBuffer {
+
+  private static final byte KIND_NUMBER = 0;
+  private static final byte KIND_BOOLEAN = 1;
+  private static final byte KIND_OBJECT = 2;
+
+  private final int mask;
+  private final long[] timestamps;
+  private final int[] handles;
+  private final byte[] kinds;
+  private final long[] primitives;
+  private final DataType<?>[] types;
+  private final Object[] objects;
+
+  /**
+   * Holds {@code sequence + 1} for the most recent sequence number published into each slot. A slot is ready to be
+   * consumed when its entry matches the sequence number the consumer is expecting.
+   */
+  private final AtomicLongArray published;
+  private final AtomicLong claimed = new AtomicLong();
+  private volatile long consumed = 0; // Only written by the consumer
+
+  /**
+   * Creates a new buffer.
+   *
+   * @param capacity the maximum number of data points the buffer can hold. Must be a power of two
+   */
+  IngestBuffer(int capacity) {
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Capacity must be a positive power of two, but was " + capacity);
+    }
+    mask = capacity - 1;
+    timestamps = new long[capacity];
+    handles = new int[capacity];
+    kinds = new byte[capacity];
+    primitives = new long[capacity];
+    types = new DataType<?>[capacity];
+    objects = new Object[capacity];
+    published = new AtomicLongArray(capacity);
+  }
+
+  /**
+   * Claims the next free slot.
+   *
+   * @return the sequence number of the claimed slot, or -1 if the buffer is full
+   */
+  private long claim() {
+    while (true) {
+      final long sequence = claimed.get();
+      if (sequence - consumed > mask) {
+        return -1;
+      }
+      if (claimed.compareAndSet(sequence, sequence + 1)) {
+        return sequence;
+      }
+    }
+  }
+
+  private void publish(long sequence) {
+    published.lazySet((int) (sequence & mask), sequence + 1);
+  }
+
+  private int fill(long sequence, int handle, long timestamp, byte kind) {
+    final int index = (int) (sequence & mask);
+    handles[index] = handle;
+    timestamps[index] = timestamp;
+    kinds[index] = kind;
+    return index;
+  }
+
+  /**
+   * Offers a number.
+   *
+   * @return true if the number was added to the buffer, false if the buffer is full
+   */
+  boolean offerNumber(int handle, long timestamp, double value) {
+    final long sequence = claim();
+    if (sequence < 0) {
+      return false;
+    }
+    final int index = fill(sequence, handle, timestamp, KIND_NUMBER);
+    primitives[index] = Double.doubleToRawLongBits(value);
+    publish(sequence);
+    return true;
+  }
+
+  /**
+   * Offers a boolean.
+   *
+   * @return true if the boolean was added to the buffer, false if the buffer is full
+   */
+  boolean offerBoolean(int handle, long timestamp, boolean value) {
+    final long sequence = claim();
+    if (sequence < 0) {
+      return false;
+    }
+    final int index = fill(sequence, handle, timestamp, KIND_BOOLEAN);
+    primitives[index] = value ? 1 : 0;
+    publish(sequence);
+    return true;
+  }
+
+  /**
+   * Offers a value of an arbitrary data type.
+   *
+   * @return true if the value was added to the buffer, false if the buffer is full
+   */
+  boolean offer(int handle, long timestamp, DataType<?> type, Object value) {
+    final long sequence = claim();
+    if (sequence < 0) {
+      return false;
+    }
+    final int index = fill(sequence, handle, timestamp, KIND_OBJECT);
+    types[index] = type;
+    objects[index] = value;
+    publish(sequence);
+    return true;
+  }
+
+  /**
+   * Removes all the published data from the buffer. This must only be called from one thread at a time.
+   *
+   * @param sourceIds the source IDs, indexed by the handles the data was offered with
+   * @param sink      the consumer to pass the removed data to
+   *
+   * @return the number of data points removed
+   */
+  int drain(List<String> sourceIds, Consumer<? super TimestampedData> sink) {
+    long sequence = consumed;
+    final long start = sequence;
+    while (true) {
+      final int index = (int) (sequence & mask);
+      if (published.get(index) != sequence + 1) {
+        break;
+      }
+      final String sourceId = sourceIds.get(handles[index]);
+      final long timestamp = timestamps[index];
+      switch (kinds[index]) {
+        case KIND_NUMBER:
+          sink.accept(new TimestampedData(
+              sourceId, DataTypes.Number, Double.longBitsToDouble(primitives[index]), timestamp));
+          break;
+        case KIND_BOOLEAN:
+          sink.accept(new TimestampedData(sourceId, DataTypes.Boolean, primitives[index] != 0, timestamp));
+          break;
+        default:
+          sink.accept(new TimestampedData(sourceId, types[index], objects[index], timestamp));
+          types[index] = null;
+          objects[index] = null;
+          break;
+      }
+      sequence++;
+      consumed = sequence;
+    }
+    return (int) (sequence - start);
+  }
+
+}
@@ -9,9 +9,9 @@ import edu.wpi.first.shuffleboard.api.sources.SourceType;
 import edu.wpi.first.shuffleboard.api.sources.SourceTypes;
 import edu.wpi.first.shuffleboard.api.sources.recording.serialization.Serializer;
 import edu.wpi.first.shuffleboard.api.sources.recording.serialization.Serializers;
+import edu.wpi.first.shuffleboard.api.util.SharedExecutors;
 import edu.wpi.first.shuffleboard.api.util.ShutdownHooks;
 import edu.wpi.first.shuffleboard.api.util.Storage;
-import edu.wpi.first.shuffleboard.api.util.ThreadUtils;
 
 import com.google.common.annotations.VisibleForTesting;
 
@@ -19,12 +19,19 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.Instant;
-import java.util.concurrent.Executors;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.Deflater;
 
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 
@@ -39,21 +46,38 @@ public final class Recorder {
   public static final String DEFAULT_RECORDING_FILE_NAME_FORMAT = "recording-${time}";
   private static final Recorder instance = new Recorder();
 
+  /**
+   * The maximum number of data points that can be recorded between saves before recording falls back to the slower,
+   * locking path. At the default save rate of once every two seconds, this allows for over 30,000 updates per second.
+   */
+  private static final int INGEST_BUFFER_SIZE = 1 << 16;
+
   private final BooleanProperty running = new AtomicBooleanProperty(this, "running", false);
   private final StringProperty fileNameFormat =
       new SimpleStringProperty(this, "fileNameFormat", DEFAULT_RECORDING_FILE_NAME_FORMAT);
+  private final BooleanProperty compressData = new AtomicBooleanProperty(this, "compressData", false);
+  private final IntegerProperty compressionLevel = new SimpleIntegerProperty(this, "compressionLevel", 0);
   private String currentFileNameFormat = DEFAULT_RECORDING_FILE_NAME_FORMAT; // NOPMD - PMD can't handle lambdas
   private Instant startTime = null;
-  private Recording recording = null;
-  private File recordingFile;
+  private volatile long startNanos = 0;
+  private volatile long lastSaveNanos = 0;
+  private volatile Recording recording = null;
+  private final IngestBuffer ingestBuffer = new IngestBuffer(INGEST_BUFFER_SIZE);
+  private final Map<String, Integer> sourceHandles = new ConcurrentHashMap<>();
+  private final List<String> handleSourceIds = new CopyOnWriteArrayList<>();
+  private volatile File recordingFile;
+  private RecordingWriter writer;
 
   private final Object startStopLock = new Object();
   private boolean firstSave = true;
+  private final AtomicBoolean periodicSaveRunning = new AtomicBoolean(false); // Skip saves while one is still running
 
   private final boolean enableDiskWrites;
+  private final Path recordingDirectory; // Null to save recordings in the default location
 
-  private Recorder(boolean enableDiskWrites) {
+  private Recorder(boolean enableDiskWrites, Path recordingDirectory) {
     this.enableDiskWrites = enableDiskWrites;
+    this.recordingDirectory = recordingDirectory;
     // Save the recording at the start (get the initial values) and the stop
     running.addListener((__, wasRunning, isRunning) -> {
       try {
@@ -71,17 +95,14 @@ public final class Recorder {
       }
     });
 
-    // Save the recording every 2 seconds
+    // Save the recording every 2 seconds. Saving writes to disk, so it runs on the blocking executor instead of
+    // holding up the shared scheduler
     if (enableDiskWrites) {
-      Executors.newSingleThreadScheduledExecutor(ThreadUtils::makeDaemonThread)
+      SharedExecutors.getScheduler()
           .scheduleAtFixedRate(
               () -> {
-                if (isRunning()) {
-                  try {
-                    saveToDisk();
-                  } catch (Exception e) {
-                    log.log(Level.WARNING, "Could not save recording", e);
-                  }
+                if (isRunning() && periodicSaveRunning.compareAndSet(false, true)) {
+                  SharedExecutors.getBlockingExecutor().execute(this::periodicSave);
                 }
               }, 0, 2, TimeUnit.SECONDS);
     }
@@ -89,7 +110,19 @@ public final class Recorder {
   }
 
   private Recorder() {
-    this(true);
+    this(true, null);
+  }
+
+  private void periodicSave() {
+    try {
+      if (isRunning()) {
+        saveToDisk();
+      }
+    } catch (Exception e) {
+      log.log(Level.WARNING, "Could not save recording", e);
+    } finally {
+      periodicSaveRunning.set(false);
+    }
   }
 
   private void saveToDisk() throws IOException {
@@ -97,22 +130,41 @@ public final class Recorder {
       // Nothing to save
       return;
     }
-    Path file = Storage.createRecordingFilePath(startTime, currentFileNameFormat);
-    if (recordingFile == null) {
-      recordingFile = file.toFile();
-    }
+    final Path file;
     synchronized (startStopLock) {
+      if (writer == null && !firstSave && !isRunning()) {
+        // Already stopped and saved; reopening the file would rewrite the finished recording
+        return;
+      }
+      file = createRecordingFilePath();
+      if (recordingFile == null) {
+        recordingFile = file.toFile();
+      }
+      lastSaveNanos = System.nanoTime();
+      ingestBuffer.drain(handleSourceIds, recording::append);
       if (firstSave) {
-        Serialization.saveRecording(recording, file);
+        closeWriter();
+        writer = RecordingWriter.create(file);
         firstSave = false;
-      } else {
-        Serialization.updateRecordingSave(recording, file);
+      } else if (writer == null) {
+        // The recording was stopped; append to the finished file instead of overwriting it
+        writer = RecordingWriter.open(file);
       }
+      writer.setCompressed(isCompressData());
+      writer.setCompressionLevel(Math.max(0, Math.min(getCompressionLevel(), Deflater.BEST_COMPRESSION)));
+      writer.append(recording);
       Serializers.getAdapters().forEach(Serializer::flush);
     }
     log.fine("Saved recording to " + file);
   }
 
+  private Path createRecordingFilePath() throws IOException {
+    if (recordingDirectory == null) {
+      return Storage.createRecordingFilePath(startTime, currentFileNameFormat);
+    }
+    return recordingDirectory.resolve(startTime.toEpochMilli() + ".sbr");
+  }
+
   /**
    * Gets the recorder instance.
    */
@@ -124,7 +176,15 @@ public final class Recorder {
    * Creates a new Recorder instance that does not write anything to disk.
    */
   public static Recorder createDummyInstance() {
-    return new Recorder(false);
+    return new Recorder(false, null);
+  }
+
+  /**
+   * Creates a new Recorder instance that saves recordings in the given directory instead of the default location.
+   */
+  @VisibleForTesting
+  static Recorder createInstance(Path recordingDirectory) {
+    return new Recorder(true, recordingDirectory);
   }
 
   /**
@@ -133,7 +193,12 @@ public final class Recorder {
   public void start() {
     synchronized (startStopLock) {
       startTime = Instant.now();
+      startNanos = System.nanoTime();
+      lastSaveNanos = startNanos;
       firstSave = true;
+      // Discard anything that was recorded after the last save of the previous recording
+      ingestBuffer.drain(handleSourceIds, __ -> {
+      });
       recording = new Recording();
       // Record initial conditions
       SourceTypes.getDefault().getItems().stream()
@@ -158,11 +223,28 @@ public final class Recorder {
     }
     synchronized (startStopLock) {
       setRunning(false);
+      closeWriter();
       recordingFile = null;
       Serializers.cleanUpAll();
     }
   }
 
+  /**
+   * Finishes the current recording file, if one is being written to.
+   */
+  private void closeWriter() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Could not finish recording file", e);
+    } finally {
+      writer = null;
+    }
+  }
+
   /**
    * Resets this recorder.
    */
@@ -178,6 +260,25 @@ public final class Recorder {
     record(source.getId(), source.getDataType(), source.getData());
   }
 
+  /**
+   * Gets the handle for a source ID. Handles can be used to record data without having to look up the source ID
+   * every time, and are valid for the lifetime of the application.
+   *
+   * @param id the ID of the source to get the handle for
+   */
+  public int getSourceHandle(String id) {
+    Integer handle = sourceHandles.get(id);
+    if (handle != null) {
+      return handle;
+    }
+    synchronized (sourceHandles) {
+      return sourceHandles.computeIfAbsent(id, __ -> {
+        handleSourceIds.add(id);
+        return handleSourceIds.size() - 1;
+      });
+    }
+  }
+
   /**
    * Records a data point at the current time.
    *
@@ -189,7 +290,110 @@ public final class Recorder {
     if (!isRunning()) {
       return;
     }
-    recording.append(new TimestampedData(id.intern(), dataType, value, timestamp()));
+    final int handle = getSourceHandle(id);
+    final long timestamp = timestamp();
+    if (!ingestBuffer.offer(handle, timestamp, dataType, value)) {
+      recordSlow(handle, dataType, value, timestamp);
+    }
+  }
+
+  /**
+   * Records a data point at the time it was captured, rather than the current time. This is useful for data that takes
+   * a long time to process before it can be recorded, such as video frames that need to be encoded first.
+   *
+   * @param id          the ID of the value to record
+   * @param dataType    the type of the value
+   * @param value       the value to record
+   * @param captureTime the time at which the value was captured, as given by {@link System#nanoTime()}
+   */
+  public void record(String id, DataType<?> dataType, Object value, long captureTime) {
+    if (!isRunning()) {
+      return;
+    }
+    record(getSourceHandle(id), dataType, value, captureTime);
+  }
+
+  /**
+   * Records a data point at the time it was captured. Unlike {@link #record(String, DataType, Object, long)}, this does
+   * not need to look up the source ID.
+   *
+   * @param sourceHandle the {@link #getSourceHandle handle} of the source of the value
+   * @param dataType     the type of the value
+   * @param value        the value to record
+   * @param captureTime  the time at which the value was captured, as given by {@link System#nanoTime()}
+   */
+  public void record(int sourceHandle, DataType<?> dataType, Object value, long captureTime) {
+    if (!isRunning()) {
+      return;
+    }
+    final long timestamp = timestamp(captureTime);
+    if (!ingestBuffer.offer(sourceHandle, timestamp, dataType, value)) {
+      recordSlow(sourceHandle, dataType, value, timestamp);
+    }
+  }
+
+  /**
+   * Records a number at the current time. This does not allocate any objects.
+   *
+   * @param sourceHandle the {@link #getSourceHandle handle} of the source of the number
+   * @param value        the number to record
+   */
+  public void recordNumber(int sourceHandle, double value) {
+    recordNumber(sourceHandle, value, System.nanoTime());
+  }
+
+  /**
+   * Records a number at the time it was captured. This does not allocate any objects.
+   *
+   * @param sourceHandle the {@link #getSourceHandle handle} of the source of the number
+   * @param value        the number to record
+   * @param captureTime  the time at which the number was captured, as given by {@link System#nanoTime()}
+   */
+  public void recordNumber(int sourceHandle, double value, long captureTime) {
+    if (!isRunning()) {
+      return;
+    }
+    final long timestamp = timestamp(captureTime);
+    if (!ingestBuffer.offerNumber(sourceHandle, timestamp, value)) {
+      recordSlow(sourceHandle, DataTypes.Number, value, timestamp);
+    }
+  }
+
+  /**
+   * Records a boolean at the current time. This does not allocate any objects.
+   *
+   * @param sourceHandle the {@link #getSourceHandle handle} of the source of the boolean
+   * @param value        the boolean to record
+   */
+  public void recordBoolean(int sourceHandle, boolean value) {
+    recordBoolean(sourceHandle, value, System.nanoTime());
+  }
+
+  /**
+   * Records a boolean at the time it was captured. This does not allocate any objects.
+   *
+   * @param sourceHandle the {@link #getSourceHandle handle} of the source of the boolean
+   * @param value        the boolean to record
+   * @param captureTime  the time at which the boolean was captured, as given by {@link System#nanoTime()}
+   */
+  public void recordBoolean(int sourceHandle, boolean value, long captureTime) {
+    if (!isRunning()) {
+      return;
+    }
+    final long timestamp = timestamp(captureTime);
+    if (!ingestBuffer.offerBoolean(sourceHandle, timestamp, value)) {
+      recordSlow(sourceHandle, DataTypes.Boolean, value, timestamp);
+    }
+  }
+
+  /**
+   * Adds data directly to the recording when the ingest buffer is full.
+   */
+  private void recordSlow(int sourceHandle, DataType<?> dataType, Object value, long timestamp) {
+    Recording current = recording;
+    if (current != null) {
+      current.append(new TimestampedData(handleSourceIds.get(sourceHandle), dataType, value, timestamp));
+    }
   }
 
   /**
@@ -207,7 +411,20 @@ public final class Recorder {
   }
 
   private long timestamp() {
-    return Instant.now().toEpochMilli() - startTime.toEpochMilli();
+    return timestamp(System.nanoTime());
+  }
+
+  private long timestamp(long nanoTime) {
+    return Math.max(0, nanoTime - startNanos) / 1_000_000;
+  }
+
+  /**
+   * Gets the time at which the recording was last saved, or at which it started if it has not been saved yet, as given
+   * by {@link System#nanoTime()}. Data recorded with a capture time before this is saved after newer data, so
+   * recording sources that can deliver arbitrarily old data should record it no earlier than this time.
+   */
+  public long getLastSaveTime() {
+    return lastSaveNanos;
   }
 
   public boolean isRunning() {
@@ -238,6 +455,39 @@ public final class Recorder {
     this.fileNameFormat.set(fileNameFormat);
   }
 
+  public boolean isCompressData() {
+    return compressData.get();
+  }
+
+  /**
+   * Whether data is compressed when it is saved to the recording file. Compressed recordings are much smaller, but
+   * can't be read by older versions of shuffleboard. Changes take effect the next time the recording is saved.
+   */
+  public BooleanProperty compressDataProperty() {
+    return compressData;
+  }
+
+  public void setCompressData(boolean compressData) {
+    this.compressData.set(compressData);
+  }
+
+  public int getCompressionLevel() {
+    return compressionLevel.get();
+  }
+
+  /**
+   * The level of general-purpose compression applied to data saved to the recording file, from 0 (no compression) to 9
+   * (best compression). Levels outside that range are clamped. Changes take effect the next time the recording is
+   * saved.
+   */
+  public IntegerProperty compressionLevelProperty() {
+    return compressionLevel;
+  }
+
+  public void setCompressionLevel(int compressionLevel) {
+    this.compressionLevel.set(compressionLevel);
+  }
+
   /**
    * Gets the recording being recorded to. This method should only be used for tests to make sure the recording is
    * being used properly.
@@ -245,6 +495,9 @@ public final class Recorder {
   @VisibleForTesting
   public Recording getRecording() {
     synchronized (startStopLock) {
+      if (recording != null) {
+        ingestBuffer.drain(handleSourceIds, recording::append);
+      }
       return recording;
     }
   }
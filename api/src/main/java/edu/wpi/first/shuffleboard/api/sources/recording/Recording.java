@@ -6,7 +6,9 @@ import com.google.common.collect.ImmutableList;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class Recording {
 
@@ -14,7 +16,7 @@ public class Recording {
   private TimestampedData last;
   private final List<TimestampedData> data = Collections.synchronizedList(new ArrayList<>());
   private final List<Marker> markers = Collections.synchronizedList(new ArrayList<>());
-  private final List<String> sourceIds = new ArrayList<>();
+  private final Set<String> sourceIds = new LinkedHashSet<>();
 
   private final FunctionalReadWriteLock lock = FunctionalReadWriteLock.createReentrant();
 
@@ -27,9 +29,7 @@ public class Recording {
     try {
       lock.writeLock().lock();
       this.data.add(data);
-      if (!sourceIds.contains(data.getSourceId())) {
-        sourceIds.add(data.getSourceId());
-      }
+      sourceIds.add(data.getSourceId());
       if (first == null || data.getTimestamp() < first.getTimestamp()) {
         first = data;
       }
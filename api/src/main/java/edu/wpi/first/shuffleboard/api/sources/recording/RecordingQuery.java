@@ -0,0 +1,102 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Selects the data in a recording file to {@link RecordingReader#scan(RecordingQuery) scan}: the data recorded within
+ * a range of time from sources that match a filter. Queries are immutable.
+ */
+public final class RecordingQuery {
+
+  private static final RecordingQuery ALL = new RecordingQuery(Long.MIN_VALUE, Long.MAX_VALUE, null);
+
+  private final long startTime;
+  private final long endTime;
+  private final Predicate<String> sourceFilter;
+
+  private RecordingQuery(long startTime, long endTime, Predicate<String> sourceFilter) {
+    this.startTime = startTime;
+    this.endTime = endTime;
+    this.sourceFilter = sourceFilter;
+  }
+
+  /**
+   * Gets a query for all the data in a recording.
+   */
+  public static RecordingQuery all() {
+    return ALL;
+  }
+
+  /**
+   * Creates a query for the data recorded within a range of time from every source.
+   *
+   * @param startTime the timestamp of the start of the range, inclusive
+   * @param endTime   the timestamp of the end of the range, inclusive
+   *
+   * @throws IllegalArgumentException if the end of the range is before the start
+   */
+  public static RecordingQuery between(long startTime, long endTime) {
+    if (endTime < startTime) {
+      throw new IllegalArgumentException("End time " + endTime + " is before start time " + startTime);
+    }
+    return new RecordingQuery(startTime, endTime, null);
+  }
+
+  /**
+   * Creates a copy of this query that only matches the sources whose IDs match the given filter.
+   *
+   * @param sourceFilter the filter for the IDs of the sources to include, eg
+   *                     {@code id -> id.startsWith("network_table:///SmartDashboard/Drive/")}
+   */
+  public RecordingQuery withSources(Predicate<String> sourceFilter) {
+    Objects.requireNonNull(sourceFilter, "sourceFilter");
+    return new RecordingQuery(startTime, endTime, sourceFilter);
+  }
+
+  /**
+   * Gets the timestamp of the start of the time range, inclusive.
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Gets the timestamp of the end of the time range, inclusive.
+   */
+  public long getEndTime() {
+    return endTime;
+  }
+
+  /**
+   * Checks if this query matches every source.
+   */
+  public boolean isAllSources() {
+    return sourceFilter == null;
+  }
+
+  /**
+   * Checks if a timestamp is within the time range of this query.
+   *
+   * @param timestamp the timestamp to check
+   */
+  public boolean containsTime(long timestamp) {
+    return timestamp >= startTime && timestamp <= endTime;
+  }
+
+  /**
+   * Checks if data from a source matches this query.
+   *
+   * @param sourceId the ID of the source to check
+   */
+  public boolean matchesSource(String sourceId) {
+    return sourceFilter == null || sourceFilter.test(sourceId);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("RecordingQuery(startTime=%d, endTime=%d, allSources=%s)",
+        startTime, endTime, isAllSources());
+  }
+
+}
@@ -0,0 +1,979 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import edu.wpi.first.shuffleboard.api.data.DataType;
+import edu.wpi.first.shuffleboard.api.data.DataTypes;
+import edu.wpi.first.shuffleboard.api.sources.recording.Serialization.Chunks;
+import edu.wpi.first.shuffleboard.api.sources.recording.Serialization.Offsets;
+import edu.wpi.first.shuffleboard.api.sources.recording.serialization.Serializers;
+import edu.wpi.first.shuffleboard.api.sources.recording.serialization.TypeAdapter;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static edu.wpi.first.shuffleboard.api.sources.recording.Serialization.SIZE_OF_BYTE;
+import static edu.wpi.first.shuffleboard.api.sources.recording.Serialization.SIZE_OF_INT;
+import static edu.wpi.first.shuffleboard.api.sources.recording.Serialization.SIZE_OF_LONG;
+import static edu.wpi.first.shuffleboard.api.sources.recording.Serialization.SIZE_OF_SHORT;
+
+/**
+ * Reads recording files without loading their contents into memory. The file is memory-mapped and indexed when it is
+ * opened; the index stores the timestamp, source, and position in the file of every recorded data point (a "frame") in
+ * primitive arrays. Values are only deserialized when they are {@link #read(int) read}. The frames of each source are
+ * also indexed, so the value of every source at any point in the recording can be found with
+ * {@link #getLatestFrame(int, int)} without scanning the frames in between.
+ *
+ * <p>Frames are numbered in ascending order of timestamp, regardless of the order they were written to the file in.
+ * Frames with the same timestamp are in the order they were written.
+ *
+ * <p>Compressed data is decoded when the file is indexed. Compressed numbers, booleans, and strings are kept in memory
+ * in their decoded form, since they can't be read individually from the file; the values of other types are still
+ * deserialized from the file when they are read.
+ *
+ * <p>Deflated chunks are decompressed in parallel when the file is indexed, then discarded. When a value in a deflated
+ * chunk is read, only that chunk is decompressed again; the most recently used chunks are cached.
+ *
+ * <p>Readers are immutable once opened and are safe to use from multiple threads.
+ */
+public final class RecordingReader {
+
+  private static final Logger log = Logger.getLogger(RecordingReader.class.getName());
+
+  private static final int DEFAULT_CAPACITY = 1024;
+  private static final int MIN_FRAME_SIZE = SIZE_OF_LONG + SIZE_OF_SHORT + SIZE_OF_SHORT;
+
+  // Value lengths of frames whose values were decoded from compressed blocks. The value offset of a number frame is the
+  // index of its value in decodedNumbers; of a boolean frame, 1 for true and 0 for false; and of a string frame, the
+  // index of its value in decodedStrings
+  private static final int DECODED_NUMBER = -1;
+  private static final int DECODED_BOOLEAN = -2;
+  private static final int DECODED_STRING = -3;
+
+  /**
+   * The maximum number of deflated chunks that are decompressed at once while indexing.
+   */
+  private static final int DECOMPRESSION_BATCH_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  /**
+   * The number of decompressed chunks that are kept in memory for reading values.
+   */
+  private static final int DECOMPRESSED_CACHE_SIZE = 4;
+
+  private final Path file;
+  private final ByteBuffer buffer;
+
+  private final List<String> constantPool = new ArrayList<>();
+  private final List<String> sourceIds = new ArrayList<>();
+  private final List<Marker> markers = new ArrayList<>();
+  private DataType<?>[] dataTypes = new DataType<?>[0];
+  private int[] sourceIndexes = new int[0];
+
+  private long[] timestamps;
+  private int[] sources;
+  private short[] types;
+  private int[] valueOffsets;
+  private int[] valueLengths;
+  private int numFrames = 0;
+
+  private double[] decodedNumbers = new double[0];
+  private int numDecodedNumbers = 0;
+  private final List<String> decodedStrings = new ArrayList<>();
+
+  // Deflated chunk i is at deflatedPositions[i] in the file. While indexing, the frames with values in that chunk are
+  // deflatedFirstFrames[i] (inclusive) to deflatedEndFrames[i] (exclusive); once the frames are sorted, the chunk
+  // containing the value of each frame is in deflatedChunks, or -1 if the value is not in a deflated chunk
+  private int[] deflatedFirstFrames = new int[0];
+  private int[] deflatedEndFrames = new int[0];
+  private int[] deflatedPositions = new int[0];
+  private int numDeflatedChunks = 0;
+  private int[] deflatedChunks;
+
+  // Chunks decompressed ahead of being indexed, by position in the file. Only used while indexing
+  private final Map<Integer, byte[]> decompressedAhead = new HashMap<>();
+
+  // Guarded by itself
+  private final Map<Integer, byte[]> decompressedCache =
+      new LinkedHashMap<>(DECOMPRESSED_CACHE_SIZE + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+          return size() > DECOMPRESSED_CACHE_SIZE;
+        }
+      };
+
+  // Frame numbers grouped by source: the frames for source i are in sourceFrames[sourceFrameStarts[i]] (inclusive)
+  // to sourceFrames[sourceFrameStarts[i + 1]] (exclusive), in ascending order
+  private int[] sourceFrameStarts;
+  private int[] sourceFrames;
+
+  private byte[] scratch = new byte[0];
+
+  private RecordingReader(Path file, ByteBuffer buffer) {
+    this.file = file;
+    this.buffer = buffer;
+  }
+
+  /**
+   * Opens and indexes a recording file.
+   *
+   * @param file the recording file to open
+   *
+   * @throws IOException if the file could not be read, or if it is in an unexpected binary format
+   */
+  public static RecordingReader open(Path file) throws IOException {
+    final ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Recording file is too large (" + size + " bytes): " + file);
+      }
+      // The mapping stays valid after the channel is closed
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    RecordingReader reader = new RecordingReader(file, buffer);
+    reader.buildIndex();
+    return reader;
+  }
+
+  private void buildIndex() throws IOException {
+    final int size = buffer.limit();
+    if (size < Chunks.FILE_HEADER_SIZE) {
+      throw new IOException("Recording file too small");
+    }
+    final int magic = buffer.getInt(0);
+    if (magic != Serialization.MAGIC_NUMBER) {
+      throw new IOException(
+          String.format("Wrong magic number in the header. Expected 0x%08X, but was 0x%08X",
+              Serialization.MAGIC_NUMBER, magic));
+    }
+    final int version = buffer.getInt(SIZE_OF_INT);
+    if (version != Serialization.VERSION && version != Serialization.LEGACY_VERSION) {
+      throw new IOException(
+          "Cannot load recording with format version " + version + ". The current format version is "
+              + Serialization.VERSION);
+    }
+    Serializers.getAdapters().forEach(a -> a.setCurrentFile(file.toFile()));
+    if (version == Serialization.LEGACY_VERSION) {
+      indexLegacyFile();
+    } else {
+      indexChunks();
+      decompressedAhead.clear();
+    }
+    // Release the temporary buffer used for indexing
+    scratch = null;
+    indexDeflatedChunks();
+    // Data points are only sorted within each chunk when they're written, and data captured before a chunk was saved
+    // can be recorded after it, so later chunks may contain data points older than earlier ones
+    sortFrames(0, numFrames);
+    indexSources();
+  }
+
+  private void indexDeflatedChunks() {
+    if (numDeflatedChunks == 0) {
+      return;
+    }
+    deflatedChunks = new int[numFrames];
+    Arrays.fill(deflatedChunks, -1);
+    for (int chunk = 0; chunk < numDeflatedChunks; chunk++) {
+      Arrays.fill(deflatedChunks, deflatedFirstFrames[chunk], deflatedEndFrames[chunk], chunk);
+    }
+    deflatedFirstFrames = null;
+    deflatedEndFrames = null;
+  }
+
+  private void indexSources() {
+    final int numSources = sourceIds.size();
+    sourceFrameStarts = new int[numSources + 1];
+    for (int i = 0; i < numFrames; i++) {
+      sourceFrameStarts[sources[i] + 1]++;
+    }
+    for (int source = 0; source < numSources; source++) {
+      sourceFrameStarts[source + 1] += sourceFrameStarts[source];
+    }
+    sourceFrames = new int[numFrames];
+    final int[] next = Arrays.copyOf(sourceFrameStarts, numSources);
+    for (int i = 0; i < numFrames; i++) {
+      sourceFrames[next[sources[i]]++] = i;
+    }
+  }
+
+  private void indexChunks() throws IOException {
+    final int size = buffer.limit();
+    allocate(expectedFrameCount());
+    int cursor = Chunks.FILE_HEADER_SIZE;
+    while (cursor + Chunks.CHUNK_HEADER_SIZE <= size) {
+      final byte chunkType = buffer.get(cursor);
+      final int length = buffer.getInt(cursor + SIZE_OF_BYTE);
+      final int payloadStart = cursor + Chunks.CHUNK_HEADER_SIZE;
+      if (length < 0 || payloadStart + length > size) {
+        // The last chunk was only partially written; everything before it is still usable
+        log.warning("Recording file " + file + " ends with an incomplete chunk at position " + cursor);
+        break;
+      }
+      switch (chunkType) {
+        case Chunks.CONSTANT_POOL:
+          copyToScratch(payloadStart, length);
+          addToConstantPool(Serialization.readStringArray(scratch, 0));
+          break;
+        case Chunks.MARKERS:
+          copyToScratch(payloadStart, length);
+          readMarkers(0);
+          break;
+        case Chunks.DATA:
+          copyToScratch(payloadStart, length);
+          indexData(payloadStart);
+          break;
+        case Chunks.BLOCKS:
+          copyToScratch(payloadStart, length);
+          indexBlocks(payloadStart, cursor);
+          break;
+        case Chunks.DEFLATED:
+          indexDeflated(cursor);
+          break;
+        case Chunks.INDEX:
+          // Only used to size the frame arrays up front
+          break;
+        default:
+          throw new IOException("Unknown chunk type " + chunkType + " at position " + cursor);
+      }
+      cursor = payloadStart + length;
+    }
+  }
+
+  /**
+   * Gets the number of data points recorded in the index of a closed recording file, or a default guess if the file
+   * has no index.
+   */
+  private int expectedFrameCount() {
+    final int size = buffer.limit();
+    if (size < Chunks.FILE_HEADER_SIZE + Chunks.TRAILER_SIZE
+        || buffer.getInt(size - SIZE_OF_INT) != Chunks.END_MAGIC) {
+      return DEFAULT_CAPACITY;
+    }
+    final long indexPosition = buffer.getLong(size - Chunks.TRAILER_SIZE);
+    if (indexPosition < Chunks.FILE_HEADER_SIZE
+        || indexPosition > size - Chunks.TRAILER_SIZE - Chunks.CHUNK_HEADER_SIZE - SIZE_OF_INT
+        || buffer.get((int) indexPosition) != Chunks.INDEX) {
+      return DEFAULT_CAPACITY;
+    }
+    return buffer.getInt((int) indexPosition + Chunks.CHUNK_HEADER_SIZE);
+  }
+
+  private void indexLegacyFile() throws IOException {
+    // Legacy files have no chunks to read separately, so the entire file has to be copied in order to index it
+    final int size = buffer.limit();
+    copyToScratch(0, size);
+    final String[] pool = Serialization.readStringArray(scratch, Offsets.CONSTANT_POOL_HEADER_OFFSET);
+    addToConstantPool(pool);
+    allocate(Serialization.readInt(scratch, Offsets.NUMBER_DATA_POINTS_OFFSET));
+    int cursor = readMarkers(Offsets.CONSTANT_POOL_HEADER_OFFSET + Serialization.sizeOfStringArray(pool));
+    while (cursor < size) {
+      cursor = indexDataPoint(cursor, 0);
+    }
+  }
+
+  private void copyToScratch(int position, int length) {
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    buffer.duplicate().position(position).get(scratch, 0, length);
+  }
+
+  private void addToConstantPool(String[] entries) { // NOPMD varargs
+    constantPool.addAll(Arrays.asList(entries));
+    final int oldSize = sourceIndexes.length;
+    dataTypes = Arrays.copyOf(dataTypes, constantPool.size());
+    sourceIndexes = Arrays.copyOf(sourceIndexes, constantPool.size());
+    Arrays.fill(sourceIndexes, oldSize, sourceIndexes.length, -1);
+  }
+
+  /**
+   * Reads an array of markers from the scratch buffer.
+   *
+   * @return the position of the first byte after the marker array
+   */
+  private int readMarkers(int position) {
+    int cursor = position;
+    final int numMarkers = Serialization.readInt(scratch, cursor);
+    cursor += SIZE_OF_INT;
+    for (int i = 0; i < numMarkers; i++) {
+      final long timestamp = Serialization.readLong(scratch, cursor);
+      cursor += SIZE_OF_LONG;
+      final String name = Serialization.readString(scratch, cursor);
+      cursor += SIZE_OF_INT + Serialization.readInt(scratch, cursor);
+      final String description = Serialization.readString(scratch, cursor);
+      cursor += SIZE_OF_INT + Serialization.readInt(scratch, cursor);
+      final int importanceId = scratch[cursor];
+      cursor += SIZE_OF_BYTE;
+      markers.add(new Marker(name, description, MarkerImportance.forId(importanceId), timestamp));
+    }
+    return cursor;
+  }
+
+  /**
+   * Adds the data point in the scratch buffer at the given position to the index.
+   *
+   * @param position     the position of the data point in the scratch buffer
+   * @param scratchStart the position in the file of the first byte in the scratch buffer
+   *
+   * @return the position in the scratch buffer of the first byte after the data point
+   */
+  private int indexDataPoint(int position, int scratchStart) throws IOException {
+    int cursor = position;
+    final long timestamp = Serialization.readLong(scratch, cursor);
+    cursor += SIZE_OF_LONG;
+    final short sourceIdIndex = Serialization.readShort(scratch, cursor);
+    cursor += SIZE_OF_SHORT;
+    final short dataTypeIndex = Serialization.readShort(scratch, cursor);
+    cursor += SIZE_OF_SHORT;
+    final int valueLength = adapterFor(dataTypeIndex).getSerializedSize(scratch, cursor);
+    addFrame(timestamp, sourceIndexFor(sourceIdIndex), dataTypeIndex, scratchStart + cursor, valueLength);
+    return cursor + valueLength;
+  }
+
+  /**
+   * Adds the data points in the data chunk in the scratch buffer to the index.
+   *
+   * @param scratchStart the position in the file of the first byte in the scratch buffer
+   */
+  private void indexData(int scratchStart) throws IOException {
+    final int count = Serialization.readInt(scratch, 0);
+    int position = Chunks.DATA_HEADER_SIZE;
+    for (int i = 0; i < count; i++) {
+      position = indexDataPoint(position, scratchStart);
+    }
+  }
+
+  /**
+   * Decompresses a deflated chunk and adds the data points in it to the index. The values of the data points are not
+   * kept; their value offsets are positions in the decompressed payload.
+   *
+   * @param chunkPosition the position of the chunk in the file
+   */
+  private void indexDeflated(int chunkPosition) throws IOException {
+    if (!decompressedAhead.containsKey(chunkPosition)) {
+      decompressAhead(chunkPosition);
+    }
+    final byte[] payload = decompressedAhead.remove(chunkPosition);
+    final byte type = buffer.get(chunkPosition + Chunks.CHUNK_HEADER_SIZE + Chunks.DATA_HEADER_SIZE);
+    final int firstFrame = numFrames;
+    final byte[] indexingScratch = scratch;
+    scratch = payload;
+    try {
+      if (type == Chunks.DATA) {
+        indexData(0);
+      } else if (type == Chunks.BLOCKS) {
+        indexBlocks(0, chunkPosition);
+      } else {
+        throw new IOException("Unknown deflated chunk type " + type + " at position " + chunkPosition);
+      }
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IOException("Malformed data in deflated chunk at position " + chunkPosition, e);
+    } finally {
+      scratch = indexingScratch;
+    }
+    if (numDeflatedChunks == deflatedPositions.length) {
+      final int capacity = Math.max(16, numDeflatedChunks * 2);
+      deflatedFirstFrames = Arrays.copyOf(deflatedFirstFrames, capacity);
+      deflatedEndFrames = Arrays.copyOf(deflatedEndFrames, capacity);
+      deflatedPositions = Arrays.copyOf(deflatedPositions, capacity);
+    }
+    deflatedFirstFrames[numDeflatedChunks] = firstFrame;
+    deflatedEndFrames[numDeflatedChunks] = numFrames;
+    deflatedPositions[numDeflatedChunks] = chunkPosition;
+    numDeflatedChunks++;
+  }
+
+  /**
+   * Decompresses the deflated chunk at the given position, along with the next few deflated chunks after it, in
+   * parallel. Stops early at an incomplete chunk or a stale index.
+   *
+   * @param chunkPosition the position of the first deflated chunk to decompress
+   */
+  private void decompressAhead(int chunkPosition) throws IOException {
+    final int size = buffer.limit();
+    final List<Integer> positions = new ArrayList<>();
+    int cursor = chunkPosition;
+    while (positions.size() < DECOMPRESSION_BATCH_SIZE && cursor + Chunks.CHUNK_HEADER_SIZE <= size) {
+      final byte chunkType = buffer.get(cursor);
+      final int length = buffer.getInt(cursor + SIZE_OF_BYTE);
+      final int payloadStart = cursor + Chunks.CHUNK_HEADER_SIZE;
+      if (length < 0 || payloadStart + length > size || chunkType == Chunks.INDEX) {
+        break;
+      }
+      if (chunkType == Chunks.DEFLATED) {
+        positions.add(cursor);
+      }
+      cursor = payloadStart + length;
+    }
+    try {
+      final byte[][] payloads = positions.parallelStream()
+          .map(position -> {
+            try {
+              return decompress(position);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          })
+          .toArray(byte[][]::new);
+      for (int i = 0; i < payloads.length; i++) {
+        decompressedAhead.put(positions.get(i), payloads[i]);
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Decompresses the payload of a deflated chunk. This is safe to call from multiple threads.
+   *
+   * @param chunkPosition the position of the deflated chunk in the file
+   *
+   * @return the payload of the chunk contained in the deflated chunk, including the data header
+   */
+  private byte[] decompress(int chunkPosition) throws IOException {
+    final ByteBuffer view = buffer.duplicate();
+    final int length = view.getInt(chunkPosition + SIZE_OF_BYTE);
+    final int payloadStart = chunkPosition + Chunks.CHUNK_HEADER_SIZE;
+    final int uncompressedLength = view.getInt(payloadStart + Chunks.DATA_HEADER_SIZE + SIZE_OF_BYTE);
+    if (length < Chunks.DEFLATED_HEADER_SIZE
+        || uncompressedLength < 0
+        || uncompressedLength > Integer.MAX_VALUE - Chunks.DATA_HEADER_SIZE) {
+      throw new IOException("Malformed deflated chunk at position " + chunkPosition);
+    }
+    final byte[] payload = new byte[Chunks.DATA_HEADER_SIZE + uncompressedLength];
+    view.position(payloadStart);
+    view.get(payload, 0, Chunks.DATA_HEADER_SIZE);
+    view.limit(payloadStart + length);
+    view.position(payloadStart + Chunks.DEFLATED_HEADER_SIZE);
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(view);
+      int offset = Chunks.DATA_HEADER_SIZE;
+      while (offset < payload.length) {
+        final int inflated = inflater.inflate(payload, offset, payload.length - offset);
+        if (inflated == 0) {
+          throw new IOException("Deflated chunk at position " + chunkPosition + " is shorter than expected");
+        }
+        offset += inflated;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Malformed deflated chunk at position " + chunkPosition, e);
+    } finally {
+      inflater.end();
+    }
+    return payload;
+  }
+
+  /**
+   * Gets the index of the deflated chunk that contains the value of a frame, or -1 if the value is not in a deflated
+   * chunk.
+   */
+  private int deflatedChunkFor(int frame) {
+    return deflatedChunks == null ? -1 : deflatedChunks[frame];
+  }
+
+  private byte[] decompressedChunk(int chunk) {
+    synchronized (decompressedCache) {
+      final byte[] cached = decompressedCache.get(chunk);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    final byte[] payload;
+    try {
+      payload = decompress(deflatedPositions[chunk]);
+    } catch (IOException e) {
+      // The chunk was decompressed when the file was indexed, so this should never happen
+      throw new UncheckedIOException(e);
+    }
+    synchronized (decompressedCache) {
+      decompressedCache.put(chunk, payload);
+    }
+    return payload;
+  }
+
+  /**
+   * Adds the data points in the blocks chunk in the scratch buffer to the index.
+   *
+   * @param scratchStart  the position in the file of the first byte in the scratch buffer
+   * @param chunkPosition the position of the chunk in the file
+   */
+  private void indexBlocks(int scratchStart, int chunkPosition) throws IOException {
+    final int numBlocks = Serialization.readInt(scratch, Chunks.DATA_HEADER_SIZE);
+    int position = Chunks.DATA_HEADER_SIZE + SIZE_OF_INT;
+    try {
+      for (int i = 0; i < numBlocks; i++) {
+        final short sourceIdIndex = Serialization.readShort(scratch, position);
+        final short dataTypeIndex = Serialization.readShort(scratch, position + SIZE_OF_SHORT);
+        final byte encoding = scratch[position + SIZE_OF_SHORT * 2];
+        final int count = Serialization.readInt(scratch, position + SIZE_OF_SHORT * 2 + SIZE_OF_BYTE);
+        final int length = Serialization.readInt(scratch, position + SIZE_OF_SHORT * 2 + SIZE_OF_BYTE + SIZE_OF_INT);
+        position += Chunks.BLOCK_HEADER_SIZE;
+        indexBlock(position, length, scratchStart, sourceIndexFor(sourceIdIndex), dataTypeIndex, encoding, count);
+        position += length;
+      }
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IOException("Malformed block in chunk at position " + chunkPosition, e);
+    }
+  }
+
+  /**
+   * Decodes a single block of data points in the scratch buffer and adds them to the index.
+   */
+  private void indexBlock(int position, int length, int scratchStart,
+                          int source, short dataTypeIndex, byte encoding, int count) throws IOException {
+    final TypeAdapter<?> adapter = adapterFor(dataTypeIndex);
+    final BitReader in = new BitReader(scratch, position, length);
+    final long[] blockTimestamps = BlockCodec.readTimestamps(in, count);
+    switch (encoding) {
+      case BlockCodec.NUMBER:
+        final long[] numbers = BlockCodec.readNumbers(in, count);
+        for (int i = 0; i < count; i++) {
+          if (numDecodedNumbers == decodedNumbers.length) {
+            decodedNumbers = Arrays.copyOf(decodedNumbers, Math.max(DEFAULT_CAPACITY, decodedNumbers.length * 2));
+          }
+          decodedNumbers[numDecodedNumbers] = Double.longBitsToDouble(numbers[i]);
+          addFrame(blockTimestamps[i], source, dataTypeIndex, numDecodedNumbers++, DECODED_NUMBER);
+        }
+        break;
+      case BlockCodec.BOOLEAN:
+        final boolean[] booleans = BlockCodec.readBooleans(in, count);
+        for (int i = 0; i < count; i++) {
+          addFrame(blockTimestamps[i], source, dataTypeIndex, booleans[i] ? 1 : 0, DECODED_BOOLEAN);
+        }
+        break;
+      case BlockCodec.STRING:
+        final String[] dictionary = BlockCodec.readStringDictionary(in);
+        final int[] indexes = BlockCodec.readStringIndexes(in, count, dictionary.length);
+        final int base = decodedStrings.size();
+        decodedStrings.addAll(Arrays.asList(dictionary));
+        for (int i = 0; i < count; i++) {
+          addFrame(blockTimestamps[i], source, dataTypeIndex, base + indexes[i], DECODED_STRING);
+        }
+        break;
+      case BlockCodec.RAW:
+        in.alignToByte();
+        int cursor = in.bytePosition();
+        for (int i = 0; i < count; i++) {
+          final int valueLength = adapter.getSerializedSize(scratch, cursor);
+          addFrame(blockTimestamps[i], source, dataTypeIndex, scratchStart + cursor, valueLength);
+          cursor += valueLength;
+        }
+        if (cursor > position + length) {
+          throw new IOException("Values overrun the end of their block at position " + (scratchStart + position));
+        }
+        break;
+      default:
+        throw new IOException("Unknown block encoding " + encoding + " at position " + (scratchStart + position));
+    }
+  }
+
+  private void addFrame(long timestamp, int source, short dataTypeIndex, int valueOffset, int valueLength) {
+    if (numFrames == timestamps.length) {
+      grow();
+    }
+    timestamps[numFrames] = timestamp;
+    sources[numFrames] = source;
+    types[numFrames] = dataTypeIndex;
+    valueOffsets[numFrames] = valueOffset;
+    valueLengths[numFrames] = valueLength;
+    numFrames++;
+  }
+
+  /**
+   * Sorts a range of frames by timestamp. Frames with the same timestamp are kept in their current order.
+   *
+   * @param from the first frame to sort, inclusive
+   * @param to   the last frame to sort, exclusive
+   */
+  private void sortFrames(int from, int to) {
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    boolean sorted = true;
+    for (int i = from; i < to; i++) {
+      min = Math.min(min, timestamps[i]);
+      max = Math.max(max, timestamps[i]);
+      sorted &= i == from || timestamps[i - 1] <= timestamps[i];
+    }
+    if (sorted) {
+      return;
+    }
+    final int size = to - from;
+    final int[] order = new int[size];
+    if (max - min >= 0 && max - min < Integer.MAX_VALUE) {
+      // Pack the timestamp and position of every frame into a single long, so they can be sorted as primitives
+      final long[] keys = new long[size];
+      for (int i = 0; i < size; i++) {
+        keys[i] = ((timestamps[from + i] - min) << 32) | i;
+      }
+      Arrays.sort(keys);
+      for (int i = 0; i < size; i++) {
+        order[i] = (int) keys[i];
+      }
+    } else {
+      final Integer[] boxed = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        boxed[i] = i;
+      }
+      Arrays.sort(boxed, (a, b) -> Long.compare(timestamps[from + a], timestamps[from + b]));
+      for (int i = 0; i < size; i++) {
+        order[i] = boxed[i];
+      }
+    }
+    final long[] sortedTimestamps = new long[size];
+    final int[] sortedSources = new int[size];
+    final short[] sortedTypes = new short[size];
+    final int[] sortedOffsets = new int[size];
+    final int[] sortedLengths = new int[size];
+    for (int i = 0; i < size; i++) {
+      final int frame = from + order[i];
+      sortedTimestamps[i] = timestamps[frame];
+      sortedSources[i] = sources[frame];
+      sortedTypes[i] = types[frame];
+      sortedOffsets[i] = valueOffsets[frame];
+      sortedLengths[i] = valueLengths[frame];
+    }
+    System.arraycopy(sortedTimestamps, 0, timestamps, from, size);
+    System.arraycopy(sortedSources, 0, sources, from, size);
+    System.arraycopy(sortedTypes, 0, types, from, size);
+    System.arraycopy(sortedOffsets, 0, valueOffsets, from, size);
+    System.arraycopy(sortedLengths, 0, valueLengths, from, size);
+    if (deflatedChunks != null) {
+      final int[] sortedChunks = new int[size];
+      for (int i = 0; i < size; i++) {
+        sortedChunks[i] = deflatedChunks[from + order[i]];
+      }
+      System.arraycopy(sortedChunks, 0, deflatedChunks, from, size);
+    }
+  }
+
+  private int sourceIndexFor(short constantPoolIndex) {
+    if (sourceIndexes[constantPoolIndex] < 0) {
+      sourceIndexes[constantPoolIndex] = sourceIds.size();
+      sourceIds.add(constantPool.get(constantPoolIndex));
+    }
+    return sourceIndexes[constantPoolIndex];
+  }
+
+  private TypeAdapter<?> adapterFor(short constantPoolIndex) throws IOException {
+    if (dataTypes[constantPoolIndex] == null) {
+      final String name = constantPool.get(constantPoolIndex);
+      final Optional<DataType> type = DataTypes.getDefault().forName(name);
+      if (type.isEmpty() || !Serializers.hasSerializer(type.get())) {
+        throw new IOException("No serializer for data type '" + name + "'");
+      }
+      dataTypes[constantPoolIndex] = type.get();
+    }
+    return Serializers.get(dataTypes[constantPoolIndex]);
+  }
+
+  private void allocate(int expectedFrames) {
+    // Every data point takes at least MIN_FRAME_SIZE bytes, so don't trust a count that's larger than could fit
+    final int capacity = Math.max(0, Math.min(expectedFrames, buffer.limit() / MIN_FRAME_SIZE));
+    timestamps = new long[capacity];
+    sources = new int[capacity];
+    types = new short[capacity];
+    valueOffsets = new int[capacity];
+    valueLengths = new int[capacity];
+  }
+
+  private void grow() {
+    final int capacity = Math.max(DEFAULT_CAPACITY, timestamps.length * 2);
+    timestamps = Arrays.copyOf(timestamps, capacity);
+    sources = Arrays.copyOf(sources, capacity);
+    types = Arrays.copyOf(types, capacity);
+    valueOffsets = Arrays.copyOf(valueOffsets, capacity);
+    valueLengths = Arrays.copyOf(valueLengths, capacity);
+  }
+
+  private void checkFrame(int frame) {
+    if (frame < 0 || frame >= numFrames) {
+      throw new IndexOutOfBoundsException("Frame " + frame + " is out of bounds for " + numFrames + " frames");
+    }
+  }
+
+  /**
+   * Gets the recording file being read.
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Gets the number of data points in the recording.
+   */
+  public int getNumFrames() {
+    return numFrames;
+  }
+
+  /**
+   * Gets the timestamp of a data point.
+   *
+   * @param frame the index of the data point
+   */
+  public long getTimestamp(int frame) {
+    checkFrame(frame);
+    return timestamps[frame];
+  }
+
+  /**
+   * Gets the index of the source of a data point in the {@link #getSourceIds() source ID list}.
+   *
+   * @param frame the index of the data point
+   */
+  public int getSourceIndex(int frame) {
+    checkFrame(frame);
+    return sources[frame];
+  }
+
+  /**
+   * Gets the ID of the source of a data point.
+   *
+   * @param frame the index of the data point
+   */
+  public String getSourceId(int frame) {
+    return sourceIds.get(getSourceIndex(frame));
+  }
+
+  /**
+   * Gets the most recent frame at or before the given frame that contains data for a source. This is the frame
+   * containing the value the source had at that point in the recording.
+   *
+   * @param sourceIndex the index of the source in the {@link #getSourceIds() source ID list}
+   * @param frame       the frame to search back from
+   *
+   * @return the index of the most recent frame for the source, or -1 if the source has no data at or before the frame
+   */
+  public int getLatestFrame(int sourceIndex, int frame) {
+    checkFrame(frame);
+    final int start = sourceFrameStarts[sourceIndex];
+    final int end = sourceFrameStarts[sourceIndex + 1];
+    final int index = Arrays.binarySearch(sourceFrames, start, end, frame);
+    if (index >= 0) {
+      return sourceFrames[index];
+    }
+    final int insertionPoint = -index - 1;
+    return insertionPoint == start ? -1 : sourceFrames[insertionPoint - 1];
+  }
+
+  /**
+   * Gets the first frame that contains data for a source.
+   *
+   * @param sourceIndex the index of the source in the {@link #getSourceIds() source ID list}
+   */
+  public int getFirstFrame(int sourceIndex) {
+    return sourceFrames[sourceFrameStarts[sourceIndex]];
+  }
+
+  /**
+   * Gets the type of a data point.
+   *
+   * @param frame the index of the data point
+   */
+  public DataType<?> getDataType(int frame) {
+    checkFrame(frame);
+    return dataTypes[types[frame]];
+  }
+
+  /**
+   * Reads and deserializes a data point.
+   *
+   * @param frame the index of the data point to read
+   */
+  @SuppressWarnings("unchecked")
+  public TimestampedData read(int frame) {
+    checkFrame(frame);
+    final DataType type = dataTypes[types[frame]];
+    final Object value;
+    switch (valueLengths[frame]) {
+      case DECODED_NUMBER:
+        value = decodedNumbers[valueOffsets[frame]];
+        break;
+      case DECODED_BOOLEAN:
+        value = valueOffsets[frame] != 0;
+        break;
+      case DECODED_STRING:
+        value = decodedStrings.get(valueOffsets[frame]);
+        break;
+      default:
+        final int deflatedChunk = deflatedChunkFor(frame);
+        if (deflatedChunk >= 0) {
+          value = Serializers.get(type).deserialize(decompressedChunk(deflatedChunk), valueOffsets[frame]);
+        } else {
+          final byte[] bytes = new byte[valueLengths[frame]];
+          buffer.duplicate().position(valueOffsets[frame]).get(bytes);
+          value = Serializers.get(type).deserialize(bytes, 0);
+        }
+        break;
+    }
+    return new TimestampedData(sourceIds.get(sources[frame]), type, value, timestamps[frame]);
+  }
+
+  /**
+   * Streams the data points that match a query, in ascending order of timestamp. Only the frames of the matching
+   * sources within the time range of the query are visited, using the per-source index, and only their values are
+   * read; nothing else in the file is decoded. The returned stream is sequential and reads values lazily.
+   *
+   * @param query the query to match data points against
+   *
+   * @return a stream of the matching data points
+   */
+  public Stream<TimestampedData> scan(RecordingQuery query) {
+    return IntStream.of(findFrames(query)).mapToObj(this::read);
+  }
+
+  /**
+   * Gets the markers within the time range of a query.
+   *
+   * @param query the query to match markers against. The source filter of the query is ignored
+   */
+  public List<Marker> getMarkers(RecordingQuery query) {
+    return markers.stream()
+        .filter(m -> query.containsTime(m.getTimestamp()))
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  /**
+   * Finds the frames that match a query.
+   *
+   * @return the matching frame numbers, in ascending order
+   */
+  private int[] findFrames(RecordingQuery query) {
+    final int start = firstFrameAtOrAfter(0, numFrames, query.getStartTime());
+    final int end = firstFrameAfter(start, numFrames, query.getEndTime());
+    if (start >= end) {
+      return new int[0];
+    }
+    if (query.isAllSources()) {
+      return IntStream.range(start, end).toArray();
+    }
+    // Find the range of frames within the time range for each matching source, then merge them back into frame order
+    final int[][] ranges = new int[sourceIds.size()][];
+    int total = 0;
+    for (int source = 0; source < sourceIds.size(); source++) {
+      if (!query.matchesSource(sourceIds.get(source))) {
+        continue;
+      }
+      final int from = lowerBound(sourceFrameStarts[source], sourceFrameStarts[source + 1], start);
+      final int to = lowerBound(from, sourceFrameStarts[source + 1], end);
+      if (from < to) {
+        ranges[source] = new int[]{from, to};
+        total += to - from;
+      }
+    }
+    final int[] frames = new int[total];
+    int count = 0;
+    for (int[] range : ranges) {
+      if (range != null) {
+        System.arraycopy(sourceFrames, range[0], frames, count, range[1] - range[0]);
+        count += range[1] - range[0];
+      }
+    }
+    Arrays.sort(frames);
+    return frames;
+  }
+
+  /**
+   * Finds the first frame in a range of frames with a timestamp at or after the given time.
+   */
+  private int firstFrameAtOrAfter(int from, int to, long time) {
+    int low = from;
+    int high = to;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (timestamps[mid] < time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Finds the first frame in a range of frames with a timestamp after the given time.
+   */
+  private int firstFrameAfter(int from, int to, long time) {
+    return time == Long.MAX_VALUE ? to : firstFrameAtOrAfter(from, to, time + 1);
+  }
+
+  /**
+   * Finds the first position in a range of {@link #sourceFrames} containing a frame number at or after the given one.
+   */
+  private int lowerBound(int from, int to, int frame) {
+    final int index = Arrays.binarySearch(sourceFrames, from, to, frame);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  /**
+   * Gets the IDs of all the sources in the recording, in the order in which they first appear.
+   */
+  public List<String> getSourceIds() {
+    return ImmutableList.copyOf(sourceIds);
+  }
+
+  /**
+   * Gets the markers in the recording.
+   */
+  public List<Marker> getMarkers() {
+    return ImmutableList.copyOf(markers);
+  }
+
+  /**
+   * Gets the timestamp of the first data point in the recording, or 0 if the recording is empty.
+   */
+  public long getFirstTimestamp() {
+    return numFrames == 0 ? 0 : timestamps[0];
+  }
+
+  /**
+   * Gets the timestamp of the final data point in the recording, or 0 if the recording is empty.
+   */
+  public long getLastTimestamp() {
+    return numFrames == 0 ? 0 : timestamps[numFrames - 1];
+  }
+
+  /**
+   * Gets the length of the recording in milliseconds. Recordings wth 0 or 1 data points have a length of 0.
+   */
+  public long getLength() {
+    return getLastTimestamp() - getFirstTimestamp();
+  }
+
+  /**
+   * Reads the entire contents of the recording into memory.
+   */
+  public Recording toRecording() {
+    return toRecording(RecordingQuery.all());
+  }
+
+  /**
+   * Reads the data points and markers that match a query into memory.
+   *
+   * @param query the query to match data points and markers against
+   */
+  public Recording toRecording(RecordingQuery query) {
+    Recording recording = new Recording();
+    scan(query).forEach(recording::append);
+    getMarkers(query).forEach(recording::addMarker);
+    return recording;
+  }
+
+}
@@ -0,0 +1,615 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import edu.wpi.first.shuffleboard.api.data.DataType;
+import edu.wpi.first.shuffleboard.api.sources.recording.Serialization.Chunks;
+import edu.wpi.first.shuffleboard.api.sources.recording.serialization.Serializer;
+import edu.wpi.first.shuffleboard.api.sources.recording.serialization.Serializers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+/**
+ * Writes recordings to disk in the chunked recording format. Every call to {@link #append(Recording)} writes the new
+ * constant pool entries, markers, and data of the recording as self-describing chunks at the end of the file; nothing
+ * that has already been written is ever moved or rewritten. An index of all the chunks in the file is written when the
+ * writer is {@link #close() closed}.
+ *
+ * <p>Data can optionally be {@link #setCompressed(boolean) compressed}, in which case the data points of each source
+ * are grouped into blocks and encoded based on their type, and each chunk of data can be deflated with a configurable
+ * {@link #setCompressionLevel(int) compression level}. Readers decode compressed data transparently.
+ *
+ * <p>Writers are not thread-safe; the recorder serializes access to its writer.
+ */
+public final class RecordingWriter implements Closeable {
+
+  private static final Logger log = Logger.getLogger(RecordingWriter.class.getName());
+
+  /**
+   * The size of the buffers that chunks are encoded into before being written to disk.
+   */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Direct buffers that have been released by closed writers. Allocating direct buffers is expensive, and the recorder
+   * opens a new writer every time it starts recording, so they are kept around for reuse.
+   */
+  private static final Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+
+  private final Path file;
+  private final FileChannel channel;
+  private final Map<String, Integer> constantPool = new HashMap<>();
+  private final List<ChunkInfo> chunks = new ArrayList<>();
+  private final ByteBuffer buffer = acquireBuffer();
+  private int numDataPoints = 0;
+  private boolean compressed = false;
+  private int compressionLevel = 0;
+  // When not null, bytes are written here instead of to the file
+  private ByteArrayOutputStream capture;
+  private boolean closed = false;
+
+  private RecordingWriter(Path file, FileChannel channel) {
+    this.file = file;
+    this.channel = channel;
+  }
+
+  /**
+   * Creates a writer for a new recording file. If the file already exists, its contents are discarded.
+   *
+   * @param file the path to the recording file to write
+   *
+   * @throws IOException if the file could not be created
+   */
+  public static RecordingWriter create(Path file) throws IOException {
+    Path saveDir = file.getParent();
+    if (saveDir != null) {
+      Files.createDirectories(saveDir);
+    }
+    FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    ByteBuffer header = ByteBuffer.allocate(Chunks.FILE_HEADER_SIZE);
+    header.putInt(Serialization.MAGIC_NUMBER);
+    header.putInt(Serialization.VERSION);
+    header.flip();
+    while (header.hasRemaining()) {
+      channel.write(header);
+    }
+    return new RecordingWriter(file, channel);
+  }
+
+  /**
+   * Opens a writer that appends to an existing recording file. The chunk headers in the file are scanned to rebuild
+   * the constant pool; the chunk contents are otherwise left untouched. If the file was previously closed, its index
+   * is discarded and will be rewritten when this writer is closed. A trailing chunk that was only partially written
+   * (eg if the application crashed during a save) is discarded. If the file does not exist or is empty, this is
+   * equivalent to {@link #create(Path)}.
+   *
+   * @param file the path to the recording file to append to
+   *
+   * @throws IOException if the file could not be read, or is not a recording file in the current format
+   */
+  public static RecordingWriter open(Path file) throws IOException {
+    if (Files.notExists(file) || Files.size(file) == 0) {
+      return create(file);
+    }
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    RecordingWriter writer = new RecordingWriter(file, channel);
+    try {
+      writer.scanExistingChunks();
+      return writer;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      releaseBuffer(writer.buffer);
+      throw e;
+    }
+  }
+
+  private static ByteBuffer acquireBuffer() {
+    ByteBuffer buffer = bufferPool.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  private static void releaseBuffer(ByteBuffer buffer) {
+    bufferPool.offer(buffer);
+  }
+
+  private void scanExistingChunks() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(Chunks.FILE_HEADER_SIZE);
+    readFully(header, 0);
+    final int magic = header.getInt();
+    if (magic != Serialization.MAGIC_NUMBER) {
+      throw new IOException(
+          String.format("Wrong magic number in the header. Expected 0x%08X, but was 0x%08X",
+              Serialization.MAGIC_NUMBER, magic));
+    }
+    final int version = header.getInt();
+    if (version != Serialization.VERSION) {
+      throw new IOException(
+          "Cannot append to recording with format version " + version + ". The current format version is "
+              + Serialization.VERSION);
+    }
+    final long size = channel.size();
+    long position = Chunks.FILE_HEADER_SIZE;
+    ByteBuffer chunkHeader = ByteBuffer.allocate(Chunks.CHUNK_HEADER_SIZE);
+    while (position < size) {
+      if (position + Chunks.CHUNK_HEADER_SIZE > size) {
+        break;
+      }
+      chunkHeader.clear();
+      readFully(chunkHeader, position);
+      final byte type = chunkHeader.get();
+      final int length = chunkHeader.getInt();
+      final long payloadStart = position + Chunks.CHUNK_HEADER_SIZE;
+      if (length < 0 || payloadStart + length > size) {
+        break;
+      }
+      if (type == Chunks.INDEX) {
+        // Stale index from a previous session; it will be rewritten on close
+        break;
+      }
+      switch (type) {
+        case Chunks.CONSTANT_POOL:
+          ByteBuffer payload = ByteBuffer.allocate(length);
+          readFully(payload, payloadStart);
+          String[] entries = Serialization.readStringArray(payload.array(), 0);
+          for (String entry : entries) {
+            constantPool.put(entry, constantPool.size());
+          }
+          chunks.add(new ChunkInfo(type, position, entries.length, 0, 0));
+          break;
+        case Chunks.MARKERS:
+          ByteBuffer markerCount = ByteBuffer.allocate(Serialization.SIZE_OF_INT);
+          readFully(markerCount, payloadStart);
+          chunks.add(new ChunkInfo(type, position, markerCount.getInt(), 0, 0));
+          break;
+        case Chunks.DATA:
+        case Chunks.BLOCKS:
+        case Chunks.DEFLATED:
+          ByteBuffer dataHeader = ByteBuffer.allocate(Chunks.DATA_HEADER_SIZE);
+          readFully(dataHeader, payloadStart);
+          final int count = dataHeader.getInt();
+          final long first = dataHeader.getLong();
+          final long last = dataHeader.getLong();
+          chunks.add(new ChunkInfo(type, position, count, first, last));
+          numDataPoints += count;
+          break;
+        default:
+          throw new IOException("Unknown chunk type " + type + " at position " + position);
+      }
+      position = payloadStart + length;
+    }
+    if (position < size) {
+      final long discarded = size - position;
+      log.fine(() -> "Discarding " + discarded + " trailing bytes from " + file);
+      channel.truncate(position);
+    }
+    channel.position(position);
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    long pos = position;
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, pos);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of file " + file + " at position " + pos);
+      }
+      pos += read;
+    }
+    buffer.flip();
+  }
+
+  /**
+   * Appends all the data and markers in the given recording to the file, then clears them from the recording. The
+   * data and markers are written as new chunks at the end of the file, along with any constant pool entries that they
+   * reference that have not already been written.
+   *
+   * @param recording the recording to save the contents of
+   *
+   * @throws IOException if the data could not be written
+   */
+  public void append(Recording recording) throws IOException {
+    if (closed) {
+      throw new IllegalStateException("Writer for " + file + " has been closed");
+    }
+    // Work on a copy, since the recording can have new data added to it while we're in the middle of saving
+    final var snapshot = recording.takeSnapshotAndClear();
+    final List<TimestampedData> data = new ArrayList<>(snapshot.getData());
+    final List<Marker> markers = snapshot.getMarkers();
+    if (data.isEmpty() && markers.isEmpty()) {
+      // No new data
+      return;
+    }
+    data.sort(null);
+    Serializers.getAdapters().forEach(a -> a.setCurrentFile(file.toFile()));
+
+    final List<String> newPoolEntries = new ArrayList<>();
+    for (TimestampedData point : data) {
+      addToConstantPool(point.getSourceId(), newPoolEntries);
+      addToConstantPool(point.getDataType().getName(), newPoolEntries);
+    }
+
+    if (!newPoolEntries.isEmpty()) {
+      final long position = beginChunk(Chunks.CONSTANT_POOL);
+      putInt(newPoolEntries.size());
+      for (String entry : newPoolEntries) {
+        putString(entry);
+      }
+      endChunk(position);
+      chunks.add(new ChunkInfo(Chunks.CONSTANT_POOL, position, newPoolEntries.size(), 0, 0));
+    }
+    if (!markers.isEmpty()) {
+      final long position = beginChunk(Chunks.MARKERS);
+      putInt(markers.size());
+      for (Marker marker : markers) {
+        putLong(marker.getTimestamp());
+        putString(marker.getName());
+        putString(marker.getDescription());
+        ensureRemaining(Serialization.SIZE_OF_BYTE);
+        buffer.put((byte) marker.getImportance().getId());
+      }
+      endChunk(position);
+      chunks.add(new ChunkInfo(Chunks.MARKERS, position, markers.size(), 0, 0));
+    }
+    if (!data.isEmpty()) {
+      writeDataChunk(data);
+      numDataPoints += data.size();
+    }
+    flushBuffer();
+  }
+
+  /**
+   * Writes a chunk containing the given data points. The points are written as a data chunk, or as a blocks chunk if
+   * this writer {@link #isCompressed() compresses data}, which is then wrapped in a deflated chunk if the
+   * {@link #getCompressionLevel() compression level} is above zero.
+   *
+   * @param data the data points to write, in ascending order
+   */
+  private void writeDataChunk(List<TimestampedData> data) throws IOException {
+    final byte type = compressed ? Chunks.BLOCKS : Chunks.DATA;
+    final long first = data.get(0).getTimestamp();
+    final long last = data.get(data.size() - 1).getTimestamp();
+    if (compressionLevel > 0) {
+      // Capture the payload so it can be deflated before it's written to the file
+      flushBuffer();
+      capture = new ByteArrayOutputStream();
+      final byte[] payload;
+      try {
+        writeDataPayload(type, data);
+        flushBuffer();
+        payload = capture.toByteArray();
+      } finally {
+        capture = null;
+        // Don't let a partially captured payload be written to the file
+        buffer.clear();
+      }
+      final byte[] deflated = deflate(payload);
+      final long position = beginChunk(Chunks.DEFLATED);
+      ensureRemaining(Chunks.DEFLATED_HEADER_SIZE);
+      buffer.putInt(data.size());
+      buffer.putLong(first);
+      buffer.putLong(last);
+      buffer.put(type);
+      buffer.putInt(payload.length);
+      putBytes(deflated);
+      endChunk(position);
+      chunks.add(new ChunkInfo(Chunks.DEFLATED, position, data.size(), first, last));
+    } else {
+      final long position = beginChunk(type);
+      ensureRemaining(Chunks.DATA_HEADER_SIZE);
+      buffer.putInt(data.size());
+      buffer.putLong(first);
+      buffer.putLong(last);
+      writeDataPayload(type, data);
+      endChunk(position);
+      chunks.add(new ChunkInfo(type, position, data.size(), first, last));
+    }
+  }
+
+  private void writeDataPayload(byte type, List<TimestampedData> data) throws IOException {
+    if (type == Chunks.BLOCKS) {
+      writeBlocks(data);
+    } else {
+      writeDataPoints(data);
+    }
+  }
+
+  private byte[] deflate(byte[] payload) { // NOPMD varargs
+    final Deflater deflater = new Deflater(compressionLevel);
+    try {
+      deflater.setInput(payload);
+      deflater.finish();
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, payload.length / 4));
+      final byte[] block = new byte[BUFFER_SIZE];
+      while (!deflater.finished()) {
+        out.write(block, 0, deflater.deflate(block));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Writes the payload of a data chunk, after the data header.
+   *
+   * @param data the data points to write, in ascending order
+   */
+  private void writeDataPoints(List<TimestampedData> data) throws IOException {
+    for (TimestampedData point : data) {
+      final DataType type = point.getDataType();
+      ensureRemaining(Serialization.SIZE_OF_LONG + Serialization.SIZE_OF_SHORT * 2);
+      buffer.putLong(point.getTimestamp());
+      // use int16 instead of int32 -- 32,767 sources should be enough
+      buffer.putShort((short) (int) constantPool.get(point.getSourceId()));
+      buffer.putShort((short) (int) constantPool.get(type.getName()));
+      putValue(point.getData(), type);
+    }
+  }
+
+  /**
+   * Writes a serialized value. Values are serialized straight into the buffer when there's room for them, so most
+   * values are written without creating an array for their bytes.
+   */
+  private <T> void putValue(T value, DataType<T> type) throws IOException {
+    final Serializer<T> serializer = Serializers.getOptional(type)
+        .orElseThrow(() -> new NoSuchElementException("No serializer for " + type));
+    if (serializer.serialize(value, buffer)) {
+      return;
+    }
+    flushBuffer();
+    if (!serializer.serialize(value, buffer)) {
+      // Too big to fit in the buffer
+      putBytes(serializer.serialize(value));
+    }
+  }
+
+  /**
+   * Writes the payload of a blocks chunk, after the data header. The points are grouped into one block for each source
+   * and data type, ordered by source ID, which lets readers restore the order of the points by sorting them by
+   * timestamp.
+   *
+   * @param data the data points to write, in ascending order
+   */
+  private void writeBlocks(List<TimestampedData> data) throws IOException {
+    final Map<String, Map<String, List<TimestampedData>>> blocks = new TreeMap<>();
+    for (TimestampedData point : data) {
+      blocks.computeIfAbsent(point.getSourceId(), __ -> new TreeMap<>())
+          .computeIfAbsent(point.getDataType().getName(), __ -> new ArrayList<>())
+          .add(point);
+    }
+    putInt(blocks.values().stream().mapToInt(Map::size).sum());
+    for (Map<String, List<TimestampedData>> sourceBlocks : blocks.values()) {
+      for (List<TimestampedData> points : sourceBlocks.values()) {
+        final TimestampedData head = points.get(0);
+        final byte encoding = BlockCodec.encodingFor(head.getDataType());
+        final byte[] encoded = BlockCodec.encode(encoding, points);
+        ensureRemaining(Chunks.BLOCK_HEADER_SIZE);
+        buffer.putShort((short) (int) constantPool.get(head.getSourceId()));
+        buffer.putShort((short) (int) constantPool.get(head.getDataType().getName()));
+        buffer.put(encoding);
+        buffer.putInt(points.size());
+        buffer.putInt(encoded.length);
+        putBytes(encoded);
+      }
+    }
+  }
+
+  /**
+   * Sets whether data appended to the file should be compressed. Compressed data takes much less space, especially for
+   * numbers, booleans, and strings that change slowly, but can only be read by versions of shuffleboard that support
+   * compressed recordings. Defaults to {@code false}.
+   *
+   * @param compressed true to compress appended data, false to write it uncompressed
+   */
+  public void setCompressed(boolean compressed) {
+    this.compressed = compressed;
+  }
+
+  /**
+   * Checks if data appended to the file is compressed.
+   */
+  public boolean isCompressed() {
+    return compressed;
+  }
+
+  /**
+   * Sets the level of general-purpose compression applied to data appended to the file. Each chunk of data is deflated
+   * separately, so readers can decompress chunks in parallel and only need to decompress the chunks they read values
+   * from. This can be combined with {@link #setCompressed(boolean) compressed encoding}, and works best for data that
+   * is not a number, boolean, or string, such as arrays and raw bytes. Defaults to 0.
+   *
+   * @param compressionLevel the compression level, from 0 (no compression) to 9 (best compression)
+   *
+   * @throws IllegalArgumentException if the compression level is not between 0 and 9
+   */
+  public void setCompressionLevel(int compressionLevel) {
+    if (compressionLevel < 0 || compressionLevel > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Compression level must be between 0 and 9, but was " + compressionLevel);
+    }
+    this.compressionLevel = compressionLevel;
+  }
+
+  /**
+   * Gets the level of general-purpose compression applied to data appended to the file.
+   */
+  public int getCompressionLevel() {
+    return compressionLevel;
+  }
+
+  private void addToConstantPool(String entry, List<String> newEntries) {
+    if (!constantPool.containsKey(entry)) {
+      constantPool.put(entry, constantPool.size());
+      newEntries.add(entry);
+    }
+  }
+
+  /**
+   * Gets the position in the file that the next byte put into the buffer will be written to.
+   */
+  private long filePosition() throws IOException {
+    return channel.position() + buffer.position();
+  }
+
+  /**
+   * Starts a new chunk. The payload length is left blank, and is filled in by {@link #endChunk(long)} once the payload
+   * has been written.
+   *
+   * @return the position of the chunk in the file
+   */
+  private long beginChunk(byte type) throws IOException {
+    ensureRemaining(Chunks.CHUNK_HEADER_SIZE);
+    final long position = filePosition();
+    buffer.put(type);
+    buffer.putInt(0);
+    return position;
+  }
+
+  /**
+   * Fills in the payload length of the chunk at the given position. If the chunk header is still in the buffer, it is
+   * updated in place; otherwise, the length is written directly to the file.
+   */
+  private void endChunk(long chunkPosition) throws IOException {
+    final long lengthPosition = chunkPosition + Serialization.SIZE_OF_BYTE;
+    final int length = (int) (filePosition() - chunkPosition - Chunks.CHUNK_HEADER_SIZE);
+    final long flushed = channel.position();
+    if (lengthPosition >= flushed) {
+      buffer.putInt((int) (lengthPosition - flushed), length);
+    } else {
+      ByteBuffer lengthBuffer = ByteBuffer.allocate(Serialization.SIZE_OF_INT).putInt(length).flip();
+      long pos = lengthPosition;
+      while (lengthBuffer.hasRemaining()) {
+        pos += channel.write(lengthBuffer, pos);
+      }
+    }
+  }
+
+  private void ensureRemaining(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flushBuffer();
+    }
+  }
+
+  private void putInt(int value) throws IOException {
+    ensureRemaining(Serialization.SIZE_OF_INT);
+    buffer.putInt(value);
+  }
+
+  private void putLong(long value) throws IOException {
+    ensureRemaining(Serialization.SIZE_OF_LONG);
+    buffer.putLong(value);
+  }
+
+  private void putString(String string) throws IOException {
+    final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    putInt(bytes.length);
+    putBytes(bytes);
+  }
+
+  private void putBytes(byte[] bytes) throws IOException {
+    if (bytes.length > buffer.capacity()) {
+      // Too big to fit in the buffer; write it straight to the file
+      flushBuffer();
+      write(ByteBuffer.wrap(bytes));
+    } else {
+      ensureRemaining(bytes.length);
+      buffer.put(bytes);
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    buffer.flip();
+    write(buffer);
+    buffer.clear();
+  }
+
+  private void write(ByteBuffer src) throws IOException {
+    if (capture != null) {
+      if (src.hasArray()) {
+        capture.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+        src.position(src.limit());
+      } else {
+        final byte[] bytes = new byte[src.remaining()];
+        src.get(bytes);
+        capture.write(bytes, 0, bytes.length);
+      }
+      return;
+    }
+    while (src.hasRemaining()) {
+      channel.write(src);
+    }
+  }
+
+  /**
+   * Writes the chunk index to the end of the file and closes it. Once closed, no more data may be appended.
+   *
+   * @throws IOException if the index could not be written
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try (channel) {
+      final long indexPosition = beginChunk(Chunks.INDEX);
+      putInt(numDataPoints);
+      putInt(chunks.size());
+      for (ChunkInfo chunk : chunks) {
+        ensureRemaining(Chunks.INDEX_ENTRY_SIZE);
+        buffer.put(chunk.type);
+        buffer.putLong(chunk.position);
+        buffer.putInt(chunk.count);
+        buffer.putLong(chunk.firstTimestamp);
+        buffer.putLong(chunk.lastTimestamp);
+      }
+      putLong(indexPosition);
+      putInt(Chunks.END_MAGIC);
+      endChunk(indexPosition);
+      flushBuffer();
+    } finally {
+      releaseBuffer(buffer);
+    }
+  }
+
+  /**
+   * Describes a chunk that has been written to the file.
+   */
+  private static final class ChunkInfo {
+    private final byte type;
+    private final long position;
+    private final int count;
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+
+    ChunkInfo(byte type, long position, int count, long firstTimestamp, long lastTimestamp) {
+      this.type = type;
+      this.position = position;
+      this.count = count;
+      this.firstTimestamp = firstTimestamp;
+      this.lastTimestamp = lastTimestamp;
+    }
+  }
+
+}
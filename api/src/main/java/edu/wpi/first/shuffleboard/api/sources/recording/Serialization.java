@@ -5,36 +5,79 @@ import edu.wpi.first.shuffleboard.api.data.DataTypes;
 import edu.wpi.first.shuffleboard.api.data.types.StringArrayType;
 import edu.wpi.first.shuffleboard.api.data.types.StringType;
 import edu.wpi.first.shuffleboard.api.sources.recording.serialization.Serializers;
-import edu.wpi.first.shuffleboard.api.sources.recording.serialization.TypeAdapter;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Bytes;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.LinkOption;
-import java.nio.file.NoSuchFileException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @SuppressWarnings("PMD.GodClass")
 public final class Serialization {
 
   /*
-   * Recording file format:
+   * Recording file format (version 5):
+   * - Magic number (4 bytes)
+   * - Version number (4 bytes)
+   * - Chunks (variable size), appended in the order they were written. Each chunk is:
+   *   - Chunk type (byte)
+   *   - Payload length (4 bytes)
+   *   - Payload (variable size)
+   *
+   * Chunk payloads:
+   * - Constant pool: new entries appended to the constant pool (String array)
+   * - Markers: Event markers (Complex array)
+   *   - Number of markers (4 bytes)
+   *     - Timestamp (8 bytes)
+   *     - Name string as UTF-8 byte array
+   *     - Description string as UTF-8 byte array (may be zero-length)
+   *     - Importance level ID (byte)
+   * - Data: Data points (Complex array)
+   *   - Number of data points (4 bytes)
+   *   - Timestamp of the first data point (8 bytes)
+   *   - Timestamp of the last data point (8 bytes)
+   *     - Timestamp (8 bytes)
+   *     - Source ID constant pool index (2 bytes)
+   *     - Data type constant pool index (2 bytes)
+   *     - Serialized data (variable size)
+   * - Blocks: Data points compressed in blocks of a single source and data type (Complex array). Written instead of a
+   *   data chunk when compression is enabled
+   *   - Number of data points (4 bytes)
+   *   - Timestamp of the first data point (8 bytes)
+   *   - Timestamp of the last data point (8 bytes)
+   *   - Number of blocks (4 bytes)
+   *     - Source ID constant pool index (2 bytes)
+   *     - Data type constant pool index (2 bytes)
+   *     - Encoding (byte, see BlockCodec)
+   *     - Number of data points in the block (4 bytes)
+   *     - Length of the encoded data points (4 bytes)
+   *     - Encoded data points (variable size)
+   * - Deflated: A data or blocks chunk whose payload has been compressed with DEFLATE. Written instead of the chunk it
+   *   contains when a compression level is set
+   *   - Number of data points (4 bytes)
+   *   - Timestamp of the first data point (8 bytes)
+   *   - Timestamp of the last data point (8 bytes)
+   *   - Type of the contained chunk (byte)
+   *   - Uncompressed length of the contained chunk's payload, excluding the three fields above (4 bytes)
+   *   - The rest of the contained chunk's payload, compressed with DEFLATE (variable size)
+   * - Index: only written when a recording is finished, and is always the final chunk in the file
+   *   - Total number of data points (4 bytes)
+   *   - Number of chunks (4 bytes)
+   *     - Chunk type (byte)
+   *     - Chunk position (8 bytes)
+   *     - Number of entries in the chunk (4 bytes)
+   *     - Timestamp of the first entry in the chunk (8 bytes, zero for non-data chunks)
+   *     - Timestamp of the last entry in the chunk (8 bytes, zero for non-data chunks)
+   *   - Position of the index chunk (8 bytes)
+   *   - End magic number (4 bytes)
+   *
+   * Legacy recording file format (version 4):
    * - Magic number (4 bytes)
    * - Version number (4 bytes)
    * - Offset to markers (4 bytes)
@@ -52,8 +95,6 @@ public final class Serialization {
    * - Data points (variable size) (Complex array)
    */
 
-  private static final Logger log = Logger.getLogger(Serialization.class.getName());
-
   /**
    * A magic number that is always the first entry in a recording file. This helps check (but does not guarantee) that
    * a loaded file is a valid recording file.
@@ -64,7 +105,13 @@ public final class Serialization {
    * The current serialization format version. This number is incremented every time the recording format changes in
    * a way that makes it incompatible with previous versions.
    */
-  public static final int VERSION = 4;
+  public static final int VERSION = 5;
+
+  /**
+   * The last version of the serialization format that stored all the data in a single block. Files in this format can
+   * still be loaded, but cannot be appended to.
+   */
+  public static final int LEGACY_VERSION = 4;
 
   /**
    * The size of a serialized {@code byte}, in bytes.
@@ -92,9 +139,9 @@ public final class Serialization {
   public static final int SIZE_OF_DOUBLE = 8;
 
   /**
-   * Constant offsets for the binary save files.
+   * Constant offsets for the binary save files in the legacy version 4 format.
    */
-  private static final class Offsets {
+  static final class Offsets {
     /**
      * The offset to the magic header number.
      */
@@ -128,11 +175,90 @@ public final class Serialization {
     public static final int CONSTANT_POOL_HEADER_OFFSET = DATA_POSITION_OFFSET + SIZE_OF_INT;
   }
 
+  /**
+   * Constants for the chunks in a version 5 recording file.
+   */
+  static final class Chunks {
+    /**
+     * Chunk type for new constant pool entries.
+     */
+    static final byte CONSTANT_POOL = 1;
+
+    /**
+     * Chunk type for event markers.
+     */
+    static final byte MARKERS = 2;
+
+    /**
+     * Chunk type for recorded data points.
+     */
+    static final byte DATA = 3;
+
+    /**
+     * Chunk type for the index of all the chunks in the file.
+     */
+    static final byte INDEX = 4;
+
+    /**
+     * Chunk type for recorded data points that have been compressed in per-source blocks.
+     */
+    static final byte BLOCKS = 5;
+
+    /**
+     * Chunk type for a data or blocks chunk that has been compressed with DEFLATE.
+     */
+    static final byte DEFLATED = 6;
+
+    /**
+     * The size of the magic number and version header at the start of the file.
+     */
+    static final int FILE_HEADER_SIZE = SIZE_OF_INT * 2;
+
+    /**
+     * The size of the type and length fields preceding every chunk payload.
+     */
+    static final int CHUNK_HEADER_SIZE = SIZE_OF_BYTE + SIZE_OF_INT;
+
+    /**
+     * The size of the number of data points and timestamp range preceding the data points in a data chunk.
+     */
+    static final int DATA_HEADER_SIZE = SIZE_OF_INT + SIZE_OF_LONG * 2;
+
+    /**
+     * The size of the source, type, encoding, number of data points, and length preceding each block in a blocks chunk.
+     */
+    static final int BLOCK_HEADER_SIZE = SIZE_OF_SHORT * 2 + SIZE_OF_BYTE + SIZE_OF_INT * 2;
+
+    /**
+     * The size of the data header, contained chunk type, and uncompressed length preceding the compressed payload in a
+     * deflated chunk.
+     */
+    static final int DEFLATED_HEADER_SIZE = DATA_HEADER_SIZE + SIZE_OF_BYTE + SIZE_OF_INT;
+
+    /**
+     * The size of a single chunk entry in the index chunk.
+     */
+    static final int INDEX_ENTRY_SIZE = SIZE_OF_BYTE + SIZE_OF_LONG + SIZE_OF_INT + SIZE_OF_LONG * 2;
+
+    /**
+     * The size of the index position and end magic number that finish a closed recording file.
+     */
+    static final int TRAILER_SIZE = SIZE_OF_LONG + SIZE_OF_INT;
+
+    /**
+     * The magic number that is always the final entry in a closed recording file.
+     */
+    static final int END_MAGIC = 0xFACE_BEEF;
+
+    private Chunks() {
+    }
+  }
+
   private Serialization() {
   }
 
   /**
-   * Saves a recording to the given file.
+   * Saves a recording to the given file. Any existing contents of the file are discarded.
    *
    * @param recording the recording to save
    * @param file      the file to save to
@@ -140,238 +266,27 @@ public final class Serialization {
    * @throws IOException if the recording could not be saved to the given file
    */
   public static void saveRecording(Recording recording, Path file) throws IOException {
-    Serializers.getAdapters().forEach(a -> a.setCurrentFile(file.toFile()));
-    // Work on a copy, since the recording can have new data added to it while we're in the middle of saving
-    var snapshot = recording.takeSnapshotAndClear();
-    final var dataCopy = snapshot.getData()
-        .stream()
-        .sorted()
-        .collect(ImmutableList.toImmutableList());
-    final var markers = snapshot.getMarkers();
-    final byte[] header = header(dataCopy);
-    put(header, toByteArray(0), Offsets.DATA_POSITION_OFFSET);
-    final List<String> constantPool = generateConstantPool(dataCopy);
-    List<byte[]> segments = new ArrayList<>();
-    segments.add(header);
-
-    // Event markers
-    put(header, toByteArray(segments.stream().mapToInt(b -> b.length).sum()), Offsets.MARKER_POSITION_OFFSET);
-    segments.add(toByteArray(markers.size()));
-    for (Marker marker : markers) {
-      segments.add(toByteArray(marker.getTimestamp()));
-      segments.add(toByteArray(marker.getName()));
-      segments.add(toByteArray(marker.getDescription()));
-      segments.add(toByteArray((byte) marker.getImportance().getId()));
-    }
-
-    // Data
-    put(header, toByteArray(segments.stream().mapToInt(b -> b.length).sum()), Offsets.DATA_POSITION_OFFSET);
-    for (TimestampedData data : dataCopy) {
-      final DataType type = data.getDataType();
-      final Object value = data.getData();
-
-      final byte[] timestamp = toByteArray(data.getTimestamp());
-      // use int16 instead of int32 -- 32,767 sources should be enough
-      final byte[] sourceIdIndex = toByteArray((short) constantPool.indexOf(data.getSourceId()));
-      final byte[] dataType = toByteArray((short) constantPool.indexOf(data.getDataType().getName()));
-      final byte[] dataBytes = encode(value, type);
-
-      segments.add(timestamp);
-      segments.add(sourceIdIndex);
-      segments.add(dataType);
-      segments.add(dataBytes);
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      writer.append(recording);
     }
-    byte[] all = segments
-        .stream()
-        .reduce(new byte[0], Bytes::concat);
-    Path saveDir = file.getParent();
-    if (saveDir != null) {
-      Files.createDirectories(saveDir);
-    }
-    Files.write(file, all);
   }
 
   /**
    * Updates a saved recording file with the contents of the given recording. Note: the recording should <i>not</i>
-   * contain any data that has already been saved to disk, or it will be saved again.
+   * contain any data that has already been saved to disk, or it will be saved again. The new contents are appended to
+   * the end of the file; nothing that has already been saved is rewritten.
+   *
+   * <p>Recorders that save periodically should keep a single {@link RecordingWriter} open instead of calling this
+   * method for every save.
    *
    * @param recording the recording to update the save file with
    * @param file      the path to the save file to update
    *
    * @throws IOException if the save file could not be updated
    */
-  @SuppressWarnings("PMD.ExcessiveMethodLength")
   public static void updateRecordingSave(Recording recording, Path file) throws IOException {
-    if (Files.notExists(file) || Files.size(file) == 0) {
-      saveRecording(recording, file);
-      return;
-    }
-    // Use a copy to avoid synchronization issues
-    var snapshot = recording.takeSnapshotAndClear();
-    final var dataCopy = snapshot.getData();
-    final var markers = snapshot.getMarkers();
-    if (dataCopy.isEmpty() && markers.isEmpty()) {
-      // No new data
-      return;
-    }
-    Serializers.getAdapters().forEach(a -> a.setCurrentFile(file.toFile()));
-    // Use a RandomAccessFile to avoid having to read its entire contents into memory
-    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
-      int magic = raf.readInt();
-      if (magic != MAGIC_NUMBER) {
-        throw new IOException(
-            String.format("Wrong magic number in the header. Expected 0x%08X, but was 0x%08X", MAGIC_NUMBER, magic));
-      }
-
-      // Update the number of data points
-      raf.seek(Offsets.NUMBER_DATA_POINTS_OFFSET);
-      int numExistingDataPoints = raf.readInt();
-      int totalDataPoints = numExistingDataPoints + dataCopy.size();
-      raf.seek(Offsets.NUMBER_DATA_POINTS_OFFSET);
-      raf.writeInt(totalDataPoints); // Update the number of data points
-
-      // Get the location of the markers in the file
-      raf.seek(Offsets.MARKER_POSITION_OFFSET);
-      final int markerPosition = raf.readInt();
-      raf.seek(Offsets.DATA_POSITION_OFFSET);
-      final int dataPosition = raf.readInt();
-
-      // Update the constant pool
-      raf.seek(Offsets.CONSTANT_POOL_HEADER_OFFSET);
-      int constantPoolSize = raf.readInt();
-      byte[] buffer = new byte[256];
-      final List<String> constantPoolEntries = new ArrayList<>(constantPoolSize);
-      int constantPoolLength = 0;
-      int pos = Offsets.CONSTANT_POOL_HEADER_OFFSET + SIZE_OF_INT;
-      for (int i = 0; i < constantPoolSize; i++) {
-        raf.seek(pos);
-        final int sourceIdLength = raf.readInt();
-        pos += SIZE_OF_INT;
-        constantPoolLength += SIZE_OF_INT;
-        raf.seek(pos);
-        final int len = raf.read(buffer, 0, sourceIdLength);
-        String constantPoolEntry = new String(Arrays.copyOfRange(buffer, 0, len), StandardCharsets.UTF_8);
-        pos += len;
-        constantPoolLength += len;
-        constantPoolEntries.add(constantPoolEntry);
-      }
-
-      Stream<String> sourceIdStream = dataCopy.stream()
-          .map(TimestampedData::getSourceId)
-          .distinct();
-      Stream<String> dataTypeStream = dataCopy.stream()
-          .map(t -> t.getDataType().getName())
-          .distinct();
-      Stream<String> constantPoolStream = Stream.concat(sourceIdStream, dataTypeStream);
-      byte[] newConstantPoolEntries =
-          constantPoolStream.filter(id -> !constantPoolEntries.contains(id))
-              .peek(constantPoolEntries::add)
-              .map(Serialization::toByteArray)
-              .reduce(new byte[0], Bytes::concat);
-      byte[] newMarkerEntries = markers.stream()
-          .map(marker -> {
-            byte[] timestamp = toByteArray(marker.getTimestamp());
-            byte[] name = toByteArray(marker.getName());
-            byte[] description = toByteArray(marker.getDescription());
-            byte[] importance = toByteArray((byte) marker.getImportance().getId());
-            return Bytes.concat(timestamp, name, description, importance);
-          })
-          .reduce(new byte[0], Bytes::concat);
-      byte[] newBodyEntries = dataCopy.stream()
-          .map(data -> {
-            final DataType type = data.getDataType();
-            final Object value = data.getData();
-
-            final byte[] timestamp = toByteArray(data.getTimestamp());
-            // use int16 instead of int32 -- 32,767 sources should be enough
-            final byte[] sourceIdIndex = toByteArray((short) constantPoolEntries.indexOf(data.getSourceId()));
-            final byte[] dataType = toByteArray((short) constantPoolEntries.indexOf(type.getName()));
-            final byte[] dataBytes = encode(value, type);
-
-            return Bytes.concat(timestamp, sourceIdIndex, dataType, dataBytes);
-          })
-          .reduce(new byte[0], Bytes::concat);
-
-      if (newConstantPoolEntries.length > 0) {
-        // Update the number of source IDs
-        int totalNumSourceIds = constantPoolEntries.size();
-        raf.seek(Offsets.CONSTANT_POOL_HEADER_OFFSET);
-        raf.writeInt(totalNumSourceIds);
-
-        // Update the constant pool
-        int constantPoolEnd = Offsets.CONSTANT_POOL_HEADER_OFFSET + SIZE_OF_INT + constantPoolLength;
-        insertDataIntoFile(file, constantPoolEnd, newConstantPoolEntries);
-        raf.seek(Offsets.MARKER_POSITION_OFFSET);
-        raf.writeInt(constantPoolEnd + newConstantPoolEntries.length);
-      }
-
-      if (newMarkerEntries.length > 0) {
-        // Update the number of markers
-        int markerStart = markerPosition + newConstantPoolEntries.length;
-        raf.seek(markerStart);
-        int currentSize = raf.readInt();
-        raf.seek(markerStart);
-        raf.writeInt(currentSize + markers.size());
-
-        // Add the new entries to the markers array
-        int markerEnd = dataPosition + newConstantPoolEntries.length;
-        insertDataIntoFile(file, markerEnd, newMarkerEntries);
-
-        // Update location of data
-        raf.seek(Offsets.DATA_POSITION_OFFSET);
-        int newDataPos = dataPosition + newMarkerEntries.length + newConstantPoolEntries.length;
-        raf.writeInt(newDataPos);
-      }
-      Files.write(file, newBodyEntries, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
-    }
-  }
-
-  /**
-   * Inserts binary data into a file at a specific position.
-   *
-   * @param path the path to the file to insert into
-   * @param pos  the position in the file to insert the data at
-   * @param data the data to insert
-   *
-   * @throws IOException if the file could not be modified
-   */
-  private static void insertDataIntoFile(Path path, long pos, byte[] data) throws IOException {
-    if (Files.notExists(path)) {
-      throw new NoSuchFileException("The file specified does not exist: " + path);
-    }
-    if (!Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
-      // Make sure it's a normal file (not a directory and not a symlink/shortcut to another file)
-      throw new IllegalArgumentException("Cannot insert into " + path);
-    }
-    Objects.requireNonNull(data, "Data cannot be null");
-    if (data.length == 0) {
-      // Nothing to insert, do nothing
-      return;
-    }
-    Path fileName = path.getFileName();
-    if (fileName == null) {
-      // Shouldn't be possible
-      throw new AssertionError("File name is null - this should have been checked earlier");
-    }
-    File tmpFile = new File(path.toString().replace(fileName.toString(), "." + fileName));
-    try (var file = new RandomAccessFile(path.toFile(), "rw");
-         var tmp = new RandomAccessFile(tmpFile, "rw");
-         var src = file.getChannel();
-         var dst = tmp.getChannel()) {
-      final long fileSize = file.length();
-      final long count = fileSize - pos;
-      src.transferTo(pos, count, dst);
-      src.truncate(pos);
-      file.seek(pos);
-      file.write(data);
-      long newOffset = file.getFilePointer();
-      dst.position(0);
-      src.transferFrom(dst, newOffset, count);
-    } finally {
-      boolean deleted = tmpFile.delete();
-      if (!deleted) {
-        log.fine(() -> "Could not delete temp file");
-      }
+    try (RecordingWriter writer = RecordingWriter.open(file)) {
+      writer.append(recording);
     }
   }
 
@@ -400,75 +315,15 @@ public final class Serialization {
   }
 
   /**
-   * Loads the recording stored in the given file.
+   * Loads the entire recording stored in the given file into memory. Use a {@link RecordingReader} to read large
+   * recordings without loading all their data.
    *
    * @param file the recording file to load
    *
    * @throws IOException if the file could not be read, or if it is in an unexpected binary format
    */
   public static Recording loadRecording(Path file) throws IOException {
-    final byte[] bytes = Files.readAllBytes(file);
-    if (bytes.length < 8) {
-      throw new IOException("Recording file too small");
-    }
-    final int magic = readInt(bytes, Offsets.MAGIC_NUMBER_OFFSET);
-    if (magic != MAGIC_NUMBER) {
-      throw new IOException(
-          String.format("Wrong magic number in the header. Expected 0x%08X, but was 0x%08X", MAGIC_NUMBER, magic));
-    }
-    final int version = readInt(bytes, Offsets.VERSION_NUMBER_OFFSET);
-    if (version != VERSION) {
-      throw new IOException(
-          "Cannot load recording with format version " + version + ". The current format version is " + VERSION);
-    }
-    Serializers.getAdapters().forEach(a -> a.setCurrentFile(file.toFile()));
-    //final int numDataPoints = readInt(bytes, Offsets.NUMBER_DATA_POINTS_OFFSET);
-    final String[] constantPool = readStringArray(bytes, Offsets.CONSTANT_POOL_HEADER_OFFSET);
-
-    Recording recording = new Recording();
-    int cursor = Offsets.CONSTANT_POOL_HEADER_OFFSET + sizeOfStringArray(constantPool);
-    int numMarkers = readInt(bytes, cursor);
-    cursor += SIZE_OF_INT;
-    for (int i = 0; i < numMarkers; i++) {
-      final long timestamp = readLong(bytes, cursor);
-      cursor += SIZE_OF_LONG;
-      final String name = readString(bytes, cursor);
-      cursor += toByteArray(name).length;
-      final String description = readString(bytes, cursor);
-      cursor += toByteArray(description).length;
-      final int importanceId = bytes[cursor];
-      cursor += SIZE_OF_BYTE;
-
-      Marker marker = new Marker(name, description, MarkerImportance.forId(importanceId), timestamp);
-      recording.addMarker(marker);
-    }
-    while (cursor < bytes.length) {
-      final long timeStamp = readLong(bytes, cursor); // NOPMD
-      cursor += SIZE_OF_LONG;
-      final short sourceIdIndex = readShort(bytes, cursor);
-      final String sourceId = constantPool[sourceIdIndex]; //NOPMD
-      cursor += SIZE_OF_SHORT;
-      final short dataTypeIndex = readShort(bytes, cursor);
-      final String dataType = constantPool[dataTypeIndex];
-      cursor += SIZE_OF_SHORT;
-
-      final Object value;
-      final Optional<DataType> type = DataTypes.getDefault().forName(dataType);
-      if (type.isPresent() && Serializers.hasSerializer(type.get())) {
-        TypeAdapter adapter = Serializers.get(type.get());
-        value = adapter.deserialize(bytes, cursor);
-        cursor += adapter.getSerializedSize(value);
-      } else {
-        throw new IOException("No serializer for data type '" + dataType + "'");
-      }
-
-      // Since the data is guaranteed to be ordered in the file, we call recording.append()
-      // instead of recording.add() because the latter sorts the data
-      TimestampedData data = new TimestampedData(
-          sourceId, DataTypes.getDefault().forName(dataType).get(), value, timeStamp);
-      recording.append(data);
-    }
-    return recording;
+    return RecordingReader.open(file).toRecording();
   }
 
   /**
@@ -477,36 +332,72 @@ public final class Serialization {
   public static int sizeOfStringArray(String[] array) { // NOPMD varargs
     int size = SIZE_OF_INT;
     for (String s : array) {
-      size += toByteArray(s).length; // maintains UTF-8 encoding of multi-byte chars
+      size += sizeOfString(s);
     }
     return size;
   }
 
   /**
-   * Generates a header for a serialized recording. The header contains:
-   * <ul>
-   * <li>The {@link #MAGIC_NUMBER magic number}, to help confirm data integrity</li>
-   * <li>The {@link #VERSION version number}, to avoid attempting to load incompatible recording files</li>
-   * <li>The number of data points (signed 32-bit int)</li>
-   * <li>The names of all the recorded sources, used for caching</li>
-   * </ul>
+   * Gets the size of a string if it were encoded as a byte array with {@link #toByteArray(String)}.
    */
-  public static byte[] header(List<TimestampedData> data) {
-    List<String> strings = generateConstantPool(data);
-    byte[] constantPool = toByteArray(strings.toArray(new String[strings.size()]));
-    byte[] header = new byte[(SIZE_OF_INT * 5) + constantPool.length];
-    put(header, toByteArray(MAGIC_NUMBER), Offsets.MAGIC_NUMBER_OFFSET);
-    put(header, toByteArray(VERSION), Offsets.VERSION_NUMBER_OFFSET);
-    put(header, toByteArray(data.size()), Offsets.NUMBER_DATA_POINTS_OFFSET);
-    put(header, constantPool, Offsets.CONSTANT_POOL_HEADER_OFFSET);
-    return header;
+  public static int sizeOfString(String string) {
+    return SIZE_OF_INT + sizeOfUtf8(string);
   }
 
-  private static List<String> generateConstantPool(List<TimestampedData> data) {
-    List<String> constantPool = new ArrayList<>();
-    constantPool.addAll(getAllSourceNames(data));
-    constantPool.addAll(getAllDataTypeNames(data));
-    return constantPool;
+  /**
+   * Gets the number of bytes needed to encode a string as UTF-8, without encoding it. Unpaired surrogates count as one
+   * byte, since {@link String#getBytes} replaces them with {@code '?'}.
+   */
+  private static int sizeOfUtf8(String string) {
+    final int length = string.length();
+    int size = length;
+    for (int i = 0; i < length; i++) {
+      final char c = string.charAt(i);
+      if (c >= 0x80 && c < 0x800) {
+        size += 1;
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+        // Two chars, four bytes
+        size += 2;
+        i++;
+      } else if (c >= 0x800 && !Character.isSurrogate(c)) {
+        size += 2;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Writes a string to a buffer in the same format as {@link #toByteArray(String)}, without creating any intermediate
+   * arrays. The buffer must have at least {@link #sizeOfString(String) sizeOfString(string)} bytes remaining.
+   *
+   * @param buffer the buffer to write to
+   * @param string the string to write
+   */
+  public static void put(ByteBuffer buffer, String string) {
+    final int length = string.length();
+    buffer.putInt(sizeOfUtf8(string));
+    for (int i = 0; i < length; i++) {
+      final char c = string.charAt(i);
+      if (c < 0x80) {
+        buffer.put((byte) c);
+      } else if (c < 0x800) {
+        buffer.put((byte) (0xC0 | (c >> 6)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+        final int codePoint = Character.toCodePoint(c, string.charAt(i + 1));
+        buffer.put((byte) (0xF0 | (codePoint >> 18)));
+        buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+        buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        buffer.put((byte) '?');
+      } else {
+        buffer.put((byte) (0xE0 | (c >> 12)));
+        buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+      }
+    }
   }
 
   /**
@@ -519,14 +410,6 @@ public final class Serialization {
         .collect(Collectors.toList());
   }
 
-  private static List<String> getAllDataTypeNames(List<TimestampedData> data) {
-    return data.stream()
-        .map(TimestampedData::getDataType)
-        .map(DataType::getName)
-        .distinct()
-        .collect(Collectors.toList());
-  }
-
   /**
    * Encodes a boolean as a 1-byte array.
    */
@@ -46,4 +46,9 @@ public class BooleanArrayAdapter extends TypeAdapter<boolean[]> {
     return Serialization.SIZE_OF_INT + (value.length * Serialization.SIZE_OF_BOOL);
   }
 
+  @Override
+  public int getSerializedSize(byte[] buffer, int bufferPosition) {
+    return Serialization.SIZE_OF_INT + (Serialization.readInt(buffer, bufferPosition) * Serialization.SIZE_OF_BOOL);
+  }
+
 }
@@ -29,4 +29,9 @@ public class ByteArrayAdapter extends TypeAdapter<byte[]> {
     return SIZE_OF_INT + value.length;
   }
 
+  @Override
+  public int getSerializedSize(byte[] buffer, int bufferPosition) {
+    return SIZE_OF_INT + Serialization.readInt(buffer, bufferPosition);
+  }
+
 }
@@ -27,4 +27,16 @@ public interface Deserializer<T> {
    */
   int getSerializedSize(T value);
 
+  /**
+   * Gets the number of bytes used to encode the value beginning at the given position in a byte buffer. This is used
+   * to skip over values without having to deserialize them. The default implementation deserializes the value;
+   * deserializers should override this if they can determine the size without doing so.
+   *
+   * @param buffer         the byte buffer containing the serialized value
+   * @param bufferPosition the position in the buffer of the first byte of the serialized value
+   */
+  default int getSerializedSize(byte[] buffer, int bufferPosition) {
+    return getSerializedSize(deserialize(buffer, bufferPosition));
+  }
+
 }
@@ -46,4 +46,9 @@ public class NumberArrayAdapter extends TypeAdapter<double[]> {
   public int getSerializedSize(double[] value) {
     return Serialization.SIZE_OF_INT + (Serialization.SIZE_OF_DOUBLE * value.length);
   }
+
+  @Override
+  public int getSerializedSize(byte[] buffer, int bufferPosition) {
+    return Serialization.SIZE_OF_INT + (Serialization.SIZE_OF_DOUBLE * Serialization.readInt(buffer, bufferPosition));
+  }
 }
@@ -2,6 +2,8 @@ package edu.wpi.first.shuffleboard.api.sources.recording.serialization;
 
 import edu.wpi.first.shuffleboard.api.data.DataType;
 
+import java.nio.ByteBuffer;
+
 /**
  * An interface for functions that can convert data of type {@code T} to a raw byte array. This byte array should be
  * able to be read by a {@link Deserializer} to reconstruct the serialized object.
@@ -22,6 +24,27 @@ public interface Serializer<T> {
    */
   byte[] serialize(T data);
 
+  /**
+   * Serializes the given data directly into a buffer, in the same format as {@link #serialize(Object)}. This is used
+   * when saving recordings to avoid creating an array for every value. The default implementation copies the array
+   * returned by {@link #serialize(Object)}; serializers should override this if they can write the data without
+   * creating the array.
+   *
+   * @param data   the object to serialize
+   * @param buffer the buffer to write the serialized data to
+   *
+   * @return true if the data was written, or false if the buffer does not have enough space remaining for it, in which
+   *         case nothing is written
+   */
+  default boolean serialize(T data, ByteBuffer buffer) {
+    final byte[] bytes = serialize(data);
+    if (bytes.length > buffer.remaining()) {
+      return false;
+    }
+    buffer.put(bytes);
+    return true;
+  }
+
   /**
    * If this serializer uses external recording files other than the primary Shuffleboard recording file (such as
    * video files for camera streams), this will save those files.
@@ -19,9 +19,11 @@ public final class Serializers {
 
   static {
     add(new SimpleAdapter<>(DataTypes.Number,
-        n -> Serialization.toByteArray(n.doubleValue()), Serialization::readDouble, Serialization.SIZE_OF_DOUBLE));
+        n -> Serialization.toByteArray(n.doubleValue()), (n, buffer) -> buffer.putDouble(n.doubleValue()),
+        Serialization::readDouble, Serialization.SIZE_OF_DOUBLE));
     add(new SimpleAdapter<>(DataTypes.Boolean,
-        Serialization::toByteArray, Serialization::readBoolean, Serialization.SIZE_OF_BOOL));
+        Serialization::toByteArray, (b, buffer) -> buffer.put((byte) (b ? 1 : 0)),
+        Serialization::readBoolean, Serialization.SIZE_OF_BOOL));
     add(new BooleanArrayAdapter());
     add(new NumberArrayAdapter());
     add(new StringAdapter());
@@ -2,6 +2,8 @@ package edu.wpi.first.shuffleboard.api.sources.recording.serialization;
 
 import edu.wpi.first.shuffleboard.api.data.DataType;
 
+import java.nio.ByteBuffer;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -12,11 +14,51 @@ import java.util.function.Function;
  */
 public final class SimpleAdapter<T> extends DelegatedAdapter<T> {
 
+  private final int serializedSize;
+  private final BiConsumer<T, ByteBuffer> bufferSerializer;
+
   public SimpleAdapter(DataType<T> dataType,
                        Function<T, byte[]> serializer,
                        BiFunction<byte[], Integer, T> deserializer,
                        int serializedSize) {
+    this(dataType, serializer, null, deserializer, serializedSize);
+  }
+
+  /**
+   * Creates a new adapter that can also serialize data directly into a buffer.
+   *
+   * @param dataType         the type of the data to serialize/deserialize
+   * @param serializer       the function to use to serialize data objects to raw bytes
+   * @param bufferSerializer the function to use to write data objects to a buffer. This must write exactly
+   *                         {@code serializedSize} bytes in the same format as {@code serializer}
+   * @param deserializer     the function to use to deserialize raw bytes to data objects
+   * @param serializedSize   the number of bytes used to serialize every data object
+   */
+  public SimpleAdapter(DataType<T> dataType,
+                       Function<T, byte[]> serializer,
+                       BiConsumer<T, ByteBuffer> bufferSerializer,
+                       BiFunction<byte[], Integer, T> deserializer,
+                       int serializedSize) {
     super(dataType, serializer, deserializer, x -> serializedSize);
+    this.serializedSize = serializedSize;
+    this.bufferSerializer = bufferSerializer;
+  }
+
+  @Override
+  public boolean serialize(T data, ByteBuffer buffer) {
+    if (bufferSerializer == null) {
+      return super.serialize(data, buffer);
+    }
+    if (buffer.remaining() < serializedSize) {
+      return false;
+    }
+    bufferSerializer.accept(data, buffer);
+    return true;
+  }
+
+  @Override
+  public int getSerializedSize(byte[] buffer, int bufferPosition) {
+    return serializedSize;
   }
 
 }
@@ -4,6 +4,7 @@ import edu.wpi.first.shuffleboard.api.data.DataTypes;
 import edu.wpi.first.shuffleboard.api.sources.recording.Serialization;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 
 public class StringAdapter extends TypeAdapter<String> {
 
@@ -16,6 +17,15 @@ public class StringAdapter extends TypeAdapter<String> {
     return Serialization.toByteArray(value);
   }
 
+  @Override
+  public boolean serialize(String value, ByteBuffer buffer) {
+    if (Serialization.sizeOfString(value) > buffer.remaining()) {
+      return false;
+    }
+    Serialization.put(buffer, value);
+    return true;
+  }
+
   @Override
   public String deserialize(byte[] buffer, int bufferPosition) {
     int cursor = bufferPosition;
@@ -36,7 +46,12 @@ public class StringAdapter extends TypeAdapter<String> {
 
   @Override
   public int getSerializedSize(String value) {
-    return serialize(value).length;
+    return Serialization.sizeOfString(value);
+  }
+
+  @Override
+  public int getSerializedSize(byte[] buffer, int bufferPosition) {
+    return Serialization.SIZE_OF_INT + Serialization.readInt(buffer, bufferPosition);
   }
 
 }
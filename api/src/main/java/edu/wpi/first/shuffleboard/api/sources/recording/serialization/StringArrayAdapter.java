@@ -3,6 +3,8 @@ package edu.wpi.first.shuffleboard.api.sources.recording.serialization;
 import edu.wpi.first.shuffleboard.api.data.DataTypes;
 import edu.wpi.first.shuffleboard.api.sources.recording.Serialization;
 
+import java.nio.ByteBuffer;
+
 public class StringArrayAdapter extends TypeAdapter<String[]> {
 
   public StringArrayAdapter() {
@@ -30,6 +32,18 @@ public class StringArrayAdapter extends TypeAdapter<String[]> {
     return buf;
   }
 
+  @Override
+  public boolean serialize(String[] data, ByteBuffer buffer) {
+    if (Serialization.sizeOfStringArray(data) > buffer.remaining()) {
+      return false;
+    }
+    buffer.putInt(data.length);
+    for (String string : data) {
+      Serialization.put(buffer, string);
+    }
+    return true;
+  }
+
   @Override
   public String[] deserialize(byte[] array, int pos) {
     int cursor = pos;
@@ -46,7 +60,18 @@ public class StringArrayAdapter extends TypeAdapter<String[]> {
 
   @Override
   public int getSerializedSize(String[] value) {
-    return serialize(value).length;
+    return Serialization.sizeOfStringArray(value);
+  }
+
+  @Override
+  public int getSerializedSize(byte[] buffer, int bufferPosition) {
+    int cursor = bufferPosition;
+    int length = Serialization.readInt(buffer, cursor);
+    cursor += Serialization.SIZE_OF_INT;
+    for (int i = 0; i < length; i++) {
+      cursor += Serialization.SIZE_OF_INT + Serialization.readInt(buffer, cursor);
+    }
+    return cursor - bufferPosition;
   }
 
 }
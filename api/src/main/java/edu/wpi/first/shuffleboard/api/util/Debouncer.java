@@ -20,19 +20,30 @@ public class Debouncer implements Runnable {
   private final Duration debounceDelay;
 
   /**
-   * Creates a new debouncer.
+   * Creates a new debouncer that runs on the {@link SharedExecutors#getScheduler() shared scheduler}.
    *
    * @param target        the target function that should be debounced
    * @param debounceDelay the maximum time delta between calls that should be allowed
    */
   public Debouncer(Runnable target, Duration debounceDelay) {
+    this(target, debounceDelay, SharedExecutors.getScheduler());
+  }
+
+  /**
+   * Creates a new debouncer.
+   *
+   * @param target          the target function that should be debounced
+   * @param debounceDelay   the maximum time delta between calls that should be allowed
+   * @param executorService the executor to run the target on
+   */
+  public Debouncer(Runnable target, Duration debounceDelay, ScheduledExecutorService executorService) {
     this.target = Objects.requireNonNull(target, "target");
     this.debounceDelay = Objects.requireNonNull(debounceDelay, "debounceDelay");
-    executorService = ThreadUtils.newDaemonScheduledExecutorService();
+    this.executorService = Objects.requireNonNull(executorService, "executorService");
   }
 
   @Override
-  public void run() {
+  public synchronized void run() {
     if (future != null && !future.isDone()) {
       future.cancel(false);
     }
@@ -49,7 +60,7 @@ public class Debouncer implements Runnable {
   /**
    * Cancels the debouncer. The target will not run unless {@link #run()} is called later.
    */
-  public void cancel() {
+  public synchronized void cancel() {
     if (future != null) {
       future.cancel(true);
     }
@@ -0,0 +1,108 @@
+package edu.wpi.first.shuffleboard.api.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors shared by the entire application. Using these instead of creating a new executor for every object keeps
+ * the number of threads low, even with many data sources and widgets; most of those executors would spend nearly all
+ * their time idle.
+ *
+ * <p>There are two shared executors:
+ * <ul>
+ * <li>The {@link #getScheduler() scheduler} runs short delayed and periodic tasks, such as debounced calls and timed
+ * updates, on a small, fixed number of threads. Tasks run on it must not block for long, since that would delay every
+ * other scheduled task.</li>
+ * <li>The {@link #getBlockingExecutor() blocking executor} runs long-running or blocking tasks, such as reading from
+ * a network stream. It creates threads as needed and stops them after they have been idle for a while.</li>
+ * </ul>
+ *
+ * <p>Neither executor may be shut down. To stop a task, cancel the future returned when it was submitted.
+ */
+public final class SharedExecutors {
+
+  private static final int SCHEDULER_THREADS =
+      Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+  private static final long BLOCKING_KEEP_ALIVE_SECONDS = 60;
+
+  private static final ScheduledThreadPoolExecutor scheduler = createScheduler();
+  private static final ThreadPoolExecutor blockingExecutor = new ThreadPoolExecutor(
+      0, Integer.MAX_VALUE,
+      BLOCKING_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+      new SynchronousQueue<>(),
+      daemonThreadFactory("Shuffleboard-Blocking"));
+
+  private SharedExecutors() {
+    throw new UnsupportedOperationException("This is a utility class!");
+  }
+
+  private static ScheduledThreadPoolExecutor createScheduler() {
+    ScheduledThreadPoolExecutor executor =
+        new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, daemonThreadFactory("Shuffleboard-Scheduler"));
+    // Debounced tasks are cancelled far more often than they run; don't keep them around until their delay expires
+    executor.setRemoveOnCancelPolicy(true);
+    executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    return executor;
+  }
+
+  private static ThreadFactory daemonThreadFactory(String namePrefix) {
+    AtomicInteger count = new AtomicInteger(0);
+    return runnable -> {
+      Thread thread = ThreadUtils.makeDaemonThread(runnable);
+      thread.setName(namePrefix + "-" + count.incrementAndGet());
+      return thread;
+    };
+  }
+
+  /**
+   * Gets the shared scheduler for short delayed and periodic tasks. Tasks may run concurrently with each other, so
+   * tasks that must not overlap need to be synchronized by their owner.
+   */
+  public static ScheduledExecutorService getScheduler() {
+    return scheduler;
+  }
+
+  /**
+   * Gets the shared executor for long-running or blocking tasks. Every task gets its own thread; threads are reused
+   * once their tasks complete.
+   */
+  public static ExecutorService getBlockingExecutor() {
+    return blockingExecutor;
+  }
+
+  /**
+   * Gets the number of threads used by the shared scheduler.
+   */
+  public static int getSchedulerThreadCount() {
+    return scheduler.getPoolSize();
+  }
+
+  /**
+   * Gets the number of tasks waiting to be run by the shared scheduler, including periodic tasks and tasks whose delay
+   * has not yet expired.
+   */
+  public static int getSchedulerQueueDepth() {
+    return scheduler.getQueue().size();
+  }
+
+  /**
+   * Gets the number of threads currently in the shared blocking executor, including idle threads.
+   */
+  public static int getBlockingThreadCount() {
+    return blockingExecutor.getPoolSize();
+  }
+
+  /**
+   * Gets the number of threads in the shared blocking executor that are currently running a task.
+   */
+  public static int getBlockingActiveCount() {
+    return blockingExecutor.getActiveCount();
+  }
+
+}
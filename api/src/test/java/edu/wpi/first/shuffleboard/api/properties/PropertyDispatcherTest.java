@@ -0,0 +1,154 @@
+package edu.wpi.first.shuffleboard.api.properties;
+
+import edu.wpi.first.shuffleboard.api.util.AsyncUtils;
+import edu.wpi.first.shuffleboard.api.util.FxUtils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PropertyDispatcherTest {
+
+  private final List<Runnable> scheduled = new ArrayList<>();
+
+  @BeforeEach
+  public void setUp() {
+    AsyncUtils.setAsyncRunner(scheduled::add);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    AsyncUtils.setAsyncRunner(FxUtils::runOnFxThread);
+  }
+
+  private void runScheduled() {
+    List<Runnable> tasks = new ArrayList<>(scheduled);
+    scheduled.clear();
+    tasks.forEach(Runnable::run);
+  }
+
+  @Test
+  public void testChangesAreCoalesced() {
+    AsyncProperty<String> property = new AsyncProperty<>("a");
+    List<String> changes = new ArrayList<>();
+    property.addListener((__, oldValue, newValue) -> changes.add(oldValue + "->" + newValue));
+    final long coalescedBefore = PropertyDispatcher.getDefault().getCoalescedCount();
+
+    property.set("b");
+    property.set("c");
+    property.set("d");
+    assertEquals(1, scheduled.size(), "Only one batch should have been scheduled");
+    runScheduled();
+
+    assertAll(
+        () -> assertEquals(List.of("a->d"), changes),
+        () -> assertEquals(2, PropertyDispatcher.getDefault().getCoalescedCount() - coalescedBefore)
+    );
+  }
+
+  @Test
+  public void testMultiplePropertiesInOneBatch() {
+    AsyncProperty<Integer> first = new AsyncProperty<>(0);
+    AsyncProperty<Integer> second = new AsyncProperty<>(0);
+    List<Integer> values = new ArrayList<>();
+    first.addListener((__, oldValue, newValue) -> values.add(newValue));
+    second.addListener((__, oldValue, newValue) -> values.add(newValue));
+
+    first.set(1);
+    second.set(2);
+    assertEquals(1, scheduled.size(), "Only one batch should have been scheduled");
+    runScheduled();
+    assertEquals(List.of(1, 2), values);
+
+    first.set(3);
+    assertEquals(1, scheduled.size(), "A new batch should be scheduled after the previous one ran");
+    runScheduled();
+    assertEquals(List.of(1, 2, 3), values);
+  }
+
+  @Test
+  public void testNoChangeNotificationWhenValueIsRestored() {
+    AsyncProperty<String> property = new AsyncProperty<>("a");
+    List<String> changes = new ArrayList<>();
+    List<Object> invalidations = new ArrayList<>();
+    property.addListener((__, oldValue, newValue) -> changes.add(newValue));
+    property.addListener(invalidations::add);
+
+    property.set("b");
+    property.set("a");
+    runScheduled();
+
+    assertAll(
+        () -> assertEquals(List.of(), changes),
+        () -> assertEquals(List.of(property), invalidations)
+    );
+  }
+
+  @Test
+  public void testImmediateListenersAreNotCoalesced() {
+    AsyncProperty<String> property = new AsyncProperty<>("a");
+    List<String> changes = new ArrayList<>();
+    property.addImmediateListener((__, oldValue, newValue) -> changes.add(newValue));
+
+    property.set("b");
+    property.set("c");
+
+    assertEquals(List.of("b", "c"), changes);
+  }
+
+  @Test
+  public void testConcurrentChangesAreDeliveredInPairs() throws InterruptedException {
+    final int count = 100_000;
+    BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+    AsyncUtils.setAsyncRunner(queue::add);
+    AsyncProperty<Integer> property = new AsyncProperty<>(0);
+    List<Integer> oldValues = new ArrayList<>();
+    List<Integer> newValues = new ArrayList<>();
+    property.addListener((__, oldValue, newValue) -> {
+      oldValues.add(oldValue);
+      newValues.add(newValue);
+    });
+
+    Thread writer = new Thread(() -> {
+      for (int i = 1; i <= count; i++) {
+        property.set(i);
+      }
+    }, "PropertyDispatcherTest writer");
+    writer.start();
+    while (writer.isAlive() || !queue.isEmpty()) {
+      Runnable task = queue.poll(10, TimeUnit.MILLISECONDS);
+      if (task != null) {
+        task.run();
+      }
+    }
+    writer.join();
+
+    // Each delivered change must start where the previous one ended
+    int expectedOldValue = 0;
+    for (int i = 0; i < oldValues.size(); i++) {
+      assertEquals(expectedOldValue, (int) oldValues.get(i), "Torn change at delivery " + i);
+      expectedOldValue = newValues.get(i);
+    }
+    assertEquals(count, expectedOldValue, "The last change should have been delivered");
+  }
+
+  @Test
+  public void testMaxRefreshRate() {
+    PropertyDispatcher dispatcher = new PropertyDispatcher();
+    assertEquals(0, dispatcher.getMaxRefreshRate());
+    dispatcher.setMaxRefreshRate(50);
+    assertEquals(50, dispatcher.getMaxRefreshRate());
+    assertThrows(IllegalArgumentException.class, () -> dispatcher.setMaxRefreshRate(-1));
+  }
+
+}
@@ -0,0 +1,124 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockCodecTest {
+
+  @Test
+  public void testBitsRoundTrip() {
+    BitWriter out = new BitWriter(1);
+    out.writeBit(true);
+    out.writeBits(0b1011, 4);
+    out.writeBits(-1L, 64);
+    out.writeGamma(1);
+    out.writeGamma(1_000_000);
+    out.alignToByte();
+    out.writeBytes(new byte[]{12, 34});
+    final byte[] bytes = out.toByteArray();
+    BitReader in = new BitReader(bytes, 0, bytes.length);
+    assertTrue(in.readBit());
+    assertEquals(0b1011, in.readBits(4));
+    assertEquals(-1L, in.readBits(64));
+    assertEquals(1, in.readGamma());
+    assertEquals(1_000_000, in.readGamma());
+    in.alignToByte();
+    assertEquals(12, in.readBits(8));
+    assertEquals(34, in.readBits(8));
+    assertThrows(IllegalArgumentException.class, in::readBit, "Read past the end of the stream");
+  }
+
+  @Test
+  public void testTimestampsRoundTrip() {
+    final long[] timestamps = {
+        0, 20, 40, 60, 80, 81, 81, 200, 700, 5000, 5020, Long.MAX_VALUE / 2, Long.MAX_VALUE / 2 + 1
+    };
+    BitWriter out = new BitWriter();
+    BlockCodec.writeTimestamps(out, timestamps);
+    final byte[] bytes = out.toByteArray();
+    assertArrayEquals(timestamps, BlockCodec.readTimestamps(new BitReader(bytes, 0, bytes.length), timestamps.length));
+  }
+
+  @Test
+  public void testSteadyTimestampsTakeOneBit() {
+    final long[] timestamps = new long[1001];
+    for (int i = 0; i < timestamps.length; i++) {
+      timestamps[i] = 123_456 + i * 20L;
+    }
+    BitWriter out = new BitWriter();
+    BlockCodec.writeTimestamps(out, timestamps);
+    // 64 bits for the first timestamp, 9 bits for the first delta, then 1 bit for each of the rest
+    assertEquals((64 + 9 + 999 + 7) / 8, out.byteLength());
+  }
+
+  @Test
+  public void testNumbersRoundTrip() {
+    final double[] values = {
+        1.0, 1.0, 1.5, -1.5, 0.0, -0.0, Double.NaN, Double.MAX_VALUE, Double.MIN_VALUE, 12.34, 12.35, 12.36,
+        Double.POSITIVE_INFINITY, 1e-300, 3.0
+    };
+    BitWriter out = new BitWriter();
+    BlockCodec.writeNumbers(out, values);
+    final byte[] bytes = out.toByteArray();
+    final long[] read = BlockCodec.readNumbers(new BitReader(bytes, 0, bytes.length), values.length);
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(Double.doubleToRawLongBits(values[i]), read[i], "Wrong value at index " + i);
+    }
+  }
+
+  @Test
+  public void testUnchangedNumbersTakeOneBit() {
+    final double[] values = new double[1001];
+    Arrays.fill(values, 3.14);
+    BitWriter out = new BitWriter();
+    BlockCodec.writeNumbers(out, values);
+    assertEquals((64 + 1000 + 7) / 8, out.byteLength());
+  }
+
+  @Test
+  public void testBooleansRoundTrip() {
+    final boolean[] values = {false, false, false, true, false, true, true, true, true, false};
+    BitWriter out = new BitWriter();
+    BlockCodec.writeBooleans(out, values);
+    final byte[] bytes = out.toByteArray();
+    assertArrayEquals(values, BlockCodec.readBooleans(new BitReader(bytes, 0, bytes.length), values.length));
+  }
+
+  @Test
+  public void testStringsRoundTrip() {
+    final String[] values = {"", "auto", "auto", "teleop", "été", "auto", "", "teleop"};
+    BitWriter out = new BitWriter();
+    BlockCodec.writeStrings(out, values);
+    final byte[] bytes = out.toByteArray();
+    final BitReader in = new BitReader(bytes, 0, bytes.length);
+    final String[] dictionary = BlockCodec.readStringDictionary(in);
+    final int[] indexes = BlockCodec.readStringIndexes(in, values.length, dictionary.length);
+    final String[] read = new String[values.length];
+    for (int i = 0; i < values.length; i++) {
+      read[i] = dictionary[indexes[i]];
+    }
+    assertAll(
+        () -> assertEquals(4, dictionary.length, "Dictionary should only contain distinct strings"),
+        () -> assertArrayEquals(values, read)
+    );
+  }
+
+  @Test
+  public void testSingleStringRoundTrip() {
+    final String[] values = {"only", "only", "only"};
+    BitWriter out = new BitWriter();
+    BlockCodec.writeStrings(out, values);
+    final byte[] bytes = out.toByteArray();
+    final BitReader in = new BitReader(bytes, 0, bytes.length);
+    final String[] dictionary = BlockCodec.readStringDictionary(in);
+    assertArrayEquals(new int[3], BlockCodec.readStringIndexes(in, values.length, dictionary.length));
+  }
+
+}
@@ -0,0 +1,82 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import edu.wpi.first.shuffleboard.api.data.DataTypes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IngestBufferTest {
+
+  private static final List<String> sourceIds = List.of("foo", "bar", "baz");
+
+  @Test
+  public void testCapacityMustBePowerOfTwo() {
+    assertThrows(IllegalArgumentException.class, () -> new IngestBuffer(3));
+  }
+
+  @Test
+  public void testDrain() {
+    IngestBuffer buffer = new IngestBuffer(4);
+    buffer.offerNumber(0, 1, 12.5);
+    buffer.offerBoolean(1, 2, true);
+    buffer.offer(2, 3, DataTypes.String, "value");
+    List<TimestampedData> drained = new ArrayList<>();
+    assertEquals(3, buffer.drain(sourceIds, drained::add));
+    assertEquals(List.of(
+        new TimestampedData("foo", DataTypes.Number, 12.5, 1),
+        new TimestampedData("bar", DataTypes.Boolean, true, 2),
+        new TimestampedData("baz", DataTypes.String, "value", 3)
+    ), drained);
+    assertEquals(0, buffer.drain(sourceIds, drained::add), "Buffer should be empty after draining");
+  }
+
+  @Test
+  public void testRejectWhenFull() {
+    IngestBuffer buffer = new IngestBuffer(2);
+    assertTrue(buffer.offerNumber(0, 0, 0));
+    assertTrue(buffer.offerNumber(0, 1, 1));
+    assertFalse(buffer.offerNumber(0, 2, 2), "Full buffer should reject new data");
+    buffer.drain(sourceIds, __ -> {
+    });
+    assertTrue(buffer.offerNumber(0, 3, 3), "Drained buffer should accept new data");
+  }
+
+  @Test
+  public void testConcurrentProducers() throws InterruptedException {
+    final int producers = 4;
+    final int perProducer = 10_000;
+    IngestBuffer buffer = new IngestBuffer(1 << 10);
+    List<TimestampedData> drained = new ArrayList<>();
+    CountDownLatch done = new CountDownLatch(producers);
+    for (int p = 0; p < producers; p++) {
+      final int handle = p % sourceIds.size();
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          while (!buffer.offerNumber(handle, i, i)) {
+            Thread.yield();
+          }
+        }
+        done.countDown();
+      });
+      thread.setDaemon(true);
+      thread.start();
+    }
+    while (done.getCount() > 0) {
+      buffer.drain(sourceIds, drained::add);
+    }
+    buffer.drain(sourceIds, drained::add);
+    assertEquals(producers * perProducer, drained.size());
+    assertEquals(producers * (long) perProducer * (perProducer - 1) / 2,
+        drained.stream().collect(Collectors.summingLong(TimestampedData::getTimestamp)).longValue());
+  }
+
+}
@@ -0,0 +1,137 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import edu.wpi.first.shuffleboard.api.data.DataTypes;
+import edu.wpi.first.shuffleboard.api.util.AsyncUtils;
+import edu.wpi.first.shuffleboard.api.util.FxUtils;
+
+import com.google.common.collect.MoreCollectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junitpioneer.jupiter.TempDirectory;
+import org.junitpioneer.jupiter.TempDirectory.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecorderTest {
+
+  private Recorder recorder;
+
+  @BeforeEach
+  public void setup() {
+    AsyncUtils.setAsyncRunner(Runnable::run);
+    recorder = Recorder.createDummyInstance();
+    recorder.start();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    recorder.stop();
+    AsyncUtils.setAsyncRunner(FxUtils::runOnFxThread);
+  }
+
+  @Test
+  public void testRecordAtCaptureTime() {
+    final int number = recorder.getSourceHandle("number");
+    final int bool = recorder.getSourceHandle("boolean");
+    final long captureTime = System.nanoTime();
+    awaitElapsed(captureTime, 20);
+    recorder.recordNumber(number, 12.5, captureTime);
+    recorder.recordBoolean(bool, true, captureTime);
+    recorder.recordNumber(number, 25.0);
+
+    final List<TimestampedData> data = recorder.getRecording().getData();
+    assertAll(
+        () -> assertEquals(3, data.size(), "Wrong number of data points"),
+        () -> assertEquals(12.5, data.get(0).getData()),
+        () -> assertEquals(true, data.get(1).getData()),
+        () -> assertEquals(DataTypes.Boolean, data.get(1).getDataType()),
+        () -> assertEquals(data.get(0).getTimestamp(), data.get(1).getTimestamp(), "Same capture time"),
+        () -> assertTrue(data.get(2).getTimestamp() - data.get(0).getTimestamp() >= 20,
+            "Data should be recorded at its capture time")
+    );
+  }
+
+  @Test
+  public void testLastSaveTimeStartsAtStartTime() {
+    recorder.stop();
+    final long before = System.nanoTime();
+    recorder.start();
+    final long after = System.nanoTime();
+    final long lastSave = recorder.getLastSaveTime();
+    assertTrue(lastSave - before >= 0 && after - lastSave >= 0, "Last save time should be the start time");
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testCaptureTimeBeforeLastSave(@TempDir Path dir) throws IOException {
+    // Frames are recorded when they finish encoding, which can be after the recording has been saved
+    final Path file = dir.resolve("testCaptureTimeBeforeLastSave.sbr");
+    final int frames = recorder.getSourceHandle("camera");
+    final int number = recorder.getSourceHandle("number");
+    final long grabTime = System.nanoTime();
+    awaitElapsed(grabTime, 20);
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      recorder.recordNumber(number, 1.0);
+      writer.append(recorder.getRecording());
+      recorder.record(frames, DataTypes.String, "frame", grabTime);
+      recorder.recordNumber(number, 2.0);
+      writer.append(recorder.getRecording());
+    }
+
+    final List<Object> values = RecordingReader.open(file).scan(RecordingQuery.all())
+        .map(TimestampedData::getData)
+        .collect(Collectors.toList());
+    assertEquals(List.of("frame", 1.0, 2.0), values);
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testStopTwiceDoesNotRewriteFile(@TempDir Path dir) throws IOException {
+    final Recorder diskRecorder = Recorder.createInstance(dir);
+    diskRecorder.start();
+    diskRecorder.recordNumber(diskRecorder.getSourceHandle("number"), 1.0);
+    diskRecorder.stop();
+
+    final Path file;
+    try (Stream<Path> files = Files.list(dir)) {
+      file = files.collect(MoreCollectors.onlyElement());
+    }
+    final byte[] saved = Files.readAllBytes(file);
+    diskRecorder.stop();
+    assertArrayEquals(saved, Files.readAllBytes(file), "Stopping again should not rewrite the recording");
+
+    // eg the user moved the file after recording
+    Files.delete(file);
+    diskRecorder.stop();
+    assertFalse(Files.exists(file), "Stopping again should not recreate the recording");
+    assertNull(diskRecorder.getRecordingFile());
+  }
+
+  /**
+   * Waits until at least the given number of milliseconds have passed since a time given by {@link System#nanoTime()}.
+   */
+  private static void awaitElapsed(long since, long millis) {
+    final long duration = TimeUnit.MILLISECONDS.toNanos(millis);
+    while (System.nanoTime() - since < duration) {
+      LockSupport.parkNanos(duration - (System.nanoTime() - since));
+    }
+  }
+
+}
@@ -0,0 +1,109 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import edu.wpi.first.shuffleboard.api.data.DataTypes;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junitpioneer.jupiter.TempDirectory;
+import org.junitpioneer.jupiter.TempDirectory.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the size of recordings and the throughput of writing and reading them with and without compressed encoding
+ * and deflated chunks. The recorded data imitates robot telemetry: 50 Hz number sources that drift slowly, a few
+ * booleans that rarely change, a string that switches between a handful of values, and a string array that never
+ * changes.
+ *
+ * <p>Run with {@code ./gradlew :api:benchmark}.
+ */
+@Tag("Benchmark")
+public class RecordingCompressionBenchmark {
+
+  private static final Logger log = Logger.getLogger(RecordingCompressionBenchmark.class.getName());
+
+  private static final int SECONDS = 600;
+  private static final int RATE_HZ = 50;
+  private static final int NUMBER_SOURCES = 20;
+  private static final int BOOLEAN_SOURCES = 5;
+  private static final int ITERATIONS = 5;
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void benchmarkCompression(@TempDir Path dir) throws IOException {
+    final List<TimestampedData> data = generateData();
+    report(dir.resolve("uncompressed.sbr"), data, false, 0);
+    report(dir.resolve("compressed.sbr"), data, true, 0);
+    report(dir.resolve("deflated.sbr"), data, false, 6);
+    report(dir.resolve("compressed-deflated.sbr"), data, true, 6);
+  }
+
+  private static List<TimestampedData> generateData() {
+    final Random random = new Random(254);
+    final String[] modes = {"Disabled", "Autonomous", "Teleop", "Test"};
+    final String[] autos = {"Do Nothing", "Drive Forward", "Two Piece Left", "Two Piece Right", "Three Piece Center"};
+    final double[] numbers = new double[NUMBER_SOURCES];
+    final List<TimestampedData> data = new ArrayList<>();
+    for (int tick = 0; tick < SECONDS * RATE_HZ; tick++) {
+      // Timestamps jitter by a millisecond or two, as they do for values from NetworkTables
+      final long timestamp = tick * (1000L / RATE_HZ) + random.nextInt(3);
+      for (int i = 0; i < NUMBER_SOURCES; i++) {
+        if (random.nextInt(4) == 0) {
+          numbers[i] = Math.round((numbers[i] + random.nextGaussian()) * 100) / 100.0;
+        }
+        data.add(new TimestampedData("/SmartDashboard/number" + i, DataTypes.Number, numbers[i], timestamp));
+      }
+      for (int i = 0; i < BOOLEAN_SOURCES; i++) {
+        data.add(new TimestampedData("/SmartDashboard/boolean" + i, DataTypes.Boolean,
+            (tick / (RATE_HZ * (i + 1))) % 2 == 0, timestamp));
+      }
+      data.add(new TimestampedData("/FMSInfo/mode", DataTypes.String, modes[tick / (RATE_HZ * 150)], timestamp));
+      data.add(new TimestampedData("/SmartDashboard/Auto Chooser/options", DataTypes.StringArray, autos, timestamp));
+    }
+    return data;
+  }
+
+  private static void report(Path file, List<TimestampedData> data, boolean compressed, int compressionLevel)
+      throws IOException {
+    long writeNanos = Long.MAX_VALUE;
+    long readNanos = Long.MAX_VALUE;
+    for (int i = 0; i < ITERATIONS; i++) {
+      final Recording recording = new Recording();
+      data.forEach(recording::append);
+      long start = System.nanoTime();
+      try (RecordingWriter writer = RecordingWriter.create(file)) {
+        writer.setCompressed(compressed);
+        writer.setCompressionLevel(compressionLevel);
+        writer.append(recording);
+      }
+      writeNanos = Math.min(writeNanos, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      final RecordingReader reader = RecordingReader.open(file);
+      for (int frame = 0; frame < reader.getNumFrames(); frame++) {
+        reader.read(frame);
+      }
+      readNanos = Math.min(readNanos, System.nanoTime() - start);
+      assertEquals(data.size(), reader.getNumFrames());
+    }
+    final long size = Files.size(file);
+    log.info(String.format(
+        "%s, compression level %d: %.2f bytes/sample, %.2f MB total, write %.0f samples/ms, read %.0f samples/ms",
+        compressed ? "compressed" : "uncompressed",
+        compressionLevel,
+        (double) size / data.size(),
+        size / 1e6,
+        data.size() / (writeNanos / 1e6),
+        data.size() / (readNanos / 1e6)));
+  }
+
+}
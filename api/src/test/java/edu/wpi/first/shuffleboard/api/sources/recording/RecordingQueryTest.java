@@ -0,0 +1,50 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecordingQueryTest {
+
+  @Test
+  public void testAll() {
+    final RecordingQuery query = RecordingQuery.all();
+    assertAll(
+        () -> assertTrue(query.isAllSources()),
+        () -> assertTrue(query.containsTime(Long.MIN_VALUE)),
+        () -> assertTrue(query.containsTime(Long.MAX_VALUE)),
+        () -> assertTrue(query.matchesSource("foo"))
+    );
+  }
+
+  @Test
+  public void testBetween() {
+    final RecordingQuery query = RecordingQuery.between(10, 20);
+    assertAll(
+        () -> assertFalse(query.containsTime(9)),
+        () -> assertTrue(query.containsTime(10)),
+        () -> assertTrue(query.containsTime(20)),
+        () -> assertFalse(query.containsTime(21))
+    );
+  }
+
+  @Test
+  public void testBetweenBackwards() {
+    assertThrows(IllegalArgumentException.class, () -> RecordingQuery.between(20, 10));
+  }
+
+  @Test
+  public void testWithSources() {
+    final RecordingQuery query = RecordingQuery.between(10, 20).withSources(id -> id.startsWith("/Drive/"));
+    assertAll(
+        () -> assertFalse(query.isAllSources()),
+        () -> assertTrue(query.matchesSource("/Drive/left")),
+        () -> assertFalse(query.matchesSource("/Arm/angle")),
+        () -> assertTrue(query.containsTime(15), "Time range was not kept")
+    );
+  }
+
+}
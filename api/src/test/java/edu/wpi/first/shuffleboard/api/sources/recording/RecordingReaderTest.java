@@ -0,0 +1,203 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import edu.wpi.first.shuffleboard.api.data.DataTypes;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junitpioneer.jupiter.TempDirectory;
+import org.junitpioneer.jupiter.TempDirectory.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RecordingReaderTest {
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testIndex(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testIndex.sbr");
+    final Recording recording = new Recording();
+    recording.append(new TimestampedData("foo", DataTypes.Number, 1.0, 0));
+    recording.append(new TimestampedData("bar", DataTypes.String, "baz", 3));
+    recording.append(new TimestampedData("foo", DataTypes.Number, 2.0, 10));
+    recording.addMarker(new Marker("M", MarkerImportance.HIGH, 4));
+    Serialization.saveRecording(recording, file);
+
+    RecordingReader reader = RecordingReader.open(file);
+    assertAll(
+        () -> assertEquals(3, reader.getNumFrames(), "Wrong number of frames"),
+        () -> assertEquals(List.of("foo", "bar"), reader.getSourceIds(), "Wrong source IDs"),
+        () -> assertArrayEquals(new int[]{0, 1, 0}, new int[]{
+            reader.getSourceIndex(0), reader.getSourceIndex(1), reader.getSourceIndex(2)}, "Wrong source indexes"),
+        () -> assertEquals(3, reader.getTimestamp(1), "Wrong timestamp"),
+        () -> assertEquals(10, reader.getLength(), "Wrong length"),
+        () -> assertEquals(List.of(new Marker("M", MarkerImportance.HIGH, 4)), reader.getMarkers(), "Wrong markers")
+    );
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testReadFramesOutOfOrder(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testReadFramesOutOfOrder.sbr");
+    final TimestampedData first = new TimestampedData("foo", DataTypes.StringArray, new String[]{"a", "b"}, 0);
+    final TimestampedData second = new TimestampedData("bar", DataTypes.NumberArray, new double[]{1, 2, 3}, 1);
+    final TimestampedData third = new TimestampedData("foo", DataTypes.String, "c", 2);
+    final Recording recording = new Recording();
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      recording.append(first);
+      writer.append(recording);
+      recording.append(second);
+      recording.append(third);
+      writer.append(recording);
+    }
+
+    RecordingReader reader = RecordingReader.open(file);
+    assertAll(
+        () -> assertEquals(third, reader.read(2)),
+        () -> assertArrayEquals((String[]) first.getData(), (String[]) reader.read(0).getData()),
+        () -> assertArrayEquals((double[]) second.getData(), (double[]) reader.read(1).getData(), 0)
+    );
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testLatestFrame(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testLatestFrame.sbr");
+    final Recording recording = new Recording();
+    recording.append(new TimestampedData("foo", DataTypes.Number, 1.0, 0));
+    recording.append(new TimestampedData("foo", DataTypes.Number, 2.0, 1));
+    recording.append(new TimestampedData("bar", DataTypes.Boolean, true, 2));
+    recording.append(new TimestampedData("foo", DataTypes.Number, 3.0, 3));
+    recording.append(new TimestampedData("bar", DataTypes.Boolean, false, 4));
+    Serialization.saveRecording(recording, file);
+
+    RecordingReader reader = RecordingReader.open(file);
+    final int foo = reader.getSourceIds().indexOf("foo");
+    final int bar = reader.getSourceIds().indexOf("bar");
+    assertAll(
+        () -> assertEquals(0, reader.getLatestFrame(foo, 0)),
+        () -> assertEquals(1, reader.getLatestFrame(foo, 2)),
+        () -> assertEquals(3, reader.getLatestFrame(foo, 4)),
+        () -> assertEquals(-1, reader.getLatestFrame(bar, 1)),
+        () -> assertEquals(2, reader.getLatestFrame(bar, 3)),
+        () -> assertEquals(4, reader.getLatestFrame(bar, 4)),
+        () -> assertEquals(2, reader.getFirstFrame(bar))
+    );
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testScan(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testScan.sbr");
+    final Recording recording = new Recording();
+    for (int i = 0; i < 100; i++) {
+      recording.append(new TimestampedData("/Drive/left", DataTypes.Number, (double) i, i * 10L));
+      recording.append(new TimestampedData("/Drive/right", DataTypes.Number, (double) -i, i * 10L + 1));
+      recording.append(new TimestampedData("/Arm/angle", DataTypes.Number, i / 2.0, i * 10L + 5));
+    }
+    recording.addMarker(new Marker("Early", MarkerImportance.LOW, 100));
+    recording.addMarker(new Marker("Late", MarkerImportance.LOW, 900));
+    final List<TimestampedData> data = recording.getData();
+    Serialization.saveRecording(recording, file);
+
+    RecordingReader reader = RecordingReader.open(file);
+    final RecordingQuery query = RecordingQuery.between(200, 400).withSources(id -> id.startsWith("/Drive/"));
+    final List<TimestampedData> scanned = reader.scan(query).collect(Collectors.toList());
+    final List<TimestampedData> expected = data.stream()
+        .filter(d -> d.getSourceId().startsWith("/Drive/"))
+        .filter(d -> d.getTimestamp() >= 200 && d.getTimestamp() <= 400)
+        .sorted()
+        .collect(Collectors.toList());
+    assertAll(
+        () -> assertEquals(expected, scanned, "Wrong data"),
+        () -> assertEquals(List.of(new Marker("Early", MarkerImportance.LOW, 100)),
+            reader.getMarkers(RecordingQuery.between(0, 500)), "Wrong markers")
+    );
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testScanAll(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testScanAll.sbr");
+    final Recording recording = new Recording();
+    recording.append(new TimestampedData("foo", DataTypes.Number, 1.0, 0));
+    recording.append(new TimestampedData("bar", DataTypes.String, "baz", 3));
+    recording.append(new TimestampedData("foo", DataTypes.Number, 2.0, 10));
+    final List<TimestampedData> data = recording.getData();
+    Serialization.saveRecording(recording, file);
+
+    RecordingReader reader = RecordingReader.open(file);
+    assertAll(
+        () -> assertEquals(data, reader.scan(RecordingQuery.all()).collect(Collectors.toList())),
+        () -> assertEquals(List.of(), reader.scan(RecordingQuery.between(4, 9)).collect(Collectors.toList())),
+        () -> assertEquals(List.of(), reader.scan(RecordingQuery.all().withSources(id -> false))
+            .collect(Collectors.toList()))
+    );
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testScanAcrossSavesOutOfOrder(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testScanAcrossSavesOutOfOrder.sbr");
+    writeOutOfOrder(file, 0);
+
+    RecordingReader reader = RecordingReader.open(file);
+    assertScannedInOrder(reader);
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testScanDeflatedAcrossSavesOutOfOrder(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testScanDeflatedAcrossSavesOutOfOrder.sbr");
+    writeOutOfOrder(file, 6);
+
+    RecordingReader reader = RecordingReader.open(file);
+    assertScannedInOrder(reader);
+  }
+
+  /**
+   * Saves a recording twice, with the second save holding data points older than the newest one in the first save,
+   * as happens when data is recorded at its capture time after a save has already run.
+   */
+  private static void writeOutOfOrder(Path file, int compressionLevel) throws IOException {
+    final Recording recording = new Recording();
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      writer.setCompressionLevel(compressionLevel);
+      recording.append(new TimestampedData("foo", DataTypes.Number, 1.0, 10));
+      recording.append(new TimestampedData("bar", DataTypes.String, "a", 20));
+      recording.append(new TimestampedData("foo", DataTypes.Number, 3.0, 30));
+      writer.append(recording);
+      recording.append(new TimestampedData("bar", DataTypes.String, "b", 15));
+      recording.append(new TimestampedData("foo", DataTypes.Number, 2.0, 25));
+      recording.append(new TimestampedData("foo", DataTypes.Number, 4.0, 40));
+      writer.append(recording);
+    }
+  }
+
+  private static void assertScannedInOrder(RecordingReader reader) {
+    final List<TimestampedData> expected = List.of(
+        new TimestampedData("bar", DataTypes.String, "b", 15),
+        new TimestampedData("bar", DataTypes.String, "a", 20),
+        new TimestampedData("foo", DataTypes.Number, 2.0, 25),
+        new TimestampedData("foo", DataTypes.Number, 3.0, 30)
+    );
+    final int foo = reader.getSourceIds().indexOf("foo");
+    assertAll(
+        () -> assertEquals(expected, reader.scan(RecordingQuery.between(12, 35)).collect(Collectors.toList()),
+            "Wrong data in range"),
+        () -> assertEquals(List.of(expected.get(2), expected.get(3)),
+            reader.scan(RecordingQuery.between(12, 35).withSources("foo"::equals)).collect(Collectors.toList()),
+            "Wrong data for source in range"),
+        () -> assertEquals(10, reader.getFirstTimestamp(), "Wrong first timestamp"),
+        () -> assertEquals(40, reader.getLastTimestamp(), "Wrong last timestamp"),
+        () -> assertEquals(2.0, reader.read(reader.getLatestFrame(foo, 3)).getData(), "Wrong latest value")
+    );
+  }
+
+}
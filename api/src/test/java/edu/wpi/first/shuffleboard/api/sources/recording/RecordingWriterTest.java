@@ -0,0 +1,262 @@
+package edu.wpi.first.shuffleboard.api.sources.recording;
+
+import edu.wpi.first.shuffleboard.api.data.DataTypes;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junitpioneer.jupiter.TempDirectory;
+import org.junitpioneer.jupiter.TempDirectory.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecordingWriterTest {
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testAppendOnly(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testAppendOnly.sbr");
+    final TimestampedData first = new TimestampedData("foo", DataTypes.Number, 1.0, 0);
+    final TimestampedData second = new TimestampedData("bar", DataTypes.String, "baz", 1);
+    final Marker marker = new Marker("M", MarkerImportance.LOW, 1);
+    Recording recording = new Recording();
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      recording.append(first);
+      writer.append(recording);
+      final byte[] afterFirst = Files.readAllBytes(file);
+
+      recording.append(second);
+      recording.addMarker(marker);
+      writer.append(recording);
+      final byte[] afterSecond = Files.readAllBytes(file);
+      for (int i = 0; i < afterFirst.length; i++) {
+        assertEquals(afterFirst[i], afterSecond[i], "Byte " + i + " was rewritten");
+      }
+    }
+    Recording loaded = Serialization.loadRecording(file);
+    assertAll(
+        () -> assertEquals(List.of(first, second), loaded.getData(), "Data was wrong"),
+        () -> assertEquals(List.of(marker), loaded.getMarkers(), "Markers were wrong")
+    );
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testReopenClosedFile(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testReopenClosedFile.sbr");
+    final TimestampedData first = new TimestampedData("foo", DataTypes.Number, 1.0, 0);
+    final TimestampedData second = new TimestampedData("foo", DataTypes.Number, 2.0, 1);
+    final TimestampedData third = new TimestampedData("bar", DataTypes.Boolean, true, 2);
+    Recording recording = new Recording();
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      recording.append(first);
+      writer.append(recording);
+    }
+    try (RecordingWriter writer = RecordingWriter.open(file)) {
+      recording.append(second);
+      recording.append(third);
+      writer.append(recording);
+    }
+    Recording loaded = Serialization.loadRecording(file);
+    assertEquals(List.of(first, second, third), loaded.getData());
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testChunksLargerThanBuffer(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testChunksLargerThanBuffer.sbr");
+    final List<TimestampedData> data = new ArrayList<>();
+    for (int i = 0; i < 50_000; i++) {
+      data.add(new TimestampedData("source" + (i % 100), DataTypes.Number, (double) i, i));
+    }
+    data.add(new TimestampedData("big", DataTypes.String, "x".repeat(200_000), 50_000));
+    Recording recording = new Recording();
+    data.forEach(recording::append);
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      writer.append(recording);
+    }
+    Recording loaded = Serialization.loadRecording(file);
+    assertEquals(data, loaded.getData());
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testCompressed(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testCompressed.sbr");
+    final List<TimestampedData> data = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      // Irregular timestamps and several sources updating at the same time
+      final long timestamp = i * 20L + (i % 7 == 0 ? 3 : 0);
+      data.add(new TimestampedData("number", DataTypes.Number, Math.sin(i / 50.0), timestamp));
+      data.add(new TimestampedData("boolean", DataTypes.Boolean, i % 100 < 30, timestamp));
+      data.add(new TimestampedData("string", DataTypes.String, i < 500 ? "auto" : "teleop", timestamp));
+      data.add(new TimestampedData("array", DataTypes.NumberArray, new double[]{i, -i}, timestamp));
+    }
+    Recording recording = new Recording();
+    data.forEach(recording::append);
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      writer.setCompressed(true);
+      writer.append(recording);
+    }
+    data.sort(null);
+    RecordingReader reader = RecordingReader.open(file);
+    assertEquals(data.size(), reader.getNumFrames(), "Wrong number of frames");
+    for (int i = 0; i < data.size(); i++) {
+      final TimestampedData expected = data.get(i);
+      final TimestampedData actual = reader.read(i);
+      final int frame = i;
+      assertAll("Frame " + i,
+          () -> assertEquals(expected.getTimestamp(), actual.getTimestamp(), "Wrong timestamp"),
+          () -> assertEquals(expected.getSourceId(), actual.getSourceId(), "Wrong source"),
+          () -> assertEquals(expected.getDataType(), reader.getDataType(frame), "Wrong data type"),
+          () -> {
+            if (expected.getData() instanceof double[]) {
+              assertArrayEquals((double[]) expected.getData(), (double[]) actual.getData(), "Wrong value");
+            } else {
+              assertEquals(expected.getData(), actual.getData(), "Wrong value");
+            }
+          }
+      );
+    }
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testMixedCompression(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testMixedCompression.sbr");
+    final TimestampedData first = new TimestampedData("foo", DataTypes.Number, 1.0, 0);
+    final TimestampedData second = new TimestampedData("foo", DataTypes.Number, 2.0, 1);
+    final TimestampedData third = new TimestampedData("bar", DataTypes.Boolean, true, 1);
+    final TimestampedData fourth = new TimestampedData("foo", DataTypes.Number, 3.0, 2);
+    Recording recording = new Recording();
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      recording.append(first);
+      writer.append(recording);
+    }
+    try (RecordingWriter writer = RecordingWriter.open(file)) {
+      writer.setCompressed(true);
+      recording.append(second);
+      recording.append(third);
+      writer.append(recording);
+      writer.setCompressed(false);
+      recording.append(fourth);
+      writer.append(recording);
+    }
+    Recording loaded = Serialization.loadRecording(file);
+    assertEquals(List.of(first, third, second, fourth), loaded.getData());
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testCompressedIsSmaller(@TempDir Path dir) throws IOException {
+    final Path uncompressed = dir.resolve("uncompressed.sbr");
+    final Path compressed = dir.resolve("compressed.sbr");
+    for (Path file : List.of(uncompressed, compressed)) {
+      Recording recording = new Recording();
+      for (int i = 0; i < 1000; i++) {
+        recording.append(new TimestampedData("foo", DataTypes.Number, i < 500 ? 0.0 : 1.0, i * 20L));
+      }
+      try (RecordingWriter writer = RecordingWriter.create(file)) {
+        writer.setCompressed(file.equals(compressed));
+        writer.append(recording);
+      }
+    }
+    // 20 bytes per point uncompressed, about 2 bits per point compressed
+    assertTrue(Files.size(compressed) * 10 < Files.size(uncompressed),
+        "Compressed size: " + Files.size(compressed) + ", uncompressed size: " + Files.size(uncompressed));
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testDeflated(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testDeflated.sbr");
+    final List<TimestampedData> data = new ArrayList<>();
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      writer.setCompressionLevel(6);
+      for (int chunk = 0; chunk < 10; chunk++) {
+        // Alternate between plain and block-encoded chunks
+        writer.setCompressed(chunk % 2 == 0);
+        Recording recording = new Recording();
+        for (int i = 0; i < 100; i++) {
+          final long timestamp = chunk * 100L + i;
+          final TimestampedData array =
+              new TimestampedData("array", DataTypes.StringArray, new String[]{"a", "b" + i % 3}, timestamp);
+          final TimestampedData number = new TimestampedData("number", DataTypes.Number, (double) i, timestamp);
+          recording.append(array);
+          recording.append(number);
+          data.add(array);
+          data.add(number);
+        }
+        writer.append(recording);
+      }
+    }
+    data.sort(null);
+    RecordingReader reader = RecordingReader.open(file);
+    assertEquals(data.size(), reader.getNumFrames(), "Wrong number of frames");
+    // Read backwards to jump between chunks
+    for (int i = data.size() - 1; i >= 0; i--) {
+      final TimestampedData expected = data.get(i);
+      final TimestampedData actual = reader.read(i);
+      assertAll("Frame " + i,
+          () -> assertEquals(expected.getTimestamp(), actual.getTimestamp(), "Wrong timestamp"),
+          () -> assertEquals(expected.getSourceId(), actual.getSourceId(), "Wrong source"),
+          () -> {
+            if (expected.getData() instanceof String[]) {
+              assertArrayEquals((String[]) expected.getData(), (String[]) actual.getData(), "Wrong value");
+            } else {
+              assertEquals(expected.getData(), actual.getData(), "Wrong value");
+            }
+          }
+      );
+    }
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testReopenDeflatedFile(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testReopenDeflatedFile.sbr");
+    final TimestampedData first = new TimestampedData("foo", DataTypes.String, "a".repeat(1000), 0);
+    final TimestampedData second = new TimestampedData("foo", DataTypes.String, "b".repeat(1000), 1);
+    Recording recording = new Recording();
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      writer.setCompressionLevel(9);
+      recording.append(first);
+      writer.append(recording);
+    }
+    try (RecordingWriter writer = RecordingWriter.open(file)) {
+      recording.append(second);
+      writer.append(recording);
+    }
+    assertEquals(List.of(first, second), Serialization.loadRecording(file).getData());
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testInvalidCompressionLevel(@TempDir Path dir) throws IOException {
+    try (RecordingWriter writer = RecordingWriter.create(dir.resolve("testInvalidCompressionLevel.sbr"))) {
+      assertAll(
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.setCompressionLevel(-1)),
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.setCompressionLevel(10))
+      );
+    }
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testCannotAppendAfterClose(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testCannotAppendAfterClose.sbr");
+    RecordingWriter writer = RecordingWriter.create(file);
+    writer.close();
+    assertThrows(IllegalStateException.class, () -> writer.append(new Recording()));
+  }
+
+}
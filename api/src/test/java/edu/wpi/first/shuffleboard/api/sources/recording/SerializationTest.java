@@ -8,7 +8,10 @@ import org.junitpioneer.jupiter.TempDirectory;
 import org.junitpioneer.jupiter.TempDirectory.TempDir;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -196,6 +199,61 @@ public class SerializationTest {
     );
   }
 
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testLoadLegacyVersion(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testLoadLegacyVersion.sbr");
+    final byte[] bytes = {
+        (byte) 0xBE, (byte) 0xEF, (byte) 0xFA, (byte) 0xCE, // magic number
+        0, 0, 0, 4,                   // version
+        0, 0, 0, 1,                   // number of data points
+        0, 0, 0, 45,                  // marker position
+        0, 0, 0, 63,                  // data position
+        0, 0, 0, 2,                   // constant pool size
+        0, 0, 0, 3, 'f', 'o', 'o',    // "foo"
+        0, 0, 0, 6, 'N', 'u', 'm', 'b', 'e', 'r', // "Number"
+        0, 0, 0, 1,                   // number of markers
+        0, 0, 0, 0, 0, 0, 0, 5,       // marker timestamp
+        0, 0, 0, 1, 'M',              // marker name
+        0, 0, 0, 0,                   // marker description
+        2,                            // marker importance
+        0, 0, 0, 0, 0, 0, 0, 7,       // data timestamp
+        0, 0,                         // source ID index
+        0, 1,                         // data type index
+        0x40, 0x45, 0, 0, 0, 0, 0, 0  // 42.0
+    };
+    Files.write(file, bytes);
+    Recording loaded = Serialization.loadRecording(file);
+    assertAll(
+        () -> assertEquals(List.of(new TimestampedData("foo", DataTypes.Number, 42.0, 7)), loaded.getData()),
+        () -> assertEquals(List.of(new Marker("M", "", MarkerImportance.NORMAL, 5)), loaded.getMarkers())
+    );
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testLoadWithIncompleteChunk(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testLoadWithIncompleteChunk.sbr");
+    final TimestampedData first = new TimestampedData("foo", DataTypes.Number, 1.0, 0);
+    final TimestampedData second = new TimestampedData("foo", DataTypes.Number, 2.0, 1);
+    Recording recording = new Recording();
+    final long validSize;
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      recording.append(first);
+      writer.append(recording);
+      validSize = Files.size(file);
+      recording.append(second);
+      writer.append(recording);
+    }
+
+    // Simulate a crash in the middle of writing the second chunk
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(validSize + 10);
+    }
+    Recording loaded = Serialization.loadRecording(file);
+    assertEquals(List.of(first), loaded.getData());
+  }
+
   @Test
   public void testMultiByteCharsInString() {
     String string = grinningEmoji;
@@ -2,8 +2,13 @@ package edu.wpi.first.shuffleboard.api.sources.recording.serialization;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class StringAdapterTest {
 
@@ -37,4 +42,22 @@ public class StringAdapterTest {
     assertEquals(expected, adapter.deserialize(buffer, 0));
   }
 
+  @Test
+  public void testEncodeIntoBufferMatchesArray() {
+    // ASCII, two- and three-byte chars, a surrogate pair, and an unpaired surrogate
+    String string = "a\u00e9\u20ac\ud83d\ude00\ud800z";
+    byte[] expected = adapter.serialize(string);
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    assertTrue(adapter.serialize(string, buffer));
+    assertArrayEquals(expected, Arrays.copyOf(buffer.array(), buffer.position()));
+    assertEquals(expected.length, adapter.getSerializedSize(string));
+  }
+
+  @Test
+  public void testEncodeIntoFullBuffer() {
+    ByteBuffer buffer = ByteBuffer.allocate(7);
+    assertFalse(adapter.serialize("abcd", buffer));
+    assertEquals(0, buffer.position());
+  }
+
 }
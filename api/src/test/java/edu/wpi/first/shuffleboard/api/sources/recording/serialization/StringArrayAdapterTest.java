@@ -2,7 +2,13 @@ package edu.wpi.first.shuffleboard.api.sources.recording.serialization;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class StringArrayAdapterTest extends AbstractAdapterTest<String[]> {
 
@@ -38,4 +44,26 @@ public class StringArrayAdapterTest extends AbstractAdapterTest<String[]> {
     assertArrayEquals(expected, adapter.deserialize(buffer, 0));
   }
 
+  @Test
+  public void testSerializedSizeInBuffer() {
+    byte[] buffer = {0, 0, 0, 2, 0, 0, 0, 3, 'f', 'o', 'o', 0, 0, 0, 3, 'b', 'a', 'r', 42};
+    assertEquals(18, adapter.getSerializedSize(buffer, 0));
+  }
+
+  @Test
+  public void testEncodeIntoBuffer() {
+    String[] array = {"foo", "", "\u00fcber"};
+    byte[] expected = adapter.serialize(array);
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    assertTrue(adapter.serialize(array, buffer));
+    assertArrayEquals(expected, Arrays.copyOf(buffer.array(), buffer.position()));
+  }
+
+  @Test
+  public void testEncodeIntoFullBuffer() {
+    ByteBuffer buffer = ByteBuffer.allocate(17);
+    assertFalse(adapter.serialize(new String[]{"foo", "bar"}, buffer));
+    assertEquals(0, buffer.position());
+  }
+
 }
@@ -0,0 +1,64 @@
+package edu.wpi.first.shuffleboard.api.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SharedExecutorsTest extends UtilityClassTest<SharedExecutors> {
+
+  @Test
+  public void testSchedulerRunsDelayedTasks() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+    SharedExecutors.getScheduler().schedule(latch::countDown, 10, TimeUnit.MILLISECONDS);
+    assertTrue(latch.await(5, TimeUnit.SECONDS), "Scheduled task never ran");
+  }
+
+  @Test
+  public void testCancelledTasksAreRemovedFromQueue() {
+    final int initialDepth = SharedExecutors.getSchedulerQueueDepth();
+    ScheduledFuture<?> future = SharedExecutors.getScheduler().schedule(() -> { }, 1, TimeUnit.HOURS);
+    final int scheduledDepth = SharedExecutors.getSchedulerQueueDepth();
+    future.cancel(false);
+    assertAll(
+        () -> assertEquals(initialDepth + 1, scheduledDepth),
+        () -> assertEquals(initialDepth, SharedExecutors.getSchedulerQueueDepth())
+    );
+  }
+
+  @Test
+  public void testBlockingExecutorUsesDaemonThreads() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(2);
+    AtomicBoolean allDaemons = new AtomicBoolean(true);
+    Runnable blockingTask = () -> {
+      allDaemons.compareAndSet(true, Thread.currentThread().isDaemon());
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    SharedExecutors.getBlockingExecutor().execute(blockingTask);
+    SharedExecutors.getBlockingExecutor().execute(blockingTask);
+    try {
+      // Both tasks block, so they can only both start if they run on separate threads
+      assertTrue(started.await(5, TimeUnit.SECONDS), "Blocking tasks should not wait for each other");
+      assertAll(
+          () -> assertTrue(allDaemons.get(), "Blocking executor threads should be daemons"),
+          () -> assertTrue(SharedExecutors.getBlockingActiveCount() >= 2),
+          () -> assertTrue(SharedExecutors.getBlockingThreadCount() >= 2)
+      );
+    } finally {
+      release.countDown();
+    }
+  }
+
+}
@@ -3,8 +3,8 @@ package edu.wpi.first.shuffleboard.app;
 import edu.wpi.first.shuffleboard.api.components.ExtendedPropertySheet;
 import edu.wpi.first.shuffleboard.api.sources.recording.Converter;
 import edu.wpi.first.shuffleboard.api.sources.recording.Converters;
-import edu.wpi.first.shuffleboard.api.sources.recording.Recording;
-import edu.wpi.first.shuffleboard.api.sources.recording.Serialization;
+import edu.wpi.first.shuffleboard.api.sources.recording.RecordingQuery;
+import edu.wpi.first.shuffleboard.api.sources.recording.RecordingReader;
 import edu.wpi.first.shuffleboard.api.util.FxUtils;
 import edu.wpi.first.shuffleboard.api.util.PreferencesUtils;
 import edu.wpi.first.shuffleboard.api.util.Storage;
@@ -216,11 +216,11 @@ public final class ConvertRecordingPaneController {
     conversionExecutor.submit(() -> {
       for (File file : sourceFiles) {
         try {
-          Recording recording = Serialization.loadRecording(file.toPath());
+          RecordingReader reader = RecordingReader.open(file.toPath());
           String dstFileName = file.getName().replace(".sbr", converter.fileExtension());
           Path dst = Paths.get(outputDir.getValue().getAbsolutePath(), dstFileName);
           log.info("Exporting " + file + " to " + dst);
-          converter.export(recording, dst);
+          converter.export(reader, RecordingQuery.all(), dst);
         } catch (IOException | RuntimeException e) {
           log.log(Level.WARNING,
               "Could not export recording file " + file + " with converter " + converter.formatName(), e);
@@ -3,6 +3,7 @@ package edu.wpi.first.shuffleboard.app;
 import edu.wpi.first.shuffleboard.app.components.Scrubber;
 import edu.wpi.first.shuffleboard.app.sources.recording.Playback;
 import edu.wpi.first.shuffleboard.api.sources.recording.Recorder;
+import edu.wpi.first.shuffleboard.api.sources.recording.RecordingReader;
 import edu.wpi.first.shuffleboard.api.sources.recording.TimestampedData;
 import edu.wpi.first.shuffleboard.api.util.FxUtils;
 
@@ -82,13 +83,13 @@ public class PlaybackController {
         if (frame == null || playback == null) {
           progressLabel.setText("");
         } else {
-          TimestampedData first = playback.getRecording().getFirst();
+          RecordingReader reader = playback.getReader();
           TimestampedData current = playback.getCurrentFrame();
-          if (first == null || current == null) {
+          if (reader.getNumFrames() == 0 || current == null) {
             progressLabel.setText("");
           } else {
-            String time = msToMinSec(current.getTimestamp() - first.getTimestamp());
-            String length = msToMinSec(playback.getRecording().getLength());
+            String time = msToMinSec(current.getTimestamp() - reader.getFirstTimestamp());
+            String length = msToMinSec(reader.getLength());
             progressLabel.setText(time + " / " + length);
           }
         }
@@ -3,6 +3,8 @@ package edu.wpi.first.shuffleboard.app.prefs;
 import edu.wpi.first.shuffleboard.api.prefs.Category;
 import edu.wpi.first.shuffleboard.api.prefs.Group;
 import edu.wpi.first.shuffleboard.api.prefs.Setting;
+import edu.wpi.first.shuffleboard.api.properties.PropertyDispatcher;
+import edu.wpi.first.shuffleboard.api.sources.recording.Recorder;
 import edu.wpi.first.shuffleboard.api.theme.Theme;
 import edu.wpi.first.shuffleboard.api.theme.Themes;
 import edu.wpi.first.shuffleboard.api.util.PreferencesUtils;
@@ -14,9 +16,11 @@ import java.util.prefs.Preferences;
 
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.Property;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
 
 /**
@@ -33,6 +37,10 @@ public final class AppPreferences {
       new SimpleBooleanProperty(this, "automaticallyLoadLastSaveFile", true);
   private final BooleanProperty confirmExit =
       new SimpleBooleanProperty(this, "showConfirmationDialogWhenExiting", true);
+  private final IntegerProperty maxRefreshRate = new SimpleIntegerProperty(this, "maxRefreshRate", 0);
+  private final BooleanProperty compressRecordings = new SimpleBooleanProperty(this, "compressRecordings", false);
+  private final IntegerProperty recordingCompressionLevel =
+      new SimpleIntegerProperty(this, "recordingCompressionLevel", 0);
 
   private final Category settings = Category.of("App Settings",
       Group.of("Theme",
@@ -45,8 +53,22 @@ public final class AppPreferences {
       Group.of("Startup",
           Setting.of("Load last save file", "Load the most recent save file at startup", autoLoadLastSaveFile)
       ),
+      Group.of("Recording",
+          Setting.of("Compress recordings",
+              "Compress recorded data. Compressed recordings are much smaller, but can't be opened by older versions "
+                  + "of Shuffleboard",
+              compressRecordings),
+          Setting.of("Compression level",
+              "How much to compress recorded data, from 0 (no compression) to 9 (smallest files). Higher levels use "
+                  + "more CPU while recording. Works best for arrays and other large values",
+              recordingCompressionLevel)
+      ),
       Group.of("Miscellaneous",
-          Setting.of("Confirm exit", "Request confirmation before exiting", confirmExit)
+          Setting.of("Confirm exit", "Request confirmation before exiting", confirmExit),
+          Setting.of("Max refresh rate",
+              "The maximum number of times per second that new data is shown. Lower rates reduce CPU usage when "
+                  + "data is changing quickly. Use 0 for no limit",
+              maxRefreshRate)
       )
   );
 
@@ -64,6 +86,12 @@ public final class AppPreferences {
     PreferencesUtils.read(saveFile, preferences, File::new);
     PreferencesUtils.read(autoLoadLastSaveFile, preferences);
     PreferencesUtils.read(confirmExit, preferences);
+    PreferencesUtils.read(maxRefreshRate, preferences);
+    PreferencesUtils.read(compressRecordings, preferences);
+    PreferencesUtils.read(recordingCompressionLevel, preferences);
+    PropertyDispatcher.getDefault().setMaxRefreshRate(Math.max(0, maxRefreshRate.get()));
+    Recorder.getInstance().setCompressData(compressRecordings.get());
+    Recorder.getInstance().setCompressionLevel(recordingCompressionLevel.get());
 
     theme.addListener(__ -> PreferencesUtils.save(theme, preferences, Theme::getName));
     defaultTileSize.addListener(__ -> PreferencesUtils.save(defaultTileSize, preferences));
@@ -71,6 +99,18 @@ public final class AppPreferences {
     saveFile.addListener(__ -> PreferencesUtils.save(saveFile, preferences, File::getAbsolutePath));
     autoLoadLastSaveFile.addListener(__ -> PreferencesUtils.save(autoLoadLastSaveFile, preferences));
     confirmExit.addListener(__ -> PreferencesUtils.save(confirmExit, preferences));
+    maxRefreshRate.addListener((__, oldRate, newRate) -> {
+      PropertyDispatcher.getDefault().setMaxRefreshRate(Math.max(0, newRate.intValue()));
+      PreferencesUtils.save(maxRefreshRate, preferences);
+    });
+    compressRecordings.addListener((__, was, compress) -> {
+      Recorder.getInstance().setCompressData(compress);
+      PreferencesUtils.save(compressRecordings, preferences);
+    });
+    recordingCompressionLevel.addListener((__, oldLevel, newLevel) -> {
+      Recorder.getInstance().setCompressionLevel(newLevel.intValue());
+      PreferencesUtils.save(recordingCompressionLevel, preferences);
+    });
   }
 
   public static AppPreferences getInstance() {
@@ -152,4 +192,40 @@ public final class AppPreferences {
   public void setConfirmExit(boolean confirmExit) {
     this.confirmExit.set(confirmExit);
   }
+
+  public int getMaxRefreshRate() {
+    return maxRefreshRate.get();
+  }
+
+  public IntegerProperty maxRefreshRateProperty() {
+    return maxRefreshRate;
+  }
+
+  public void setMaxRefreshRate(int maxRefreshRate) {
+    this.maxRefreshRate.set(maxRefreshRate);
+  }
+
+  public boolean isCompressRecordings() {
+    return compressRecordings.get();
+  }
+
+  public BooleanProperty compressRecordingsProperty() {
+    return compressRecordings;
+  }
+
+  public void setCompressRecordings(boolean compressRecordings) {
+    this.compressRecordings.set(compressRecordings);
+  }
+
+  public int getRecordingCompressionLevel() {
+    return recordingCompressionLevel.get();
+  }
+
+  public IntegerProperty recordingCompressionLevelProperty() {
+    return recordingCompressionLevel;
+  }
+
+  public void setRecordingCompressionLevel(int recordingCompressionLevel) {
+    this.recordingCompressionLevel.set(recordingCompressionLevel);
+  }
 }
@@ -8,29 +8,33 @@ import edu.wpi.first.shuffleboard.api.sources.recording.Converter;
 import edu.wpi.first.shuffleboard.api.sources.recording.Marker;
 import edu.wpi.first.shuffleboard.api.sources.recording.Recording;
 import edu.wpi.first.shuffleboard.api.sources.recording.RecordingEntry;
+import edu.wpi.first.shuffleboard.api.sources.recording.RecordingQuery;
+import edu.wpi.first.shuffleboard.api.sources.recording.RecordingReader;
 import edu.wpi.first.shuffleboard.api.sources.recording.TimestampedData;
 import edu.wpi.first.shuffleboard.api.util.AlphanumComparator;
 import edu.wpi.first.shuffleboard.api.util.PreferencesUtils;
 import edu.wpi.first.shuffleboard.api.util.StringUtils;
 
 import com.google.common.annotations.VisibleForTesting;
-
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
 import java.util.stream.Collectors;
@@ -40,8 +44,6 @@ import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 
-import static java.util.function.Predicate.not;
-
 public final class CsvConverter implements Converter {
 
   public static final CsvConverter Instance = new CsvConverter(Preferences.userNodeForPackage(CsvConverter.class));
@@ -89,9 +91,19 @@ public final class CsvConverter implements Converter {
 
   @Override
   public void export(Recording recording, Path destination) throws IOException {
-    try (var outputStream = new FileOutputStream(destination.toFile());
-         var writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
-      writer.append(convertToCsv(recording));
+    try (var writer = Files.newBufferedWriter(destination, StandardCharsets.UTF_8)) {
+      writeCsv(recording, writer);
+    }
+  }
+
+  @Override
+  public void export(RecordingReader reader, RecordingQuery query, Path destination) throws IOException {
+    final List<String> sourceIds = reader.getSourceIds().stream()
+        .filter(query::matchesSource)
+        .collect(Collectors.toList());
+    try (var writer = Files.newBufferedWriter(destination, StandardCharsets.UTF_8)) {
+      // Scanned data is in ascending order of timestamp, even if it was saved out of order
+      writeCsv(sourceIds, reader.scan(query).iterator(), reader.getMarkers(query), writer);
     }
   }
 
@@ -128,37 +140,116 @@ public final class CsvConverter implements Converter {
    *
    * @return a CSV-formatted text string of the data in the recording
    */
-  @SuppressFBWarnings(value = "UC_USELESS_OBJECT", justification = "False positive with List.forEach")
   public String convertToCsv(Recording recording) {
-    List<String> header = makeHeader(recording);
-    int headerSize = header.size();
-    CSVFormat csvFormat = CSVFormat.DEFAULT.withHeader(header.toArray(new String[headerSize]));
-
-    try (var writer = new StringWriter();
-         var csvPrinter = new CSVPrinter(writer, csvFormat)) {
-      var flattenedData = Converter.flatten(recording, not(Converter::isMetadata), windowSize.get());
-
-      var rows = flattenedData.entrySet()
-          .stream()
-          .sorted(Comparator.comparingLong(Map.Entry::getKey))
-          .map(e -> toRow(header, headerSize, e))
-          .filter(Objects::nonNull)
-          .collect(Collectors.toList());
-
-      if (fillEmpty.get()) {
-        fillEmptyCells(rows);
-      }
-
-      for (Object[] row : rows) {
-        csvPrinter.printRecord(row);
-      }
-
+    try (var writer = new StringWriter()) {
+      writeCsv(recording, writer);
       return writer.toString();
     } catch (IOException e) {
       throw new IllegalStateException("Could not convert recording to CSV", e);
     }
   }
 
+  private void writeCsv(Recording recording, Appendable out) throws IOException {
+    final var snapshot = recording.takeSnapshot();
+    final List<TimestampedData> data = new ArrayList<>(snapshot.getData());
+    data.sort(Comparator.comparingLong(TimestampedData::getTimestamp));
+    writeCsv(recording.getSourceIds(), data.iterator(), snapshot.getMarkers(), out);
+  }
+
+  /**
+   * Writes recorded data as CSV, one row at a time. Data points and markers are merged in timestamp order as they are
+   * written, and only the entries for the row being written are kept in memory, so the size of the recording does not
+   * matter.
+   *
+   * <p>Entries are grouped into rows the same way as {@link Converter#flatten}: a row starts at the first entry not
+   * already in a row, and includes every entry within the merge window after it. Metadata is never written.
+   *
+   * @param sourceIds the IDs of the sources to make columns for
+   * @param data      the data points to write, in ascending order of timestamp
+   * @param markers   the markers to write
+   * @param out       the output to write to
+   */
+  private void writeCsv(Collection<String> sourceIds,
+                        Iterator<TimestampedData> data,
+                        List<Marker> markers,
+                        Appendable out) throws IOException {
+    final List<String> header = makeHeader(sourceIds);
+    final int headerSize = header.size();
+    final Map<String, Integer> columns = new HashMap<>();
+    for (int i = 0; i < headerSize; i++) {
+      columns.put(header.get(i), i);
+    }
+    final List<Marker> sortedMarkers = new ArrayList<>(markers);
+    sortedMarkers.sort(Comparator.comparingLong(Marker::getTimestamp));
+    final Iterator<TimestampedData> nonMetadata = Iterators.filter(data, point -> !Converter.isMetadata(point));
+    final PeekingIterator<RecordingEntry> entries =
+        Iterators.peekingIterator(mergeByTimestamp(nonMetadata, sortedMarkers.iterator()));
+
+    final long window = windowSize.get();
+    final boolean fill = fillEmpty.get();
+    final List<RecordingEntry> group = new ArrayList<>();
+    final Object[] row = new Object[headerSize];
+    Object[] lastRow = null;
+    final CSVFormat csvFormat = CSVFormat.DEFAULT.withHeader(header.toArray(new String[headerSize]));
+    try (var csvPrinter = new CSVPrinter(out, csvFormat)) {
+      while (entries.hasNext()) {
+        final RecordingEntry first = entries.next();
+        group.clear();
+        group.add(first);
+        // Collate data within a certain delta time to the same row, since there may be some time jitter
+        // for multiple recorded data points that were updated at the same time, but network latencies
+        // or CPU usage caused the timestamps to be slightly different
+        while (entries.hasNext() && entries.peek().getTimestamp() <= first.getTimestamp() + window) {
+          group.add(entries.next());
+        }
+        // Place markers at the beginning, maintaining ordering by timestamp
+        group.sort(markersFirst);
+
+        Arrays.fill(row, null);
+        toRow(columns, first.getTimestamp(), group, row);
+        if (fill) {
+          if (lastRow == null) {
+            lastRow = row.clone();
+          } else {
+            fillEmptyCells(row, lastRow);
+          }
+        }
+        csvPrinter.printRecord(row);
+      }
+      csvPrinter.flush();
+    }
+  }
+
+  /**
+   * Merges data points and markers, each in ascending order of timestamp, into a single iterator of entries in
+   * ascending order of timestamp. Data points are placed before markers with the same timestamp.
+   */
+  private static Iterator<RecordingEntry> mergeByTimestamp(Iterator<? extends RecordingEntry> data,
+                                                           Iterator<? extends RecordingEntry> markers) {
+    final PeekingIterator<? extends RecordingEntry> dataIterator = Iterators.peekingIterator(data);
+    final PeekingIterator<? extends RecordingEntry> markerIterator = Iterators.peekingIterator(markers);
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return dataIterator.hasNext() || markerIterator.hasNext();
+      }
+
+      @Override
+      public RecordingEntry next() {
+        if (!markerIterator.hasNext()) {
+          return dataIterator.next();
+        }
+        if (!dataIterator.hasNext()) {
+          return markerIterator.next();
+        }
+        if (dataIterator.peek().getTimestamp() <= markerIterator.peek().getTimestamp()) {
+          return dataIterator.next();
+        }
+        return markerIterator.next();
+      }
+    };
+  }
+
   /**
    * Fills in empty cells using the most recent value for the column.
    *
@@ -172,23 +263,29 @@ public final class CsvConverter implements Converter {
     }
     Object[] lastData = rows.get(0).clone();
     for (Object[] row : rows) {
-      for (int i = 0; i < row.length; i++) {
-        if (row[i] == null) {
-          row[i] = lastData[i];
-        } else {
-          lastData[i] = row[i];
-        }
-      }
+      fillEmptyCells(row, lastData);
     }
   }
 
-  private Object[] toRow(List<String> header, int headerSize, Map.Entry<Long, List<RecordingEntry>> entry) {
-    final var entries = entry.getValue();
-    if (entries.isEmpty()) {
-      return null;
+  /**
+   * Fills in the empty cells of a row using the most recent values for each column, then updates the most recent
+   * values with the values in the row.
+   *
+   * @param row      the row to fill in
+   * @param lastData the most recent value for each column
+   */
+  private static void fillEmptyCells(Object[] row, Object[] lastData) {
+    for (int i = 0; i < row.length; i++) {
+      if (row[i] == null) {
+        row[i] = lastData[i];
+      } else {
+        lastData[i] = row[i];
+      }
     }
-    Object[] row = new Object[headerSize];
-    row[0] = entry.getKey();
+  }
+
+  private void toRow(Map<String, Integer> columns, long timestamp, List<RecordingEntry> entries, Object[] row) {
+    row[0] = timestamp;
 
     int dataStart = 0;
 
@@ -210,26 +307,28 @@ public final class CsvConverter implements Converter {
                 entries.get(i),
                 i + 1,
                 entries.size(),
-                entry.getKey()
+                timestamp
             )
         );
         continue;
       }
       var point = (TimestampedData) entries.get(i);
       var data = point.getData();
-      int index = header.indexOf(point.getSourceId());
+      Integer index = columns.get(point.getSourceId());
+      if (index == null) {
+        // Not a column in this export
+        continue;
+      }
       if (data instanceof ComplexData /*c*/) { // TODO pattern matching from Project Amber
         row[index] = ((ComplexData) data).toHumanReadableString();
       } else {
         row[index] = StringUtils.deepToString(data);
       }
     }
-
-    return row;
   }
 
-  private List<String> makeHeader(Recording recording) {
-    List<String> header = new ArrayList<>(recording.getSourceIds());
+  private List<String> makeHeader(Collection<String> sourceIds) {
+    List<String> header = new ArrayList<>(sourceIds);
     if (!includeMetadata.get()) {
       header.removeIf(DataSourceUtils::isMetadata);
     }
@@ -6,19 +6,15 @@ import edu.wpi.first.shuffleboard.api.properties.AtomicIntegerProperty;
 import edu.wpi.first.shuffleboard.api.sources.SourceType;
 import edu.wpi.first.shuffleboard.api.sources.SourceTypes;
 import edu.wpi.first.shuffleboard.api.sources.recording.Recorder;
-import edu.wpi.first.shuffleboard.api.sources.recording.Recording;
-import edu.wpi.first.shuffleboard.api.sources.recording.Serialization;
+import edu.wpi.first.shuffleboard.api.sources.recording.RecordingReader;
 import edu.wpi.first.shuffleboard.api.sources.recording.TimestampedData;
-import edu.wpi.first.shuffleboard.api.util.ThreadUtils;
+import edu.wpi.first.shuffleboard.api.util.SharedExecutors;
 
 import com.google.common.util.concurrent.Futures;
 
 import java.io.IOException;
 import java.nio.file.Paths;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -39,8 +35,8 @@ import javafx.beans.property.SimpleObjectProperty;
 @SuppressWarnings("PMD.GodClass") // Seriously? It's not _that_ complicated
 public final class Playback {
 
-  private final Recording recording;
-  private final List<TimestampedData> data;
+  private final RecordingReader reader;
+  private final int numSources;
   private final int numFrames;
   private final int maxFrameNum;
   private volatile boolean started = false;
@@ -50,7 +46,8 @@ public final class Playback {
   private final IntegerProperty frame = new AtomicIntegerProperty(this, "frame", 0);
   private final BooleanProperty looping = new AtomicBooleanProperty(this, "looping", true);
 
-  private final ScheduledExecutorService autoRunnerExecutor = ThreadUtils.newDaemonScheduledExecutorService();
+  private final ScheduledExecutorService autoRunnerExecutor = SharedExecutors.getScheduler();
+  private final Object autoRunnerLock = new Object(); // The shared scheduler may run two frame changes at once
   private volatile Future<Integer> nextFrameFuture = Futures.immediateFuture(-1);
   private volatile TimestampedData currentFrame = null;
 
@@ -85,12 +82,12 @@ public final class Playback {
    * @throws IOException if the recording file could not be read
    */
   private Playback(String logFile) throws IOException {
-    recording = Serialization.loadRecording(Paths.get(logFile));
-    data = recording.getData();
-    numFrames = data.size();
+    reader = RecordingReader.open(Paths.get(logFile));
+    numSources = reader.getSourceIds().size();
+    numFrames = reader.getNumFrames();
     maxFrameNum = numFrames - 1;
     if (numFrames > 0) {
-      currentFrame = data.get(0);
+      currentFrame = reader.read(0);
     }
     frame.addListener((__, prev, cur) -> {
       if (cur.intValue() < 0 || cur.intValue() > maxFrameNum) {
@@ -104,7 +101,7 @@ public final class Playback {
       if (newFrame - lastFrame != 1 && !(newFrame == 0 && lastFrame == maxFrameNum)) {
         pause();
       }
-      currentFrame = data.get(newFrame);
+      currentFrame = reader.read(newFrame);
       if (newFrame > lastFrame) {
         forward(lastFrame, newFrame);
       } else {
@@ -129,23 +126,55 @@ public final class Playback {
   }
 
   private void forward(int lastFrame, int newFrame) {
-    Set<String> remainingSources = new HashSet<>(recording.getSourceIds());
-    for (int i = newFrame; i >= lastFrame && !remainingSources.isEmpty(); i--) {
-      final TimestampedData data = this.data.get(i);
-      if (remainingSources.contains(data.getSourceId())) {
-        set(data);
-        remainingSources.remove(data.getSourceId());
+    if (newFrame - lastFrame > numSources) {
+      seek(lastFrame, newFrame);
+      return;
+    }
+    final boolean[] setSources = new boolean[numSources];
+    int remainingSources = setSources.length;
+    for (int i = newFrame; i >= lastFrame && remainingSources > 0; i--) {
+      final int source = reader.getSourceIndex(i);
+      if (!setSources[source]) {
+        set(reader.read(i));
+        setSources[source] = true;
+        remainingSources--;
       }
     }
   }
 
   private void backward(int lastFrame, int newFrame) {
-    Set<String> remainingSources = new HashSet<>(recording.getSourceIds());
-    for (int i = newFrame; i <= lastFrame && !remainingSources.isEmpty(); i++) {
-      final TimestampedData data = this.data.get(i);
-      if (remainingSources.contains(data.getSourceId())) {
-        set(data);
-        remainingSources.remove(data.getSourceId());
+    if (lastFrame - newFrame > numSources) {
+      seek(lastFrame, newFrame);
+      return;
+    }
+    final boolean[] setSources = new boolean[numSources];
+    int remainingSources = setSources.length;
+    for (int i = newFrame; i <= lastFrame && remainingSources > 0; i++) {
+      final int source = reader.getSourceIndex(i);
+      if (!setSources[source]) {
+        set(reader.read(i));
+        setSources[source] = true;
+        remainingSources--;
+      }
+    }
+  }
+
+  /**
+   * Jumps between two distant frames. Rather than walking over every frame in between, this looks up the most recent
+   * value of every source at the new frame and only sets the sources whose values differ from those at the old frame.
+   */
+  private void seek(int lastFrame, int newFrame) {
+    for (int source = 0; source < numSources; source++) {
+      final int latest = reader.getLatestFrame(source, newFrame);
+      final int previous = reader.getLatestFrame(source, lastFrame);
+      if (latest == previous) {
+        continue;
+      }
+      if (latest < 0) {
+        // The source has no data yet at the new frame; use its first value
+        set(reader.read(reader.getFirstFrame(source)));
+      } else {
+        set(reader.read(latest));
       }
     }
   }
@@ -154,7 +183,7 @@ public final class Playback {
    * Starts playback.
    */
   public void start() {
-    if (data.isEmpty()) {
+    if (numFrames == 0) {
       return;
     }
     Recorder.getInstance().stop();
@@ -188,17 +217,21 @@ public final class Playback {
    * @return the next frame number
    */
   private int moveFrame(int currentFrameNum, int nextFrameNum) {
+    synchronized (autoRunnerLock) {
+      return moveFrameLocked(currentFrameNum, nextFrameNum);
+    }
+  }
+
+  private int moveFrameLocked(int currentFrameNum, int nextFrameNum) {
     if (shouldNotPlayNextFrame()) {
       nextFrameFuture = Futures.immediateFuture(-1);
       return currentFrameNum;
     }
-    TimestampedData currentFrame = data.get(currentFrameNum);
-    TimestampedData nextFrame = data.get(nextFrameNum);
     setFrame(nextFrameNum);
     boolean consecutive = currentFrameNum == nextFrameNum - 1;
     if (consecutive) {
       // Do a wait to make the data be set at the same rate it was when it was recorded
-      long frameTime = nextFrame.getTimestamp() - currentFrame.getTimestamp();
+      long frameTime = reader.getTimestamp(nextFrameNum) - reader.getTimestamp(currentFrameNum);
       nextFrameFuture = autoRunnerExecutor.schedule(
           () -> moveToNextFrame(nextFrameNum), frameTime, TimeUnit.MILLISECONDS);
     } else {
@@ -249,10 +282,10 @@ public final class Playback {
   }
 
   /**
-   * Gets the recording being played back.
+   * Gets the reader for the recording being played back.
    */
-  public Recording getRecording() {
-    return recording;
+  public RecordingReader getReader() {
+    return reader;
   }
 
   /**
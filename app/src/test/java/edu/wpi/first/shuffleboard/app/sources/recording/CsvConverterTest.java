@@ -4,12 +4,22 @@ import edu.wpi.first.shuffleboard.api.data.DataTypes;
 import edu.wpi.first.shuffleboard.api.sources.recording.Marker;
 import edu.wpi.first.shuffleboard.api.sources.recording.MarkerImportance;
 import edu.wpi.first.shuffleboard.api.sources.recording.Recording;
+import edu.wpi.first.shuffleboard.api.sources.recording.RecordingQuery;
+import edu.wpi.first.shuffleboard.api.sources.recording.RecordingReader;
+import edu.wpi.first.shuffleboard.api.sources.recording.RecordingWriter;
 import edu.wpi.first.shuffleboard.api.sources.recording.TimestampedData;
 import edu.wpi.first.shuffleboard.api.testutil.MockPreferences;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junitpioneer.jupiter.TempDirectory;
+import org.junitpioneer.jupiter.TempDirectory.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -63,6 +73,60 @@ public class CsvConverterTest {
     );
   }
 
+  @Test
+  public void testDataOutOfOrder() {
+    recording.append(new TimestampedData("foo", DataTypes.String, "b", 100));
+    recording.append(new TimestampedData("foo", DataTypes.String, "a", 0));
+
+    String csv = converter.convertToCsv(recording);
+    var lines = csv.lines().collect(Collectors.toList());
+
+    assertAll(
+        () -> assertEquals(EMPTY_HEADER + ",foo", lines.get(0)),
+        () -> assertEquals("0,,,,a", lines.get(1)),
+        () -> assertEquals("100,,,,b", lines.get(2))
+    );
+  }
+
+  @Test
+  @ExtendWith(TempDirectory.class)
+  public void testExportFromReader(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("testExportFromReader.sbr");
+    final Path csvFile = dir.resolve("testExportFromReader.csv");
+    final Recording expectedRecording = new Recording();
+    try (RecordingWriter writer = RecordingWriter.create(file)) {
+      for (var point : List.of(
+          new TimestampedData("foo", DataTypes.Number, 1.0, 0),
+          new TimestampedData("bar", DataTypes.String, "baz", 3),
+          new TimestampedData("foo", DataTypes.Number, 2.0, 100))) {
+        recording.append(point);
+        expectedRecording.append(point);
+      }
+      recording.addMarker(new Marker("M", MarkerImportance.HIGH, 100));
+      expectedRecording.addMarker(new Marker("M", MarkerImportance.HIGH, 100));
+      writer.append(recording);
+      // Saved after the data above, but older than some of it
+      for (var point : List.of(
+          new TimestampedData("bar", DataTypes.String, "qux", 50),
+          new TimestampedData("foo", DataTypes.Number, 3.0, 98))) {
+        recording.append(point);
+        expectedRecording.append(point);
+      }
+      writer.append(recording);
+    }
+    final String expected = converter.convertToCsv(expectedRecording);
+
+    converter.export(RecordingReader.open(file), RecordingQuery.all(), csvFile);
+
+    final String csv = Files.readString(csvFile, StandardCharsets.UTF_8);
+    final var lines = csv.lines().collect(Collectors.toList());
+    assertAll(
+        () -> assertEquals(expected, csv),
+        () -> assertEquals("50,,,,qux,", lines.get(2)),
+        () -> assertEquals("98,M,,HIGH,,2.0", lines.get(3))
+    );
+  }
+
   @Test
   public void testFillEmptyCells() {
     var rows = List.of(
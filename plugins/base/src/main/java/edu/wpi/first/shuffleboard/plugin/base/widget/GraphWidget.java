@@ -9,7 +9,7 @@ import edu.wpi.first.shuffleboard.api.prefs.Setting;
 import edu.wpi.first.shuffleboard.api.sources.DataSource;
 import edu.wpi.first.shuffleboard.api.util.AlphanumComparator;
 import edu.wpi.first.shuffleboard.api.util.FxUtils;
-import edu.wpi.first.shuffleboard.api.util.ThreadUtils;
+import edu.wpi.first.shuffleboard.api.util.SharedExecutors;
 import edu.wpi.first.shuffleboard.api.util.Time;
 import edu.wpi.first.shuffleboard.api.widget.AbstractWidget;
 import edu.wpi.first.shuffleboard.api.widget.AnnotatedWidget;
@@ -77,12 +77,29 @@ public class GraphWidget extends AbstractWidget implements AnnotatedWidget {
   private final DoubleProperty yAxisMaxBound = new SimpleDoubleProperty(1);
   private final StringProperty yAxisUnit = new SimpleStringProperty("ul");
   private final DoubleProperty visibleTime = new SimpleDoubleProperty(30);
+  private final BooleanProperty decimate = new SimpleBooleanProperty(true);
+
+  /**
+   * The highest rate, in updates per second, that graphs are expected to receive data at. This is used with the
+   * visible time to size the buffers that hold the data for each series.
+   */
+  private static final int MAX_UPDATES_PER_SECOND = 100;
+  private static final int MIN_BUFFER_CAPACITY = 256;
+  private static final int MAX_BUFFER_CAPACITY = 1 << 20;
 
   private final Map<DataSource<? extends Number>, DoubleDataSet> numberSeriesMap = new HashMap<>();
   private final Map<DataSource<double[]>, List<DoubleDataSet>> arraySeriesMap = new HashMap<>();
 
   private final Map<DoubleDataSet, BooleanProperty> visibleSeries = new IdentityHashMap<>();
 
+  /**
+   * The data for each series. The data sets only ever contain the (possibly decimated) visible portion of this data,
+   * and are refilled from these buffers every time the graph is rerendered.
+   */
+  private final Map<DataSet, SeriesBuffer> seriesBuffers = new IdentityHashMap<>();
+  private double[] renderedX = new double[0];
+  private double[] renderedY = new double[0];
+
   private final ChangeListener<Number> numberChangeListener = (property, oldNumber, newNumber) -> {
     final DataSource<Number> source = sourceFor(property);
     updateFromNumberSource(source);
@@ -118,7 +135,7 @@ public class GraphWidget extends AbstractWidget implements AnnotatedWidget {
   public static class Updater implements AutoCloseable {
 
     private final IntegerProperty graphUpdateRate = new SimpleIntegerProperty(this, "graphUpdateRate", 10);
-    private final ScheduledExecutorService executorService = ThreadUtils.newDaemonScheduledExecutorService();
+    private final ScheduledExecutorService executorService = SharedExecutors.getScheduler();
     private volatile ScheduledFuture<?> currentFuture;
 
     private final ChangeListener<Number> updateCreator = (observable, oldValue, newValue) -> {
@@ -159,7 +176,9 @@ public class GraphWidget extends AbstractWidget implements AnnotatedWidget {
     @Override
     public void close() {
       graphUpdateRate.removeListener(updateCreator);
-      executorService.shutdown();
+      if (currentFuture != null) {
+        currentFuture.cancel(false);
+      }
     }
   }
 
@@ -168,6 +187,11 @@ public class GraphWidget extends AbstractWidget implements AnnotatedWidget {
     chart.setAutoNotification(false);
     yAxis.unitProperty().bind(yAxisUnit);
 
+    visibleTime.addListener((__, oldTime, newTime) -> {
+      final int capacity = bufferCapacity(newTime.doubleValue());
+      FxUtils.runOnFxThread(() -> seriesBuffers.values().forEach(b -> b.resize(capacity)));
+    });
+
     yAxisAutoRanging.addListener((__, was, useAutoRanging) -> {
       if (useAutoRanging) {
         yAxis.minProperty().unbind();
@@ -245,6 +269,7 @@ public class GraphWidget extends AbstractWidget implements AnnotatedWidget {
   }
 
   private void clear() {
+    seriesBuffers.values().forEach(SeriesBuffer::clear);
     chart.getDatasets().forEach(s -> {
       var doubleDataSet = (DoubleDataSet) s;
       doubleDataSet.lock().writeLockGuard(
@@ -292,24 +317,28 @@ public class GraphWidget extends AbstractWidget implements AnnotatedWidget {
     });
   }
 
+  /**
+   * Computes the capacity of the series buffers needed to hold the given amount of data. Each update can add up to
+   * two points to a series (see {@link #updateSeries}).
+   *
+   * @param visibleTime the amount of time, in seconds, that is visible in the graph
+   */
+  private static int bufferCapacity(double visibleTime) {
+    final double points = Math.ceil(visibleTime * MAX_UPDATES_PER_SECOND * 2);
+    return (int) Math.max(MIN_BUFFER_CAPACITY, Math.min(MAX_BUFFER_CAPACITY, points));
+  }
+
   private void updateSeries(DoubleDataSet data, long now, double nextValue) {
     final long elapsed = now - Time.getStartTime();
+    final SeriesBuffer buffer =
+        seriesBuffers.computeIfAbsent(data, __ -> new SeriesBuffer(bufferCapacity(visibleTime.get())));
 
-
-    data.lock().writeLockGuard(() -> {
-      // So getValues() does not return an array of all the elements, but instead returns the
-      // backing array of the ArrayList?? This means it can be followed by trailing zeros,
-      // hence the call to getDataCount().
-
-      // This code here makes the graph  square wave and prevents discrete points
-      // from appearing continuous.
-      double[] yValues = data.getValues(DataSet.DIM_Y);
-      if (data.getDataCount(DataSet.DIM_Y) > 1 && yValues[yValues.length - 1] != nextValue) {
-        data.add(elapsed - 1, yValues[data.getDataCount(DataSet.DIM_Y) - 1]);
-      }
-
-      data.add(elapsed, nextValue);
-    });
+    // This code here makes the graph  square wave and prevents discrete points
+    // from appearing continuous.
+    if (buffer.size() > 1 && buffer.getLastY() != nextValue) {
+      buffer.add(elapsed - 1, buffer.getLastY());
+    }
+    buffer.add(elapsed, nextValue);
 
     boolean dataVisible = Optional.ofNullable(visibleSeries.get(data)).map(Property::getValue).orElseThrow();
 
@@ -339,6 +368,7 @@ public class GraphWidget extends AbstractWidget implements AnnotatedWidget {
       while (series.size() != data.length) {
         DoubleDataSet removed = series.remove(series.size() - 1);
         visibleSeries.remove(removed);
+        FxUtils.runOnFxThread(() -> seriesBuffers.remove(removed));
       }
     } else if (data.length > series.size()) {
       for (int i = series.size(); i < data.length; i++) {
@@ -369,35 +399,48 @@ public class GraphWidget extends AbstractWidget implements AnnotatedWidget {
   private void rerenderGraph() {
     OptionalDouble globalMax = OptionalDouble.empty();
     for (DataSet s : chart.getDatasets()) {
-      var doubleDataSet = (DoubleDataSet) s;
-
-      OptionalDouble dataSetMax = doubleDataSet.lock().readLockGuard(() -> {
-
-        if (doubleDataSet.getDataCount(DataSet.DIM_X) == 0) {
-          return OptionalDouble.empty();
-        }
-
-        double[] xValues = doubleDataSet.getValues(DataSet.DIM_X);
-        return OptionalDouble.of(xValues[doubleDataSet.getDataCount(DataSet.DIM_X) - 1]);
-      });
-
-      if (dataSetMax.isPresent()) {
-        if (globalMax.isPresent() && dataSetMax.getAsDouble() > globalMax.getAsDouble()) {
-          globalMax = dataSetMax;
-        } else if (globalMax.isEmpty()) {
-          globalMax = dataSetMax;
-        }
+      SeriesBuffer buffer = seriesBuffers.get(s);
+      if (buffer == null || buffer.isEmpty()) {
+        continue;
+      }
+      final double dataSetMax = buffer.getLastX();
+      if (globalMax.isEmpty() || dataSetMax > globalMax.getAsDouble()) {
+        globalMax = OptionalDouble.of(dataSetMax);
       }
-
-      doubleDataSet.fireInvalidated(null);
     }
 
+    final double minX;
+    final double maxX;
     if (xAxisAutoScrolling.get() && globalMax.isPresent()) {
       xAxis.maxProperty().set(globalMax.getAsDouble());
       xAxis.minProperty().bind(xAxis.maxProperty().subtract(visibleTime.multiply(1e3)));
+      maxX = globalMax.getAsDouble();
+      minX = maxX - visibleTime.get() * 1e3;
     } else {
       xAxis.maxProperty().unbind();
       xAxis.minProperty().unbind();
+      minX = xAxis.getMin();
+      maxX = xAxis.getMax();
+    }
+
+    // Only give the chart the visible data, and at most about two points per pixel
+    final int buckets = decimate.get() ? (int) Math.ceil(xAxis.getWidth()) : 0;
+    for (DataSet s : chart.getDatasets()) {
+      var doubleDataSet = (DoubleDataSet) s;
+      SeriesBuffer buffer = seriesBuffers.get(s);
+      if (buffer != null) {
+        final int maxPoints = buffer.decimatedSize(buckets);
+        if (renderedX.length < maxPoints) {
+          renderedX = new double[maxPoints];
+          renderedY = new double[maxPoints];
+        }
+        final int count = buffer.decimate(minX, maxX, buckets, renderedX, renderedY);
+        doubleDataSet.lock().writeLockGuard(() -> {
+          doubleDataSet.set(renderedX, renderedY, count, true);
+        });
+      }
+
+      doubleDataSet.fireInvalidated(null);
     }
   }
 
@@ -420,7 +463,14 @@ public class GraphWidget extends AbstractWidget implements AnnotatedWidget {
     return ImmutableList.of(
         Group.of("Graph",
             Setting.of("Visible time", visibleTime, Double.class),
-            Setting.of("X-axis auto scrolling", "Automatically scroll the x-axis", xAxisAutoScrolling, Boolean.class)
+            Setting.of("X-axis auto scrolling", "Automatically scroll the x-axis", xAxisAutoScrolling, Boolean.class),
+            Setting.of(
+                "Decimate data",
+                "Only draw the highest and lowest points in each pixel column. Improves performance when there is "
+                    + "a lot of data",
+                decimate,
+                Boolean.class
+            )
         ),
         // Note: users can set the lower bound to be greater than the upper bound, resulting in an upside-down graph
         Group.of("Y-axis",
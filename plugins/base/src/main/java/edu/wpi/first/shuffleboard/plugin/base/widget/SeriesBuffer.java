@@ -0,0 +1,228 @@
+package edu.wpi.first.shuffleboard.plugin.base.widget;
+
+/**
+ * A fixed-capacity circular buffer of (x, y) points for a single graph series. Points are expected to be added in order
+ * of non-decreasing x values. Once the buffer is full, adding a new point overwrites the oldest one, so a series never
+ * holds more than {@link #capacity()} points no matter how long the graph has been running.
+ *
+ * <p>This class is not thread-safe; graph widgets only access it from the JavaFX application thread.
+ */
+final class SeriesBuffer {
+
+  private double[] xValues;
+  private double[] yValues;
+  private int head = 0; // physical index of the oldest point
+  private int size = 0;
+
+  /**
+   * Creates a new buffer.
+   *
+   * @param capacity the maximum number of points the buffer can hold
+   */
+  SeriesBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive, but was " + capacity);
+    }
+    xValues = new double[capacity];
+    yValues = new double[capacity];
+  }
+
+  int capacity() {
+    return xValues.length;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Adds a point to the end of the buffer, overwriting the oldest point if the buffer is full.
+   */
+  void add(double x, double y) {
+    final int capacity = capacity();
+    if (size == capacity) {
+      xValues[head] = x;
+      yValues[head] = y;
+      head = (head + 1) % capacity;
+    } else {
+      final int index = (head + size) % capacity;
+      xValues[index] = x;
+      yValues[index] = y;
+      size++;
+    }
+  }
+
+  private int physicalIndex(int index) {
+    return (head + index) % capacity();
+  }
+
+  /**
+   * Gets the x value of the point at the given index, where index 0 is the oldest point in the buffer.
+   */
+  double getX(int index) {
+    return xValues[physicalIndex(index)];
+  }
+
+  /**
+   * Gets the y value of the point at the given index, where index 0 is the oldest point in the buffer.
+   */
+  double getY(int index) {
+    return yValues[physicalIndex(index)];
+  }
+
+  double getLastX() {
+    return getX(size - 1);
+  }
+
+  double getLastY() {
+    return getY(size - 1);
+  }
+
+  /**
+   * Removes all points from the buffer.
+   */
+  void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * Changes the capacity of the buffer. If the new capacity is smaller than the current number of points, only the
+   * newest points are kept.
+   *
+   * @param newCapacity the new capacity of the buffer
+   */
+  void resize(int newCapacity) {
+    if (newCapacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive, but was " + newCapacity);
+    }
+    if (newCapacity == capacity()) {
+      return;
+    }
+    final int newSize = Math.min(size, newCapacity);
+    final double[] newX = new double[newCapacity];
+    final double[] newY = new double[newCapacity];
+    for (int i = 0; i < newSize; i++) {
+      newX[i] = getX(size - newSize + i);
+      newY[i] = getY(size - newSize + i);
+    }
+    xValues = newX;
+    yValues = newY;
+    head = 0;
+    size = newSize;
+  }
+
+  /**
+   * Finds the index of the first point with an x value greater than or equal to {@code x}.
+   *
+   * @return the index of the first point at or after {@code x}, or {@link #size()} if there is no such point
+   */
+  int indexOf(double x) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (getX(mid) < x) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Gets the minimum length of the arrays passed to {@link #decimate} for the given number of buckets.
+   */
+  int decimatedSize(int buckets) {
+    return buckets <= 0 ? size : Math.min(size, 2 * buckets + 2);
+  }
+
+  /**
+   * Copies the points in the range {@code [minX, maxX]} into the given arrays, along with the nearest point outside
+   * each end of the range so that lines can be drawn to the edges of the chart. If there are more than two points per
+   * bucket, the range is divided into {@code buckets} equal-width buckets and only the minimum and maximum points in
+   * each bucket are copied. This keeps spikes visible while limiting the number of points to about two per bucket.
+   *
+   * @param minX    the lowest x value in the range
+   * @param maxX    the highest x value in the range
+   * @param buckets the number of buckets to divide the range into, typically the width of the chart in pixels. If
+   *                this is zero or negative, every point in the range is copied
+   * @param xOut    the array to copy the x values into. Must be at least {@link #decimatedSize(int)} long
+   * @param yOut    the array to copy the y values into. Must be at least {@link #decimatedSize(int)} long
+   *
+   * @return the number of points copied
+   */
+  int decimate(double minX, double maxX, int buckets, double[] xOut, double[] yOut) {
+    if (size == 0) {
+      return 0;
+    }
+    final int start = Math.max(0, indexOf(minX) - 1);
+    final int end = Math.min(size, indexOf(Math.nextUp(maxX)) + 1);
+    int count = 0;
+    if (buckets <= 0 || end - start <= 2 * buckets + 2) {
+      for (int i = start; i < end; i++) {
+        xOut[count] = getX(i);
+        yOut[count] = getY(i);
+        count++;
+      }
+      return count;
+    }
+
+    // Always keep the points at either end so the line reaches the edges of the range
+    xOut[count] = getX(start);
+    yOut[count] = getY(start);
+    count++;
+    final double bucketWidth = (maxX - minX) / buckets;
+    int bucket = -1;
+    int minIndex = -1;
+    int maxIndex = -1;
+    for (int i = start + 1; i < end - 1; i++) {
+      final int pointBucket = bucketWidth > 0
+          ? (int) Math.min(buckets - 1, Math.max(0, (getX(i) - minX) / bucketWidth))
+          : 0;
+      if (pointBucket != bucket) {
+        count = emitBucket(minIndex, maxIndex, xOut, yOut, count);
+        bucket = pointBucket;
+        minIndex = i;
+        maxIndex = i;
+      } else {
+        final double y = getY(i);
+        if (y < getY(minIndex)) {
+          minIndex = i;
+        }
+        if (y > getY(maxIndex)) {
+          maxIndex = i;
+        }
+      }
+    }
+    count = emitBucket(minIndex, maxIndex, xOut, yOut, count);
+    xOut[count] = getX(end - 1);
+    yOut[count] = getY(end - 1);
+    count++;
+    return count;
+  }
+
+  private int emitBucket(int minIndex, int maxIndex, double[] xOut, double[] yOut, int count) {
+    if (minIndex < 0) {
+      return count;
+    }
+    int index = count;
+    final int first = Math.min(minIndex, maxIndex);
+    final int second = Math.max(minIndex, maxIndex);
+    xOut[index] = getX(first);
+    yOut[index] = getY(first);
+    index++;
+    if (second != first) {
+      xOut[index] = getX(second);
+      yOut[index] = getY(second);
+      index++;
+    }
+    return index;
+  }
+
+}
@@ -0,0 +1,99 @@
+package edu.wpi.first.shuffleboard.plugin.base.widget;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SeriesBufferTest {
+
+  @Test
+  public void testOverwriteOldest() {
+    SeriesBuffer buffer = new SeriesBuffer(3);
+    for (int i = 0; i < 5; i++) {
+      buffer.add(i, i * 10);
+    }
+    assertAll(
+        () -> assertEquals(3, buffer.size()),
+        () -> assertEquals(2, buffer.getX(0)),
+        () -> assertEquals(40, buffer.getLastY())
+    );
+  }
+
+  @Test
+  public void testResizeKeepsNewest() {
+    SeriesBuffer buffer = new SeriesBuffer(4);
+    for (int i = 0; i < 6; i++) {
+      buffer.add(i, i);
+    }
+    buffer.resize(2);
+    assertAll(
+        () -> assertEquals(2, buffer.size()),
+        () -> assertEquals(4, buffer.getX(0)),
+        () -> assertEquals(5, buffer.getLastX())
+    );
+    buffer.resize(8);
+    buffer.add(6, 6);
+    assertAll(
+        () -> assertEquals(3, buffer.size()),
+        () -> assertEquals(4, buffer.getX(0)),
+        () -> assertEquals(6, buffer.getLastX())
+    );
+  }
+
+  @Test
+  public void testIndexOf() {
+    SeriesBuffer buffer = new SeriesBuffer(4);
+    for (int i = 0; i < 6; i++) {
+      buffer.add(i * 2, i);
+    }
+    // Buffer holds x = 4, 6, 8, 10
+    assertAll(
+        () -> assertEquals(0, buffer.indexOf(0)),
+        () -> assertEquals(1, buffer.indexOf(5)),
+        () -> assertEquals(1, buffer.indexOf(6)),
+        () -> assertEquals(4, buffer.indexOf(11))
+    );
+  }
+
+  @Test
+  public void testNoDecimationForSparseData() {
+    SeriesBuffer buffer = new SeriesBuffer(16);
+    for (int i = 0; i < 10; i++) {
+      buffer.add(i, i);
+    }
+    double[] x = new double[buffer.decimatedSize(100)];
+    double[] y = new double[x.length];
+    final int count = buffer.decimate(3, 5, 100, x, y);
+    // One extra point on either side of the range
+    assertArrayEquals(new double[]{2, 3, 4, 5, 6}, Arrays.copyOf(x, count));
+  }
+
+  @Test
+  public void testDecimationKeepsExtremes() {
+    SeriesBuffer buffer = new SeriesBuffer(1024);
+    for (int i = 0; i < 1000; i++) {
+      buffer.add(i, i == 500 ? 100 : i == 250 ? -100 : 0);
+    }
+    final int buckets = 10;
+    double[] x = new double[buffer.decimatedSize(buckets)];
+    double[] y = new double[x.length];
+    final int count = buffer.decimate(0, 999, buckets, x, y);
+    final double[] decimatedY = Arrays.copyOf(y, count);
+    assertAll(
+        () -> assertTrue(count <= 2 * buckets + 2, "Too many points: " + count),
+        () -> assertEquals(100, Arrays.stream(decimatedY).max().getAsDouble()),
+        () -> assertEquals(-100, Arrays.stream(decimatedY).min().getAsDouble()),
+        () -> assertEquals(0, x[0]),
+        () -> assertEquals(999, x[count - 1])
+    );
+    for (int i = 1; i < count; i++) {
+      assertTrue(x[i] > x[i - 1], "Decimated points are out of order");
+    }
+  }
+
+}
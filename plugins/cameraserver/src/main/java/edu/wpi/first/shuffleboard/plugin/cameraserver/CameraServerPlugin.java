@@ -6,14 +6,23 @@ import edu.wpi.first.shuffleboard.api.data.DataType;
 import edu.wpi.first.shuffleboard.api.plugin.Description;
 import edu.wpi.first.shuffleboard.api.plugin.Plugin;
 import edu.wpi.first.shuffleboard.api.plugin.Requires;
+import edu.wpi.first.shuffleboard.api.prefs.Group;
+import edu.wpi.first.shuffleboard.api.prefs.Setting;
 import edu.wpi.first.shuffleboard.api.sources.SourceType;
 import edu.wpi.first.shuffleboard.api.sources.recording.serialization.TypeAdapter;
 import edu.wpi.first.shuffleboard.api.util.OsDetector;
+import edu.wpi.first.shuffleboard.api.util.PreferencesUtils;
 import edu.wpi.first.shuffleboard.api.widget.ComponentType;
 import edu.wpi.first.shuffleboard.api.widget.WidgetType;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.data.type.CameraServerDataType;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.source.CachedFrameReader;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraFrameEncoder;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraFrameEncoder.DropPolicy;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraServerSource;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraServerSourceType;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraStreamAdapter;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraStreamSaver;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraTelemetrySourceType;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.widget.CameraServerWidget;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.widget.CameraServerWidget.Rotation;
 import edu.wpi.first.util.CombinedRuntimeLoader;
@@ -25,11 +34,20 @@ import org.bytedeco.javacpp.Loader;
 import org.bytedeco.opencv.opencv_java;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.prefs.Preferences;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
 
 @Description(
     group = "edu.wpi.first.shuffleboard",
@@ -42,7 +60,23 @@ public class CameraServerPlugin extends Plugin {
 
   private static final Logger log = Logger.getLogger(CameraServerPlugin.class.getName());
   private final CameraStreamAdapter streamRecorder = new CameraStreamAdapter();
+  private final Preferences preferences = Preferences.userNodeForPackage(getClass());
+
+  private final IntegerProperty recordingQueueSize =
+      new SimpleIntegerProperty(this, "recordingQueueSize", CameraFrameEncoder.DEFAULT_CAPACITY);
+  private final ObjectProperty<DropPolicy> recordingDropPolicy =
+      new SimpleObjectProperty<>(this, "recordingDropPolicy", DropPolicy.DROP_OLDEST);
+  private final BooleanProperty mjpegPassthrough = new SimpleBooleanProperty(this, "mjpegPassthrough", false);
+  private final IntegerProperty segmentLength = new SimpleIntegerProperty(this, "segmentLength",
+      (int) CameraStreamSaver.DEFAULT_SEGMENT_DURATION.getSeconds());
+  private final BooleanProperty recordPreviews =
+      new SimpleBooleanProperty(this, "recordPreviews", CameraStreamSaver.DEFAULT_RECORD_PREVIEWS);
+  private final IntegerProperty playbackCacheSize = new SimpleIntegerProperty(this, "playbackCacheSize",
+      (int) (CachedFrameReader.DEFAULT_MEMORY_BUDGET / BYTES_PER_MEGABYTE));
+  private final IntegerProperty playbackReadAhead =
+      new SimpleIntegerProperty(this, "playbackReadAhead", CachedFrameReader.DEFAULT_READ_AHEAD);
 
+  private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
   private static final PropertyParser<Rotation> CAMERA_ROTATION = PropertyParser.forEnum(Rotation.class);
 
   @Override
@@ -63,6 +97,116 @@ public class CameraServerPlugin extends Plugin {
       }
       throw ex;
     }
+
+    PreferencesUtils.read(recordingQueueSize, preferences);
+    PreferencesUtils.read(recordingDropPolicy, preferences, DropPolicy::valueOf);
+    CameraFrameEncoder.setDefaultCapacity(Math.max(1, recordingQueueSize.get()));
+    CameraFrameEncoder.setDefaultDropPolicy(recordingDropPolicy.get());
+    recordingQueueSize.addListener((__, old, size) -> {
+      if (size.intValue() < 1) {
+        recordingQueueSize.set(old.intValue());
+        return;
+      }
+      CameraFrameEncoder.setDefaultCapacity(size.intValue());
+      PreferencesUtils.save(recordingQueueSize, preferences);
+    });
+    recordingDropPolicy.addListener((__, old, policy) -> {
+      CameraFrameEncoder.setDefaultDropPolicy(policy);
+      PreferencesUtils.save(recordingDropPolicy, preferences, DropPolicy::name);
+    });
+    PreferencesUtils.read(mjpegPassthrough, preferences);
+    CameraServerSource.setMjpegPassthrough(mjpegPassthrough.get());
+    mjpegPassthrough.addListener((__, was, is) -> {
+      CameraServerSource.setMjpegPassthrough(is);
+      PreferencesUtils.save(mjpegPassthrough, preferences);
+    });
+    PreferencesUtils.read(segmentLength, preferences);
+    CameraStreamSaver.setDefaultSegmentDuration(Duration.ofSeconds(Math.max(0, segmentLength.get())));
+    segmentLength.addListener((__, old, seconds) -> {
+      if (seconds.intValue() < 0) {
+        segmentLength.set(old.intValue());
+        return;
+      }
+      CameraStreamSaver.setDefaultSegmentDuration(Duration.ofSeconds(seconds.intValue()));
+      PreferencesUtils.save(segmentLength, preferences);
+    });
+    PreferencesUtils.read(recordPreviews, preferences);
+    CameraStreamSaver.setDefaultRecordPreviews(recordPreviews.get());
+    recordPreviews.addListener((__, was, is) -> {
+      CameraStreamSaver.setDefaultRecordPreviews(is);
+      PreferencesUtils.save(recordPreviews, preferences);
+    });
+    PreferencesUtils.read(playbackCacheSize, preferences);
+    PreferencesUtils.read(playbackReadAhead, preferences);
+    CachedFrameReader.setDefaultMemoryBudget(Math.max(0, playbackCacheSize.get()) * BYTES_PER_MEGABYTE);
+    CachedFrameReader.setDefaultReadAhead(Math.max(0, playbackReadAhead.get()));
+    playbackCacheSize.addListener((__, old, size) -> {
+      if (size.intValue() < 0) {
+        playbackCacheSize.set(old.intValue());
+        return;
+      }
+      CachedFrameReader.setDefaultMemoryBudget(size.intValue() * BYTES_PER_MEGABYTE);
+      PreferencesUtils.save(playbackCacheSize, preferences);
+    });
+    playbackReadAhead.addListener((__, old, frames) -> {
+      if (frames.intValue() < 0) {
+        playbackReadAhead.set(old.intValue());
+        return;
+      }
+      CachedFrameReader.setDefaultReadAhead(frames.intValue());
+      PreferencesUtils.save(playbackReadAhead, preferences);
+    });
+    CameraTelemetrySourceType.INSTANCE.start();
+  }
+
+  @Override
+  public void onUnload() {
+    CameraTelemetrySourceType.INSTANCE.stop();
+  }
+
+  @Override
+  public List<Group> getSettings() {
+    return ImmutableList.of(
+        Group.of("Recording",
+            Setting.of("Frame queue size",
+                "The maximum number of camera frames per stream that can be waiting to be encoded while recording."
+                    + " Changes take effect in the next recording",
+                recordingQueueSize),
+            Setting.of("Full queue policy",
+                "What to do with new camera frames when the queue of frames waiting to be encoded is full."
+                    + " Changes take effect in the next recording",
+                recordingDropPolicy,
+                DropPolicy.class),
+            Setting.of("Record MJPEG directly",
+                "Save the JPEG images sent by cameras as-is instead of re-encoding them into video files. This uses"
+                    + " far less CPU time and is recommended when recording several cameras."
+                    + " Changes take effect in the next recording",
+                mjpegPassthrough),
+            Setting.of("Video file length (s)",
+                "How many seconds of each camera stream to record to a single video file before starting a new one."
+                    + " Files are finished in the background as new ones are started, so shorter files mean less"
+                    + " waiting when recording stops. Use 0 to only start new files when the stream resolution changes."
+                    + " Changes take effect in the next recording",
+                segmentLength),
+            Setting.of("Record previews",
+                "Also record a small copy of each camera stream, which is used instead of the full video when playing"
+                    + " back recordings in small widgets. Previews are much faster to decode, especially when"
+                    + " scrubbing, but take extra CPU time to record. Not used when recording MJPEG directly. Changes"
+                    + " take effect in the next recording",
+                recordPreviews)
+        ),
+        Group.of("Playback",
+            Setting.of("Frame cache size (MB)",
+                "The maximum amount of memory used to keep decoded frames of each recorded camera stream, so that"
+                    + " scrubbing back and forth does not need to decode them again. Use 0 to disable the cache."
+                    + " Changes take effect when a recording is loaded",
+                playbackCacheSize),
+            Setting.of("Read-ahead frames",
+                "The number of frames to decode ahead of the current frame in the direction of playback."
+                    + " Use 0 to disable read-ahead. Changes take effect when a recording is loaded",
+                playbackReadAhead)
+        )
+    );
   }
 
   @Override
@@ -87,7 +231,8 @@ public class CameraServerPlugin extends Plugin {
   @Override
   public List<SourceType> getSourceTypes() {
     return ImmutableList.of(
-        CameraServerSourceType.INSTANCE
+        CameraServerSourceType.INSTANCE,
+        CameraTelemetrySourceType.INSTANCE
     );
   }
 
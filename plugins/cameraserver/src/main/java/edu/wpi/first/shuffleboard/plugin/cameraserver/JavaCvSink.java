@@ -130,4 +130,29 @@ public class JavaCvSink extends ImageSink {
     tmpMat.copyTo(image);
     return rv;
   }
+
+  /**
+   * Wait for the next frame and get it as a compressed JPEG image, without decoding it. If the source is an MJPEG
+   * stream, this is the image exactly as it was sent by the camera.
+   *
+   * @param jpeg the mat to copy the JPEG image into. It will be a single row of bytes
+   *
+   * @return Frame time, or 0 on error (call GetError() to obtain the error
+   *         message); the frame time is in 1 us increments.
+   */
+  public long grabJpegNoTimeout(Mat jpeg) {
+    frame.setWidth(0);
+    frame.setHeight(0);
+    frame.setPixelFormat(PixelFormat.kMJPEG.getValue());
+    long rv = CameraServerJNI.grabSinkFrame(m_handle, frame);
+    if (rv <= 0) {
+      return rv;
+    }
+
+    // Compressed images change size with every frame, so the data can't be wrapped once and reused
+    Mat jpegView = new Mat(1, frame.getTotalData(), CvType.CV_8UC1, frame.getDataByteBuffer());
+    jpegView.copyTo(jpeg);
+    jpegView.release();
+    return rv;
+  }
 }
@@ -0,0 +1,46 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.data;
+
+/**
+ * A subtype of {@code CameraServerData} for a frame that has already been encoded into a recorded video file. It has no
+ * image of its own; instead, it holds the location of the frame in the video files so that only those numbers need to
+ * be saved in the recording file.
+ */
+public final class EncodedCameraServerData extends CameraServerData {
+
+  private final int fileNum;
+  private final int frameNum;
+
+  /**
+   * Creates a new data object.
+   *
+   * @param name      the name of the camera
+   * @param fileNum   the number of the video file the frame was written to
+   * @param frameNum  the frame index in the video file
+   * @param fps       the FPS of the stream at the time the frame was grabbed
+   * @param bandwidth the bandwidth of the stream at the time the frame was grabbed
+   */
+  public EncodedCameraServerData(String name, int fileNum, int frameNum, double fps, double bandwidth) {
+    super(name, null, fps, bandwidth);
+    this.fileNum = fileNum;
+    this.frameNum = frameNum;
+  }
+
+  public int getFileNum() {
+    return fileNum;
+  }
+
+  public int getFrameNum() {
+    return frameNum;
+  }
+
+  @Override
+  public String toHumanReadableString() {
+    return String.format(
+        "fileIndex=%d, frameIndex=%d, fps=%s, bandwidth=%s",
+        fileNum,
+        frameNum,
+        getFps(),
+        getBandwidth()
+    );
+  }
+}
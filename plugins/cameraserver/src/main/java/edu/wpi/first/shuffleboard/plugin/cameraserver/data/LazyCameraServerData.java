@@ -12,6 +12,10 @@ import java.util.function.Supplier;
  * will not have to wait for expensive disk I/O operations for potentially tens of thousands of frames, as well as
  * drastically reducing memory use by not loading entire video files frame-by-frame into memory.
  *
+ * <p>If a low-resolution preview of the frame was recorded, it can be read instead of the full image with
+ * {@link #getImage(int, int)} when the frame is going to be shown at a small size. Previews are much cheaper to decode,
+ * which makes a difference when scrubbing through a recording with several small camera widgets.
+ *
  * <p>When an instance of this class goes out-of-scope, the image should be released with {@link #clear()} to free up
  * memory. Later image access will re-read the frame from the video file.
  */
@@ -20,6 +24,8 @@ public final class LazyCameraServerData extends CameraServerData {
   private final int fileNum;
   private final int frameNum;
   private final LazyInit<Mat> image;
+  private final LazyInit<Mat> preview;
+  private final int previewSize;
 
   /**
    * Creates a new data object. This constructor is identical to {@link CameraServerData#CameraServerData}, but takes
@@ -38,10 +44,36 @@ public final class LazyCameraServerData extends CameraServerData {
                               Supplier<Mat> imageSupplier,
                               double fps,
                               double bandwidth) {
+    this(name, fileNum, frameNum, imageSupplier, null, 0, fps, bandwidth);
+  }
+
+  /**
+   * Creates a new data object for a frame that may have a recorded preview.
+   *
+   * @param name            no change
+   * @param fileNum         the number of the video file corresponding to this frame
+   * @param frameNum        the frame index in the video file
+   * @param imageSupplier   a callback for reading the frame from disk
+   * @param previewSupplier a callback for reading the preview of the frame from disk. It should return {@code null} if
+   *                        there is no preview for the frame. May be {@code null} if no previews were recorded
+   * @param previewSize     the maximum width and height of the preview images
+   * @param fps             no change
+   * @param bandwidth       no change
+   */
+  public LazyCameraServerData(String name,
+                              int fileNum,
+                              int frameNum,
+                              Supplier<Mat> imageSupplier,
+                              Supplier<Mat> previewSupplier,
+                              int previewSize,
+                              double fps,
+                              double bandwidth) {
     super(name, null, fps, bandwidth);
     this.fileNum = fileNum;
     this.frameNum = frameNum;
     image = LazyInit.of(imageSupplier::get);
+    preview = previewSupplier == null ? null : LazyInit.of(previewSupplier::get);
+    this.previewSize = previewSize;
   }
 
   @Override
@@ -50,14 +82,40 @@ public final class LazyCameraServerData extends CameraServerData {
   }
 
   /**
-   * Releases the image and clears the lazy-loading holder. The next call to {@link #getImage()} will read the frame
-   * from disk.
+   * Gets an image for showing this frame in an area of the given size. The preview image is used if the frame has one
+   * and the area is no larger than the preview, so the preview never needs to be scaled up; otherwise, this is the same
+   * as {@link #getImage()}.
+   *
+   * @param displayWidth  the width of the area the image is shown in, in pixels. Use 0 if unknown
+   * @param displayHeight the height of the area the image is shown in, in pixels. Use 0 if unknown
+   */
+  public Mat getImage(int displayWidth, int displayHeight) {
+    if (preview != null
+        && displayWidth > 0 && displayHeight > 0
+        && displayWidth <= previewSize && displayHeight <= previewSize) {
+      Mat previewImage = preview.get();
+      if (previewImage != null) {
+        return previewImage;
+      }
+    }
+    return getImage();
+  }
+
+  /**
+   * Releases the image and preview and clears the lazy-loading holders. The next call to {@link #getImage()} will read
+   * the frame from disk.
    */
   public void clear() {
     if (image.hasValue()) {
       image.get().release();
     }
     image.clear();
+    if (preview != null) {
+      if (preview.hasValue()) {
+        preview.get().release();
+      }
+      preview.clear();
+    }
   }
 
   @Override
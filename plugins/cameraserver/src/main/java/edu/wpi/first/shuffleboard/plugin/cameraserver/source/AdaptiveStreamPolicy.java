@@ -0,0 +1,169 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import edu.wpi.first.shuffleboard.plugin.cameraserver.data.Resolution;
+
+import java.util.Collection;
+
+/**
+ * Chooses the stream settings to request from a camera based on what its viewers need. The user-set target resolution
+ * and FPS are upper bounds; the stream is only ever made smaller or slower than them.
+ *
+ * <p>Changing the stream settings forces the camera to reconnect, so the policy only picks from a few coarse steps:
+ * resolutions are the target resolution halved up to {@link #MAX_DOWNSCALE_STEPS} times, and frame rates are rounded up
+ * to one of {@link #FPS_STEPS}. Small changes in widget size or render rate will not change the stream.
+ */
+final class AdaptiveStreamPolicy {
+
+  /**
+   * The maximum number of times the resolution can be halved.
+   */
+  static final int MAX_DOWNSCALE_STEPS = 3;
+
+  /**
+   * The smallest width the resolution will be reduced to.
+   */
+  static final int MIN_WIDTH = 160;
+
+  /**
+   * The frame rates that can be requested when viewers cannot keep up with the camera.
+   */
+  static final int[] FPS_STEPS = {5, 10, 15, 20, 30};
+
+  private AdaptiveStreamPolicy() {
+    throw new UnsupportedOperationException("This is a utility class!");
+  }
+
+  /**
+   * Chooses the stream settings for a camera.
+   *
+   * @param targetResolution the user-set target resolution. {@link Resolution#EMPTY} means the camera's default
+   * @param nativeResolution the resolution of the camera's images when no resolution is requested, or
+   *                         {@link Resolution#EMPTY} if not yet known. Only used if there is no target resolution
+   * @param targetFps        the user-set target FPS. Zero or negative values mean the camera's default
+   * @param demands          the demands of every viewer of the stream
+   *
+   * @return the settings to request from the camera
+   */
+  static Settings choose(Resolution targetResolution,
+                         Resolution nativeResolution,
+                         int targetFps,
+                         Collection<StreamDemand> demands) {
+    if (demands.isEmpty()) {
+      // Nothing is telling us what it needs, so assume the full stream is needed
+      return new Settings(targetResolution, targetFps, false);
+    }
+    int width = 0;
+    int height = 0;
+    int maxFps = -1;
+    for (StreamDemand demand : demands) {
+      if (!demand.isVisible()) {
+        continue;
+      }
+      width = Math.max(width, demand.getWidth());
+      height = Math.max(height, demand.getHeight());
+      if (demand.getMaxFps() <= 0) {
+        maxFps = 0;
+      } else if (maxFps != 0) {
+        maxFps = Math.max(maxFps, demand.getMaxFps());
+      }
+    }
+    if (maxFps < 0) {
+      // No visible viewers
+      return new Settings(targetResolution, targetFps, true);
+    }
+    return new Settings(
+        chooseResolution(targetResolution, nativeResolution, width, height),
+        chooseFps(targetFps, maxFps),
+        false);
+  }
+
+  private static boolean isSet(Resolution resolution) {
+    return resolution != null && resolution.getWidth() > 0 && resolution.getHeight() > 0;
+  }
+
+  private static Resolution chooseResolution(Resolution target, Resolution nativeResolution, int width, int height) {
+    final Resolution base = isSet(target) ? target : nativeResolution;
+    if (!isSet(base)) {
+      return target;
+    }
+    int steps = 0;
+    while (steps < MAX_DOWNSCALE_STEPS) {
+      final int nextWidth = base.getWidth() >> (steps + 1);
+      final int nextHeight = base.getHeight() >> (steps + 1);
+      if (nextWidth < Math.max(width, MIN_WIDTH) || nextHeight < height) {
+        break;
+      }
+      steps++;
+    }
+    if (steps == 0) {
+      return target;
+    }
+    // Keep dimensions even; some cameras reject odd sizes
+    return new Resolution((base.getWidth() >> steps) & ~1, (base.getHeight() >> steps) & ~1);
+  }
+
+  private static int chooseFps(int targetFps, int maxFps) {
+    if (maxFps == 0) {
+      return targetFps;
+    }
+    for (int step : FPS_STEPS) {
+      if (step >= maxFps) {
+        return targetFps > 0 ? Math.min(targetFps, step) : step;
+      }
+    }
+    // Faster than any step; no need to limit it
+    return targetFps;
+  }
+
+  /**
+   * The settings to request from a camera.
+   */
+  static final class Settings {
+
+    private final Resolution resolution;
+    private final int fps;
+    private final boolean paused;
+
+    Settings(Resolution resolution, int fps, boolean paused) {
+      this.resolution = resolution == null ? Resolution.EMPTY : resolution;
+      this.fps = fps;
+      this.paused = paused;
+    }
+
+    /**
+     * The resolution to request. {@link Resolution#EMPTY} means the camera's default.
+     */
+    Resolution getResolution() {
+      return resolution;
+    }
+
+    /**
+     * The FPS to request. Zero or negative values mean the camera's default.
+     */
+    int getFps() {
+      return fps;
+    }
+
+    /**
+     * True if no viewer needs images and the stream should be paused.
+     */
+    boolean isPaused() {
+      return paused;
+    }
+
+    /**
+     * Checks if these settings request the same stream as another set of settings.
+     */
+    boolean isSameStream(Settings other) {
+      return !resolution.isNotEqual(other.resolution.getWidth(), other.resolution.getHeight())
+          && fps == other.fps;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Settings(resolution=%s, fps=%d, paused=%s)", resolution, fps, paused);
+    }
+
+  }
+
+}
@@ -0,0 +1,432 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import edu.wpi.first.shuffleboard.api.util.SharedExecutors;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.opencv.core.Mat;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches decoded frames from a single recorded camera stream. Decoded images are kept in a least-recently-used cache
+ * that is bounded by the amount of native memory the images use, so scrubbing back and forth over the same part of a
+ * recording does not need to seek and decode the video again. After each read, the next few frames in the direction
+ * playback is moving are decoded in the background on the {@link SharedExecutors#getBlockingExecutor() shared blocking
+ * executor}, so that frames are usually already in the cache by the time they are needed. Each reader has at most one
+ * read-ahead task running at a time, which only ever reads ahead of the most recently read frame.
+ *
+ * <p>Images returned by {@link #readFrame} share their pixel data with the cached images, so returning a cached frame
+ * does not copy it. Callers own the returned image and should {@link Mat#release() release} it when they are done; the
+ * pixel data is only freed once neither the cache nor any caller is using it.
+ */
+public final class CachedFrameReader {
+
+  private static final Logger log = Logger.getLogger(CachedFrameReader.class.getName());
+
+  /**
+   * The default maximum amount of memory used by the decoded images in each cache, in bytes.
+   */
+  public static final long DEFAULT_MEMORY_BUDGET = 128L * 1024 * 1024;
+
+  /**
+   * The default number of frames to decode ahead of the most recently read frame.
+   */
+  public static final int DEFAULT_READ_AHEAD = 15;
+
+  private static volatile long defaultMemoryBudget = DEFAULT_MEMORY_BUDGET;
+  private static volatile int defaultReadAhead = DEFAULT_READ_AHEAD;
+
+  /**
+   * Decodes frames from a recorded stream.
+   */
+  @FunctionalInterface
+  public interface FrameDecoder {
+
+    /**
+     * Decodes a single frame. This is never called by more than one thread at a time.
+     *
+     * @param fileNum  the number of the file containing the frame
+     * @param frameNum the index of the frame in the file
+     *
+     * @return the decoded image, which is then owned by the cache, or {@code null} if there is no such frame
+     *
+     * @throws IOException if the frame could not be decoded
+     */
+    Mat decode(int fileNum, int frameNum) throws IOException;
+
+  }
+
+  private final String name;
+  private final FrameDecoder decoder;
+  private final long memoryBudget;
+  private final int readAhead;
+  private final Executor readAheadExecutor;
+
+  private final Object decoderLock = new Object();
+  private final Map<Long, Mat> cache = new LinkedHashMap<>(16, 0.75f, true); // Guarded by itself
+  private long cachedBytes = 0; // Guarded by cache
+  // The most recent read-ahead that has not been started yet, and whether a task is running read-ahead
+  private final AtomicReference<ReadAhead> pendingReadAhead = new AtomicReference<>();
+  private final AtomicBoolean readAheadRunning = new AtomicBoolean(false);
+
+  // Used to abandon read-ahead when playback moves somewhere else
+  private volatile int lastFileNum = -1;
+  private volatile int lastFrameNum = -1;
+  private volatile int direction = 1;
+  private volatile long generation = 0;
+  private volatile boolean closed = false;
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder prefetchCount = new LongAdder();
+
+  /**
+   * Creates a new cached reader using the {@link #setDefaultMemoryBudget default memory budget} and
+   * {@link #setDefaultReadAhead default read-ahead}.
+   *
+   * @param name    the name of the camera stream
+   * @param decoder the decoder to use to read frames that are not in the cache
+   */
+  public CachedFrameReader(String name, FrameDecoder decoder) {
+    this(name, decoder, defaultMemoryBudget, defaultReadAhead);
+  }
+
+  /**
+   * Creates a new cached reader.
+   *
+   * @param name         the name of the camera stream
+   * @param decoder      the decoder to use to read frames that are not in the cache
+   * @param memoryBudget the maximum amount of memory the cached images can use, in bytes
+   * @param readAhead    the number of frames to decode ahead of the most recently read frame. Use 0 to disable
+   *                     read-ahead
+   */
+  public CachedFrameReader(String name, FrameDecoder decoder, long memoryBudget, int readAhead) {
+    this(name, decoder, memoryBudget, readAhead, SharedExecutors.getBlockingExecutor());
+  }
+
+  /**
+   * Creates a new cached reader that reads ahead on the given executor.
+   */
+  @VisibleForTesting
+  CachedFrameReader(String name, FrameDecoder decoder, long memoryBudget, int readAhead, Executor readAheadExecutor) {
+    if (memoryBudget < 0) {
+      throw new IllegalArgumentException("Memory budget cannot be negative: " + memoryBudget);
+    }
+    if (readAhead < 0) {
+      throw new IllegalArgumentException("Read-ahead cannot be negative: " + readAhead);
+    }
+    this.name = name;
+    this.decoder = decoder;
+    this.memoryBudget = memoryBudget;
+    this.readAhead = readAhead;
+    this.readAheadExecutor = readAheadExecutor;
+  }
+
+  private static long key(int fileNum, int frameNum) {
+    return ((long) fileNum << 32) | (frameNum & 0xFFFFFFFFL);
+  }
+
+  private static long sizeOf(Mat image) {
+    return image.total() * image.elemSize();
+  }
+
+  /**
+   * Reads a frame, from the cache if possible.
+   *
+   * @param fileNum  the number of the file containing the frame
+   * @param frameNum the index of the frame in the file
+   *
+   * @return the image for the frame, or {@code null} if there is no such frame
+   *
+   * @throws IOException if the frame was not cached and could not be decoded
+   */
+  public Mat readFrame(int fileNum, int frameNum) throws IOException {
+    updateDirection(fileNum, frameNum);
+    Mat image = getCached(fileNum, frameNum);
+    if (image == null) {
+      missCount.increment();
+      image = decodeAndCache(fileNum, frameNum);
+    } else {
+      hitCount.increment();
+    }
+    scheduleReadAhead(fileNum, frameNum);
+    return image;
+  }
+
+  private void updateDirection(int fileNum, int frameNum) {
+    if (fileNum == lastFileNum && frameNum != lastFrameNum) {
+      direction = frameNum > lastFrameNum ? 1 : -1;
+    }
+    lastFileNum = fileNum;
+    lastFrameNum = frameNum;
+    generation++; // NOPMD a lost update only lets an old read-ahead run a little longer
+  }
+
+  /**
+   * Gets a new image sharing the pixel data of a cached frame, or null if the frame is not cached.
+   */
+  private Mat getCached(int fileNum, int frameNum) {
+    synchronized (cache) {
+      Mat cached = cache.get(key(fileNum, frameNum));
+      return cached == null ? null : cached.submat(0, cached.rows(), 0, cached.cols());
+    }
+  }
+
+  private boolean isCached(int fileNum, int frameNum) {
+    synchronized (cache) {
+      return cache.containsKey(key(fileNum, frameNum));
+    }
+  }
+
+  /**
+   * Decodes a frame, adds it to the cache, and returns a new image sharing its pixel data.
+   */
+  private Mat decodeAndCache(int fileNum, int frameNum) throws IOException {
+    synchronized (decoderLock) {
+      if (closed) {
+        return null;
+      }
+      // Read-ahead may have decoded the frame while we were waiting for the lock
+      Mat cached = getCached(fileNum, frameNum);
+      if (cached != null) {
+        return cached;
+      }
+      Mat image = decoder.decode(fileNum, frameNum);
+      if (image == null) {
+        return null;
+      }
+      Mat view = image.submat(0, image.rows(), 0, image.cols());
+      put(key(fileNum, frameNum), image);
+      return view;
+    }
+  }
+
+  private void put(long key, Mat image) {
+    final long size = sizeOf(image);
+    synchronized (cache) {
+      if (size > memoryBudget) {
+        // Too large to ever be cached
+        image.release();
+        return;
+      }
+      Mat previous = cache.put(key, image);
+      if (previous != null) {
+        cachedBytes -= sizeOf(previous);
+        previous.release();
+      }
+      cachedBytes += size;
+      Iterator<Mat> eldest = cache.values().iterator();
+      while (cachedBytes > memoryBudget && eldest.hasNext()) {
+        Mat evicted = eldest.next();
+        eldest.remove();
+        cachedBytes -= sizeOf(evicted);
+        evicted.release(); // Callers still using the image keep its pixel data alive
+      }
+    }
+  }
+
+  private void scheduleReadAhead(int fileNum, int frameNum) {
+    if (readAhead == 0 || closed) {
+      return;
+    }
+    pendingReadAhead.set(new ReadAhead(fileNum, frameNum, direction, generation));
+    if (readAheadRunning.compareAndSet(false, true)) {
+      readAheadExecutor.execute(this::runReadAhead);
+    }
+  }
+
+  /**
+   * Runs pending read-aheads until there are none left. Only one of these runs at a time for each reader.
+   */
+  private void runReadAhead() {
+    do {
+      ReadAhead next;
+      while ((next = pendingReadAhead.getAndSet(null)) != null) {
+        readAhead(next.fileNum, next.frameNum, next.step, next.generation);
+      }
+      readAheadRunning.set(false);
+      // Another read-ahead may have been requested after the last one was taken, but before this stopped running
+    } while (pendingReadAhead.get() != null && readAheadRunning.compareAndSet(false, true));
+  }
+
+  /**
+   * Decodes the frames after a frame in the given direction. Stops early if another frame is read in the meantime,
+   * since there will be a new read-ahead starting from that frame.
+   */
+  private void readAhead(int fileNum, int frameNum, int step, long expectedGeneration) {
+    int start = frameNum + step;
+    int end = frameNum + step * readAhead;
+    if (step < 0) {
+      // Decoding backwards means seeking for every frame, so decode the frames before this one from oldest to newest
+      // instead; that only needs to seek once
+      end = Math.max(0, frameNum - readAhead);
+      start = frameNum - 1;
+      for (int i = end; i <= start; i++) {
+        if (!prefetch(fileNum, i, expectedGeneration)) {
+          return;
+        }
+      }
+      return;
+    }
+    for (int i = start; i <= end; i++) {
+      if (!prefetch(fileNum, i, expectedGeneration)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Decodes a single frame in the background.
+   *
+   * @return true if read-ahead should continue, false if it should stop
+   */
+  private boolean prefetch(int fileNum, int frameNum, long expectedGeneration) {
+    if (generation != expectedGeneration || closed) {
+      return false;
+    }
+    if (isCached(fileNum, frameNum)) {
+      return true;
+    }
+    try {
+      synchronized (decoderLock) {
+        if (closed || isCached(fileNum, frameNum)) {
+          return !closed;
+        }
+        Mat image = decoder.decode(fileNum, frameNum);
+        if (image == null) {
+          // Reached the end of the file
+          return false;
+        }
+        put(key(fileNum, frameNum), image);
+        prefetchCount.increment();
+      }
+      return true;
+    } catch (IOException | RuntimeException e) {
+      log.log(Level.FINE, "Could not read ahead to frame " + frameNum + " of camera '" + name + "'", e);
+      return false;
+    }
+  }
+
+  /**
+   * Stops reading ahead and releases all the cached images.
+   */
+  public void close() {
+    closed = true;
+    pendingReadAhead.set(null);
+    synchronized (decoderLock) {
+      synchronized (cache) {
+        cache.values().forEach(Mat::release);
+        cache.clear();
+        cachedBytes = 0;
+      }
+    }
+  }
+
+  /**
+   * Gets the amount of memory used by the cached images, in bytes.
+   */
+  public long getCachedBytes() {
+    synchronized (cache) {
+      return cachedBytes;
+    }
+  }
+
+  /**
+   * Gets the number of frames in the cache.
+   */
+  public int getCachedFrameCount() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * Gets the number of reads that were served from the cache.
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Gets the number of reads that had to decode the frame.
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Gets the number of frames that were decoded ahead of time.
+   */
+  public long getPrefetchCount() {
+    return prefetchCount.sum();
+  }
+
+  /**
+   * Gets the memory budget used by readers created without an explicit budget, in bytes.
+   */
+  public static long getDefaultMemoryBudget() {
+    return defaultMemoryBudget;
+  }
+
+  /**
+   * Sets the memory budget used by readers created without an explicit budget. This does not affect existing readers.
+   *
+   * @param memoryBudget the new default memory budget, in bytes
+   */
+  public static void setDefaultMemoryBudget(long memoryBudget) {
+    if (memoryBudget < 0) {
+      throw new IllegalArgumentException("Memory budget cannot be negative: " + memoryBudget);
+    }
+    defaultMemoryBudget = memoryBudget;
+  }
+
+  /**
+   * Gets the read-ahead used by readers created without an explicit read-ahead.
+   */
+  public static int getDefaultReadAhead() {
+    return defaultReadAhead;
+  }
+
+  /**
+   * Sets the number of frames to read ahead for readers created without an explicit read-ahead. This does not affect
+   * existing readers.
+   *
+   * @param readAhead the new default read-ahead. Use 0 to disable read-ahead
+   */
+  public static void setDefaultReadAhead(int readAhead) {
+    if (readAhead < 0) {
+      throw new IllegalArgumentException("Read-ahead cannot be negative: " + readAhead);
+    }
+    defaultReadAhead = readAhead;
+  }
+
+  /**
+   * A request to read ahead of a frame.
+   */
+  private static final class ReadAhead {
+
+    private final int fileNum;
+    private final int frameNum;
+    private final int step;
+    private final long generation;
+
+    ReadAhead(int fileNum, int frameNum, int step, long generation) {
+      this.fileNum = fileNum;
+      this.frameNum = frameNum;
+      this.step = step;
+      this.generation = generation;
+    }
+
+  }
+
+}
@@ -0,0 +1,367 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import edu.wpi.first.shuffleboard.api.util.ThreadUtils;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.data.CameraServerData;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Encodes recorded frames from a single camera stream on a dedicated thread. Grabbed frames are copied into pooled
+ * images and placed in a bounded queue, and the encoder thread hands them to a {@link FrameWriter} in the order they
+ * were grabbed. Since encoding never happens on the thread grabbing frames or in the recorder's save loop, a slow disk
+ * or CPU only degrades the recorded video and never holds up the rest of the recording.
+ *
+ * <p>When the queue is full, new frames are handled according to the encoder's {@link DropPolicy}.
+ */
+public final class CameraFrameEncoder {
+
+  private static final Logger log = Logger.getLogger(CameraFrameEncoder.class.getName());
+
+  /**
+   * The default maximum number of frames that can be waiting to be encoded.
+   */
+  public static final int DEFAULT_CAPACITY = 8;
+
+  private static volatile int defaultCapacity = DEFAULT_CAPACITY;
+  private static volatile DropPolicy defaultDropPolicy = DropPolicy.DROP_OLDEST;
+
+  /**
+   * What to do with a new frame when the encoder queue is full.
+   */
+  public enum DropPolicy {
+    /**
+     * Discard the oldest frame in the queue to make room for the new frame. This keeps the recorded video as close to
+     * live as possible.
+     */
+    DROP_OLDEST,
+    /**
+     * Discard the new frame.
+     */
+    DROP_NEWEST,
+    /**
+     * Wait until there is room in the queue. No frames are dropped, but frames are grabbed from the stream more slowly
+     * while the encoder catches up, so the live view of the stream will stutter.
+     */
+    BLOCK
+  }
+
+  /**
+   * Writes frames taken from the queue.
+   */
+  @FunctionalInterface
+  public interface FrameWriter {
+
+    /**
+     * Writes a frame. This is always called from the encoder thread.
+     *
+     * @param frame    the frame to write. The image is owned by the encoder, and is only valid until this method
+     *                 returns
+     * @param grabTime the time at which the frame was grabbed, as given by {@link System#nanoTime()}
+     */
+    void write(CameraServerData frame, long grabTime);
+
+  }
+
+  private static final class PendingFrame {
+    private final CameraServerData data;
+    private final long grabTime;
+
+    PendingFrame(CameraServerData data, long grabTime) {
+      this.data = data;
+      this.grabTime = grabTime;
+    }
+  }
+
+  private final String name;
+  private final FrameWriter writer;
+  private final Thread thread;
+  private volatile int capacity;
+  private volatile DropPolicy dropPolicy;
+
+  private final Deque<PendingFrame> queue = new ArrayDeque<>();
+  private final Deque<Mat> pool = new ArrayDeque<>();
+  private final Lock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private boolean running = true;
+
+  private final LongAdder submittedCount = new LongAdder();
+  private final LongAdder encodedCount = new LongAdder();
+  private final LongAdder droppedCount = new LongAdder();
+  private final CameraTelemetry telemetry;
+
+  /**
+   * Creates and starts a new encoder using the {@link #setDefaultCapacity default capacity} and
+   * {@link #setDefaultDropPolicy default drop policy}.
+   *
+   * @param name   the name of the camera stream
+   * @param writer the writer to pass frames to
+   */
+  public CameraFrameEncoder(String name, FrameWriter writer) {
+    this(name, defaultCapacity, defaultDropPolicy, writer);
+  }
+
+  /**
+   * Creates and starts a new encoder.
+   *
+   * @param name       the name of the camera stream
+   * @param capacity   the maximum number of frames that can be waiting to be encoded
+   * @param dropPolicy what to do with new frames when the queue is full
+   * @param writer     the writer to pass frames to
+   */
+  public CameraFrameEncoder(String name, int capacity, DropPolicy dropPolicy, FrameWriter writer) {
+    this.name = name;
+    this.writer = writer;
+    this.telemetry = CameraTelemetry.forCamera(name);
+    setCapacity(capacity);
+    setDropPolicy(dropPolicy);
+    thread = ThreadUtils.makeDaemonThread(this::encodeForever);
+    thread.setName("Camera Encoder - " + name);
+    thread.start();
+  }
+
+  /**
+   * Copies a frame and adds the copy to the queue of frames to encode.
+   *
+   * @param data     the data for the frame. Its image is ignored
+   * @param image    the image to encode. This is copied, so the caller is free to reuse it once this method returns
+   * @param grabTime the time at which the frame was grabbed, as given by {@link System#nanoTime()}
+   *
+   * @return true if the frame was added to the queue, false if it was dropped
+   */
+  public boolean submit(CameraServerData data, Mat image, long grabTime) {
+    lock.lock();
+    try {
+      if (!running) {
+        return false;
+      }
+      submittedCount.increment();
+      while (queue.size() >= capacity) {
+        switch (dropPolicy) {
+          case DROP_NEWEST:
+            dropped();
+            return false;
+          case DROP_OLDEST:
+            pool.push(queue.poll().data.getImage());
+            dropped();
+            break;
+          case BLOCK:
+            notFull.await();
+            if (!running) {
+              dropped();
+              return false;
+            }
+            break;
+          default:
+            throw new AssertionError("Unknown drop policy: " + dropPolicy);
+        }
+      }
+      Mat copy = pool.isEmpty() ? new Mat() : pool.pop();
+      image.copyTo(copy);
+      queue.add(new PendingFrame(data.withImage(copy), grabTime));
+      notEmpty.signal();
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      dropped();
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void encodeForever() {
+    while (true) {
+      final PendingFrame frame;
+      lock.lock();
+      try {
+        while (queue.isEmpty() && running) {
+          notEmpty.awaitUninterruptibly();
+        }
+        if (queue.isEmpty()) {
+          // Closed, and every frame in the queue has been written
+          pool.forEach(Mat::release);
+          pool.clear();
+          return;
+        }
+        frame = queue.poll();
+        notFull.signal();
+      } finally {
+        lock.unlock();
+      }
+      final Mat image = frame.data.getImage();
+      try {
+        final long start = System.nanoTime();
+        writer.write(frame.data, frame.grabTime);
+        telemetry.recordLatency(CameraTelemetry.Stage.ENCODE, System.nanoTime() - start);
+        telemetry.increment(CameraTelemetry.Counter.ENCODED);
+        encodedCount.increment();
+      } catch (RuntimeException | AssertionError e) { // NOPMD the saver reports encoding failures as AssertionErrors
+        log.log(Level.WARNING, "Could not encode frame from camera '" + name + "'", e);
+        dropped();
+      } finally {
+        recycle(image);
+      }
+    }
+  }
+
+  private void dropped() {
+    droppedCount.increment();
+    telemetry.increment(CameraTelemetry.Counter.ENCODER_DROPPED);
+  }
+
+  private void recycle(Mat image) {
+    lock.lock();
+    try {
+      if (running && pool.size() <= capacity) {
+        pool.push(image);
+        return;
+      }
+    } finally {
+      lock.unlock();
+    }
+    image.release();
+  }
+
+  /**
+   * Stops accepting new frames. Frames that are already in the queue will still be encoded, after which the encoder
+   * thread will exit.
+   */
+  public void close() {
+    lock.lock();
+    try {
+      running = false;
+      notEmpty.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for the encoder thread to exit after this encoder has been {@link #close closed}, which happens once every
+   * frame left in the queue has been written.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit    the unit of the timeout
+   *
+   * @return true if the encoder thread exited, false if the timeout elapsed first
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    thread.join(Math.max(1, unit.toMillis(timeout)));
+    return !thread.isAlive();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Sets the maximum number of frames that can be waiting to be encoded.
+   *
+   * @param capacity the new capacity. Must be positive
+   */
+  public void setCapacity(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive, but was " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  public DropPolicy getDropPolicy() {
+    return dropPolicy;
+  }
+
+  /**
+   * Sets what to do with new frames when the queue is full.
+   */
+  public void setDropPolicy(DropPolicy dropPolicy) {
+    this.dropPolicy = Objects.requireNonNull(dropPolicy, "dropPolicy");
+  }
+
+  /**
+   * Gets the number of frames currently waiting to be encoded.
+   */
+  public int getQueueSize() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the total number of frames that have been submitted to this encoder.
+   */
+  public long getSubmittedCount() {
+    return submittedCount.sum();
+  }
+
+  /**
+   * Gets the total number of frames that have been successfully encoded.
+   */
+  public long getEncodedCount() {
+    return encodedCount.sum();
+  }
+
+  /**
+   * Gets the total number of frames that were dropped, either because the queue was full or because they could not
+   * be encoded.
+   */
+  public long getDroppedCount() {
+    return droppedCount.sum();
+  }
+
+  /**
+   * Gets the capacity used by encoders created without an explicit capacity.
+   */
+  public static int getDefaultCapacity() {
+    return defaultCapacity;
+  }
+
+  /**
+   * Sets the capacity used by encoders created without an explicit capacity. This does not affect existing encoders.
+   *
+   * @param capacity the new default capacity. Must be positive
+   */
+  public static void setDefaultCapacity(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive, but was " + capacity);
+    }
+    defaultCapacity = capacity;
+  }
+
+  /**
+   * Gets the drop policy used by encoders created without an explicit drop policy.
+   */
+  public static DropPolicy getDefaultDropPolicy() {
+    return defaultDropPolicy;
+  }
+
+  /**
+   * Sets the drop policy used by encoders created without an explicit drop policy. This does not affect existing
+   * encoders.
+   */
+  public static void setDefaultDropPolicy(DropPolicy dropPolicy) {
+    defaultDropPolicy = Objects.requireNonNull(dropPolicy, "dropPolicy");
+  }
+
+}
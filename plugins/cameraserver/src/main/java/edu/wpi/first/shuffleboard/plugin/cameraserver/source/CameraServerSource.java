@@ -7,12 +7,15 @@ import edu.wpi.first.shuffleboard.api.sources.AbstractDataSource;
 import edu.wpi.first.shuffleboard.api.sources.SourceType;
 import edu.wpi.first.shuffleboard.api.sources.Sources;
 import edu.wpi.first.shuffleboard.api.sources.recording.Recorder;
+import edu.wpi.first.shuffleboard.api.sources.recording.serialization.Serializers;
+import edu.wpi.first.shuffleboard.api.sources.recording.serialization.TypeAdapter;
 import edu.wpi.first.shuffleboard.api.util.Debouncer;
 import edu.wpi.first.shuffleboard.api.util.EqualityUtils;
+import edu.wpi.first.shuffleboard.api.util.SharedExecutors;
 import edu.wpi.first.shuffleboard.api.util.ShutdownHooks;
-import edu.wpi.first.shuffleboard.api.util.ThreadUtils;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.JavaCvSink;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.data.CameraServerData;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.data.EncodedCameraServerData;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.data.LazyCameraServerData;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.data.Resolution;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.data.type.CameraServerDataType;
@@ -23,13 +26,23 @@ import edu.wpi.first.cscore.VideoEvent;
 import edu.wpi.first.cscore.VideoException;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.WPIUtilJNI;
+
+import com.google.common.annotations.VisibleForTesting;
 
 import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -50,8 +63,10 @@ public final class CameraServerSource extends AbstractDataSource<CameraServerDat
   private HttpCamera camera;
   private JavaCvSink videoSink; // NOPMD could be final - it can't due to how lambdas handle capturing final fields
   private final Mat image = new Mat();
+  private final Mat jpeg = new Mat();
+  private final CameraTelemetry telemetry;
 
-  private final ExecutorService frameGrabberService = Executors.newSingleThreadExecutor(ThreadUtils::makeDaemonThread);
+  private final ExecutorService frameGrabberService = SharedExecutors.getBlockingExecutor();
   private final BooleanBinding enabled = active.and(connected);
   private final ChangeListener<Boolean> enabledListener = (__, was, is) -> {
     if (is) {
@@ -60,7 +75,15 @@ public final class CameraServerSource extends AbstractDataSource<CameraServerDat
       cancelFrameGrabber();
     }
   };
-  private Future<?> frameFuture = null;
+  private Future<?> frameFuture = null; // Guarded by frameGrabberLock
+  private final Object frameGrabberLock = new Object();
+  private final Object grabLoopLock = new Object(); // Held by the grab loop for as long as it runs
+
+  // Encodes frames for the current recording. Only created while recording
+  private volatile CameraFrameEncoder recordingEncoder = null;
+  private boolean recordingJpegs = false; // Is the current recording saving JPEG images directly?
+
+  private static volatile boolean mjpegPassthrough = false;
 
   /**
    * The maximum supported resolution. Attempts to set the resolution higher than this will fail.
@@ -86,7 +109,7 @@ public final class CameraServerSource extends AbstractDataSource<CameraServerDat
       if (camera == null) {
         camera = new HttpCamera(getName(), parameterizedUrls);
         videoSink.setSource(camera);
-        videoSink.setEnabled(true);
+        updateSinkEnabled();
       } else if (EqualityUtils.isDifferent(camera.getUrls(), parameterizedUrls)) {
         setCameraUrls(parameterizedUrls);
       }
@@ -94,7 +117,7 @@ public final class CameraServerSource extends AbstractDataSource<CameraServerDat
     }
   };
 
-  private volatile boolean streaming = true; // Are we currently supposed to be grabbing frames from the stream?
+  private volatile boolean streaming = false; // Are we currently supposed to be grabbing frames from the stream?
 
   // Lets us ignore kSourceDisconnected events when we force a stream reconnect to update URL parameters
   // TODO remove this when cscore fixes URL parameter parsing
@@ -104,10 +127,23 @@ public final class CameraServerSource extends AbstractDataSource<CameraServerDat
   private final Debouncer urlUpdateDebouncer = new Debouncer(this::updateUrls, Duration.ofMillis(10));
   private final InvalidationListener cameraUrlUpdater = __ -> urlUpdateDebouncer.run();
 
+  // Adaptive streaming. Viewers tell the source what they need, and the stream is reduced to match
+  private final Map<Object, StreamDemand> viewerDemands = new WeakHashMap<>(); // Guarded by itself
+  private volatile AdaptiveStreamPolicy.Settings streamSettings;
+  private volatile Resolution nativeResolution = Resolution.EMPTY;
+  private boolean sinkEnabled = false; // Guarded by this
+
+  // Longer delay than URL updates; widgets resizing or tabs switching quickly shouldn't make the camera reconnect
+  private final Debouncer streamSettingsDebouncer =
+      new Debouncer(this::applyStreamSettings, Duration.ofMillis(500));
+  private final InvalidationListener streamSettingsUpdater = __ -> streamSettingsDebouncer.run();
+
   CameraServerSource(String name) {
     super(CameraServerDataType.Instance);
     setName(name);
     setData(new CameraServerData(name, null, 0, 0));
+    telemetry = CameraTelemetry.forCamera(name);
+    streamSettings = chooseStreamSettings();
     videoSink = new JavaCvSink(name + "-videosink");
     eventListenerId = CameraServerJNI.addListener(e -> {
       if (e.name.equals(name)) {
@@ -158,23 +194,23 @@ public final class CameraServerSource extends AbstractDataSource<CameraServerDat
     if (streamUrls.length > 0) {
       camera = new HttpCamera(name, urlGenerator.generateUrls(streamUrls));
       videoSink.setSource(camera);
-      videoSink.setEnabled(true);
+      updateSinkEnabled();
     }
 
     DashboardMode.currentModeProperty().addListener((__, old, mode) -> {
       if (mode == DashboardMode.PLAYBACK) {
         cancelFrameGrabber();
-        videoSink.setEnabled(false);
       } else {
         reEnable();
-        videoSink.setEnabled(true);
       }
+      updateSinkEnabled();
     });
 
     enabled.addListener(enabledListener);
     targetCompression.addListener(cameraUrlUpdater);
     targetFps.addListener(cameraUrlUpdater);
     targetResolution.addListener(cameraUrlUpdater);
+    Recorder.getInstance().runningProperty().addListener(streamSettingsUpdater);
     setActive(camera != null && camera.getUrls().length > 0);
 
     // If the old data is playback data, free it to reduce memory pressure
@@ -187,27 +223,59 @@ public final class CameraServerSource extends AbstractDataSource<CameraServerDat
     ShutdownHooks.addHook(this::cancelFrameGrabber);
   }
 
-  private void reEnable() {
-    frameFuture = frameGrabberService.submit(this::grabForever);
+  @VisibleForTesting
+  void reEnable() {
+    synchronized (frameGrabberLock) {
+      streaming = true;
+      updateFrameGrabber();
+    }
     String[] streamUrls = streamDiscoverer.getUrls();
     if (streamUrls.length == 0) {
       setActive(false);
     } else {
       setActive(true);
     }
-    streaming = true;
     streamDiscoverer.urlsProperty().addListener(urlChangeListener);
   }
 
   private void cancelFrameGrabber() {
-    if (frameFuture != null) {
-      frameFuture.cancel(true);
+    synchronized (frameGrabberLock) {
+      streaming = false;
+      updateFrameGrabber();
     }
     setActive(false);
-    streaming = false;
     streamDiscoverer.urlsProperty().removeListener(urlChangeListener);
   }
 
+  /**
+   * Starts the grab loop if frames should be grabbed and it isn't already running, or stops it if frames should not be
+   * grabbed. Frames are grabbed while streaming, unless the stream is paused; grabbing a frame re-enables the video
+   * sink, so the loop has to stop for a pause to actually stop reading from the camera.
+   */
+  private void updateFrameGrabber() {
+    synchronized (frameGrabberLock) {
+      if (streaming && !streamSettings.isPaused()) {
+        // The grabber service is shared and runs tasks in parallel, so only start grabbing if we aren't already
+        if (frameFuture == null || frameFuture.isDone()) {
+          frameFuture = frameGrabberService.submit(this::grabForever);
+        }
+      } else if (frameFuture != null) {
+        frameFuture.cancel(true);
+        frameFuture = null;
+      }
+    }
+  }
+
+  /**
+   * Checks if the grab loop is running.
+   */
+  @VisibleForTesting
+  boolean isGrabbingFrames() {
+    synchronized (frameGrabberLock) {
+      return frameFuture != null && !frameFuture.isDone();
+    }
+  }
+
   @Override
   public SourceType getType() {
     return CameraServerSourceType.INSTANCE;
@@ -217,21 +285,27 @@ public final class CameraServerSource extends AbstractDataSource<CameraServerDat
    * Continuously reads frames from the MJPEG stream as long as the calling thread has not been interrupted. Because
    * this is a (nearly) infinite loop, this <strong>cannot</strong> be called from the JavaFX application thread. We
    * call this in an executor service to run asynchronously.
+   *
+   * <p>A cancelled loop may still be blocked waiting for a frame when grabbing is re-enabled, so the new loop waits for
+   * it to exit before grabbing anything; the two would otherwise share the sink, the image buffers, and the encoder.
    */
   private void grabForever() {
     if (Platform.isFxApplicationThread()) {
       throw new IllegalStateException("This may not run on the FX application thread!");
     }
     final Thread thread = Thread.currentThread();
-    while (!thread.isInterrupted() && streaming) {
-      boolean success = grabOnceBlocking();
-      if (!success) {
-        // Couldn't grab the frame, wait a bit to try again
-        // This may be caused by a lack of connection (such as the robot is turned off) or various other network errors
-        try {
-          Thread.sleep(1000);
-        } catch (InterruptedException e) {
-          thread.interrupt();
+    synchronized (grabLoopLock) {
+      while (!thread.isInterrupted() && streaming) {
+        boolean success = grabOnceBlocking();
+        if (!success) {
+          // Couldn't grab the frame, wait a bit to try again
+          // This may be caused by a lack of connection (such as the robot is turned off) or various other network
+          // errors
+          try {
+            Thread.sleep(1000);
+          } catch (InterruptedException e) {
+            thread.interrupt();
+          }
         }
       }
     }
@@ -246,23 +320,134 @@ public final class CameraServerSource extends AbstractDataSource<CameraServerDat
     if (!streaming) {
       return false;
     }
-    long frameTime = videoSink.grabFrameNoTimeout(image);
+    final boolean recording = Recorder.getInstance().isRunning();
+    if (!recording) {
+      closeRecordingEncoder();
+    } else if (recordingEncoder == null) {
+      recordingJpegs = mjpegPassthrough && Serializers.get(getDataType()) instanceof CameraStreamAdapter;
+      recordingEncoder = new CameraFrameEncoder(getName(), recordingJpegs ? this::recordJpeg : this::recordFrame);
+    }
+    final boolean grabJpeg = recording && recordingJpegs;
+    long frameTime = grabJpeg ? videoSink.grabJpegNoTimeout(jpeg) : videoSink.grabFrameNoTimeout(image);
+    final long grabTime = System.nanoTime();
     if (frameTime == 0) {
       log.warning("Error when grabbing frame from camera '" + getName() + "': " + videoSink.getError());
       return false;
     } else {
+      // Frame times are in microseconds on the same clock as WPIUtilJNI.now()
+      telemetry.recordLatency(CameraTelemetry.Stage.GRAB, TimeUnit.MICROSECONDS.toNanos(WPIUtilJNI.now() - frameTime));
+      telemetry.increment(CameraTelemetry.Counter.GRABBED);
+      if (grabJpeg && !decodeJpeg()) {
+        return false;
+      }
+      updateNativeResolution();
       if (getData() == null) {
         setData(new CameraServerData(getName(), image, 0, 0));
       } else {
         setData(getData().withImage(image));
       }
-      if (Recorder.getInstance().isRunning()) {
-        Recorder.getInstance().record(getId(), getDataType(), getData().withImage(image.clone()));
+      if (recording) {
+        recordingEncoder.submit(getData(), grabJpeg ? jpeg : image, grabTime);
       }
     }
     return true;
   }
 
+  /**
+   * Decodes the most recently grabbed JPEG image for display.
+   *
+   * @return true if the image was decoded, false if it could not be decoded
+   */
+  private boolean decodeJpeg() {
+    final long start = System.nanoTime();
+    Mat decoded = Imgcodecs.imdecode(jpeg, Imgcodecs.IMREAD_COLOR);
+    try {
+      if (decoded.empty()) {
+        log.warning("Could not decode JPEG image from camera '" + getName() + "'");
+        return false;
+      }
+      decoded.copyTo(image);
+      telemetry.recordLatency(CameraTelemetry.Stage.DECODE, System.nanoTime() - start);
+      return true;
+    } finally {
+      decoded.release();
+    }
+  }
+
+  /**
+   * Saves a JPEG image from the recording encoder and records where it was saved. Called from the encoder thread.
+   */
+  private void recordJpeg(CameraServerData frame, long grabTime) {
+    TypeAdapter<CameraServerData> adapter = Serializers.get(getDataType());
+    if (adapter instanceof CameraStreamAdapter) {
+      try {
+        EncodedCameraServerData saved = ((CameraStreamAdapter) adapter).saveJpeg(frame, grabTime);
+        if (saved != null) {
+          Recorder.getInstance().record(getId(), getDataType(), saved, grabTime);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not save JPEG image", e);
+      }
+    }
+  }
+
+  /**
+   * Encodes a frame from the recording encoder and records where it was saved. Called from the encoder thread.
+   *
+   * <p>Frames are recorded at the time they were grabbed, so a frame that finishes encoding after the recording was
+   * saved is saved after newer data. {@link edu.wpi.first.shuffleboard.api.sources.recording.RecordingReader} orders
+   * data by timestamp when it reads the recording.
+   */
+  private void recordFrame(CameraServerData frame, long grabTime) {
+    TypeAdapter<CameraServerData> adapter = Serializers.get(getDataType());
+    if (adapter instanceof CameraStreamAdapter) {
+      EncodedCameraServerData encoded = ((CameraStreamAdapter) adapter).encode(frame);
+      if (encoded != null) {
+        Recorder.getInstance().record(getId(), getDataType(), encoded, grabTime);
+      }
+    } else if (adapter != null) {
+      // Unknown serializer, give it its own copy of the image to serialize when the recording is saved
+      Recorder.getInstance().record(getId(), getDataType(), frame.withImage(frame.getImage().clone()), grabTime);
+    }
+  }
+
+  private void closeRecordingEncoder() {
+    final CameraFrameEncoder encoder = recordingEncoder;
+    if (encoder != null) {
+      // Frames still in the queue will be written before the encoder thread exits
+      encoder.close();
+      recordingEncoder = null;
+    }
+  }
+
+  /**
+   * Sets whether camera streams should be recorded in MJPEG passthrough mode. In this mode, the JPEG images sent by the
+   * camera are saved exactly as they were received, instead of being decoded and re-encoded into a video file. This
+   * takes very little CPU time; images are only decoded when they are viewed in playback. Changes take effect in the
+   * next recording.
+   */
+  public static void setMjpegPassthrough(boolean mjpegPassthrough) {
+    CameraServerSource.mjpegPassthrough = mjpegPassthrough;
+  }
+
+  public static boolean isMjpegPassthrough() {
+    return mjpegPassthrough;
+  }
+
+  /**
+   * Gets the telemetry for this camera.
+   */
+  public CameraTelemetry getTelemetry() {
+    return telemetry;
+  }
+
+  /**
+   * Gets the encoder for frames being recorded from this source, or {@code null} if this source is not recording.
+   */
+  public CameraFrameEncoder getRecordingEncoder() {
+    return recordingEncoder;
+  }
+
   @Override
   public void close() {
     setActive(false);
@@ -270,7 +455,10 @@ public final class CameraServerSource extends AbstractDataSource<CameraServerDat
     streamDiscoverer.close();
     enabled.removeListener(enabledListener);
     CameraServerJNI.removeListener(eventListenerId);
+    Recorder.getInstance().runningProperty().removeListener(streamSettingsUpdater);
+    streamSettingsDebouncer.cancel();
     cancelFrameGrabber();
+    closeRecordingEncoder();
     videoSink.close();
     if (camera != null) {
       camera.close();
@@ -280,9 +468,113 @@ public final class CameraServerSource extends AbstractDataSource<CameraServerDat
   }
 
   private void updateUrls() {
+    streamSettings = chooseStreamSettings();
     if (camera != null) {
       setCameraUrls(urlGenerator.generateUrls(streamDiscoverer.getUrls()));
     }
+    updateSinkEnabled();
+  }
+
+  /**
+   * Sets what a viewer of this source, such as a widget, needs from the camera stream. Once any viewer has set its
+   * demand, the stream is reduced to the largest size and frame rate any visible viewer needs (but never more than
+   * the {@link #setTargetResolution target resolution} and {@link #setTargetFps target FPS}), and is paused when none
+   * of the viewers are visible. Viewers that need the full stream should use {@link StreamDemand#FULL}. The stream is
+   * never reduced or paused while recording.
+   *
+   * <p>Viewers are only weakly referenced, so a viewer that is garbage collected no longer affects the stream.
+   *
+   * @param viewer the viewer
+   * @param demand what the viewer needs, or {@code null} to stop the viewer from affecting the stream
+   */
+  public void setViewerDemand(Object viewer, StreamDemand demand) {
+    final boolean changed;
+    synchronized (viewerDemands) {
+      changed = demand == null
+          ? viewerDemands.remove(viewer) != null
+          : !demand.equals(viewerDemands.put(viewer, demand));
+    }
+    if (changed) {
+      streamSettingsDebouncer.run();
+    }
+  }
+
+  private AdaptiveStreamPolicy.Settings chooseStreamSettings() {
+    final List<StreamDemand> demands;
+    synchronized (viewerDemands) {
+      demands = new ArrayList<>(viewerDemands.values());
+    }
+    if (Recorder.getInstance().isRunning()) {
+      // Record the full stream, even if nothing is showing it
+      demands.clear();
+    }
+    return AdaptiveStreamPolicy.choose(getTargetResolution(), nativeResolution, getTargetFps(), demands);
+  }
+
+  /**
+   * Updates the stream to match the current viewer demands. Only reconnects to the camera if the stream changed.
+   */
+  @VisibleForTesting
+  void applyStreamSettings() {
+    final AdaptiveStreamPolicy.Settings previous = streamSettings;
+    final AdaptiveStreamPolicy.Settings settings = chooseStreamSettings();
+    streamSettings = settings;
+    if (!settings.isSameStream(previous) && camera != null) {
+      log.fine(() -> "Changing stream for camera '" + getName() + "' to " + settings);
+      setCameraUrls(urlGenerator.generateUrls(streamDiscoverer.getUrls()));
+    }
+    updateSinkEnabled();
+  }
+
+  /**
+   * Enables the video sink unless the dashboard is in playback mode or no viewer needs the stream. A disabled sink
+   * stops cscore from reading the stream from the camera.
+   */
+  private synchronized void updateSinkEnabled() {
+    final boolean enable = DashboardMode.getCurrentMode() != DashboardMode.PLAYBACK && !streamSettings.isPaused();
+    if (enable != sinkEnabled) {
+      sinkEnabled = enable;
+      videoSink.setEnabled(enable);
+    }
+    updateFrameGrabber();
+  }
+
+  /**
+   * Remembers the size of images sent by the camera when no resolution is requested, so that adaptive streaming can
+   * request smaller images with the same aspect ratio.
+   */
+  private void updateNativeResolution() {
+    if (streamSettings.getResolution().getWidth() > 0 || getTargetResolution().getWidth() > 0) {
+      // Reduced or user-set resolution
+      return;
+    }
+    if (nativeResolution.isNotEqual(image.cols(), image.rows())) {
+      nativeResolution = new Resolution(image.cols(), image.rows());
+      streamSettingsDebouncer.run();
+    }
+  }
+
+  /**
+   * Gets the resolution currently requested from the camera. This is the {@link #getTargetResolution target
+   * resolution}, unless the stream has been reduced because no viewer needs that many pixels.
+   */
+  public Resolution getStreamResolution() {
+    return streamSettings.getResolution();
+  }
+
+  /**
+   * Gets the FPS currently requested from the camera. This is the {@link #getTargetFps target FPS}, unless the stream
+   * has been slowed down because no viewer can display that many frames.
+   */
+  public int getStreamFps() {
+    return streamSettings.getFps();
+  }
+
+  /**
+   * Checks if the stream is paused because none of the viewers of this source are visible.
+   */
+  public boolean isStreamPaused() {
+    return streamSettings.isPaused();
   }
 
   private void setCameraUrls(String[] urls) { // NOPMD varargs instead of array
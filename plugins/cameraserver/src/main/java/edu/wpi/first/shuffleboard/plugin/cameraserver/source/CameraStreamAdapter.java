@@ -1,7 +1,9 @@
 package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
 
+import edu.wpi.first.shuffleboard.api.sources.recording.Recorder;
 import edu.wpi.first.shuffleboard.api.sources.recording.serialization.TypeAdapter;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.data.CameraServerData;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.data.EncodedCameraServerData;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.data.LazyCameraServerData;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.data.type.CameraServerDataType;
 
@@ -9,10 +11,14 @@ import com.google.common.primitives.Bytes;
 
 import org.bytedeco.javacv.FrameGrabber;
 import org.bytedeco.javacv.FrameRecorder;
+import org.opencv.core.Mat;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.logging.Level;
@@ -35,7 +41,17 @@ public final class CameraStreamAdapter extends TypeAdapter<CameraServerData> {
 
   private final Map<String, CameraStreamSaver> savers = new ConcurrentHashMap<>();
   private final Map<String, CameraStreamReader> readers = new ConcurrentHashMap<>();
+  private final Map<String, CameraStreamReader> previewReaders = new ConcurrentHashMap<>();
+  private final Map<String, JpegSegment> jpegSavers = new ConcurrentHashMap<>();
+  private final Set<String> fullJpegCameras = new HashSet<>(); // Cameras out of MJPEG files. Guarded by saverLock
+  private final SegmentFinalizer jpegFinalizer = new SegmentFinalizer();
+  private final Map<String, MjpegStreamReader> jpegReaders = new ConcurrentHashMap<>();
+  private final Map<String, CachedFrameReader> frameReaders = new ConcurrentHashMap<>();
+  private final Map<String, CachedFrameReader> previewFrameReaders = new ConcurrentHashMap<>();
+  private File playbackFile; // The recording the cached frames were read from. Guarded by frameReaders
+  private byte[] jpegBuffer = new byte[0]; // Guarded by saverLock
   private final Function<String, CameraStreamSaver> newSaver = name -> new CameraStreamSaver(name, getCurrentFile());
+  private final Object saverLock = new Object();
 
   public CameraStreamAdapter() {
     super(CameraServerDataType.Instance);
@@ -43,27 +59,33 @@ public final class CameraStreamAdapter extends TypeAdapter<CameraServerData> {
 
   @Override
   public void flush() {
-    // TODO make this able to update existing video files (not sure if possible with FFmpeg)
+    // Nothing to do. Video files are written as fragmented MP4s and split into segments as they are recorded, so
+    // everything but the last few frames can be read back at any time
   }
 
   @Override
   public void cleanUp() {
-    savers.forEach((name, saver) -> {
-      try {
-        saver.finish();
-      } catch (FrameRecorder.Exception e) {
-        log.log(Level.WARNING, "Could not finish saver for '" + name + "'", e);
-      }
-    });
-    savers.clear();
-    readers.forEach((name, reader) -> {
-      try {
-        reader.finish();
-      } catch (FrameGrabber.Exception e) {
-        log.log(Level.WARNING, "Could not clean up reader for '" + name + "'", e);
-      }
-    });
-    readers.clear();
+    synchronized (saverLock) {
+      savers.forEach((name, saver) -> {
+        try {
+          saver.finish();
+        } catch (FrameRecorder.Exception e) {
+          log.log(Level.WARNING, "Could not finish saver for '" + name + "'", e);
+        }
+      });
+      savers.clear();
+      jpegSavers.forEach((name, segment) -> {
+        try {
+          segment.saver.finish();
+        } catch (IOException e) {
+          log.log(Level.WARNING, "Could not finish MJPEG saver for '" + name + "'", e);
+        }
+      });
+      jpegSavers.clear();
+      fullJpegCameras.clear();
+    }
+    jpegFinalizer.awaitAll();
+    closeReaders();
   }
 
   @Override
@@ -71,7 +93,7 @@ public final class CameraStreamAdapter extends TypeAdapter<CameraServerData> {
     int cursor = bufferPosition;
     final String name = readString(buffer, cursor);
     cursor += name.length() + SIZE_OF_INT;
-    final byte fileNum = buffer[cursor];
+    final int fileNum = buffer[cursor] & 0xFF;
     cursor++;
     final short frameNum = readShort(buffer, cursor);
     cursor += SIZE_OF_SHORT;
@@ -79,17 +101,99 @@ public final class CameraStreamAdapter extends TypeAdapter<CameraServerData> {
     cursor += SIZE_OF_INT;
     final double fps = readShort(buffer, cursor) / 100.0;
 
-    CameraStreamReader reader = readers.computeIfAbsent(name, __ -> new CameraStreamReader(__, getCurrentFile()));
-
+    final File rootRecordingFile = getCurrentFile();
+    final CachedFrameReader reader;
+    final CachedFrameReader previewReader;
+    synchronized (frameReaders) {
+      if (!rootRecordingFile.equals(playbackFile)) {
+        // A different recording was loaded; the cached frames and open files will never be used again
+        closeReaders();
+        playbackFile = rootRecordingFile;
+      }
+      reader = frameReaders.computeIfAbsent(name, __ ->
+          new CachedFrameReader(name, (file, frame) -> decodeFrame(rootRecordingFile, name, file, frame)));
+      previewReader = previewFrameReaders.computeIfAbsent(name, __ ->
+          new CachedFrameReader(name, (file, frame) -> decodePreview(rootRecordingFile, name, file, frame)));
+    }
     return new LazyCameraServerData(name, fileNum, frameNum, () -> {
       try {
-        reader.setFileNumber(fileNum);
-        return reader.readFrame(frameNum);
+        return reader.readFrame(fileNum, frameNum);
       } catch (IOException e) {
         log.log(Level.WARNING, "Could not read frame " + frameNum, e);
         return null;
       }
-    }, fps, bandwidth);
+    }, () -> {
+      try {
+        return previewReader.readFrame(fileNum, frameNum);
+      } catch (IOException e) {
+        log.log(Level.WARNING, "Could not read preview of frame " + frameNum, e);
+        return null;
+      }
+    }, CameraStreamSaver.PREVIEW_SIZE, fps, bandwidth);
+  }
+
+  private void closeReaders() {
+    synchronized (frameReaders) {
+      // Stop reading ahead before closing the files being read from
+      frameReaders.values().forEach(CachedFrameReader::close);
+      frameReaders.clear();
+      previewFrameReaders.values().forEach(CachedFrameReader::close);
+      previewFrameReaders.clear();
+      playbackFile = null;
+    }
+    readers.forEach((name, reader) -> {
+      try {
+        reader.finish();
+      } catch (FrameGrabber.Exception e) {
+        log.log(Level.WARNING, "Could not clean up reader for '" + name + "'", e);
+      }
+    });
+    readers.clear();
+    previewReaders.forEach((name, reader) -> {
+      try {
+        reader.finish();
+      } catch (FrameGrabber.Exception e) {
+        log.log(Level.WARNING, "Could not clean up preview reader for '" + name + "'", e);
+      }
+    });
+    previewReaders.clear();
+    jpegReaders.forEach((name, reader) -> {
+      try {
+        reader.finish();
+      } catch (IOException e) {
+        log.log(Level.WARNING, "Could not clean up MJPEG reader for '" + name + "'", e);
+      }
+    });
+    jpegReaders.clear();
+  }
+
+  /**
+   * Decodes a single recorded frame from the video file or, if the stream was recorded in MJPEG passthrough mode, the
+   * file of JPEG images.
+   */
+  private Mat decodeFrame(File rootRecordingFile, String name, int fileNum, int frameNum) throws IOException {
+    final File jpegFile = new File(mjpegFilePath(rootRecordingFile, name, fileNum));
+    if (jpegFile.exists()) {
+      return jpegReaders.computeIfAbsent(jpegFile.getPath(), __ -> new MjpegStreamReader(jpegFile)).readFrame(frameNum);
+    }
+    CameraStreamReader reader = readers.computeIfAbsent(name, __ -> new CameraStreamReader(__, rootRecordingFile));
+    reader.setFileNumber(fileNum);
+    return reader.readFrame(frameNum);
+  }
+
+  /**
+   * Decodes the preview of a single recorded frame. Returns {@code null} if no preview was recorded for the video file
+   * containing the frame, which is the case for streams recorded in MJPEG passthrough mode, recordings made with
+   * previews disabled, and recordings made before previews were added.
+   */
+  private Mat decodePreview(File rootRecordingFile, String name, int fileNum, int frameNum) throws IOException {
+    if (!new File(previewFilePath(rootRecordingFile, name, fileNum)).exists()) {
+      return null;
+    }
+    CameraStreamReader reader =
+        previewReaders.computeIfAbsent(name, __ -> new CameraStreamReader(__, rootRecordingFile, true));
+    reader.setFileNumber(fileNum);
+    return reader.readFrame(frameNum);
   }
 
   @Override
@@ -101,22 +205,130 @@ public final class CameraStreamAdapter extends TypeAdapter<CameraServerData> {
         + SIZE_OF_SHORT; // FPS
   }
 
+  @Override
+  public int getSerializedSize(byte[] buffer, int bufferPosition) {
+    return SIZE_OF_INT + readInt(buffer, bufferPosition) // name
+        + SIZE_OF_BYTE   // video file number
+        + SIZE_OF_SHORT  // frame number
+        + SIZE_OF_INT    // bandwidth
+        + SIZE_OF_SHORT; // FPS
+  }
+
+  /**
+   * Encodes a frame into the video file for its camera stream in the current recording. Unlike {@link #serialize},
+   * this is intended to be called from a {@link CameraFrameEncoder}, outside of the recorder's save path; the returned
+   * data can then be recorded, and will be serialized without needing to be encoded again.
+   *
+   * @param data the frame to encode
+   *
+   * @return the location of the encoded frame in the video files, or {@code null} if no recording is in progress or
+   *         the frame could not be saved
+   */
+  public EncodedCameraServerData encode(CameraServerData data) {
+    synchronized (saverLock) {
+      // Checked under the lock: once the recorder stops, cleanUp() finishes the savers while holding it, and a saver
+      // created after that would overwrite the first video file of the recording that was just finished
+      final File recordingFile = Recorder.getInstance().getRecordingFile();
+      if (recordingFile == null) {
+        return null;
+      }
+      CameraStreamSaver saver =
+          savers.computeIfAbsent(data.getName(), name -> new CameraStreamSaver(name, recordingFile));
+      if (!saver.serializeFrame(data)) {
+        return null;
+      }
+      return new EncodedCameraServerData(
+          data.getName(), saver.getFileNum(), saver.getLastFrameNum(), data.getFps(), data.getBandwidth());
+    }
+  }
+
+  /**
+   * Saves a frame that has already been compressed as a JPEG image, without decoding or re-encoding it. Like
+   * {@link #encode}, this is intended to be called from a {@link CameraFrameEncoder}.
+   *
+   * @param data        the frame to save. Its image must be a single row of bytes containing the JPEG image, as
+   *                    grabbed by {@link edu.wpi.first.shuffleboard.plugin.cameraserver.JavaCvSink#grabJpegNoTimeout}
+   * @param captureTime the time at which the frame was captured, as given by {@link System#nanoTime()}
+   *
+   * @return the location of the saved frame, or {@code null} if no recording is in progress or the camera has run out
+   *         of files to save frames to
+   *
+   * @throws IOException if the frame could not be saved
+   */
+  public EncodedCameraServerData saveJpeg(CameraServerData data, long captureTime) throws IOException {
+    final Mat jpeg = data.getImage();
+    final int length = (int) jpeg.total();
+    synchronized (saverLock) {
+      // Checked under the lock for the same reason as in encode()
+      final File recordingFile = Recorder.getInstance().getRecordingFile();
+      if (recordingFile == null) {
+        return null;
+      }
+      final String name = data.getName();
+      if (fullJpegCameras.contains(name)) {
+        return null;
+      }
+      JpegSegment segment = jpegSavers.computeIfAbsent(name, __ ->
+          new JpegSegment(recordingFile, name, 0, captureTime, CameraStreamSaver.getDefaultSegmentDuration()));
+      if (CameraStreamSaver.isSegmentFull(segment.duration, segment.fileNum, segment.saver.getNumFrames(),
+          captureTime - segment.startTime)) {
+        // Finish the current file in the background and move on to the next one
+        final MjpegStreamSaver finished = segment.saver;
+        jpegFinalizer.submit("MJPEG file " + finished.getFile(), finished::finish);
+        if (segment.fileNum >= CameraStreamSaver.MAX_FILE_NUM) {
+          log.severe("Out of MJPEG files for camera '" + name + "' after " + (CameraStreamSaver.MAX_FILE_NUM + 1)
+              + " files; no more frames will be recorded");
+          jpegSavers.remove(name);
+          fullJpegCameras.add(name);
+          return null;
+        }
+        segment = new JpegSegment(recordingFile, name, segment.fileNum + 1, captureTime, segment.duration);
+        jpegSavers.put(name, segment);
+      }
+      if (jpegBuffer.length < length) {
+        jpegBuffer = new byte[length];
+      }
+      jpeg.get(0, 0, jpegBuffer);
+      final int frameNum = segment.saver.saveFrame(jpegBuffer, length, captureTime);
+      return new EncodedCameraServerData(name, segment.fileNum, frameNum, data.getFps(), data.getBandwidth());
+    }
+  }
+
   @Override
   public byte[] serialize(CameraServerData data) {
     // Save:
     //  - Camera name as String
-    //  - File number (0, 1, ...) as int8 (255 files will never be reached; typical count is 1)
+    //  - File number (0, 1, ...) as uint8 (a new file is started every segment, so up to 256 segments)
     //  - Frame number (1, 2, 3, ...) as int16 (limits to ~9 hours)
     //  - Current bandwidth use as int32
     //  - Current FPS as int16
     // Camera URI (camera_server://CameraName) is saved by the Serializer and placed in the constant pool,
     // but we don't have access to it here
-    CameraStreamSaver saver = savers.computeIfAbsent(data.getName(), newSaver);
-    saver.serializeFrame(data);
+    final int fileNum;
+    final int frameNum;
+    if (data instanceof EncodedCameraServerData) {
+      // Already written to a video file by a camera encoder
+      fileNum = ((EncodedCameraServerData) data).getFileNum();
+      frameNum = ((EncodedCameraServerData) data).getFrameNum();
+    } else {
+      synchronized (saverLock) {
+        CameraStreamSaver saver = savers.computeIfAbsent(data.getName(), newSaver);
+        try {
+          saver.serializeFrame(data);
+        } finally {
+          Mat image = data.getImage();
+          if (image != null) {
+            image.release();
+          }
+        }
+        fileNum = saver.getFileNum();
+        frameNum = saver.getLastFrameNum();
+      }
+    }
     return Bytes.concat(
         toByteArray(data.getName()),
-        new byte[]{(byte) saver.getFileNum()},
-        toByteArray((short) saver.getLastFrameNum()),
+        new byte[]{(byte) fileNum},
+        toByteArray((short) frameNum),
         toByteArray((int) data.getBandwidth()),
         toByteArray((short) (data.getFps() * 100)) // limits to 327.68 max input FPS - should be enough :)
     );
@@ -133,4 +345,57 @@ public final class CameraStreamAdapter extends TypeAdapter<CameraServerData> {
     return rootRecordingFile.getAbsolutePath().replace(".sbr", "-" + cameraName + "." + fileIndex + ".mp4");
   }
 
+  /**
+   * Generates the path to the preview video file accompanying a video file for a recorded camera stream.
+   *
+   * @param rootRecordingFile the root recording file
+   * @param cameraName        the name of the recorded stream
+   * @param fileIndex         the video file index
+   */
+  public static String previewFilePath(File rootRecordingFile, String cameraName, int fileIndex) {
+    return rootRecordingFile.getAbsolutePath().replace(".sbr", "-" + cameraName + "." + fileIndex + ".preview.mp4");
+  }
+
+  /**
+   * Generates the path to the index of the video files for a recorded camera stream.
+   *
+   * @param rootRecordingFile the root recording file
+   * @param cameraName        the name of the recorded stream
+   *
+   * @see VideoSegmentIndex
+   */
+  public static String segmentIndexPath(File rootRecordingFile, String cameraName) {
+    return rootRecordingFile.getAbsolutePath().replace(".sbr", "-" + cameraName + ".segments");
+  }
+
+  /**
+   * Generates the path to a file of JPEG images for a camera stream recorded in MJPEG passthrough mode.
+   *
+   * @param rootRecordingFile the root recording file
+   * @param cameraName        the name of the recorded stream
+   * @param fileIndex         the file index
+   */
+  public static String mjpegFilePath(File rootRecordingFile, String cameraName, int fileIndex) {
+    return rootRecordingFile.getAbsolutePath().replace(".sbr", "-" + cameraName + "." + fileIndex + ".mjpeg");
+  }
+
+  /**
+   * The file that JPEG images from a camera stream are currently being saved to.
+   */
+  private static final class JpegSegment {
+
+    private final MjpegStreamSaver saver;
+    private final int fileNum;
+    private final long startTime;
+    private final Duration duration;
+
+    JpegSegment(File recordingFile, String cameraName, int fileNum, long startTime, Duration duration) {
+      this.saver = new MjpegStreamSaver(new File(mjpegFilePath(recordingFile, cameraName, fileNum)));
+      this.fileNum = fileNum;
+      this.startTime = startTime;
+      this.duration = duration;
+    }
+
+  }
+
 }
@@ -1,43 +1,54 @@
 package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
 
 import org.bytedeco.ffmpeg.global.avcodec;
-import org.bytedeco.javacpp.indexer.UByteIndexer;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.OpenCVFrameConverter;
 import org.opencv.core.Mat;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static org.opencv.core.CvType.CV_8UC3;
-
 /**
  * Reads images from saved video files for a single camera stream in playback.
+ *
+ * <p>A recording may be split into many video files. Only the file that frames are currently being read from is
+ * opened, along with the most recently used one before it, so that scrubbing back and forth over the boundary between
+ * two files doesn't need to reopen them. The {@link VideoSegmentIndex segment index} written by the recorder is used to
+ * reject frames past the end of a file without opening it.
+ *
+ * <p>A reader can read either the full-resolution video files or the previews recorded alongside them.
  */
 public final class CameraStreamReader {
 
   private static final Logger log = Logger.getLogger(CameraStreamReader.class.getName());
 
+  /**
+   * The maximum number of video files that are kept open at once.
+   */
+  private static final int MAX_OPEN_FILES = 2;
+
   private final String cameraName;
   private final File rootRecordingFile;
-  private FFmpegFrameGrabber grabber;
-  private final AtomicBoolean started = new AtomicBoolean(false);
-  private int[] buffer;
-  private byte[] narrowBuffer;
+  private final boolean preview;
+  private final OpenCVFrameConverter.ToOrgOpenCvCoreMat converter = new OpenCVFrameConverter.ToOrgOpenCvCoreMat();
 
   private final Lock lock = new ReentrantLock();
 
-  private Mat mat;
-
   private final AtomicInteger fileNumber = new AtomicInteger(0);
-  private final AtomicInteger lastFrameIndex = new AtomicInteger(-1);
+
+  // Guarded by lock
+  private final Map<Integer, OpenFile> openFiles = new LinkedHashMap<>(MAX_OPEN_FILES + 1, 0.75f, true);
+  private Map<Integer, VideoSegmentIndex.Segment> segments;
 
   /**
    * Creates a new video recording reader.
@@ -46,9 +57,20 @@ public final class CameraStreamReader {
    * @param rootRecordingFile the root recording file being read
    */
   public CameraStreamReader(String cameraName, File rootRecordingFile) {
+    this(cameraName, rootRecordingFile, false);
+  }
+
+  /**
+   * Creates a new video recording reader.
+   *
+   * @param cameraName        the name of camera stream
+   * @param rootRecordingFile the root recording file being read
+   * @param preview           true to read the preview files, false to read the full-resolution video files
+   */
+  public CameraStreamReader(String cameraName, File rootRecordingFile, boolean preview) {
     this.cameraName = cameraName;
     this.rootRecordingFile = rootRecordingFile;
-    grabber = createGrabber(0);
+    this.preview = preview;
   }
 
   /**
@@ -58,30 +80,64 @@ public final class CameraStreamReader {
    * @param fileNumber the file number to read
    */
   public void setFileNumber(int fileNumber) {
-    try {
-      lock.lock();
-      if (fileNumber != this.fileNumber.get()) {
-        try {
-          finish();
-        } catch (FrameGrabber.Exception e) {
-          log.log(Level.WARNING, "Could not clean up grabber", e);
-        }
-        this.fileNumber.set(fileNumber);
-        grabber = createGrabber(fileNumber);
-      }
-    } finally {
-      lock.unlock();
-    }
+    this.fileNumber.set(fileNumber);
   }
 
   private FFmpegFrameGrabber createGrabber(int fileNumber) {
-    String file = CameraStreamAdapter.videoFilePath(rootRecordingFile, cameraName, fileNumber);
+    String file = preview
+        ? CameraStreamAdapter.previewFilePath(rootRecordingFile, cameraName, fileNumber)
+        : CameraStreamAdapter.videoFilePath(rootRecordingFile, cameraName, fileNumber);
     FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(file);
     grabber.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
     grabber.setFormat("mp4");
     return grabber;
   }
 
+  /**
+   * Gets the finished video files listed in the segment index. Recordings made before video files were indexed have no
+   * index, in which case this is empty.
+   */
+  private Map<Integer, VideoSegmentIndex.Segment> getSegments() {
+    if (segments == null) {
+      VideoSegmentIndex index =
+          new VideoSegmentIndex(new File(CameraStreamAdapter.segmentIndexPath(rootRecordingFile, cameraName)));
+      try {
+        segments = index.read();
+      } catch (IOException e) {
+        log.log(Level.WARNING, "Could not read video segment index " + index.getFile(), e);
+        segments = Map.of();
+      }
+    }
+    return segments;
+  }
+
+  /**
+   * Gets the open video file with the given number, opening it and closing the least recently used file if needed.
+   */
+  private OpenFile openFile(int fileNumber) throws FrameGrabber.Exception {
+    OpenFile file = openFiles.get(fileNumber);
+    if (file == null) {
+      file = new OpenFile(createGrabber(fileNumber));
+      file.grabber.start();
+      openFiles.put(fileNumber, file);
+      Iterator<Map.Entry<Integer, OpenFile>> iterator = openFiles.entrySet().iterator();
+      while (openFiles.size() > MAX_OPEN_FILES && iterator.hasNext()) {
+        Map.Entry<Integer, OpenFile> eldest = iterator.next();
+        iterator.remove();
+        close(eldest.getKey(), eldest.getValue());
+      }
+    }
+    return file;
+  }
+
+  private void close(int fileNumber, OpenFile file) {
+    try {
+      file.grabber.stop();
+    } catch (FrameGrabber.Exception e) {
+      log.log(Level.WARNING, "Could not close video file #" + fileNumber, e);
+    }
+  }
+
   /**
    * Reads a single frame from the current video file.
    *
@@ -92,43 +148,29 @@ public final class CameraStreamReader {
    * @throws IOException if a frame could not be read from the video file
    */
   public Mat readFrame(int frameNum) throws IOException {
+    final int fileNumber = this.fileNumber.get();
     try {
       lock.lock();
-      if (!started.get()) {
-        grabber.start();
-        started.set(true);
+      final VideoSegmentIndex.Segment segment = getSegments().get(fileNumber);
+      if (segment != null && frameNum >= segment.getFrameCount()) {
+        log.warning("No frame at index " + frameNum + " in video " + fileNumber + " (only "
+            + segment.getFrameCount() + " frames)");
+        return null;
       }
-      if (lastFrameIndex.get() != frameNum - 1) {
-        grabber.setFrameNumber(frameNum);
+      final OpenFile file = openFile(fileNumber);
+      if (file.lastFrameIndex != frameNum - 1) {
+        file.grabber.setFrameNumber(frameNum);
       }
-      lastFrameIndex.set(frameNum);
-      Frame frame = grabber.grabImage();
+      file.lastFrameIndex = frameNum;
+      Frame frame = file.grabber.grabImage();
       if (frame == null) {
         // Maybe `do { frame = grabber.grab() } while (frame == null)` instead?
         log.warning("No frame at index " + frameNum + " in video " + fileNumber);
         return null;
       }
-      UByteIndexer indexer = frame.createIndexer();
-      if (mat == null) {
-        mat = new Mat((int) indexer.height(), (int) indexer.width(), CV_8UC3);
-        long size = indexer.width() * indexer.height() * indexer.channels();
-        if (size > Integer.MAX_VALUE) {
-          log.warning(String.format("Frame too large: %.2fGB", size / 1e9));
-          return null;
-        }
-        buffer = new int[(int) size];
-        narrowBuffer = new byte[(int) size];
-      }
-      indexer.get(0, buffer)
-          .release();
-
-      for (int i = 0; i < buffer.length; i++) {
-        narrowBuffer[i] = (byte) buffer[i];
-      }
-
-      mat.put(0, 0, narrowBuffer);
-
-      return mat.clone();
+      // The converted mat shares memory with the frame, which the grabber reuses for the next frame; clone it to get an
+      // image that the caller owns. This is the only copy of the pixel data, and it happens entirely in native code
+      return converter.convert(frame).clone();
     } catch (FrameGrabber.Exception e) {
       throw new IOException("Could not read frame " + frameNum + " from video file #" + fileNumber, e);
     } finally {
@@ -137,7 +179,8 @@ public final class CameraStreamReader {
   }
 
   /**
-   * Cleans up this reader. For this reader to be used again, call {@link #setFileNumber}.
+   * Cleans up this reader and closes all open video files. For this reader to be used again, call
+   * {@link #setFileNumber}.
    *
    * @throws FrameGrabber.Exception if the grabber could not be stopped
    */
@@ -145,15 +188,35 @@ public final class CameraStreamReader {
     lock.lock();
     try {
       fileNumber.set(-1);
-      started.set(false);
-      lastFrameIndex.set(-1);
-      if (mat != null) {
-        mat.release();
+      FrameGrabber.Exception failure = null;
+      for (OpenFile file : openFiles.values()) {
+        try {
+          file.grabber.stop();
+        } catch (FrameGrabber.Exception e) {
+          failure = e;
+        }
+      }
+      openFiles.clear();
+      segments = null;
+      if (failure != null) {
+        throw failure;
       }
-      mat = null;
-      grabber.stop();
     } finally {
       lock.unlock();
     }
   }
+
+  /**
+   * A video file that is open for reading.
+   */
+  private static final class OpenFile {
+
+    private final FFmpegFrameGrabber grabber;
+    private int lastFrameIndex = -1;
+
+    OpenFile(FFmpegFrameGrabber grabber) {
+      this.grabber = grabber;
+    }
+
+  }
 }
@@ -5,17 +5,19 @@ import edu.wpi.first.shuffleboard.plugin.cameraserver.data.Resolution;
 
 import org.bytedeco.ffmpeg.global.avcodec;
 import org.bytedeco.ffmpeg.global.avutil;
-import org.bytedeco.javacpp.indexer.UByteBufferIndexer;
 import org.bytedeco.javacv.FFmpegFrameRecorder;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.FrameRecorder;
 import org.bytedeco.javacv.OpenCVFrameConverter;
 import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
@@ -24,25 +26,76 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Saves frames from a single camera stream to a video file on disk. {@link #finish()} must be called to finish writing
- * the video file; otherwise, it will be unreadable. Additionally, if the stream changes resolution then a new video
- * file will be created (the previous one will be completed automatically). These video files have an index number
- * embedded in their name: the first video file will be 0, the second video file will be 1, the third 2, and so on.
+ * Saves frames from a single camera stream to video files on disk. A recording is split into several video files
+ * (segments): a new segment is started when the stream changes resolution, when the current segment has been recorded
+ * for the {@link #setDefaultSegmentDuration segment duration}, or when it has too many frames for their numbers to be
+ * saved. Segments are finished on a background thread and added to a {@link VideoSegmentIndex}. These video files have
+ * an index number embedded in their name: the first video file will be 0, the second video file will be 1, the third
+ * 2, and so on.
+ *
+ * <p>The last video file number is recorded to until it is full, regardless of the segment duration. Once it is full,
+ * or the stream changes resolution, the saver stops recording the camera; frame and file numbers never overflow.
+ *
+ * <p>Video files are written as fragmented MP4s, so they are readable even if {@link #finish()} is never called (for
+ * example, because the app crashed); at most the last few frames will be lost.
+ *
+ * <p>If {@link #setDefaultRecordPreviews previews are enabled}, every video file is accompanied by a preview file with
+ * the same frames scaled down to fit in {@value #PREVIEW_SIZE} pixels. Every frame of a preview is a keyframe, so any
+ * frame can be decoded without seeking back to an earlier keyframe and decoding everything in between. Playback uses
+ * the previews for widgets that are shown at small sizes.
  */
 public final class CameraStreamSaver {
 
   private static final Logger log = Logger.getLogger(CameraStreamSaver.class.getName());
 
+  /**
+   * The default amount of time to record to a single video file before starting a new one.
+   */
+  public static final Duration DEFAULT_SEGMENT_DURATION = Duration.ofSeconds(60);
+
+  /**
+   * The maximum number of frames in a video file. Frame numbers are saved as 16-bit integers.
+   */
+  static final int MAX_FRAMES_PER_SEGMENT = Short.MAX_VALUE;
+
+  /**
+   * The highest video file number. File numbers are saved as unsigned 8-bit integers.
+   */
+  static final int MAX_FILE_NUM = 255;
+
+  /**
+   * The maximum width and height of recorded preview images.
+   */
+  public static final int PREVIEW_SIZE = 256;
+
+  /**
+   * Whether previews are recorded by default. Previews are off by default, since they scale and encode every recorded
+   * frame a second time.
+   */
+  public static final boolean DEFAULT_RECORD_PREVIEWS = false;
+
+  private static volatile Duration defaultSegmentDuration = DEFAULT_SEGMENT_DURATION;
+  private static volatile boolean defaultRecordPreviews = DEFAULT_RECORD_PREVIEWS;
+
   private final String cameraName;
   private final File rootRecordingFile;
+  private final Duration segmentDuration;
+  private final VideoSegmentIndex segmentIndex;
+  private final SegmentFinalizer finalizer = new SegmentFinalizer();
   private FFmpegFrameRecorder recorder;
-  private Frame frame;
+  private long segmentStartTime;
+  private final OpenCVFrameConverter.ToOrgOpenCvCoreMat converter = new OpenCVFrameConverter.ToOrgOpenCvCoreMat();
+  private final boolean recordPreviews;
+  private FFmpegFrameRecorder previewRecorder; // Null if previews are not being recorded to the current video file
+  private Resolution previewResolution;
+  private final OpenCVFrameConverter.ToOrgOpenCvCoreMat previewConverter =
+      new OpenCVFrameConverter.ToOrgOpenCvCoreMat();
+  private final Mat previewImage = new Mat();
   private final AtomicBoolean running = new AtomicBoolean(false);
   private final AtomicInteger frameNum = new AtomicInteger(0);
   private final AtomicInteger fileNum = new AtomicInteger(0);
   private Resolution resolution = null;
-  private byte[] buffer = null;
-  private int[] wideBuffer = null;
+  private boolean outOfFiles = false; // Guarded by lock
 
   private final Lock lock = new ReentrantLock();
 
@@ -55,80 +108,129 @@ public final class CameraStreamSaver {
   public CameraStreamSaver(String cameraName, File rootRecordingFile) {
     this.cameraName = cameraName;
     this.rootRecordingFile = rootRecordingFile;
+    this.segmentDuration = defaultSegmentDuration;
+    this.recordPreviews = defaultRecordPreviews;
+    this.segmentIndex =
+        new VideoSegmentIndex(new File(CameraStreamAdapter.segmentIndexPath(rootRecordingFile, cameraName)));
     recorder = createRecorder(0);
   }
 
   /**
-   * Saves a single frame to a video file. If the image resolution changes, the current video file will be closed and
-   * cleaned up before creating a new file that the given frame will be written to. This avoids issues with changing
-   * resolutions or aspect ratios causing issues with codecs or video players. The video file name is formatted as:
+   * Saves a single frame to a video file. If the image resolution changes or the current video file is full, the
+   * current video file will be finished in the background and the given frame will be written to a new file. Starting a
+   * new file on resolution changes avoids issues with changing resolutions or aspect ratios causing issues with codecs
+   * or video players. The video file name is formatted as:
    * {@code recording-<timestamp>-<camera name>.<file number>.mp4}, eg {@code recording-15.03.11-Camera.0.mp4},
    * {@code recording-15.03.11-Camera.1.mp4}, {@code recording-15.03.11-Camera.2.mp4}, etc.
    *
    * @param data the camera data to save
+   *
+   * @return true if the frame was saved, false if it was not
    */
-  public void serializeFrame(CameraServerData data) {
+  public boolean serializeFrame(CameraServerData data) {
     try {
       lock.lock();
       if (recorder == null) {
-        log.warning("Attempting to write frame after saver has finished");
-        return;
+        if (!outOfFiles) {
+          log.warning("Attempting to write frame after saver has finished");
+        }
+        return false;
       }
       Mat image = data.getImage();
       if (image == null || image.getNativeObjAddr() == 0) {
         // No image to save, bail
-        return;
+        return false;
       }
-      if (frame == null) {
-        frame = newFrameFromMat(image);
+      final long now = System.nanoTime();
+      if (resolution == null) {
         resolution = new Resolution(image.width(), image.height());
-        buffer = new byte[(int) (image.total() * image.channels())];
-        wideBuffer = new int[buffer.length];
       } else if (resolution.isNotEqual(image.width(), image.height())) {
         // Stream resolution changed. Video files don't like frames with different resolutions, so finish writing the
         // current file and move on to writing to a new file instead
-        try {
-          finish();
-        } catch (FrameRecorder.Exception e) {
-          log.log(Level.WARNING, "Could not finish writing video file " + fileNum, e);
-        }
-        frame = newFrameFromMat(image);
-        resolution = new Resolution(image.width(), image.height());
-        recorder = createRecorder(fileNum.incrementAndGet());
-        setupAndStartRecorder(data);
-        buffer = new byte[(int) (image.total() * image.channels())];
-        wideBuffer = new int[buffer.length];
+        startNewSegment(new Resolution(image.width(), image.height()), data);
+      } else if (running.get()
+          && isSegmentFull(segmentDuration, fileNum.get(), frameNum.get(), now - segmentStartTime)) {
+        startNewSegment(resolution, data);
       }
-      image.get(0, 0, buffer);
-      for (int i = 0; i < buffer.length; i++) {
-        wideBuffer[i] = buffer[i] & 0xFF;
+      if (recorder == null) {
+        // Out of video files
+        return false;
       }
-      frame.<UByteBufferIndexer>createIndexer()
-          .put(0, wideBuffer)
-          .release();
+      // The frame is a view of the image's native memory, so the recorder reads the pixels straight out of the image
+      // without them ever being copied into the Java heap
+      final Frame frame = converter.convert(image);
       try {
         if (!running.get()) {
           setupAndStartRecorder(data);
         }
-        recorder.setFrameNumber(frameNum.getAndIncrement());
+        if (frameNum.get() == 0) {
+          segmentStartTime = now;
+        }
+        final int frameNumber = frameNum.getAndIncrement();
+        recorder.setFrameNumber(frameNumber);
         recorder.record(frame);
+        recordPreview(image, frameNumber);
+        return true;
       } catch (FrameRecorder.Exception e) {
         throw new AssertionError("Could not save frame", e);
-      } finally {
-        image.release();
       }
     } finally {
       lock.unlock();
     }
   }
 
-  private static Frame newFrameFromMat(Mat image) {
-    return new Frame(
-        image.width(),
-        image.height(),
-        OpenCVFrameConverter.getFrameDepth(image.depth()),
-        image.channels()
-    );
+  /**
+   * Checks if the current file of a recorded camera stream is full, and a new file should be started.
+   *
+   * <p>The {@link #MAX_FILE_NUM last file} ignores the segment duration and is only full once it runs out of frame
+   * numbers; since there is no file after it, the camera can no longer be recorded at that point.
+   *
+   * @param segmentDuration how long to record to a single file. Zero means no limit
+   * @param fileNum         the number of the current file
+   * @param frameCount      the number of frames in the current file
+   * @param elapsed         how long the current file has been recorded to, in nanoseconds
+   */
+  static boolean isSegmentFull(Duration segmentDuration, int fileNum, int frameCount, long elapsed) {
+    if (frameCount >= MAX_FRAMES_PER_SEGMENT) {
+      return true;
+    }
+    return fileNum < MAX_FILE_NUM
+        && !segmentDuration.isZero() && frameCount > 0 && elapsed >= segmentDuration.toNanos();
+  }
+
+  /**
+   * Finishes the current video file in the background and starts writing to the next one. If the current file is the
+   * last one, recording stops instead.
+   */
+  private void startNewSegment(Resolution newResolution, CameraServerData data) {
+    final boolean lastFile = fileNum.get() >= MAX_FILE_NUM;
+    if (running.get()) {
+      final FFmpegFrameRecorder finished = recorder;
+      final FFmpegFrameRecorder finishedPreview = previewRecorder;
+      final VideoSegmentIndex.Segment segment = new VideoSegmentIndex.Segment(
+          fileNum.get(), frameNum.get(), resolution.getWidth(), resolution.getHeight());
+      finalizer.submit("video file " + segment.getFileNum() + " for camera '" + cameraName + "'", () -> {
+        if (finishedPreview != null) {
+          stopPreview(finishedPreview, segment.getFileNum());
+        }
+        finished.stop();
+        segmentIndex.append(segment);
+      });
+      previewRecorder = null;
+      running.set(false);
+    }
+    if (lastFile) {
+      log.severe("Out of video files for camera '" + cameraName + "' after " + (MAX_FILE_NUM + 1)
+          + " files; no more frames will be recorded");
+      // Keep the frame number, so the last recorded frame is still the latest one
+      recorder = null;
+      outOfFiles = true;
+      return;
+    }
+    frameNum.set(0);
+    resolution = newResolution;
+    recorder = createRecorder(fileNum.incrementAndGet());
+    setupAndStartRecorder(data);
   }
 
   private void setupAndStartRecorder(CameraServerData data) {
@@ -145,6 +247,73 @@ public final class CameraStreamSaver {
     } catch (FrameRecorder.Exception e) {
       throw new AssertionError("Could not start recorder", e);
     }
+    if (recordPreviews) {
+      startPreview();
+    }
+  }
+
+  /**
+   * Starts recording previews to the preview file for the current video file. Previews are not essential, so failing
+   * to record them only disables them for the current video file.
+   */
+  private void startPreview() {
+    previewResolution = previewResolution(resolution.getWidth(), resolution.getHeight());
+    final String file = CameraStreamAdapter.previewFilePath(rootRecordingFile, cameraName, fileNum.get());
+    final FFmpegFrameRecorder preview = new FFmpegFrameRecorder(file, previewResolution.getWidth(),
+        previewResolution.getHeight(), 0);
+    preview.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
+    preview.setFormat("mp4");
+    preview.setPixelFormat(avutil.AV_PIX_FMT_YUV420P);
+    preview.setGopSize(1); // Intra-only, so any frame can be decoded on its own
+    preview.setVideoQuality(4);
+    preview.setOption("movflags", "frag_keyframe+empty_moov+default_base_moof");
+    try {
+      preview.start();
+      previewRecorder = preview;
+    } catch (FrameRecorder.Exception e) {
+      log.log(Level.WARNING, "Could not start recording previews to " + file, e);
+      previewRecorder = null;
+    }
+  }
+
+  private void recordPreview(Mat image, int frameNumber) {
+    if (previewRecorder == null) {
+      return;
+    }
+    try {
+      Imgproc.resize(image, previewImage,
+          new Size(previewResolution.getWidth(), previewResolution.getHeight()), 0, 0, Imgproc.INTER_AREA);
+      previewRecorder.setFrameNumber(frameNumber);
+      previewRecorder.record(previewConverter.convert(previewImage));
+    } catch (FrameRecorder.Exception | RuntimeException e) {
+      log.log(Level.WARNING, "Could not record preview of frame " + frameNumber + " to video file " + fileNum.get()
+          + " for camera '" + cameraName + "'; no more previews will be recorded to that file", e);
+      stopPreview(previewRecorder, fileNum.get());
+      previewRecorder = null;
+    }
+  }
+
+  private void stopPreview(FFmpegFrameRecorder preview, int fileNumber) {
+    try {
+      preview.stop();
+    } catch (FrameRecorder.Exception e) {
+      log.log(Level.WARNING, "Could not finish preview file " + fileNumber + " for camera '" + cameraName + "'", e);
+    }
+  }
+
+  /**
+   * Gets the resolution of the previews recorded for images of the given size. Previews keep the aspect ratio of the
+   * original images, but are scaled down to fit in {@link #PREVIEW_SIZE} pixels; their dimensions are always even, as
+   * required by the pixel format they are encoded in.
+   *
+   * @param width  the width of the original images
+   * @param height the height of the original images
+   */
+  static Resolution previewResolution(int width, int height) {
+    final int longestSide = Math.max(width, height);
+    final int scaledWidth = longestSide > PREVIEW_SIZE ? width * PREVIEW_SIZE / longestSide : width;
+    final int scaledHeight = longestSide > PREVIEW_SIZE ? height * PREVIEW_SIZE / longestSide : height;
+    return new Resolution(Math.max(2, scaledWidth & ~1), Math.max(2, scaledHeight & ~1));
   }
 
   /**
@@ -166,7 +335,8 @@ public final class CameraStreamSaver {
   }
 
   /**
-   * Finishes writing the current video file.
+   * Finishes writing the current video file, and waits for any previous video files that are being finished in the
+   * background.
    *
    * @throws FrameRecorder.Exception if the file could not be written
    */
@@ -174,16 +344,70 @@ public final class CameraStreamSaver {
     try {
       lock.lock();
       if (running.get()) {
+        final VideoSegmentIndex.Segment segment = new VideoSegmentIndex.Segment(
+            fileNum.get(), frameNum.get(), resolution.getWidth(), resolution.getHeight());
+        if (previewRecorder != null) {
+          stopPreview(previewRecorder, segment.getFileNum());
+          previewRecorder = null;
+        }
         recorder.stop();
         running.set(false);
         frameNum.set(0);
         recorder = null;
+        try {
+          segmentIndex.append(segment);
+        } catch (IOException e) {
+          log.log(Level.WARNING, "Could not add video file " + segment.getFileNum() + " to the segment index", e);
+        }
       }
+      previewImage.release();
     } finally {
       lock.unlock();
+      finalizer.awaitAll();
     }
   }
 
+  /**
+   * Gets the amount of time to record to a single video file before starting a new one, for savers created after this
+   * is called. A duration of zero means new video files are only started when the stream changes resolution.
+   */
+  public static Duration getDefaultSegmentDuration() {
+    return defaultSegmentDuration;
+  }
+
+  /**
+   * Sets the amount of time to record to a single video file before starting a new one. This does not affect savers
+   * that have already been created.
+   *
+   * @param segmentDuration the segment duration. Use {@link Duration#ZERO} to only start new video files when the
+   *                        stream changes resolution
+   *
+   * @throws IllegalArgumentException if the duration is negative
+   */
+  public static void setDefaultSegmentDuration(Duration segmentDuration) {
+    if (segmentDuration.isNegative()) {
+      throw new IllegalArgumentException("Segment duration cannot be negative: " + segmentDuration);
+    }
+    defaultSegmentDuration = segmentDuration;
+  }
+
+  /**
+   * Checks if savers created after this is called will record previews alongside the video files.
+   */
+  public static boolean isDefaultRecordPreviews() {
+    return defaultRecordPreviews;
+  }
+
+  /**
+   * Sets whether to record previews alongside the video files. This does not affect savers that have already been
+   * created.
+   *
+   * @param recordPreviews true to record previews, false to only record the full-resolution video
+   */
+  public static void setDefaultRecordPreviews(boolean recordPreviews) {
+    defaultRecordPreviews = recordPreviews;
+  }
+
   private FFmpegFrameRecorder createRecorder(int fileIndex) {
     String file = CameraStreamAdapter.videoFilePath(rootRecordingFile, cameraName, fileIndex);
     try {
@@ -199,6 +423,9 @@ public final class CameraStreamSaver {
     recorder.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
     recorder.setFormat("mp4");
     recorder.setPixelFormat(avutil.AV_PIX_FMT_YUV420P);
+    // Write the file as a series of self-contained fragments instead of a single index at the end, so everything up to
+    // the last keyframe can be played back even if the file is never finished
+    recorder.setOption("movflags", "frag_keyframe+empty_moov+default_base_moof");
     return recorder;
   }
 
@@ -0,0 +1,214 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and frame counts for each stage of a camera's pipeline, from grabbing frames from the stream to showing them
+ * in widgets and encoding them into recordings. Every part of the pipeline records into the telemetry of the camera it
+ * is working on; the values are periodically {@link #sample() sampled} and published as
+ * {@link CameraTelemetrySourceType telemetry sources}.
+ *
+ * <p>Telemetry is shared by everything working with the same camera. For example, if a camera is shown in several
+ * widgets, the render latencies and displayed frame counts of all of them are combined.
+ */
+public final class CameraTelemetry {
+
+  private static final Map<String, CameraTelemetry> telemetry = new ConcurrentHashMap<>();
+
+  /**
+   * The stages of the camera pipeline that have their latency measured.
+   */
+  public enum Stage {
+    /**
+     * From a frame arriving from the camera to it being copied out of cscore for use by shuffleboard.
+     */
+    GRAB("grab"),
+    /**
+     * Decoding a JPEG image from the stream for display. Only used when recording in MJPEG passthrough mode.
+     */
+    DECODE("decode"),
+    /**
+     * Scaling, rotating, and converting an image into the pixel format used for display.
+     */
+    CONVERT("convert"),
+    /**
+     * From a converted image being ready to it being shown on screen.
+     */
+    RENDER("render"),
+    /**
+     * Encoding a frame and writing it to a recording.
+     */
+    ENCODE("encode");
+
+    private final String key;
+
+    Stage(String key) {
+      this.key = key;
+    }
+
+    /**
+     * Gets the key used for this stage in telemetry source names.
+     */
+    public String getKey() {
+      return key;
+    }
+  }
+
+  /**
+   * The frame counters kept for each camera.
+   */
+  public enum Counter {
+    /**
+     * Frames grabbed from the camera stream.
+     */
+    GRABBED("grabbed"),
+    /**
+     * Frames shown on screen.
+     */
+    DISPLAYED("displayed"),
+    /**
+     * Frames that were not shown because a newer frame arrived before they could be displayed.
+     */
+    DROPPED("dropped"),
+    /**
+     * Frames encoded into a recording.
+     */
+    ENCODED("encoded"),
+    /**
+     * Frames that were not recorded, either because the encoder could not keep up or because they could not be encoded.
+     */
+    ENCODER_DROPPED("encoderDropped");
+
+    private final String key;
+
+    Counter(String key) {
+      this.key = key;
+    }
+
+    /**
+     * Gets the key used for this counter in telemetry source names.
+     */
+    public String getKey() {
+      return key;
+    }
+  }
+
+  private final String cameraName;
+  private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+  private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+
+  // Only used by sample()
+  private final Map<Counter, Long> lastCounts = new EnumMap<>(Counter.class);
+  private long lastSampleTime = System.nanoTime();
+
+  private CameraTelemetry(String cameraName) {
+    this.cameraName = cameraName;
+    for (Stage stage : Stage.values()) {
+      latencies.put(stage, new LatencyHistogram());
+    }
+    for (Counter counter : Counter.values()) {
+      counters.put(counter, new LongAdder());
+      lastCounts.put(counter, 0L);
+    }
+  }
+
+  /**
+   * Gets the telemetry for a camera, creating it if it does not already exist.
+   *
+   * @param cameraName the name of the camera
+   */
+  public static CameraTelemetry forCamera(String cameraName) {
+    Objects.requireNonNull(cameraName, "cameraName");
+    return telemetry.computeIfAbsent(cameraName, CameraTelemetry::new);
+  }
+
+  /**
+   * Gets the telemetry of every camera that has had telemetry created for it.
+   */
+  public static Collection<CameraTelemetry> getAll() {
+    return Collections.unmodifiableCollection(telemetry.values());
+  }
+
+  public String getCameraName() {
+    return cameraName;
+  }
+
+  /**
+   * Records the latency of a single frame through a stage of the pipeline.
+   *
+   * @param stage the stage the latency was measured for
+   * @param nanos the latency, in nanoseconds
+   */
+  public void recordLatency(Stage stage, long nanos) {
+    latencies.get(stage).record(nanos);
+  }
+
+  /**
+   * Increments a frame counter by one.
+   *
+   * @param counter the counter to increment
+   */
+  public void increment(Counter counter) {
+    counters.get(counter).increment();
+  }
+
+  /**
+   * Gets the total value of a frame counter.
+   *
+   * @param counter the counter to get
+   */
+  public long getCount(Counter counter) {
+    return counters.get(counter).sum();
+  }
+
+  /**
+   * Samples the telemetry of this camera since the previous sample. The returned map contains, keyed by their path
+   * relative to the camera:
+   * <ul>
+   * <li>{@code <stage>/mean}, {@code <stage>/p50}, {@code <stage>/p95}, and {@code <stage>/max}: the latency of
+   * each stage, in milliseconds. Stages that did not process any frames since the last sample are left out, so
+   * their last known values are kept</li>
+   * <li>{@code frames/<counter>}: the total value of each frame counter</li>
+   * <li>{@code fps/<counter>}: the rate at which each frame counter increased, in frames per second</li>
+   * </ul>
+   *
+   * <p>This must not be called concurrently from multiple threads.
+   */
+  public Map<String, Double> sample() {
+    final long now = System.nanoTime();
+    final double seconds = (now - lastSampleTime) / 1e9;
+    lastSampleTime = now;
+
+    final Map<String, Double> values = new LinkedHashMap<>();
+    for (Stage stage : Stage.values()) {
+      final LatencyHistogram.Snapshot snapshot = latencies.get(stage).snapshotAndReset();
+      if (snapshot.getCount() == 0) {
+        continue;
+      }
+      values.put(stage.getKey() + "/mean", toMillis(snapshot.getMean()));
+      values.put(stage.getKey() + "/p50", toMillis(snapshot.getPercentile(50)));
+      values.put(stage.getKey() + "/p95", toMillis(snapshot.getPercentile(95)));
+      values.put(stage.getKey() + "/max", toMillis(snapshot.getMax()));
+    }
+    for (Counter counter : Counter.values()) {
+      final long count = getCount(counter);
+      final long previous = lastCounts.put(counter, count);
+      values.put("frames/" + counter.getKey(), (double) count);
+      values.put("fps/" + counter.getKey(), seconds > 0 ? (count - previous) / seconds : 0.0);
+    }
+    return values;
+  }
+
+  private static double toMillis(double nanos) {
+    return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+}
@@ -0,0 +1,31 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import edu.wpi.first.shuffleboard.api.data.DataTypes;
+import edu.wpi.first.shuffleboard.api.sources.AbstractDataSource;
+import edu.wpi.first.shuffleboard.api.sources.SourceType;
+
+/**
+ * A read-only source for a single value of a camera's {@link CameraTelemetry telemetry}, such as the 95th percentile
+ * of the time taken to grab frames from the stream.
+ */
+public final class CameraTelemetrySource extends AbstractDataSource<Number> {
+
+  CameraTelemetrySource(String name) {
+    super(DataTypes.Number);
+    setName(name);
+  }
+
+  /**
+   * Updates the value of this source.
+   */
+  void update(double value) {
+    setActive(true);
+    setData(value);
+  }
+
+  @Override
+  public SourceType getType() {
+    return CameraTelemetrySourceType.INSTANCE;
+  }
+
+}
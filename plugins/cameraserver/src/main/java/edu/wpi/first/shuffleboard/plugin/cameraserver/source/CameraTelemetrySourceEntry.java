@@ -0,0 +1,55 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import edu.wpi.first.shuffleboard.api.sources.DataSource;
+import edu.wpi.first.shuffleboard.api.sources.DataSourceUtils;
+import edu.wpi.first.shuffleboard.api.sources.SourceEntry;
+
+/**
+ * An entry for a camera telemetry source, or for a camera or stage that groups telemetry sources.
+ */
+public final class CameraTelemetrySourceEntry implements SourceEntry {
+
+  private final String name;
+  private final Object value;
+
+  /**
+   * Creates a new entry.
+   *
+   * @param name  the name of the source, eg "/Camera/grab/p95"
+   * @param value the current value of the source, or {@code null} if the entry is for a group of sources
+   */
+  public CameraTelemetrySourceEntry(String name, Object value) {
+    this.name = name;
+    this.value = value;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String getViewName() {
+    return DataSourceUtils.baseName(name);
+  }
+
+  @Override
+  public Object getValue() {
+    return value;
+  }
+
+  @Override
+  public Object getValueView() {
+    return value == null ? "" : String.format("%.2f", ((Number) value).doubleValue());
+  }
+
+  @Override
+  public DataSource get() {
+    if (value == null) {
+      // Groups don't have any data of their own
+      return DataSource.none();
+    }
+    return CameraTelemetrySourceType.forName(name);
+  }
+
+}
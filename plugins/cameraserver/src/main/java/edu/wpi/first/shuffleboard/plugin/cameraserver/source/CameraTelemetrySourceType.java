@@ -0,0 +1,139 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import edu.wpi.first.shuffleboard.api.DashboardMode;
+import edu.wpi.first.shuffleboard.api.data.DataType;
+import edu.wpi.first.shuffleboard.api.data.DataTypes;
+import edu.wpi.first.shuffleboard.api.sources.SourceEntry;
+import edu.wpi.first.shuffleboard.api.sources.SourceType;
+import edu.wpi.first.shuffleboard.api.sources.UiHints;
+import edu.wpi.first.shuffleboard.api.sources.recording.Recorder;
+import edu.wpi.first.shuffleboard.api.sources.recording.TimestampedData;
+import edu.wpi.first.shuffleboard.api.util.FxUtils;
+import edu.wpi.first.shuffleboard.api.util.SharedExecutors;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
+
+/**
+ * Publishes the {@link CameraTelemetry telemetry} of every camera as number sources, so it can be shown in widgets and
+ * is saved in recordings. Sources are named {@code /<camera>/<stage>/<statistic>} for latencies and
+ * {@code /<camera>/frames/<counter>} or {@code /<camera>/fps/<counter>} for frame counters.
+ */
+@UiHints(showConnectionIndicator = false)
+public final class CameraTelemetrySourceType extends SourceType {
+
+  private static final Logger log = Logger.getLogger(CameraTelemetrySourceType.class.getName());
+
+  public static final CameraTelemetrySourceType INSTANCE = new CameraTelemetrySourceType();
+
+  /**
+   * How often telemetry is sampled and published. This matches the cscore telemetry period.
+   */
+  public static final long PUBLISH_PERIOD_MS = 1000;
+
+  private final Map<String, CameraTelemetrySource> sources = new ConcurrentHashMap<>();
+  private final ObservableList<String> availableUris = FXCollections.observableArrayList();
+  private final ObservableMap<String, Object> availableSources = FXCollections.observableHashMap();
+  private Future<?> publisher; // Guarded by this
+
+  private CameraTelemetrySourceType() {
+    super("CameraTelemetry", true, "camera_telemetry://", CameraTelemetrySourceType::forName);
+  }
+
+  public static CameraTelemetrySource forName(String name) {
+    return INSTANCE.sources.computeIfAbsent(name, CameraTelemetrySource::new);
+  }
+
+  /**
+   * Starts periodically publishing camera telemetry. Has no effect if telemetry is already being published.
+   */
+  public synchronized void start() {
+    if (publisher == null) {
+      publisher = SharedExecutors.getScheduler()
+          .scheduleAtFixedRate(this::publish, PUBLISH_PERIOD_MS, PUBLISH_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Stops publishing camera telemetry.
+   */
+  public synchronized void stop() {
+    if (publisher != null) {
+      publisher.cancel(false);
+      publisher = null;
+    }
+  }
+
+  private void publish() {
+    try {
+      final boolean playback = DashboardMode.getCurrentMode() == DashboardMode.PLAYBACK;
+      final Recorder recorder = Recorder.getInstance();
+      final Map<String, Double> published = new LinkedHashMap<>();
+      for (CameraTelemetry telemetry : CameraTelemetry.getAll()) {
+        telemetry.sample().forEach((key, value) -> {
+          final String name = "/" + telemetry.getCameraName() + "/" + key;
+          recorder.recordNumber(recorder.getSourceHandle(toUri(name)), value);
+          published.put(name, value);
+        });
+      }
+      if (playback || published.isEmpty()) {
+        // Sources show recorded telemetry during playback
+        return;
+      }
+      published.forEach((name, value) -> {
+        CameraTelemetrySource source = sources.get(name);
+        if (source != null) {
+          source.update(value);
+        }
+      });
+      FxUtils.runOnFxThread(() -> published.forEach((name, value) -> {
+        String uri = toUri(name);
+        if (!availableUris.contains(uri)) {
+          availableUris.add(uri);
+        }
+        availableSources.put(uri, value);
+      }));
+    } catch (RuntimeException e) {
+      // Don't let an exception cancel the periodic task
+      log.log(Level.WARNING, "Could not publish camera telemetry", e);
+    }
+  }
+
+  @Override
+  public void read(TimestampedData recordedData) {
+    super.read(recordedData);
+    if (recordedData.getData() instanceof Number) {
+      forName(removeProtocol(recordedData.getSourceId())).update(((Number) recordedData.getData()).doubleValue());
+    }
+  }
+
+  @Override
+  public SourceEntry createSourceEntryForUri(String uri) {
+    return new CameraTelemetrySourceEntry(removeProtocol(uri), availableSources.get(uri));
+  }
+
+  @Override
+  public DataType<?> dataTypeForSource(DataTypes registry, String sourceUri) {
+    return DataTypes.Number;
+  }
+
+  @Override
+  public ObservableList<String> getAvailableSourceUris() {
+    return availableUris;
+  }
+
+  @Override
+  public ObservableMap<String, Object> getAvailableSources() {
+    return availableSources;
+  }
+
+}
@@ -38,7 +38,7 @@ public final class CameraUrlGenerator {
    */
   public String[] generateUrls(String[] baseUrls) { // NOPMD varargs instead of array
     Map<String, String> commands = new LinkedHashMap<>();
-    Resolution resolution = source.getTargetResolution();
+    Resolution resolution = source.getStreamResolution();
     if (resolution != null && resolution.getWidth() > 0 && resolution.getHeight() > 0) {
       commands.put("resolution", resolution.getWidth() + "x" + resolution.getHeight());
     }
@@ -46,7 +46,7 @@ public final class CameraUrlGenerator {
     if (compression >= 0 && compression <= 100) {
       commands.put("compression", Integer.toString(compression));
     }
-    int frameRate = source.getTargetFps();
+    int frameRate = source.getStreamFps();
     if (frameRate > 0) {
       commands.put("fps", Integer.toString(frameRate));
     }
@@ -0,0 +1,156 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies. Latencies are counted in buckets that grow exponentially in size, with four
+ * buckets per power of two microseconds, so percentiles are accurate to within about 12% while the histogram stays
+ * small enough to be updated from every frame of every camera.
+ *
+ * <p>Latencies can be recorded from any number of threads. Taking a {@link #snapshotAndReset() snapshot} is not atomic
+ * with respect to concurrent recordings; a latency recorded while a snapshot is being taken may be counted in either
+ * that snapshot or the next one.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 30; // About 18 minutes in microseconds; anything longer is clamped
+  static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Records a latency.
+   *
+   * @param nanos the latency, in nanoseconds. Negative values are ignored
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      return;
+    }
+    buckets.incrementAndGet(bucketFor(TimeUnit.NANOSECONDS.toMicros(nanos)));
+    count.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+    maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /**
+   * Gets the latencies recorded since the last snapshot, and clears the histogram.
+   */
+  public Snapshot snapshotAndReset() {
+    final long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.getAndSet(i, 0);
+    }
+    return new Snapshot(counts, count.getAndSet(0), totalNanos.getAndSet(0), maxNanos.getAndSet(0));
+  }
+
+  /**
+   * Gets the index of the bucket containing a latency.
+   */
+  static int bucketFor(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    final int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(micros));
+    if (exponent == MAX_EXPONENT && micros >= (1L << (MAX_EXPONENT + 1))) {
+      return BUCKET_COUNT - 1;
+    }
+    final int subBucket = (int) (micros >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Gets the smallest latency, in microseconds, counted in a bucket.
+   */
+  static long lowerBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    final int subBucket = bucket % SUB_BUCKETS;
+    return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  /**
+   * The latencies recorded in a histogram over a period of time.
+   */
+  public static final class Snapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+      this.counts = counts;
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+    }
+
+    /**
+     * Gets the number of latencies that were recorded.
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Gets the mean latency, in nanoseconds, or 0 if no latencies were recorded.
+     */
+    public double getMean() {
+      return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * Gets the highest latency, in nanoseconds, or 0 if no latencies were recorded.
+     */
+    public long getMax() {
+      return maxNanos;
+    }
+
+    /**
+     * Gets an estimate of a percentile of the recorded latencies. The estimate is the midpoint of the bucket containing
+     * the percentile, but never more than the highest recorded latency.
+     *
+     * @param percentile the percentile to get, from 0 to 100
+     *
+     * @return the estimated latency at the given percentile, in nanoseconds, or 0 if no latencies were recorded
+     *
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100
+     */
+    public long getPercentile(double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("Percentile must be between 0 and 100, but was " + percentile);
+      }
+      long total = 0;
+      for (long bucketCount : counts) {
+        total += bucketCount;
+      }
+      if (total == 0) {
+        return 0;
+      }
+      final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          final long lower = lowerBound(i);
+          final long upper = i + 1 < counts.length ? lowerBound(i + 1) : lower;
+          final long midpoint = TimeUnit.MICROSECONDS.toNanos(lower + upper) / 2;
+          return maxNanos > 0 ? Math.min(midpoint, maxNanos) : midpoint;
+        }
+      }
+      return maxNanos;
+    }
+
+  }
+
+}
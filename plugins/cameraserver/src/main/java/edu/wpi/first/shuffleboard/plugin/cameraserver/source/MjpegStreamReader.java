@@ -0,0 +1,194 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.MjpegStreamSaver.FRAME_HEADER_SIZE;
+import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.MjpegStreamSaver.HEADER_SIZE;
+import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.MjpegStreamSaver.MAGIC;
+import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.MjpegStreamSaver.TRAILER_SIZE;
+import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.MjpegStreamSaver.VERSION;
+
+/**
+ * Reads JPEG images saved by a {@link MjpegStreamSaver}. Images are only decoded when they are read.
+ */
+public final class MjpegStreamReader {
+
+  private final File file;
+  private FileChannel channel;
+  private long[] frameOffsets;
+  private int numFrames;
+  private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+  /**
+   * Creates a new reader. The file is opened when the first frame is read.
+   *
+   * @param file the file to read
+   */
+  public MjpegStreamReader(File file) {
+    this.file = file;
+  }
+
+  private void open() throws IOException {
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      ByteBuffer header = read(0, HEADER_SIZE);
+      if (header.getInt() != MAGIC || header.getInt() > VERSION) {
+        throw new IOException("Not a supported MJPEG recording: " + file);
+      }
+      if (!readIndex()) {
+        rebuildIndex();
+      }
+    } catch (IOException e) {
+      channel.close();
+      channel = null;
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the frame index at the end of the file.
+   *
+   * @return true if the index was read, false if the file has no index
+   */
+  private boolean readIndex() throws IOException {
+    final long size = channel.size();
+    if (size < HEADER_SIZE + TRAILER_SIZE) {
+      return false;
+    }
+    ByteBuffer trailer = read(size - TRAILER_SIZE, TRAILER_SIZE);
+    final int count = trailer.getInt();
+    final long indexPosition = trailer.getLong();
+    if (trailer.getInt() != MAGIC
+        || count < 0
+        || indexPosition < HEADER_SIZE
+        || indexPosition + (long) count * Long.BYTES != size - TRAILER_SIZE) {
+      return false;
+    }
+    ByteBuffer index = read(indexPosition, count * Long.BYTES);
+    frameOffsets = new long[count];
+    index.asLongBuffer().get(frameOffsets);
+    numFrames = count;
+    return true;
+  }
+
+  /**
+   * Finds every frame in a file that has no index by walking through the frames from the start of the file. Stops at
+   * the first incomplete frame.
+   */
+  private void rebuildIndex() throws IOException {
+    final long size = channel.size();
+    frameOffsets = new long[1024];
+    numFrames = 0;
+    long position = HEADER_SIZE;
+    while (position + FRAME_HEADER_SIZE <= size) {
+      final int length = read(position, FRAME_HEADER_SIZE).getInt();
+      if (length < 0 || position + FRAME_HEADER_SIZE + length > size) {
+        break;
+      }
+      if (numFrames == frameOffsets.length) {
+        frameOffsets = Arrays.copyOf(frameOffsets, numFrames * 2);
+      }
+      frameOffsets[numFrames++] = position;
+      position += FRAME_HEADER_SIZE + length;
+    }
+  }
+
+  private ByteBuffer read(long position, int length) throws IOException {
+    if (buffer.capacity() < length) {
+      buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+    }
+    buffer.clear().limit(length);
+    long cursor = position;
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, cursor);
+      if (read < 0) {
+        throw new IOException("Unexpected end of file " + file);
+      }
+      cursor += read;
+    }
+    return buffer.flip();
+  }
+
+  /**
+   * Gets the number of frames in the file.
+   *
+   * @throws IOException if the file could not be read
+   */
+  public synchronized int getNumFrames() throws IOException {
+    if (channel == null) {
+      open();
+    }
+    return numFrames;
+  }
+
+  /**
+   * Reads a single JPEG image without decoding it.
+   *
+   * @param frameNum the index of the frame to read
+   *
+   * @return the JPEG image
+   *
+   * @throws IOException if the frame could not be read
+   */
+  public synchronized byte[] readJpeg(int frameNum) throws IOException {
+    if (channel == null) {
+      open();
+    }
+    if (frameNum < 0 || frameNum >= numFrames) {
+      throw new IOException("No frame at index " + frameNum + " in " + file);
+    }
+    final long position = frameOffsets[frameNum];
+    final int length = read(position, Integer.BYTES).getInt();
+    final byte[] jpeg = new byte[length];
+    read(position + FRAME_HEADER_SIZE, length).get(jpeg);
+    return jpeg;
+  }
+
+  /**
+   * Reads and decodes a single image.
+   *
+   * @param frameNum the index of the frame to read
+   *
+   * @return the decoded image
+   *
+   * @throws IOException if the frame could not be read or decoded
+   */
+  public Mat readFrame(int frameNum) throws IOException {
+    final MatOfByte jpeg = new MatOfByte(readJpeg(frameNum));
+    try {
+      final Mat image = Imgcodecs.imdecode(jpeg, Imgcodecs.IMREAD_COLOR);
+      if (image.empty()) {
+        image.release();
+        throw new IOException("Could not decode frame " + frameNum + " in " + file);
+      }
+      return image;
+    } finally {
+      jpeg.release();
+    }
+  }
+
+  /**
+   * Closes the file. The reader can still be used afterwards, but the file will have to be opened again.
+   *
+   * @throws IOException if the file could not be closed
+   */
+  public synchronized void finish() throws IOException {
+    if (channel != null) {
+      try {
+        channel.close();
+      } finally {
+        channel = null;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,141 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Saves the JPEG images from a single MJPEG camera stream to a file on disk exactly as they were received, without
+ * decoding or re-encoding them. This takes almost no CPU time compared to encoding a video file; images are only
+ * decoded when they are viewed in playback. The file format is:
+ *
+ * <pre>
+ * Header:  magic number (int32), version (int32)
+ * Frames:  image size (int32), capture time in microseconds since the first frame (int64), JPEG bytes
+ * Index:   file position of each frame (int64 each), number of frames (int32), position of the index (int64),
+ *          magic number (int32)
+ * </pre>
+ *
+ * <p>The index is written by {@link #finish()}. If a file is not finished (for example, because the app crashed), the
+ * frames can still be found by walking through the file from the start.
+ */
+public final class MjpegStreamSaver {
+
+  static final int MAGIC = 0x53424A50; // "SBJP"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = Integer.BYTES * 2;
+  static final int FRAME_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+  static final int TRAILER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+  private final File file;
+  private FileChannel channel;
+  private final ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+  private long position;
+  private long[] frameOffsets = new long[1024];
+  private int numFrames = 0;
+  private long firstFrameTime;
+  private boolean finished = false;
+
+  /**
+   * Creates a new saver. The file is created when the first frame is saved.
+   *
+   * @param file the file to save to
+   */
+  public MjpegStreamSaver(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Saves a single JPEG image.
+   *
+   * @param jpeg        an array containing the JPEG image
+   * @param length      the size of the JPEG image, in bytes
+   * @param captureTime the time at which the image was captured, as given by {@link System#nanoTime()}
+   *
+   * @return the index of the saved frame in the file
+   *
+   * @throws IOException if the image could not be written
+   */
+  public synchronized int saveFrame(byte[] jpeg, int length, long captureTime) throws IOException {
+    if (finished) {
+      throw new IOException("Saver for " + file + " has already finished");
+    }
+    if (channel == null) {
+      open();
+      firstFrameTime = captureTime;
+    }
+    if (numFrames == frameOffsets.length) {
+      frameOffsets = Arrays.copyOf(frameOffsets, numFrames * 2);
+    }
+    frameOffsets[numFrames] = position;
+    frameHeader.clear();
+    frameHeader.putInt(length);
+    frameHeader.putLong((captureTime - firstFrameTime) / 1000);
+    frameHeader.flip();
+    write(frameHeader);
+    write(ByteBuffer.wrap(jpeg, 0, length));
+    return numFrames++;
+  }
+
+  private void open() throws IOException {
+    channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC);
+    header.putInt(VERSION);
+    header.flip();
+    position = 0;
+    write(header);
+  }
+
+  private void write(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer);
+    }
+  }
+
+  /**
+   * Gets the number of frames that have been saved.
+   */
+  public synchronized int getNumFrames() {
+    return numFrames;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Writes the frame index and closes the file. No more frames can be saved after this is called.
+   *
+   * @throws IOException if the index could not be written
+   */
+  public synchronized void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    if (channel == null) {
+      // No frames were saved
+      return;
+    }
+    try {
+      final long indexPosition = position;
+      ByteBuffer index = ByteBuffer.allocate(numFrames * Long.BYTES + TRAILER_SIZE);
+      for (int i = 0; i < numFrames; i++) {
+        index.putLong(frameOffsets[i]);
+      }
+      index.putInt(numFrames);
+      index.putLong(indexPosition);
+      index.putInt(MAGIC);
+      index.flip();
+      write(index);
+    } finally {
+      channel.close();
+    }
+  }
+
+}
@@ -0,0 +1,73 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import edu.wpi.first.shuffleboard.api.util.SharedExecutors;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Finishes recorded files on a background thread, so that recording can move on to a new file without waiting for the
+ * previous one to be written out.
+ */
+final class SegmentFinalizer {
+
+  private static final Logger log = Logger.getLogger(SegmentFinalizer.class.getName());
+
+  /**
+   * A task that finishes a file.
+   */
+  @FunctionalInterface
+  interface Task {
+    void run() throws IOException;
+  }
+
+  private final List<Future<?>> pending = new ArrayList<>(); // Guarded by itself
+
+  /**
+   * Finishes a file in the background.
+   *
+   * @param description a description of the file, used if it could not be finished
+   * @param task        the task that finishes the file
+   */
+  void submit(String description, Task task) {
+    final Future<?> future = SharedExecutors.getBlockingExecutor().submit(() -> {
+      try {
+        task.run();
+      } catch (IOException | RuntimeException e) {
+        log.log(Level.WARNING, "Could not finish " + description, e);
+      }
+    });
+    synchronized (pending) {
+      pending.removeIf(Future::isDone);
+      pending.add(future);
+    }
+  }
+
+  /**
+   * Waits for every file that is being finished in the background.
+   */
+  void awaitAll() {
+    final List<Future<?>> futures;
+    synchronized (pending) {
+      futures = new ArrayList<>(pending);
+      pending.clear();
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        // Failures are logged by the task itself
+        log.log(Level.FINE, "Finishing a file failed", e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,84 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import java.util.Objects;
+
+/**
+ * Describes what a single viewer, such as a widget, needs from a camera stream. Camera sources use the demands of all
+ * their viewers to decide what resolution and frame rate to request from the camera.
+ *
+ * @see CameraServerSource#setViewerDemand(Object, StreamDemand)
+ */
+public final class StreamDemand {
+
+  /**
+   * A demand for the full stream, as set by the source's target resolution and FPS.
+   */
+  public static final StreamDemand FULL = new StreamDemand(true, Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+
+  /**
+   * The demand of a viewer that is not currently visible and does not need any images.
+   */
+  public static final StreamDemand HIDDEN = new StreamDemand(false, 0, 0, 0);
+
+  private final boolean visible;
+  private final int width;
+  private final int height;
+  private final int maxFps;
+
+  /**
+   * Creates a new demand.
+   *
+   * @param visible true if the viewer is visible and needs images
+   * @param width   the width the images are displayed at, in screen pixels
+   * @param height  the height the images are displayed at, in screen pixels
+   * @param maxFps  the highest frame rate the viewer can display, or 0 if it can keep up with any frame rate
+   */
+  public StreamDemand(boolean visible, int width, int height, int maxFps) {
+    this.visible = visible;
+    this.width = width;
+    this.height = height;
+    this.maxFps = maxFps;
+  }
+
+  public boolean isVisible() {
+    return visible;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getMaxFps() {
+    return maxFps;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    StreamDemand that = (StreamDemand) obj;
+    return this.visible == that.visible
+        && this.width == that.width
+        && this.height == that.height
+        && this.maxFps == that.maxFps;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(visible, width, height, maxFps);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("StreamDemand(visible=%s, size=%dx%d, maxFps=%d)", visible, width, height, maxFps);
+  }
+
+}
@@ -0,0 +1,135 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * An index of the finished video files (segments) recorded for a single camera stream. Every time a segment is
+ * finished, a line is appended to the index:
+ *
+ * <pre>
+ * &lt;file number&gt; &lt;number of frames&gt; &lt;width&gt; &lt;height&gt;
+ * </pre>
+ *
+ * <p>Segments are only added once they are completely written, so a segment that is missing from the index was still
+ * being recorded when the recording stopped unexpectedly. Such segments can still be read, since video files are
+ * written as fragmented MP4s, but may be missing their last few frames.
+ */
+final class VideoSegmentIndex {
+
+  private static final Logger log = Logger.getLogger(VideoSegmentIndex.class.getName());
+
+  private final File file;
+  private final Object appendLock = new Object();
+
+  /**
+   * Creates an index backed by a file. The file is created when the first segment is added.
+   *
+   * @param file the index file
+   */
+  VideoSegmentIndex(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Adds a finished segment to the index.
+   *
+   * @param segment the segment to add
+   *
+   * @throws IOException if the index file could not be written
+   */
+  void append(Segment segment) throws IOException {
+    synchronized (appendLock) {
+      try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+        writer.write(segment.getFileNum() + " " + segment.getFrameCount() + " "
+            + segment.getWidth() + " " + segment.getHeight() + "\n");
+      }
+    }
+  }
+
+  /**
+   * Reads every segment in the index.
+   *
+   * @return the segments in the index, by file number. This is empty if the index file does not exist
+   *
+   * @throws IOException if the index file could not be read
+   */
+  Map<Integer, Segment> read() throws IOException {
+    final Map<Integer, Segment> segments = new HashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final String[] parts = line.trim().split(" ");
+        if (parts.length != 4) {
+          // Probably a partially written line
+          log.warning("Ignoring malformed line in video segment index " + file + ": '" + line + "'");
+          continue;
+        }
+        try {
+          final Segment segment = new Segment(
+              Integer.parseInt(parts[0]),
+              Integer.parseInt(parts[1]),
+              Integer.parseInt(parts[2]),
+              Integer.parseInt(parts[3]));
+          segments.put(segment.getFileNum(), segment);
+        } catch (NumberFormatException e) {
+          log.warning("Ignoring malformed line in video segment index " + file + ": '" + line + "'");
+        }
+      }
+    } catch (NoSuchFileException e) {
+      return Collections.emptyMap();
+    }
+    return segments;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  /**
+   * A single finished video file.
+   */
+  static final class Segment {
+
+    private final int fileNum;
+    private final int frameCount;
+    private final int width;
+    private final int height;
+
+    Segment(int fileNum, int frameCount, int width, int height) {
+      this.fileNum = fileNum;
+      this.frameCount = frameCount;
+      this.width = width;
+      this.height = height;
+    }
+
+    int getFileNum() {
+      return fileNum;
+    }
+
+    int getFrameCount() {
+      return frameCount;
+    }
+
+    int getWidth() {
+      return width;
+    }
+
+    int getHeight() {
+      return height;
+    }
+
+  }
+
+}
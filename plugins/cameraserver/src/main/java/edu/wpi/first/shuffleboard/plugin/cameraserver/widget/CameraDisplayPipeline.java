@@ -0,0 +1,364 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.widget;
+
+import edu.wpi.first.shuffleboard.api.util.FxUtils;
+import edu.wpi.first.shuffleboard.api.util.SharedExecutors;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraTelemetry;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.widget.CameraServerWidget.Rotation;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Scene;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.stage.Window;
+
+/**
+ * Prepares camera images for display without doing any pixel work on the JavaFX application thread. Images are
+ * downscaled to the size they are shown at, rotated, and converted to BGRA on a worker thread, directly into one of
+ * three {@link PixelBuffer PixelBuffers} backed by direct byte buffers. The application thread only rotates the buffers
+ * and tells JavaFX that the new one has changed, at most once per pulse. Since the buffer that was shown before the
+ * current one is not written to until the next image is shown, the worker never writes to a buffer that JavaFX may
+ * still be uploading from the previous pulse.
+ *
+ * <p>Submitted images are copied, since sources overwrite their images in place. Only the most recent image is
+ * displayed; images that arrive while an earlier one is still being prepared or is waiting to be shown are skipped.
+ */
+final class CameraDisplayPipeline {
+
+  private static final Logger log = Logger.getLogger(CameraDisplayPipeline.class.getName());
+
+  // Threads are only kept alive while images are arriving
+  private static final ExecutorService workers = SharedExecutors.getBlockingExecutor();
+
+  private final ImageView view;
+  private final Object lock = new Object();
+
+  // Guarded by lock
+  private Mat pending;
+  private Rotation pendingRotation;
+  private boolean processing = false;
+  private boolean backBufferReady = false;
+  private long generation = 0;
+  private long backBufferGeneration = 0;
+  private long backBufferReadyTime = 0;
+  private DisplayBuffer front; // Currently shown
+  private DisplayBuffer previous; // Shown before the front buffer; not written to until the next image is shown
+  private DisplayBuffer back; // Written to by the worker
+  private final Deque<Mat> spareImages = new ArrayDeque<>(); // Copies of submitted images that can be reused
+
+  // Only used by the worker preparing an image
+  private final Mat scaled = new Mat();
+  private final Mat rotated = new Mat();
+
+  private volatile int viewWidth = 0;
+  private volatile int viewHeight = 0;
+
+  private final LongAdder submittedCount = new LongAdder();
+  private final LongAdder presentedCount = new LongAdder();
+  private volatile CameraTelemetry telemetry;
+
+  // Started when an image is ready; shows it on the next pulse, then stops until the next image is ready
+  private final AnimationTimer presenter = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      stop();
+      present();
+    }
+  };
+
+  /**
+   * Creates a new pipeline.
+   *
+   * @param view the image view to display images in
+   */
+  CameraDisplayPipeline(ImageView view) {
+    this.view = view;
+  }
+
+  /**
+   * Queues an image to be displayed. This may be called from any thread. The image is copied, so the caller is free to
+   * reuse it once this method returns.
+   *
+   * @param image    the image to display. Must have 8 bits per channel and either 1 or 3 channels
+   * @param rotation how to rotate the image
+   */
+  void submit(Mat image, Rotation rotation) {
+    if (image.empty()) {
+      return;
+    }
+    Mat copy;
+    synchronized (lock) {
+      copy = spareImages.poll();
+    }
+    if (copy == null) {
+      copy = new Mat();
+    }
+    image.copyTo(copy);
+    submittedCount.increment();
+    synchronized (lock) {
+      if (pending != null) {
+        recycle(pending);
+        recordDropped();
+      }
+      pending = copy;
+      pendingRotation = rotation;
+      scheduleIfIdle();
+    }
+  }
+
+  /**
+   * Discards any images waiting to be displayed. Images that are currently being prepared will not be shown.
+   */
+  void clear() {
+    synchronized (lock) {
+      generation++;
+      if (pending != null) {
+        recycle(pending);
+        pending = null;
+      }
+    }
+  }
+
+  /**
+   * Keeps a copied image around to be reused by a later submission. Must be called while holding the lock.
+   */
+  private void recycle(Mat image) {
+    // One image can be pending and one can be processed at a time, so more spares than that are never needed
+    if (spareImages.size() < 2) {
+      spareImages.push(image);
+    } else {
+      image.release();
+    }
+  }
+
+  /**
+   * Sets the size of the area the images are shown in. Images larger than this are downscaled before being displayed.
+   * Must be called from the JavaFX application thread.
+   *
+   * @param width  the width of the display area, in layout coordinates
+   * @param height the height of the display area, in layout coordinates
+   */
+  void setViewSize(double width, double height) {
+    final Scene scene = view.getScene();
+    final Window window = scene == null ? null : scene.getWindow();
+    final double scaleX = window == null ? 1 : window.getOutputScaleX();
+    final double scaleY = window == null ? 1 : window.getOutputScaleY();
+    viewWidth = (int) Math.ceil(width * scaleX);
+    viewHeight = (int) Math.ceil(height * scaleY);
+  }
+
+  /**
+   * Gets the width of the area images are shown in, in pixels, or 0 if it is not yet known.
+   */
+  int getViewWidth() {
+    return viewWidth;
+  }
+
+  /**
+   * Gets the height of the area images are shown in, in pixels, or 0 if it is not yet known.
+   */
+  int getViewHeight() {
+    return viewHeight;
+  }
+
+  /**
+   * Sets the telemetry to record display latencies and frame counts in.
+   *
+   * @param telemetry the telemetry of the camera whose images are being displayed, or {@code null} to not record any
+   */
+  void setTelemetry(CameraTelemetry telemetry) {
+    this.telemetry = telemetry;
+  }
+
+  private void recordDropped() {
+    final CameraTelemetry current = telemetry;
+    if (current != null) {
+      current.increment(CameraTelemetry.Counter.DROPPED);
+    }
+  }
+
+  private void scheduleIfIdle() {
+    if (!processing && !backBufferReady && pending != null) {
+      processing = true;
+      workers.execute(this::process);
+    }
+  }
+
+  /**
+   * Prepares the most recently submitted image in the back buffer. Runs on a worker thread.
+   */
+  private void process() {
+    final Mat image;
+    final Rotation rotation;
+    final long imageGeneration;
+    DisplayBuffer target;
+    synchronized (lock) {
+      image = pending;
+      rotation = pendingRotation;
+      imageGeneration = generation;
+      target = back;
+      pending = null;
+    }
+    boolean ready = false;
+    if (image != null) {
+      try {
+        final long start = System.nanoTime();
+        target = render(image, rotation, target);
+        ready = true;
+        final CameraTelemetry current = telemetry;
+        if (current != null) {
+          current.recordLatency(CameraTelemetry.Stage.CONVERT, System.nanoTime() - start);
+        }
+      } catch (RuntimeException e) {
+        log.log(Level.WARNING, "Could not prepare camera image for display", e);
+      }
+    }
+    synchronized (lock) {
+      if (image != null) {
+        recycle(image);
+      }
+      processing = false;
+      back = target;
+      if (ready && imageGeneration == generation) {
+        backBufferReady = true;
+        backBufferGeneration = imageGeneration;
+        backBufferReadyTime = System.nanoTime();
+        FxUtils.runOnFxThread(presenter::start);
+      } else {
+        scheduleIfIdle();
+      }
+    }
+  }
+
+  private DisplayBuffer render(Mat image, Rotation rotation, DisplayBuffer target) {
+    final boolean quarterTurn = rotation == Rotation.QUARTER_CW || rotation == Rotation.QUARTER_CCW;
+    final int rotatedWidth = quarterTurn ? image.rows() : image.cols();
+    final int rotatedHeight = quarterTurn ? image.cols() : image.rows();
+
+    // Shrink to fit the view first, so rotation and color conversion have fewer pixels to work on
+    Mat source = image;
+    final int maxWidth = viewWidth;
+    final int maxHeight = viewHeight;
+    if (maxWidth > 0 && maxHeight > 0 && (rotatedWidth > maxWidth || rotatedHeight > maxHeight)) {
+      final double scale = Math.min((double) maxWidth / rotatedWidth, (double) maxHeight / rotatedHeight);
+      final Size size = new Size(
+          Math.max(1, Math.round(image.cols() * scale)),
+          Math.max(1, Math.round(image.rows() * scale)));
+      Imgproc.resize(image, scaled, size, 0, 0, Imgproc.INTER_AREA);
+      source = scaled;
+    }
+    source = rotation.rotate(source, rotated);
+
+    DisplayBuffer buffer = target;
+    if (buffer == null || buffer.width != source.cols() || buffer.height != source.rows()) {
+      if (buffer != null) {
+        buffer.release();
+      }
+      buffer = new DisplayBuffer(source.cols(), source.rows());
+    }
+    switch (source.channels()) {
+      case 1:
+        Imgproc.cvtColor(source, buffer.mat, Imgproc.COLOR_GRAY2BGRA);
+        break;
+      case 3:
+        Imgproc.cvtColor(source, buffer.mat, Imgproc.COLOR_BGR2BGRA);
+        break;
+      default:
+        throw new UnsupportedOperationException("Only 1 or 3-channel images are supported");
+    }
+    return buffer;
+  }
+
+  /**
+   * Shows the image in the back buffer and rotates the buffers. Runs on the JavaFX application thread.
+   */
+  private void present() {
+    final DisplayBuffer ready;
+    final long readyTime;
+    synchronized (lock) {
+      if (!backBufferReady) {
+        return;
+      }
+      if (backBufferGeneration != generation) {
+        // Cleared while waiting to be shown
+        backBufferReady = false;
+        scheduleIfIdle();
+        return;
+      }
+      ready = back;
+      readyTime = backBufferReadyTime;
+    }
+    ready.pixels.updateBuffer(__ -> null);
+    view.setImage(ready.image);
+    presentedCount.increment();
+    final CameraTelemetry current = telemetry;
+    if (current != null) {
+      current.recordLatency(CameraTelemetry.Stage.RENDER, System.nanoTime() - readyTime);
+      current.increment(CameraTelemetry.Counter.DISPLAYED);
+    }
+    synchronized (lock) {
+      back = previous;
+      previous = front;
+      front = ready;
+      backBufferReady = false;
+      scheduleIfIdle();
+    }
+  }
+
+  /**
+   * Gets the number of images that have been submitted for display.
+   */
+  long getSubmittedCount() {
+    return submittedCount.sum();
+  }
+
+  /**
+   * Gets the number of images that have been displayed. This is lower than the number of submitted images when images
+   * arrive faster than they can be displayed.
+   */
+  long getPresentedCount() {
+    return presentedCount.sum();
+  }
+
+  /**
+   * A BGRA image that can be written to by OpenCV and displayed by JavaFX without copying.
+   */
+  private static final class DisplayBuffer {
+
+    private final int width;
+    private final int height;
+    private final PixelBuffer<ByteBuffer> pixels;
+    private final WritableImage image;
+    private final Mat mat; // Shares memory with the pixel buffer
+
+    DisplayBuffer(int width, int height) {
+      this.width = width;
+      this.height = height;
+      ByteBuffer bytes = ByteBuffer.allocateDirect(width * height * 4);
+      pixels = new PixelBuffer<>(width, height, bytes, PixelFormat.getByteBgraPreInstance());
+      image = new WritableImage(pixels);
+      mat = new Mat(height, width, CvType.CV_8UC4, bytes);
+    }
+
+    void release() {
+      // Only releases the header; the pixel data belongs to the byte buffer
+      mat.release();
+    }
+
+  }
+
+}
@@ -4,22 +4,28 @@ import edu.wpi.first.shuffleboard.api.components.IntegerField;
 import edu.wpi.first.shuffleboard.api.prefs.Group;
 import edu.wpi.first.shuffleboard.api.prefs.Setting;
 import edu.wpi.first.shuffleboard.api.properties.SavePropertyFrom;
+import edu.wpi.first.shuffleboard.api.util.FxUtils;
+import edu.wpi.first.shuffleboard.api.util.SharedExecutors;
 import edu.wpi.first.shuffleboard.api.widget.Description;
 import edu.wpi.first.shuffleboard.api.widget.ParametrizedController;
 import edu.wpi.first.shuffleboard.api.widget.SimpleAnnotatedWidget;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.data.CameraServerData;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.data.LazyCameraServerData;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.data.Resolution;
-import edu.wpi.first.shuffleboard.plugin.cameraserver.recording.serialization.ImageConverter;
 import edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraServerSource;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.source.StreamDemand;
 
 import com.google.common.collect.ImmutableList;
 import com.jfoenix.controls.JFXSlider;
 
-import org.fxmisc.easybind.EasyBind;
 import org.opencv.core.Core;
 import org.opencv.core.Mat;
 
+import java.lang.ref.WeakReference;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.Property;
@@ -28,11 +34,13 @@ import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
+import javafx.stage.Window;
 
 @Description(name = "Camera Stream", dataTypes = CameraServerData.class)
 @ParametrizedController("CameraServerWidget.fxml")
@@ -68,13 +76,24 @@ public class CameraServerWidget extends SimpleAnnotatedWidget<CameraServerData>
   @FXML
   private Node crosshairs;
 
-  private final Mat displayMat = new Mat();
-  private final ImageConverter converter = new ImageConverter();
+  private CameraDisplayPipeline displayPipeline;
+
+  // How often to tell the source what this widget needs from the stream
+  private static final long STREAM_DEMAND_PERIOD_MS = 1000;
+  // Limit the stream FPS if more than this fraction of frames could not be displayed
+  private static final double MAX_SKIPPED_FRAME_FRACTION = 0.1;
+  private long lastSubmittedCount = 0;
+  private long lastPresentedCount = 0;
+  private long lastDemandUpdate = System.nanoTime();
+  // The highest frame rate this widget has been able to display, or 0 if it has kept up with the stream. Only reset
+  // when the widget is resized or hidden, so the stream doesn't keep switching between a fast and a slow frame rate
+  private int renderFpsLimit = 0;
 
   private final BooleanProperty showControls = new SimpleBooleanProperty(this, "showControls", true);
   private final BooleanProperty showCrosshair = new SimpleBooleanProperty(this, "showCrosshair", true);
   private final Property<Color> crosshairColor = new SimpleObjectProperty<>(this, "crosshairColor", Color.WHITE);
   private final Property<Rotation> rotation = new SimpleObjectProperty<>(this, "rotation", Rotation.NONE);
+  private final BooleanProperty adaptiveStream = new SimpleBooleanProperty(this, "adaptiveStream", false);
   private final ChangeListener<Number> sourceCompressionListener =
       (__, old, compression) -> compressionSlider.setValue(compression.doubleValue());
   private final ChangeListener<Number> numberChangeListener =
@@ -87,15 +106,19 @@ public class CameraServerWidget extends SimpleAnnotatedWidget<CameraServerData>
 
   @FXML
   private void initialize() {
-    imageView.imageProperty().bind(EasyBind.combine(dataOrDefault, rotation, (data, rotation) -> {
-      if (data.getImage() == null) {
-        return emptyImage;
-      } else {
-        data.getImage().copyTo(displayMat);
-        rotation.rotate(displayMat);
-        return converter.convert(displayMat);
-      }
-    }));
+    displayPipeline = new CameraDisplayPipeline(imageView);
+    imageView.setImage(emptyImage);
+    dataOrDefault.addListener((__, old, data) -> showImage());
+    rotation.addListener((__, old, rotation) -> showImage());
+    ChangeListener<Number> viewSizeListener = (__, old, size) -> {
+      displayPipeline.setViewSize(imageContainer.getWidth(), imageContainer.getHeight());
+      renderFpsLimit = 0;
+      showImage();
+    };
+    imageContainer.widthProperty().addListener(viewSizeListener);
+    imageContainer.heightProperty().addListener(viewSizeListener);
+    adaptiveStream.addListener((__, was, is) -> updateStreamDemand());
+    scheduleStreamDemandUpdates(this);
     fpsLabel.textProperty().bind(dataOrDefault.map(CameraServerData::getFps).map(fps -> {
       if (fps < 0) {
         return "--- FPS";
@@ -115,6 +138,8 @@ public class CameraServerWidget extends SimpleAnnotatedWidget<CameraServerData>
     height.setMaxValue(CameraServerSource.MAX_RESOLUTION.getHeight());
 
     sourceProperty().addListener((__, old, source) -> {
+      displayPipeline.setTelemetry(
+          source instanceof CameraServerSource ? ((CameraServerSource) source).getTelemetry() : null);
       if (source instanceof CameraServerSource) {
         CameraServerSource newSource = (CameraServerSource) source;
         if (source.hasClients()) {
@@ -131,6 +156,7 @@ public class CameraServerWidget extends SimpleAnnotatedWidget<CameraServerData>
       }
       if (old instanceof CameraServerSource) {
         CameraServerSource oldSource = (CameraServerSource) old;
+        oldSource.setViewerDemand(this, null);
         oldSource.targetCompressionProperty().removeListener(sourceCompressionListener);
         oldSource.targetFpsProperty().removeListener(numberChangeListener);
         oldSource.targetResolutionProperty().removeListener(resolutionChangeListener);
@@ -138,6 +164,99 @@ public class CameraServerWidget extends SimpleAnnotatedWidget<CameraServerData>
     });
   }
 
+  /**
+   * Displays the current image. Converting the image for display happens off the JavaFX application thread. During
+   * playback, recorded previews are shown instead of the full images when the widget is small enough.
+   */
+  private void showImage() {
+    CameraServerData data = dataOrDefault.getValue();
+    Mat image = data instanceof LazyCameraServerData
+        ? ((LazyCameraServerData) data).getImage(displayPipeline.getViewWidth(), displayPipeline.getViewHeight())
+        : data.getImage();
+    if (image == null || image.empty()) {
+      displayPipeline.clear();
+      imageView.setImage(emptyImage);
+    } else {
+      displayPipeline.submit(image, rotation.getValue());
+    }
+  }
+
+  /**
+   * Periodically updates the stream demand of a widget. Only keeps a weak reference to the widget, so widgets that are
+   * no longer used can still be garbage collected.
+   */
+  private static void scheduleStreamDemandUpdates(CameraServerWidget widget) {
+    final WeakReference<CameraServerWidget> widgetRef = new WeakReference<>(widget);
+    final AtomicReference<Future<?>> task = new AtomicReference<>();
+    task.set(SharedExecutors.getScheduler().scheduleAtFixedRate(() -> {
+      CameraServerWidget w = widgetRef.get();
+      if (w == null) {
+        task.get().cancel(false);
+      } else {
+        FxUtils.runOnFxThread(w::updateStreamDemand);
+      }
+    }, STREAM_DEMAND_PERIOD_MS, STREAM_DEMAND_PERIOD_MS, TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Tells the source what this widget needs from the camera stream. Widgets that do not adapt the stream always need
+   * the full stream; adaptive widgets need images no larger than they are shown at, at a frame rate they can keep up
+   * with, and only while they are visible.
+   */
+  private void updateStreamDemand() {
+    final long now = System.nanoTime();
+    final long submitted = displayPipeline.getSubmittedCount();
+    final long presented = displayPipeline.getPresentedCount();
+    final double seconds = (now - lastDemandUpdate) / 1e9;
+    final long newSubmitted = submitted - lastSubmittedCount;
+    final long newPresented = presented - lastPresentedCount;
+    lastDemandUpdate = now;
+    lastSubmittedCount = submitted;
+    lastPresentedCount = presented;
+
+    if (!(getSource() instanceof CameraServerSource)) {
+      return;
+    }
+    final CameraServerSource source = (CameraServerSource) getSource();
+    if (!isAdaptiveStream()) {
+      source.setViewerDemand(this, StreamDemand.FULL);
+      return;
+    }
+    if (!isShowing(root)) {
+      renderFpsLimit = 0;
+      source.setViewerDemand(this, StreamDemand.HIDDEN);
+      return;
+    }
+    if (seconds > 0 && newSubmitted - newPresented > newSubmitted * MAX_SKIPPED_FRAME_FRACTION) {
+      // Frames arrive faster than they can be shown
+      final int presentedFps = Math.max(1, (int) Math.ceil(newPresented / seconds));
+      renderFpsLimit = renderFpsLimit == 0 ? presentedFps : Math.min(renderFpsLimit, presentedFps);
+    }
+    final Window window = root.getScene().getWindow();
+    source.setViewerDemand(this, new StreamDemand(
+        true,
+        (int) Math.ceil(imageContainer.getWidth() * window.getOutputScaleX()),
+        (int) Math.ceil(imageContainer.getHeight() * window.getOutputScaleY()),
+        renderFpsLimit));
+  }
+
+  /**
+   * Checks if a node is currently shown on screen: it is in a window that is showing, and neither it nor any of its
+   * parents are hidden (as happens to the contents of unselected tabs).
+   */
+  private static boolean isShowing(Node node) {
+    final Scene scene = node.getScene();
+    if (scene == null || scene.getWindow() == null || !scene.getWindow().isShowing()) {
+      return false;
+    }
+    for (Node n = node; n != null; n = n.getParent()) {
+      if (!n.isVisible()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Override
   public List<Group> getSettings() {
     return ImmutableList.of(
@@ -147,7 +266,12 @@ public class CameraServerWidget extends SimpleAnnotatedWidget<CameraServerData>
         ),
         Group.of("Controls",
             Setting.of("Show controls", showControls, Boolean.class),
-            Setting.of("Rotation", rotation, Rotation.class)
+            Setting.of("Rotation", rotation, Rotation.class),
+            Setting.of("Adapt stream to widget",
+                "Automatically request smaller images and lower frame rates from the camera to match the size this"
+                    + " widget is shown at, and stop the stream when it is not visible. The resolution and FPS"
+                    + " controls set the upper limits",
+                adaptiveStream, Boolean.class)
         )
     );
   }
@@ -185,10 +309,10 @@ public class CameraServerWidget extends SimpleAnnotatedWidget<CameraServerData>
   }
 
   public enum Rotation {
-    NONE("None", image -> {}),
-    QUARTER_CW("90 degrees clockwise", image -> Core.rotate(image, image, Core.ROTATE_90_CLOCKWISE)),
-    QUARTER_CCW("90 degrees counter-clockwise", image -> Core.rotate(image, image, Core.ROTATE_90_COUNTERCLOCKWISE)),
-    HALF("180 degrees", image -> Core.rotate(image, image, Core.ROTATE_180));
+    NONE("None", (src, dst) -> src),
+    QUARTER_CW("90 degrees clockwise", (src, dst) -> rotate(src, dst, Core.ROTATE_90_CLOCKWISE)),
+    QUARTER_CCW("90 degrees counter-clockwise", (src, dst) -> rotate(src, dst, Core.ROTATE_90_COUNTERCLOCKWISE)),
+    HALF("180 degrees", (src, dst) -> rotate(src, dst, Core.ROTATE_180));
 
     private final String humanReadable;
     private final RotationStrategy rotationStrategy;
@@ -203,13 +327,26 @@ public class CameraServerWidget extends SimpleAnnotatedWidget<CameraServerData>
       return humanReadable;
     }
 
-    void rotate(Mat image) {
-      rotationStrategy.rotate(image);
+    /**
+     * Rotates an image.
+     *
+     * @param src the image to rotate. This is not modified
+     * @param dst the image to store the rotated image in
+     *
+     * @return the rotated image; either {@code dst}, or {@code src} if there is no rotation
+     */
+    Mat rotate(Mat src, Mat dst) {
+      return rotationStrategy.rotate(src, dst);
+    }
+
+    private static Mat rotate(Mat src, Mat dst, int rotateCode) {
+      Core.rotate(src, dst, rotateCode);
+      return dst;
     }
   }
 
   private interface RotationStrategy {
-    void rotate(Mat src);
+    Mat rotate(Mat src, Mat dst);
   }
 
   public boolean isShowControls() {
@@ -224,6 +361,18 @@ public class CameraServerWidget extends SimpleAnnotatedWidget<CameraServerData>
     this.showControls.set(showControls);
   }
 
+  public boolean isAdaptiveStream() {
+    return adaptiveStream.get();
+  }
+
+  public BooleanProperty adaptiveStreamProperty() {
+    return adaptiveStream;
+  }
+
+  public void setAdaptiveStream(boolean adaptiveStream) {
+    this.adaptiveStream.set(adaptiveStream);
+  }
+
   public boolean isShowCrosshair() {
     return showCrosshair.get();
   }
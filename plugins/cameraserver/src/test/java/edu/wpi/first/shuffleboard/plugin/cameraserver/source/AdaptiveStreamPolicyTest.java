@@ -0,0 +1,111 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import edu.wpi.first.shuffleboard.plugin.cameraserver.data.Resolution;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.source.AdaptiveStreamPolicy.Settings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveStreamPolicyTest {
+
+  private static final Resolution TARGET = new Resolution(640, 480);
+
+  private static Settings choose(int targetFps, StreamDemand... demands) {
+    return AdaptiveStreamPolicy.choose(TARGET, Resolution.EMPTY, targetFps, List.of(demands));
+  }
+
+  private static void assertResolution(int width, int height, Settings settings) {
+    assertAll(
+        () -> assertEquals(width, settings.getResolution().getWidth(), "Wrong width"),
+        () -> assertEquals(height, settings.getResolution().getHeight(), "Wrong height")
+    );
+  }
+
+  @Test
+  public void testNoDemandsUsesTargets() {
+    Settings settings = choose(30);
+    assertAll(
+        () -> assertResolution(640, 480, settings),
+        () -> assertEquals(30, settings.getFps()),
+        () -> assertFalse(settings.isPaused())
+    );
+  }
+
+  @Test
+  public void testFullDemandUsesTargets() {
+    Settings settings = choose(30, StreamDemand.FULL);
+    assertAll(
+        () -> assertResolution(640, 480, settings),
+        () -> assertEquals(30, settings.getFps()),
+        () -> assertFalse(settings.isPaused())
+    );
+  }
+
+  @Test
+  public void testAllHiddenPauses() {
+    assertTrue(choose(30, StreamDemand.HIDDEN, StreamDemand.HIDDEN).isPaused());
+  }
+
+  @Test
+  public void testHiddenDemandsAreIgnored() {
+    Settings settings = choose(30, StreamDemand.HIDDEN, new StreamDemand(true, 300, 200, 0));
+    assertAll(
+        () -> assertFalse(settings.isPaused()),
+        () -> assertResolution(320, 240, settings)
+    );
+  }
+
+  @Test
+  public void testSmallViewerDownscalesToMinimumWidth() {
+    assertResolution(160, 120, choose(30, new StreamDemand(true, 10, 10, 0)));
+  }
+
+  @Test
+  public void testLargestViewerWins() {
+    Settings settings = choose(30, new StreamDemand(true, 100, 100, 0), new StreamDemand(true, 500, 300, 0));
+    assertResolution(640, 480, settings);
+  }
+
+  @Test
+  public void testNativeResolutionUsedWithoutTarget() {
+    Settings settings = AdaptiveStreamPolicy.choose(
+        Resolution.EMPTY, new Resolution(1280, 720), 0, List.of(new StreamDemand(true, 400, 200, 0)));
+    assertResolution(640, 360, settings);
+  }
+
+  @Test
+  public void testUnknownNativeResolutionWithoutTarget() {
+    Settings settings = AdaptiveStreamPolicy.choose(
+        Resolution.EMPTY, Resolution.EMPTY, 0, List.of(new StreamDemand(true, 400, 200, 0)));
+    assertResolution(0, 0, settings);
+  }
+
+  @Test
+  public void testFpsRoundedUpToStep() {
+    assertEquals(15, choose(30, new StreamDemand(true, 640, 480, 12)).getFps());
+  }
+
+  @Test
+  public void testFpsNeverAboveTarget() {
+    assertEquals(8, choose(8, new StreamDemand(true, 640, 480, 9)).getFps());
+  }
+
+  @Test
+  public void testUnlimitedViewerKeepsTargetFps() {
+    assertEquals(30, choose(30, new StreamDemand(true, 640, 480, 5), new StreamDemand(true, 640, 480, 0)).getFps());
+  }
+
+  @Test
+  public void testSmallChangesKeepSameStream() {
+    Settings first = choose(30, new StreamDemand(true, 200, 150, 11));
+    Settings second = choose(30, new StreamDemand(true, 230, 170, 14));
+    assertTrue(first.isSameStream(second));
+  }
+
+}
@@ -0,0 +1,174 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CachedFrameReaderTest {
+
+  private static final int FRAME_SIZE = 4 * 4 * 3; // 4x4 pixels, 3 bytes per pixel
+  private static final int NUM_FRAMES = 20;
+
+  private final List<Integer> decoded = new CopyOnWriteArrayList<>();
+  private CachedFrameReader reader;
+
+  @BeforeAll
+  public static void loadOpenCv() {
+    Loader.load(opencv_java.class);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    if (reader != null) {
+      reader.close();
+    }
+  }
+
+  private Mat decode(int fileNum, int frameNum) {
+    if (frameNum >= NUM_FRAMES) {
+      return null;
+    }
+    decoded.add(frameNum);
+    return new Mat(4, 4, CvType.CV_8UC3, new Scalar(frameNum, fileNum, 0));
+  }
+
+  /**
+   * Creates a reader that reads ahead on the calling thread, so read-ahead has finished by the time a read returns.
+   */
+  private CachedFrameReader createReader(int framesInBudget, int readAhead) {
+    return new CachedFrameReader("Camera", this::decode, (long) framesInBudget * FRAME_SIZE, readAhead, Runnable::run);
+  }
+
+  private static double valueOf(Mat image) {
+    return image.get(0, 0)[0];
+  }
+
+  @Test
+  public void testCachedFrameIsNotDecodedAgain() throws IOException {
+    reader = createReader(10, 0);
+    Mat first = reader.readFrame(0, 3);
+    Mat second = reader.readFrame(0, 3);
+    assertAll(
+        () -> assertEquals(List.of(3), decoded),
+        () -> assertEquals(3, valueOf(first)),
+        () -> assertEquals(3, valueOf(second)),
+        () -> assertEquals(1, reader.getHitCount()),
+        () -> assertEquals(1, reader.getMissCount())
+    );
+    first.release();
+    second.release();
+  }
+
+  @Test
+  public void testFramesFromDifferentFilesAreDistinct() throws IOException {
+    reader = createReader(10, 0);
+    Mat first = reader.readFrame(0, 1);
+    Mat second = reader.readFrame(1, 1);
+    assertAll(
+        () -> assertEquals(0, first.get(0, 0)[1]),
+        () -> assertEquals(1, second.get(0, 0)[1]),
+        () -> assertEquals(2, reader.getMissCount())
+    );
+  }
+
+  @Test
+  public void testLeastRecentlyUsedFrameIsEvicted() throws IOException {
+    reader = createReader(2, 0);
+    reader.readFrame(0, 0).release();
+    reader.readFrame(0, 1).release();
+    reader.readFrame(0, 0).release(); // frame 1 is now the least recently used
+    reader.readFrame(0, 2).release();
+    reader.readFrame(0, 0).release();
+    reader.readFrame(0, 1).release();
+    assertAll(
+        () -> assertEquals(List.of(0, 1, 2, 1), decoded),
+        () -> assertEquals(2, reader.getCachedFrameCount()),
+        () -> assertEquals(2 * FRAME_SIZE, reader.getCachedBytes())
+    );
+  }
+
+  @Test
+  public void testEvictedFrameStillUsableByCaller() throws IOException {
+    reader = createReader(1, 0);
+    Mat image = reader.readFrame(0, 5);
+    reader.readFrame(0, 6).release();
+    reader.close();
+    assertEquals(5, valueOf(image));
+    image.release();
+  }
+
+  @Test
+  public void testFrameLargerThanBudgetIsNotCached() throws IOException {
+    reader = new CachedFrameReader("Camera", this::decode, FRAME_SIZE - 1, 0);
+    Mat image = reader.readFrame(0, 0);
+    assertAll(
+        () -> assertEquals(0, valueOf(image)),
+        () -> assertEquals(0, reader.getCachedFrameCount()),
+        () -> assertEquals(0, reader.getCachedBytes())
+    );
+    image.release();
+  }
+
+  @Test
+  public void testMissingFrame() throws IOException {
+    reader = createReader(10, 0);
+    assertAll(
+        () -> assertNull(reader.readFrame(0, NUM_FRAMES)),
+        () -> assertEquals(0, reader.getCachedFrameCount())
+    );
+  }
+
+  @Test
+  public void testReadAheadForwards() throws IOException {
+    reader = createReader(10, 3);
+    reader.readFrame(0, 0).release();
+    assertEquals(3, reader.getPrefetchCount());
+    decoded.clear();
+    for (int i = 1; i <= 3; i++) {
+      reader.readFrame(0, i).release();
+    }
+    assertAll(
+        () -> assertEquals(3, reader.getHitCount()),
+        () -> assertTrue(decoded.stream().allMatch(frame -> frame > 3), "Read-ahead frames were decoded again")
+    );
+  }
+
+  @Test
+  public void testReadAheadBackwards() throws IOException {
+    reader = createReader(10, 3);
+    reader.readFrame(0, 10).release();
+    assertEquals(3, reader.getPrefetchCount()); // Frames 11 to 13, since playback starts out going forwards
+    reader.readFrame(0, 9).release();
+    assertEquals(6, reader.getPrefetchCount());
+    decoded.clear();
+    for (int i = 8; i >= 6; i--) {
+      reader.readFrame(0, i).release();
+    }
+    assertTrue(decoded.stream().noneMatch(frame -> frame >= 6 && frame <= 8),
+        "Frames before the current frame should have been read ahead, but decoded " + decoded);
+  }
+
+  @Test
+  public void testReadAheadStopsAtEndOfFile() throws IOException {
+    reader = createReader(10, 5);
+    reader.readFrame(0, NUM_FRAMES - 2).release();
+    assertEquals(1, reader.getPrefetchCount());
+    reader.close();
+    assertEquals(List.of(NUM_FRAMES - 2, NUM_FRAMES - 1), decoded);
+  }
+
+}
@@ -0,0 +1,172 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import edu.wpi.first.shuffleboard.plugin.cameraserver.data.CameraServerData;
+import edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraFrameEncoder.DropPolicy;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CameraFrameEncoderTest {
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final CountDownLatch firstFrameStarted = new CountDownLatch(1);
+  private final List<Long> written = new CopyOnWriteArrayList<>();
+  private final List<Double> writtenPixels = new CopyOnWriteArrayList<>();
+  private CameraFrameEncoder encoder;
+
+  @BeforeAll
+  public static void loadOpenCv() {
+    Loader.load(opencv_java.class);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    release.countDown();
+    if (encoder != null) {
+      encoder.close();
+    }
+  }
+
+  /**
+   * Creates an encoder whose writer blocks until {@link #release} is counted down.
+   */
+  private CameraFrameEncoder blockingEncoder(int capacity, DropPolicy dropPolicy) {
+    return new CameraFrameEncoder("Camera", capacity, dropPolicy, (frame, grabTime) -> {
+      firstFrameStarted.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      written.add(grabTime);
+      writtenPixels.add(frame.getImage().get(0, 0)[0]);
+    });
+  }
+
+  private boolean submit(long grabTime) {
+    Mat image = new Mat(4, 4, CvType.CV_8UC3, new Scalar(grabTime, 0, 0));
+    try {
+      return encoder.submit(new CameraServerData("Camera", null, 30, 0), image, grabTime);
+    } finally {
+      image.release();
+    }
+  }
+
+  /**
+   * Submits a frame and waits for the encoder thread to take it out of the queue.
+   */
+  private void submitAndWaitForWriter() throws InterruptedException {
+    assertTrue(submit(0), "First frame should be accepted");
+    assertTrue(firstFrameStarted.await(5, TimeUnit.SECONDS), "Encoder never started writing");
+  }
+
+  /**
+   * Closes the encoder and waits for it to write every frame left in its queue.
+   */
+  private void finishEncoding() throws InterruptedException {
+    encoder.close();
+    assertTrue(encoder.awaitTermination(5, TimeUnit.SECONDS), "Encoder never finished writing");
+  }
+
+  @Test
+  public void testFramesAreWrittenInOrder() throws InterruptedException {
+    encoder = blockingEncoder(8, DropPolicy.DROP_OLDEST);
+    release.countDown();
+    for (int i = 0; i < 5; i++) {
+      assertTrue(submit(i));
+    }
+    finishEncoding();
+    assertAll(
+        () -> assertEquals(List.of(0L, 1L, 2L, 3L, 4L), written),
+        () -> assertEquals(List.of(0.0, 1.0, 2.0, 3.0, 4.0), writtenPixels, "Images should be copied on submit"),
+        () -> assertEquals(5, encoder.getSubmittedCount()),
+        () -> assertEquals(5, encoder.getEncodedCount()),
+        () -> assertEquals(0, encoder.getDroppedCount())
+    );
+  }
+
+  @Test
+  public void testDropNewest() throws InterruptedException {
+    encoder = blockingEncoder(2, DropPolicy.DROP_NEWEST);
+    submitAndWaitForWriter();
+    assertTrue(submit(1));
+    assertTrue(submit(2));
+    assertFalse(submit(3), "Queue is full, so the new frame should be dropped");
+    release.countDown();
+    finishEncoding();
+    assertAll(
+        () -> assertEquals(List.of(0L, 1L, 2L), written),
+        () -> assertEquals(4, encoder.getSubmittedCount()),
+        () -> assertEquals(3, encoder.getEncodedCount()),
+        () -> assertEquals(1, encoder.getDroppedCount())
+    );
+  }
+
+  @Test
+  public void testDropOldest() throws InterruptedException {
+    encoder = blockingEncoder(2, DropPolicy.DROP_OLDEST);
+    submitAndWaitForWriter();
+    assertTrue(submit(1));
+    assertTrue(submit(2));
+    assertTrue(submit(3), "Queue is full, so the oldest frame should be dropped");
+    release.countDown();
+    finishEncoding();
+    assertAll(
+        () -> assertEquals(List.of(0L, 2L, 3L), written),
+        () -> assertEquals(List.of(0.0, 2.0, 3.0), writtenPixels),
+        () -> assertEquals(4, encoder.getSubmittedCount()),
+        () -> assertEquals(3, encoder.getEncodedCount()),
+        () -> assertEquals(1, encoder.getDroppedCount())
+    );
+  }
+
+  @Test
+  public void testBlock() throws InterruptedException {
+    encoder = blockingEncoder(1, DropPolicy.BLOCK);
+    submitAndWaitForWriter();
+    assertTrue(submit(1));
+    final CountDownLatch submitted = new CountDownLatch(1);
+    Thread submitter = new Thread(() -> {
+      submit(2);
+      submitted.countDown();
+    });
+    submitter.start();
+    assertFalse(submitted.await(100, TimeUnit.MILLISECONDS), "Submit should block while the queue is full");
+    release.countDown();
+    assertTrue(submitted.await(5, TimeUnit.SECONDS), "Submit should complete once the queue has room");
+    finishEncoding();
+    assertAll(
+        () -> assertEquals(List.of(0L, 1L, 2L), written),
+        () -> assertEquals(0, encoder.getDroppedCount())
+    );
+  }
+
+  @Test
+  public void testCloseWritesRemainingFrames() throws InterruptedException {
+    encoder = blockingEncoder(4, DropPolicy.DROP_OLDEST);
+    submitAndWaitForWriter();
+    assertTrue(submit(1));
+    encoder.close();
+    assertFalse(submit(2), "Closed encoder should not accept frames");
+    release.countDown();
+    assertTrue(encoder.awaitTermination(5, TimeUnit.SECONDS), "Encoder never finished writing");
+    assertEquals(List.of(0L, 1L), written);
+  }
+
+}
@@ -0,0 +1,47 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CameraServerSourceTest {
+
+  private final Object viewer = new Object();
+  private CameraServerSource source;
+
+  @BeforeEach
+  public void setup() {
+    source = new CameraServerSource("CameraServerSourceTest");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    source.close();
+  }
+
+  @Test
+  public void testPausedSourceDoesNotGrabFrames() {
+    source.reEnable();
+    assertTrue(source.isGrabbingFrames(), "Frames should be grabbed when no viewer has set a demand");
+
+    source.setViewerDemand(viewer, StreamDemand.HIDDEN);
+    source.applyStreamSettings();
+    assertAll(
+        () -> assertTrue(source.isStreamPaused(), "Stream should be paused when no viewer is visible"),
+        () -> assertFalse(source.isGrabbingFrames(), "Paused stream should not grab frames")
+    );
+
+    // eg the dashboard switches to recording mode
+    source.reEnable();
+    assertFalse(source.isGrabbingFrames(), "Re-enabling a paused stream should not grab frames");
+
+    source.setViewerDemand(viewer, StreamDemand.FULL);
+    source.applyStreamSettings();
+    assertTrue(source.isGrabbingFrames(), "Frames should be grabbed again once a viewer is visible");
+  }
+
+}
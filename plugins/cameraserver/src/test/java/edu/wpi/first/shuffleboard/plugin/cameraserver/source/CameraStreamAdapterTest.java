@@ -20,6 +20,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.logging.Logger;
 
+import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraStreamAdapter.previewFilePath;
+import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraStreamAdapter.segmentIndexPath;
 import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraStreamAdapter.videoFilePath;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -133,6 +135,20 @@ public class CameraStreamAdapterTest {
     );
   }
 
+  @Test
+  public void testPreviewFileName() {
+    assertEquals(
+        new File("foo/bar-a b c.3.preview.mp4").getAbsolutePath(),
+        previewFilePath(new File("foo/bar.sbr"), "a b c", 3));
+  }
+
+  @Test
+  public void testSegmentIndexFileName() {
+    assertEquals(
+        new File("foo/bar-a b c.segments").getAbsolutePath(),
+        segmentIndexPath(new File("foo/bar.sbr"), "a b c"));
+  }
+
   private void deleteTempFiles(File file) {
     if (System.getenv("CI") != null) {
       // On a CI platform, don't need to clean up
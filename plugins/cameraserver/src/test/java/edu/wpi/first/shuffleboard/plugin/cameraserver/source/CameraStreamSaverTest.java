@@ -0,0 +1,83 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import edu.wpi.first.shuffleboard.plugin.cameraserver.data.Resolution;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraStreamSaver.MAX_FILE_NUM;
+import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraStreamSaver.MAX_FRAMES_PER_SEGMENT;
+import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraStreamSaver.isSegmentFull;
+import static edu.wpi.first.shuffleboard.plugin.cameraserver.source.CameraStreamSaver.previewResolution;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CameraStreamSaverTest {
+
+  @Test
+  public void testSegmentFullAfterDuration() {
+    Duration duration = Duration.ofSeconds(60);
+    assertAll(
+        () -> assertFalse(isSegmentFull(duration, 0, 100, TimeUnit.SECONDS.toNanos(59))),
+        () -> assertTrue(isSegmentFull(duration, 0, 100, TimeUnit.SECONDS.toNanos(60))),
+        () -> assertFalse(isSegmentFull(duration, 0, 0, TimeUnit.SECONDS.toNanos(60)), "Empty segment was full")
+    );
+  }
+
+  @Test
+  public void testSegmentFullAfterMaxFrames() {
+    assertAll(
+        () -> assertTrue(isSegmentFull(Duration.ZERO, 0, MAX_FRAMES_PER_SEGMENT, 0)),
+        () -> assertFalse(isSegmentFull(Duration.ZERO, 0, 100, TimeUnit.HOURS.toNanos(1)),
+            "Segment without a duration was full before reaching the frame limit")
+    );
+  }
+
+  @Test
+  public void testLastFileFullAfterMaxFrames() {
+    assertAll(
+        () -> assertTrue(isSegmentFull(Duration.ofSeconds(1), MAX_FILE_NUM, MAX_FRAMES_PER_SEGMENT, Long.MAX_VALUE)),
+        () -> assertTrue(isSegmentFull(Duration.ZERO, MAX_FILE_NUM, MAX_FRAMES_PER_SEGMENT + 1, 0))
+    );
+  }
+
+  @Test
+  public void testLastFileIgnoresDuration() {
+    assertFalse(isSegmentFull(Duration.ofSeconds(1), MAX_FILE_NUM, 100, TimeUnit.HOURS.toNanos(1)));
+  }
+
+  @Test
+  public void testPreviewResolutionKeepsAspectRatio() {
+    assertAll(
+        () -> assertResolution(256, 192, previewResolution(640, 480)),
+        () -> assertResolution(144, 256, previewResolution(180, 320)),
+        () -> assertResolution(256, 144, previewResolution(1920, 1080))
+    );
+  }
+
+  @Test
+  public void testPreviewResolutionNeverUpscales() {
+    assertResolution(160, 120, previewResolution(160, 120));
+  }
+
+  @Test
+  public void testPreviewResolutionIsEven() {
+    assertAll(
+        () -> assertResolution(256, 182, previewResolution(1280, 913)),
+        () -> assertResolution(2, 256, previewResolution(1, 1000)),
+        () -> assertResolution(96, 70, previewResolution(97, 71))
+    );
+  }
+
+  private static void assertResolution(int width, int height, Resolution actual) {
+    assertAll(
+        () -> assertEquals(width, actual.getWidth(), "Wrong width"),
+        () -> assertEquals(height, actual.getHeight(), "Wrong height")
+    );
+  }
+
+}
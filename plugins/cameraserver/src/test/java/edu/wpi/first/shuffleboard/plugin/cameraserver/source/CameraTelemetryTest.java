@@ -0,0 +1,56 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CameraTelemetryTest {
+
+  @Test
+  public void testSameTelemetryForSameCamera() {
+    assertSame(CameraTelemetry.forCamera("testSameTelemetryForSameCamera"),
+        CameraTelemetry.forCamera("testSameTelemetryForSameCamera"));
+  }
+
+  @Test
+  public void testSampleLatencies() {
+    CameraTelemetry telemetry = CameraTelemetry.forCamera("testSampleLatencies");
+    telemetry.recordLatency(CameraTelemetry.Stage.GRAB, TimeUnit.MILLISECONDS.toNanos(4));
+    Map<String, Double> values = telemetry.sample();
+    assertAll(
+        () -> assertEquals(4.0, values.get("grab/mean"), 1e-9),
+        () -> assertEquals(4.0, values.get("grab/max"), 1e-9),
+        () -> assertTrue(values.containsKey("grab/p50")),
+        () -> assertTrue(values.containsKey("grab/p95")),
+        () -> assertFalse(values.containsKey("encode/mean"), "Stages without frames should not be sampled")
+    );
+    assertFalse(telemetry.sample().containsKey("grab/mean"), "Latencies should be reset after sampling");
+  }
+
+  @Test
+  public void testSampleCounters() {
+    CameraTelemetry telemetry = CameraTelemetry.forCamera("testSampleCounters");
+    telemetry.increment(CameraTelemetry.Counter.GRABBED);
+    telemetry.increment(CameraTelemetry.Counter.GRABBED);
+    telemetry.increment(CameraTelemetry.Counter.DROPPED);
+    Map<String, Double> first = telemetry.sample();
+    telemetry.increment(CameraTelemetry.Counter.GRABBED);
+    Map<String, Double> second = telemetry.sample();
+    assertAll(
+        () -> assertEquals(2.0, first.get("frames/grabbed")),
+        () -> assertEquals(1.0, first.get("frames/dropped")),
+        () -> assertEquals(0.0, first.get("frames/encoded")),
+        () -> assertTrue(first.get("fps/grabbed") > 0),
+        () -> assertEquals(3.0, second.get("frames/grabbed")),
+        () -> assertEquals(0.0, second.get("fps/dropped"))
+    );
+  }
+
+}
@@ -0,0 +1,114 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.javacpp.indexer.UByteIndexer;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Measures the per-frame cost of moving a 1280x720 BGR image between an OpenCV mat and a JavaCV frame, in both
+ * directions, the way the stream saver and reader used to do it (copying through widened Java arrays) and the way they
+ * do it now (through shared native memory). Encoding and decoding are left out so only the handoff is measured.
+ *
+ * <p>Run with {@code ./gradlew :plugins:cameraserver:benchmark}.
+ */
+@Tag("Benchmark")
+public class FrameHandoffBenchmark {
+
+  private static final Logger log = Logger.getLogger(FrameHandoffBenchmark.class.getName());
+
+  private static final int WIDTH = 1280;
+  private static final int HEIGHT = 720;
+  private static final int WARMUP_FRAMES = 200;
+  private static final int MEASURED_FRAMES = 1000;
+
+  @BeforeAll
+  public static void loadOpenCv() {
+    Loader.load(opencv_java.class);
+  }
+
+  @Test
+  public void benchmarkSave() {
+    final Mat image = new Mat(HEIGHT, WIDTH, CvType.CV_8UC3, new Scalar(12, 34, 56));
+    final byte[] buffer = new byte[(int) (image.total() * image.channels())];
+    final int[] wideBuffer = new int[buffer.length];
+    final Frame legacyFrame = new Frame(WIDTH, HEIGHT, Frame.DEPTH_UBYTE, 3, WIDTH * 3);
+    final OpenCVFrameConverter.ToOrgOpenCvCoreMat converter = new OpenCVFrameConverter.ToOrgOpenCvCoreMat();
+
+    report("save", () -> {
+      image.get(0, 0, buffer);
+      for (int i = 0; i < buffer.length; i++) {
+        wideBuffer[i] = buffer[i] & 0xFF;
+      }
+      UByteIndexer indexer = legacyFrame.createIndexer();
+      indexer.put(0, wideBuffer).release();
+      return legacyFrame;
+    }, () -> converter.convert(image));
+
+    final byte[] expected = new byte[buffer.length];
+    final byte[] actual = new byte[buffer.length];
+    image.get(0, 0, expected);
+    ((ByteBuffer) converter.convert(image).image[0]).duplicate().get(actual);
+    assertArrayEquals(expected, actual, "Converted frame should have the same pixels as the image");
+    image.release();
+  }
+
+  @Test
+  public void benchmarkRead() {
+    final Frame frame = new Frame(WIDTH, HEIGHT, Frame.DEPTH_UBYTE, 3, WIDTH * 3);
+    final int size = WIDTH * HEIGHT * 3;
+    final int[] buffer = new int[size];
+    final byte[] narrowBuffer = new byte[size];
+    final Mat mat = new Mat(HEIGHT, WIDTH, CvType.CV_8UC3);
+    final OpenCVFrameConverter.ToOrgOpenCvCoreMat converter = new OpenCVFrameConverter.ToOrgOpenCvCoreMat();
+
+    report("read", () -> {
+      UByteIndexer indexer = frame.createIndexer();
+      indexer.get(0, buffer).release();
+      for (int i = 0; i < buffer.length; i++) {
+        narrowBuffer[i] = (byte) buffer[i];
+      }
+      mat.put(0, 0, narrowBuffer);
+      return release(mat.clone());
+    }, () -> release(converter.convert(frame).clone()));
+
+    mat.release();
+  }
+
+  private static Object release(Mat mat) {
+    mat.release();
+    return mat;
+  }
+
+  private static void report(String direction, Supplier<Object> legacy, Supplier<Object> shared) {
+    final double legacyNanos = nanosPerFrame(legacy);
+    final double sharedNanos = nanosPerFrame(shared);
+    log.info(String.format("Frame %s handoff (%dx%d BGR): widened copy %.3f ms/frame, shared memory %.3f ms/frame",
+        direction, WIDTH, HEIGHT, legacyNanos / 1e6, sharedNanos / 1e6));
+  }
+
+  private static double nanosPerFrame(Supplier<Object> handoff) {
+    for (int i = 0; i < WARMUP_FRAMES; i++) {
+      handoff.get();
+    }
+    final long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_FRAMES; i++) {
+      handoff.get();
+    }
+    return (System.nanoTime() - start) / (double) MEASURED_FRAMES;
+  }
+
+}
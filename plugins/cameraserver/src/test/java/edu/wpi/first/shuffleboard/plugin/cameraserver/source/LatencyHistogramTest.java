@@ -0,0 +1,87 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+  private static long millis(long millis) {
+    return TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  @Test
+  public void testBucketsCoverEveryLatency() {
+    for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT; bucket++) {
+      final long lower = LatencyHistogram.lowerBound(bucket);
+      assertEquals(bucket, LatencyHistogram.bucketFor(lower), "Wrong bucket for lower bound " + lower);
+      if (bucket > 0) {
+        assertEquals(bucket - 1, LatencyHistogram.bucketFor(lower - 1), "Wrong bucket for " + (lower - 1));
+      }
+    }
+    assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketFor(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testEmptySnapshot() {
+    LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshotAndReset();
+    assertAll(
+        () -> assertEquals(0, snapshot.getCount()),
+        () -> assertEquals(0, snapshot.getMean()),
+        () -> assertEquals(0, snapshot.getMax()),
+        () -> assertEquals(0, snapshot.getPercentile(95))
+    );
+  }
+
+  @Test
+  public void testStatistics() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(millis(i));
+    }
+    LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+    assertAll(
+        () -> assertEquals(100, snapshot.getCount()),
+        () -> assertEquals(millis(505) / 10.0, snapshot.getMean(), 1),
+        () -> assertEquals(millis(100), snapshot.getMax()),
+        () -> assertEquals(millis(50), snapshot.getPercentile(50), millis(50) * 0.125),
+        () -> assertEquals(millis(95), snapshot.getPercentile(95), millis(95) * 0.125),
+        () -> assertTrue(snapshot.getPercentile(100) <= millis(100), "Percentile is larger than the maximum")
+    );
+  }
+
+  @Test
+  public void testNegativeLatencyIgnored() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-1);
+    assertEquals(0, histogram.snapshotAndReset().getCount());
+  }
+
+  @Test
+  public void testSnapshotResets() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(millis(10));
+    histogram.snapshotAndReset();
+    histogram.record(millis(1));
+    LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+    assertAll(
+        () -> assertEquals(1, snapshot.getCount()),
+        () -> assertEquals(millis(1), snapshot.getMax())
+    );
+  }
+
+  @Test
+  public void testInvalidPercentile() {
+    LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshotAndReset();
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> snapshot.getPercentile(-1)),
+        () -> assertThrows(IllegalArgumentException.class, () -> snapshot.getPercentile(101))
+    );
+  }
+
+}
@@ -0,0 +1,113 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MjpegStreamSaverTest {
+
+  @TempDir
+  Path tempDir;
+
+  private static byte[] fakeJpeg(int size, int seed) {
+    byte[] jpeg = new byte[size];
+    for (int i = 0; i < size; i++) {
+      jpeg[i] = (byte) (seed + i);
+    }
+    return jpeg;
+  }
+
+  private File saveFrames(byte[]... frames) throws IOException {
+    File file = tempDir.resolve("recording-Camera.0.mjpeg").toFile();
+    MjpegStreamSaver saver = new MjpegStreamSaver(file);
+    for (int i = 0; i < frames.length; i++) {
+      assertEquals(i, saver.saveFrame(frames[i], frames[i].length, i * 33_000_000L));
+    }
+    saver.finish();
+    return file;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    final byte[] first = fakeJpeg(100, 1);
+    final byte[] second = fakeJpeg(70_000, 2); // larger than the reader's initial buffer
+    final byte[] third = fakeJpeg(1, 3);
+    MjpegStreamReader reader = new MjpegStreamReader(saveFrames(first, second, third));
+    assertAll(
+        () -> assertEquals(3, reader.getNumFrames()),
+        () -> assertArrayEquals(third, reader.readJpeg(2)),
+        () -> assertArrayEquals(first, reader.readJpeg(0)),
+        () -> assertArrayEquals(second, reader.readJpeg(1))
+    );
+    reader.finish();
+  }
+
+  @Test
+  public void testSaveOnlyPartOfArray() throws IOException {
+    final byte[] buffer = fakeJpeg(64, 5);
+    File file = tempDir.resolve("partial.mjpeg").toFile();
+    MjpegStreamSaver saver = new MjpegStreamSaver(file);
+    saver.saveFrame(buffer, 10, 0);
+    saver.finish();
+    MjpegStreamReader reader = new MjpegStreamReader(file);
+    assertEquals(10, reader.readJpeg(0).length);
+    reader.finish();
+  }
+
+  @Test
+  public void testUnfinishedFileCanBeRead() throws IOException {
+    final byte[] first = fakeJpeg(100, 1);
+    final byte[] second = fakeJpeg(200, 2);
+    File file = tempDir.resolve("unfinished.mjpeg").toFile();
+    MjpegStreamSaver saver = new MjpegStreamSaver(file);
+    saver.saveFrame(first, first.length, 0);
+    saver.saveFrame(second, second.length, 1);
+
+    // Simulate a crash partway through writing a third frame
+    final long completeSize = file.length();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(completeSize);
+      raf.writeInt(500);
+      raf.writeLong(2);
+      raf.write(new byte[20]);
+    }
+
+    MjpegStreamReader reader = new MjpegStreamReader(file);
+    assertAll(
+        () -> assertEquals(2, reader.getNumFrames()),
+        () -> assertArrayEquals(first, reader.readJpeg(0)),
+        () -> assertArrayEquals(second, reader.readJpeg(1))
+    );
+    reader.finish();
+    saver.finish();
+  }
+
+  @Test
+  public void testReadOutOfBounds() throws IOException {
+    MjpegStreamReader reader = new MjpegStreamReader(saveFrames(fakeJpeg(10, 0)));
+    assertAll(
+        () -> assertThrows(IOException.class, () -> reader.readJpeg(-1)),
+        () -> assertThrows(IOException.class, () -> reader.readJpeg(1))
+    );
+    reader.finish();
+  }
+
+  @Test
+  public void testCannotSaveAfterFinish() throws IOException {
+    File file = tempDir.resolve("finished.mjpeg").toFile();
+    MjpegStreamSaver saver = new MjpegStreamSaver(file);
+    saver.saveFrame(new byte[1], 1, 0);
+    saver.finish();
+    assertThrows(IOException.class, () -> saver.saveFrame(new byte[1], 1, 1));
+  }
+
+}
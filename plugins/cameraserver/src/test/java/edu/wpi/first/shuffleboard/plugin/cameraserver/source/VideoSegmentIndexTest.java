@@ -0,0 +1,58 @@
+package edu.wpi.first.shuffleboard.plugin.cameraserver.source;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VideoSegmentIndexTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void testMissingIndexIsEmpty() throws IOException {
+    VideoSegmentIndex index = new VideoSegmentIndex(tempDir.resolve("missing.segments").toFile());
+    assertTrue(index.read().isEmpty());
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    VideoSegmentIndex index = new VideoSegmentIndex(tempDir.resolve("recording-Camera.segments").toFile());
+    index.append(new VideoSegmentIndex.Segment(0, 1800, 640, 480));
+    index.append(new VideoSegmentIndex.Segment(1, 42, 320, 240));
+    Map<Integer, VideoSegmentIndex.Segment> segments = index.read();
+    assertAll(
+        () -> assertEquals(2, segments.size()),
+        () -> assertEquals(1800, segments.get(0).getFrameCount()),
+        () -> assertEquals(640, segments.get(0).getWidth()),
+        () -> assertEquals(480, segments.get(0).getHeight()),
+        () -> assertEquals(42, segments.get(1).getFrameCount()),
+        () -> assertEquals(320, segments.get(1).getWidth()),
+        () -> assertEquals(240, segments.get(1).getHeight())
+    );
+  }
+
+  @Test
+  public void testPartiallyWrittenLineIgnored() throws IOException {
+    Path file = tempDir.resolve("recording-Camera.segments");
+    VideoSegmentIndex index = new VideoSegmentIndex(file.toFile());
+    index.append(new VideoSegmentIndex.Segment(0, 10, 640, 480));
+    Files.write(file, "1 20 64".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    Map<Integer, VideoSegmentIndex.Segment> segments = index.read();
+    assertAll(
+        () -> assertEquals(1, segments.size()),
+        () -> assertEquals(10, segments.get(0).getFrameCount())
+    );
+  }
+
+}
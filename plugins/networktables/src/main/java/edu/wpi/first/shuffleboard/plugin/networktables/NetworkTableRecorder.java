@@ -0,0 +1,160 @@
+package edu.wpi.first.shuffleboard.plugin.networktables;
+
+import edu.wpi.first.shuffleboard.api.data.DataType;
+import edu.wpi.first.shuffleboard.api.data.DataTypes;
+import edu.wpi.first.shuffleboard.api.sources.recording.Recorder;
+import edu.wpi.first.shuffleboard.plugin.networktables.sources.NetworkTableSourceType;
+
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
+import edu.wpi.first.networktables.NetworkTablesJNI;
+import edu.wpi.first.networktables.ValueEventData;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records every value in NetworkTables. This is done here, instead of by the NetworkTables sources, because each key
+ * under N subtables would have N+1 copies in the recording (eg "/a/b/c" has 2 tables and 3 copies: "/a", "/a/b", and
+ * "/a/b/c"). This significantly reduces the size of recording files.
+ *
+ * <p>Values are recorded at the time they were set in NetworkTables, not the time they were received by this recorder,
+ * so delays in delivering values to the recorder do not skew the timestamps in the recording. The source URI and
+ * recorder handle of each topic are resolved once, when the topic is announced, so recording a value does not need to
+ * do any string work. Numbers and booleans are recorded without being boxed.
+ *
+ * <p>Values are never recorded before the last time the recording was saved. Otherwise, values with old timestamps,
+ * such as those resent by the server after reconnecting, would be saved after newer data, and values set before the
+ * recording started would all be placed at its start.
+ */
+final class NetworkTableRecorder {
+
+  private final NetworkTableInstance inst;
+  private final Recorder recorder;
+  private final Map<Integer, RecordedTopic> topics = new ConcurrentHashMap<>();
+
+  private int listenerHandle = 0;
+
+  NetworkTableRecorder(NetworkTableInstance inst, Recorder recorder) {
+    this.inst = inst;
+    this.recorder = recorder;
+  }
+
+  public void start() {
+    listenerHandle = inst.addListener(
+        new String[] {""},
+        EnumSet.of(
+            NetworkTableEvent.Kind.kImmediate,
+            NetworkTableEvent.Kind.kPublish,
+            NetworkTableEvent.Kind.kValueAll),
+        this::handleEvent);
+  }
+
+  public void stop() {
+    inst.removeListener(listenerHandle);
+  }
+
+  private void handleEvent(NetworkTableEvent event) {
+    if (event.topicInfo != null) {
+      // Topic handles stay the same for the lifetime of the NetworkTables instance, even if the topic is unpublished
+      topics.computeIfAbsent(event.topicInfo.topic, __ -> new RecordedTopic(event.topicInfo.name));
+    } else if (event.valueData != null) {
+      record(event.valueData);
+    }
+  }
+
+  private void record(ValueEventData data) {
+    if (!recorder.isRunning()) {
+      return;
+    }
+    RecordedTopic topic = topics.get(data.topic);
+    if (topic == null) {
+      // Values can arrive before the topic announcement has been handled
+      topic = topics.computeIfAbsent(data.topic, __ -> new RecordedTopic(data.getTopic().getName()));
+    }
+    final NetworkTableValue value = data.value;
+    final long captureTime =
+        toNanoTime(value.getTime(), NetworkTablesJNI.now(), System.nanoTime(), recorder.getLastSaveTime());
+    // Numbers and booleans make up most of the data in NetworkTables, and are recorded without boxing them
+    switch (value.getType()) {
+      case kDouble:
+        recorder.recordNumber(topic.sourceHandle, value.getDouble(), captureTime);
+        return;
+      case kFloat:
+        recorder.recordNumber(topic.sourceHandle, value.getFloat(), captureTime);
+        return;
+      case kInteger:
+        recorder.recordNumber(topic.sourceHandle, value.getInteger(), captureTime);
+        return;
+      case kBoolean:
+        recorder.recordBoolean(topic.sourceHandle, value.getBoolean(), captureTime);
+        return;
+      default:
+        break;
+    }
+    final Object rawValue = value.getValue();
+    if (rawValue == null) {
+      return;
+    }
+    final DataType<?> type = topic.dataTypeFor(rawValue);
+    if (type == null) {
+      return;
+    }
+    recorder.record(topic.sourceHandle, type, rawValue, captureTime);
+  }
+
+  /**
+   * Converts a NetworkTables timestamp to the {@link System#nanoTime()} time base. Values set before the earliest
+   * allowed time, such as the retained values sent again when reconnecting to a server, are placed at that time
+   * instead.
+   *
+   * @param valueTime the NetworkTables timestamp to convert, in microseconds. Zero or negative if unknown
+   * @param ntNow     the current NetworkTables time, in microseconds
+   * @param nanoNow   the current {@link System#nanoTime()}
+   * @param earliest  the earliest time to return, as given by {@link System#nanoTime()}
+   *
+   * @return the time corresponding to the given NetworkTables timestamp, as given by {@link System#nanoTime()}. If the
+   *         timestamp is unknown or in the future, this is the current time
+   */
+  static long toNanoTime(long valueTime, long ntNow, long nanoNow, long earliest) {
+    if (valueTime <= 0 || valueTime >= ntNow) {
+      return nanoNow;
+    }
+    final long nanoTime = nanoNow - TimeUnit.MICROSECONDS.toNanos(ntNow - valueTime);
+    // nanoTime values can only be compared by their difference, since they may overflow
+    return nanoTime - earliest < 0 ? earliest : nanoTime;
+  }
+
+  /**
+   * A topic whose values are recorded.
+   */
+  private final class RecordedTopic {
+
+    private final int sourceHandle;
+
+    // Only used by the listener thread. The type of a topic can change if it is unpublished and published again with
+    // a different type
+    private Class<?> valueClass;
+    private DataType<?> dataType;
+
+    RecordedTopic(String name) {
+      this.sourceHandle = recorder.getSourceHandle(NetworkTableSourceType.getInstance().toUri(name));
+    }
+
+    /**
+     * Gets the data type to record a value of this topic as, or null if the value can't be recorded.
+     */
+    DataType<?> dataTypeFor(Object value) {
+      if (value.getClass() != valueClass) {
+        dataType = DataTypes.getDefault().forJavaType(value.getClass()).orElse(null);
+        valueClass = value.getClass();
+      }
+      return dataType;
+    }
+
+  }
+
+}
@@ -22,12 +22,10 @@ import edu.wpi.first.util.CombinedRuntimeLoader;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
-import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.NetworkTablesJNI;
 
 import java.io.IOException;
-import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -47,7 +45,6 @@ import javafx.beans.value.ChangeListener;
 )
 public class NetworkTablesPlugin extends Plugin {
 
-  private int recorderUid = -1;
   private static final Logger log = Logger.getLogger(NetworkTablesPlugin.class.getName());
   private final NetworkTableInstance inst;
   private final Preferences preferences = Preferences.userNodeForPackage(getClass());
@@ -57,6 +54,7 @@ public class NetworkTablesPlugin extends Plugin {
 
   private final TabGenerator tabGenerator;
   private final RecorderController recorderController;
+  private final NetworkTableRecorder valueRecorder;
 
   private final ChangeListener<DashboardMode> dashboardModeChangeListener;
 
@@ -91,6 +89,7 @@ public class NetworkTablesPlugin extends Plugin {
     this.inst = inst;
     tabGenerator = new TabGenerator(inst, Components.getDefault());
     recorderController = RecorderController.createWithDefaultEntries(inst);
+    valueRecorder = new NetworkTableRecorder(inst, Recorder.getInstance());
 
     NetworkTableSourceType.setInstance(new NetworkTableSourceType(this));
     inst.startClient4("shuffleboard");
@@ -132,24 +131,7 @@ public class NetworkTablesPlugin extends Plugin {
     serverId.addListener(serverSaver);
 
     // Automatically capture and record changes in network tables
-    // This is done here because each key under N subtables would have N+1 copies
-    // in the recording (eg "/a/b/c" has 2 tables and 3 copies: "/a", "/a/b", and "/a/b/c")
-    // This significantly reduces the size of recording files.
-    recorderUid = inst.addListener(
-        new String[] {""},
-        EnumSet.of(NetworkTableEvent.Kind.kImmediate, NetworkTableEvent.Kind.kValueAll),
-        event -> {
-          Object value = event.valueData.value.getValue();
-          String name = NetworkTableUtils.topicNameForEvent(event);
-          DataTypes.getDefault().forJavaType(value.getClass())
-              .ifPresent(type -> {
-                Recorder.getInstance().record(
-                    NetworkTableSourceType.getInstance().toUri(name),
-                    type,
-                    value
-                );
-              });
-        });
+    valueRecorder.start();
 
     DashboardMode.currentModeProperty().addListener(dashboardModeChangeListener);
     recorderController.start();
@@ -164,7 +146,7 @@ public class NetworkTablesPlugin extends Plugin {
     DashboardMode.currentModeProperty().removeListener(dashboardModeChangeListener);
     recorderController.stop();
     tabGenerator.stop();
-    NetworkTablesJNI.removeListener(recorderUid);
+    valueRecorder.stop();
     NetworkTableUtils.shutdown(inst);
     serverId.removeListener(serverSaver);
   }
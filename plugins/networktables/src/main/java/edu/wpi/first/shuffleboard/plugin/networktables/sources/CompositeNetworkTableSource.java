@@ -8,8 +8,8 @@ import edu.wpi.first.shuffleboard.plugin.networktables.util.NetworkTableUtils;
 
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
-import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -31,6 +31,13 @@ public class CompositeNetworkTableSource<D extends ComplexData<D>> extends Netwo
   private final Map<String, Object> backingMap = new HashMap<>();
   private final ComplexDataType<D> dataType;
 
+  /**
+   * Whether or not the type of the table in network tables needs to be looked up again. Looking up the type requires
+   * several network table lookups, so it is only done when a change could have affected it.
+   */
+  private boolean dataTypeStale = true;
+  private boolean dataTypeMatches = false;
+
   /**
    * Creates a composite network table source backed by the values associated with the given
    * subtable name.
@@ -46,18 +53,35 @@ public class CompositeNetworkTableSource<D extends ComplexData<D>> extends Netwo
     NetworkTable table = NetworkTableInstance.getDefault().getTable(path);
     setData(dataType.getDefaultValue());
 
-    setTableListener((key, event) -> {
-      String relativeKey = NetworkTable.normalizeKey(key.substring(path.length() + 1), false);
-      if (event.is(NetworkTableEvent.Kind.kUnpublish)) {
-        backingMap.remove(relativeKey);
-      } else if (event.valueData != null) {
-        backingMap.put(relativeKey, event.valueData.value.getValue());
+    setTableListener(new TableListener() {
+      @Override
+      public void onChange(String key, NetworkTableValue value) {
+        String relativeKey = NetworkTable.normalizeKey(key.substring(path.length() + 1), false);
+        if (value == null) {
+          // The table may no longer exist
+          backingMap.remove(relativeKey);
+          dataTypeStale = true;
+        } else {
+          if (backingMap.isEmpty() || isTypeKey(relativeKey)) {
+            dataTypeStale = true;
+          }
+          backingMap.put(relativeKey, value.getValue());
+        }
       }
-      setActive(Objects.equals(NetworkTableUtils.dataTypeForEntry(fullTableKey), dataType));
-      try {
-        setData(dataType.fromMap(backingMap));
-      } catch (IncompleteDataException e) {
-        log.log(Level.WARNING, "Incomplete data for type " + dataType.getName(), e);
+
+      @Override
+      public void onBatchComplete() {
+        // Apply all the changes in the batch at once
+        if (dataTypeStale) {
+          dataTypeMatches = Objects.equals(NetworkTableUtils.dataTypeForEntry(fullTableKey), dataType);
+          dataTypeStale = false;
+        }
+        setActive(dataTypeMatches);
+        try {
+          setData(dataType.fromMap(backingMap));
+        } catch (IncompleteDataException e) {
+          log.log(Level.WARNING, "Incomplete data for type " + dataType.getName(), e);
+        }
       }
     });
 
@@ -82,6 +106,10 @@ public class CompositeNetworkTableSource<D extends ComplexData<D>> extends Netwo
     Sources.getDefault().register(this);
   }
 
+  private static boolean isTypeKey(String key) {
+    return ".type".equals(key) || "~TYPE~".equals(key);
+  }
+
   @Override
   public ComplexDataType<D> getDataType() {
     return dataType;
@@ -10,10 +10,9 @@ import edu.wpi.first.shuffleboard.api.util.AsyncUtils;
 import edu.wpi.first.shuffleboard.plugin.networktables.util.NetworkTableUtils;
 
 import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.NetworkTableEvent;
-import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
 
-import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
@@ -30,10 +29,22 @@ public abstract class NetworkTableSource<T> extends AbstractDataSource<T> {
 
   private static final Map<String, NetworkTableSource> sources = new ConcurrentHashMap<>();
 
+  /**
+   * Placeholder in {@link #pendingUpdates} for keys that have been removed from network tables.
+   */
+  private static final Object REMOVED = new Object();
+
   protected final String fullTableKey;
-  private int listenerUid = -1;
+  private TopicListenerMultiplexer.ValueListener valueListener;
   private volatile boolean ntUpdate = false;
 
+  /**
+   * Updates from network tables that have not yet been passed to the table listener, mapped by key. Only the most
+   * recent update for each key is kept. Guarded by itself.
+   */
+  private final Map<String, Object> pendingUpdates = new LinkedHashMap<>();
+  private boolean updateScheduled = false;
+
   /**
    * Creates a network table source that listens to values under the given key. The key can be
    * a path to a single key-value pair (for single key sources) or a subtable
@@ -55,36 +66,61 @@ public abstract class NetworkTableSource<T> extends AbstractDataSource<T> {
    * Sets the table listener to call when a value changes under this source's key.
    */
   protected final void setTableListener(TableListener listener) {
-    NetworkTableInstance inst = NetworkTableInstance.getDefault();
-    inst.removeListener(listenerUid);
+    removeValueListener();
     setConnected(true);
-    listenerUid = inst.addListener(
-        new String[] {fullTableKey},
-        EnumSet.of(
-          NetworkTableEvent.Kind.kImmediate,
-          NetworkTableEvent.Kind.kTopic,
-          NetworkTableEvent.Kind.kValueAll),
-        event -> {
-          String name = NetworkTableUtils.topicNameForEvent(event);
-          if (isSingular() && !name.equals(fullTableKey)) {
-            // Since NetworkTableInstance.addEntryListener() will fire on anything that starts with the key,
-            // a singular source will be notified for an unrelated entry.
-            // For example, a singular source for the entry "/S" will also be fired for any changing entry that
-            // starts with "/S", such as "/SmartDashboard/<anything>" or "/SomeUnrelatedEntry".
-            // This check prevents the source from being erroneously updated for an unrelated entry.
-            return;
-          }
-          if (isConnected()) {
-            AsyncUtils.runAsync(() -> {
-              try {
-                ntUpdate = true;
-                listener.onChange(name, event);
-              } finally {
-                ntUpdate = false;
-              }
-            });
-          }
-        });
+    valueListener = (name, value) -> {
+      if (!isConnected()) {
+        return;
+      }
+      final boolean schedule;
+      synchronized (pendingUpdates) {
+        pendingUpdates.put(name, value == null ? REMOVED : value);
+        schedule = !updateScheduled;
+        updateScheduled = true;
+      }
+      if (schedule) {
+        AsyncUtils.runAsync(() -> applyPendingUpdates(listener));
+      }
+    };
+    // Singular sources only get updates for their exact key, and composite sources only for keys in their table;
+    // eg a source for "/S" will not be notified for changes to "/SmartDashboard/<anything>"
+    if (isSingular()) {
+      TopicListenerMultiplexer.getDefault().addTopicListener(fullTableKey, valueListener);
+    } else {
+      TopicListenerMultiplexer.getDefault().addTableListener(fullTableKey, valueListener);
+    }
+  }
+
+  /**
+   * Passes all pending updates to the table listener as a single batch. Any updates that arrive while the batch is
+   * being applied will be applied in the next batch.
+   */
+  private void applyPendingUpdates(TableListener listener) {
+    final Map<String, Object> updates;
+    synchronized (pendingUpdates) {
+      updates = new LinkedHashMap<>(pendingUpdates);
+      pendingUpdates.clear();
+      updateScheduled = false;
+    }
+    try {
+      ntUpdate = true;
+      updates.forEach((key, value) -> listener.onChange(key, value == REMOVED ? null : (NetworkTableValue) value));
+      listener.onBatchComplete();
+    } finally {
+      ntUpdate = false;
+    }
+  }
+
+  private void removeValueListener() {
+    if (valueListener == null) {
+      return;
+    }
+    if (isSingular()) {
+      TopicListenerMultiplexer.getDefault().removeTopicListener(fullTableKey, valueListener);
+    } else {
+      TopicListenerMultiplexer.getDefault().removeTableListener(fullTableKey, valueListener);
+    }
+    valueListener = null;
   }
 
   /**
@@ -116,7 +152,7 @@ public abstract class NetworkTableSource<T> extends AbstractDataSource<T> {
   public void close() {
     setActive(false);
     setConnected(false);
-    NetworkTableInstance.getDefault().removeListener(listenerUid);
+    removeValueListener();
     Sources.getDefault().unregister(this);
     sources.remove(getId());
   }
@@ -128,9 +164,18 @@ public abstract class NetworkTableSource<T> extends AbstractDataSource<T> {
      * Called when a value changes in network tables.
      *
      * @param key   the key associated with the value that changed
-     * @param event the event
+     * @param value the new value, or {@code null} if the key was removed
      */
-    void onChange(String key, NetworkTableEvent event);
+    void onChange(String key, NetworkTableValue value);
+
+    /**
+     * Called after a batch of changes has been passed to {@link #onChange}. Multiple changes that arrive from network
+     * tables at about the same time (eg all the keys updated by a robot in a single loop) are delivered together in
+     * one batch.
+     */
+    default void onBatchComplete() {
+      // NOP
+    }
 
   }
 
@@ -16,10 +16,20 @@ import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
 import edu.wpi.first.networktables.Topic;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -34,6 +44,19 @@ public final class NetworkTableSourceType extends SourceType {
   private final ObservableMap<String, Object> availableSources = FXCollections.observableHashMap();
   private final NetworkTablesPlugin plugin;
 
+  /**
+   * Indexes the entries in {@code availableSourceIds}. Only accessed from the JavaFX application thread.
+   */
+  private final SourceTreeIndex sourceTree = new SourceTreeIndex();
+
+  /**
+   * Topic changes that have been received from NetworkTables, but not yet applied to the available sources. These are
+   * applied in batches so that a flood of topic announcements (eg when connecting to a server) results in a single
+   * change to the available source list.
+   */
+  private final Queue<TopicChange> pendingChanges = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean applyScheduled = new AtomicBoolean(false);
+
   @SuppressWarnings("JavadocMethod")
   public NetworkTableSourceType(NetworkTablesPlugin plugin) {
     super("NetworkTables", true, "network_table://", NetworkTableSource::forKey);
@@ -46,23 +69,16 @@ public final class NetworkTableSourceType extends SourceType {
     inst.addConnectionListener(false, event -> {
       if (event.is(NetworkTableEvent.Kind.kDisconnected)) {
         FxUtils.runOnFxThread(() -> {
-          availableSources.clear();
-          availableSourceIds.clear();
+          clearAvailableSources();
           NetworkTableSource.removeAllCachedSources();
           Sources.getDefault().forType(NetworkTableSourceType.instance).forEach(Sources.getDefault()::unregister);
         });
       } else if (event.is(NetworkTableEvent.Kind.kConnected)) {
-        FxUtils.runOnFxThread(() -> {
-          for (Topic topic : event.getInstance().getTopics()) {
-            String uri = toUri(topic.getName());
-            if (!availableSources.containsKey(uri)) {
-              availableSources.put(uri, topic.genericSubscribe().get().getValue());
-            }
-            if (!availableSourceIds.contains(uri)) {
-              availableSourceIds.add(uri);
-            }
-          }
-        });
+        for (Topic topic : event.getInstance().getTopics()) {
+          final String name = topic.getName();
+          final NetworkTableValue value = event.getInstance().getEntry(name).getValue();
+          submitChange(new TopicChange(name, false, value.isValid() ? value.getValue() : null));
+        }
       }
     });
     inst.addListener(
@@ -72,30 +88,78 @@ public final class NetworkTableSourceType extends SourceType {
           NetworkTableEvent.Kind.kTopic,
           NetworkTableEvent.Kind.kValueAll),
         event -> {
-          AsyncUtils.runAsync(() -> {
-            final boolean delete = event.is(NetworkTableEvent.Kind.kUnpublish);
-            final String name = NetworkTableUtils.topicNameForEvent(event);
-            List<String> hierarchy = NetworkTable.getHierarchy(name);
-            for (int i = 0; i < hierarchy.size(); i++) {
-              String uri = toUri(hierarchy.get(i));
-              if (i == hierarchy.size() - 1) {
-                if (delete) {
-                  availableSources.remove(uri);
-                  Sources sources = Sources.getDefault();
-                  sources.get(uri).ifPresent(sources::unregister);
-                  NetworkTableSource.removeCachedSource(uri);
-                } else if (event.valueData != null) {
-                  availableSources.put(uri, event.valueData.value.getValue());
-                }
-              }
-              if (delete) {
-                availableSourceIds.remove(uri);
-              } else if (!availableSourceIds.contains(uri)) {
-                availableSourceIds.add(uri);
-              }
-            }
-          });
+          final boolean delete = event.is(NetworkTableEvent.Kind.kUnpublish);
+          final String name = NetworkTableUtils.topicNameForEvent(event);
+          final Object value = event.valueData == null ? null : event.valueData.value.getValue();
+          submitChange(new TopicChange(name, delete, value));
+        });
+  }
+
+  private void submitChange(TopicChange change) {
+    pendingChanges.add(change);
+    if (applyScheduled.compareAndSet(false, true)) {
+      AsyncUtils.runAsync(this::applyPendingChanges);
+    }
+  }
+
+  /**
+   * Applies all pending topic changes. Multiple changes to the same topic are merged so only the latest state is
+   * applied, and all the new and removed source IDs are added to and removed from the available source list in bulk.
+   */
+  private void applyPendingChanges() {
+    applyScheduled.set(false);
+    final Map<String, TopicChange> changes = new LinkedHashMap<>();
+    TopicChange change;
+    while ((change = pendingChanges.poll()) != null) {
+      changes.merge(change.name, change, TopicChange::mergeWith);
+    }
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    final Set<String> added = new LinkedHashSet<>();
+    final Set<String> removed = new HashSet<>();
+    final Sources sources = Sources.getDefault();
+    for (TopicChange topicChange : changes.values()) {
+      final List<String> hierarchy = NetworkTable.getHierarchy(topicChange.name);
+      final List<String> uris = new ArrayList<>(hierarchy.size());
+      for (String path : hierarchy) {
+        uris.add(toUri(path));
+      }
+      final String uri = uris.get(uris.size() - 1);
+      if (topicChange.delete) {
+        availableSources.remove(uri);
+        sources.get(uri).ifPresent(sources::unregister);
+        NetworkTableSource.removeCachedSource(uri);
+        sourceTree.remove(uris, id -> {
+          if (!added.remove(id)) {
+            removed.add(id);
+          }
         });
+      } else {
+        if (topicChange.value != null) {
+          availableSources.put(uri, topicChange.value);
+        }
+        sourceTree.add(uris, id -> {
+          if (!removed.remove(id)) {
+            added.add(id);
+          }
+        });
+      }
+    }
+    if (!removed.isEmpty()) {
+      availableSourceIds.removeAll(removed);
+    }
+    if (!added.isEmpty()) {
+      availableSourceIds.addAll(added);
+    }
+  }
+
+  private void clearAvailableSources() {
+    pendingChanges.clear();
+    sourceTree.clear();
+    availableSources.clear();
+    availableSourceIds.clear();
   }
 
   private void setConnectionStatus(String serverId, boolean connected) {
@@ -146,8 +210,7 @@ public final class NetworkTableSourceType extends SourceType {
   @Override
   public void disconnect() {
     NetworkTableUtils.shutdown();
-    availableSourceIds.clear();
-    availableSources.clear();
+    clearAvailableSources();
     super.disconnect();
   }
 
@@ -176,4 +239,30 @@ public final class NetworkTableSourceType extends SourceType {
     return super.toUri(NetworkTable.normalizeKey(sourceName));
   }
 
+  /**
+   * A change to a topic in NetworkTables.
+   */
+  private static final class TopicChange {
+    private final String name;
+    private final boolean delete;
+    private final Object value;
+
+    TopicChange(String name, boolean delete, Object value) {
+      this.name = name;
+      this.delete = delete;
+      this.value = value;
+    }
+
+    /**
+     * Merges this change with a later change to the same topic.
+     */
+    TopicChange mergeWith(TopicChange later) {
+      if (!later.delete && later.value == null && !delete) {
+        // Topic announcement with no value; keep the most recent known value
+        return new TopicChange(name, false, value);
+      }
+      return later;
+    }
+  }
+
 }
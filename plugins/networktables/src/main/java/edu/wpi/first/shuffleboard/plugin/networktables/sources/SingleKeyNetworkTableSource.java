@@ -7,7 +7,6 @@ import edu.wpi.first.shuffleboard.api.util.EqualityUtils;
 
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
-import edu.wpi.first.networktables.NetworkTableEvent;
 
 /**
  * A data source backed by a single key-value pair in a network table.
@@ -33,11 +32,11 @@ public class SingleKeyNetworkTableSource<T> extends NetworkTableSource<T> {
   public SingleKeyNetworkTableSource(NetworkTable table, String key, DataType dataType) {
     super(key, dataType);
     setName(key);
-    setTableListener((__, event) -> {
-      if (event.is(NetworkTableEvent.Kind.kUnpublish)) {
+    setTableListener((__, ntValue) -> {
+      if (ntValue == null) {
         setActive(false);
-      } else if (event.valueData != null) {
-        Object value = event.valueData.value.getValue();
+      } else {
+        Object value = ntValue.getValue();
         setActive(DataTypes.getDefault().forJavaType(value.getClass()).map(dataType::equals).orElse(false));
         if (!initialUpdate && EqualityUtils.isEqual(value, getData())) {
           // No change
@@ -0,0 +1,78 @@
+package edu.wpi.first.shuffleboard.plugin.networktables.sources;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of which paths in a tree of topics are present. A path is present if it is the path of a topic, or of a
+ * table that contains at least one topic. Each path keeps a count of the topics at or beneath it, so adding or removing
+ * a topic only touches the paths in its own hierarchy, and a table is only removed once its last topic is removed.
+ *
+ * <p>This class is not thread-safe.
+ */
+final class SourceTreeIndex {
+
+  private final Set<String> topics = new HashSet<>();
+  private final Map<String, Integer> topicCounts = new HashMap<>();
+
+  /**
+   * Adds a topic.
+   *
+   * @param hierarchy the paths from the root of the tree down to the topic, inclusive
+   * @param onAdded   called for each path in the hierarchy that was not present before the topic was added
+   *
+   * @return true if the topic was added, false if it was already present
+   */
+  boolean add(List<String> hierarchy, Consumer<String> onAdded) {
+    if (hierarchy.isEmpty() || !topics.add(hierarchy.get(hierarchy.size() - 1))) {
+      return false;
+    }
+    for (String path : hierarchy) {
+      if (topicCounts.merge(path, 1, Integer::sum) == 1) {
+        onAdded.accept(path);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Removes a topic.
+   *
+   * @param hierarchy the paths from the root of the tree down to the topic, inclusive
+   * @param onRemoved called for each path in the hierarchy that is no longer present after the topic was removed
+   *
+   * @return true if the topic was removed, false if it was not present
+   */
+  boolean remove(List<String> hierarchy, Consumer<String> onRemoved) {
+    if (hierarchy.isEmpty() || !topics.remove(hierarchy.get(hierarchy.size() - 1))) {
+      return false;
+    }
+    for (String path : hierarchy) {
+      if (topicCounts.merge(path, -1, Integer::sum) == 0) {
+        topicCounts.remove(path);
+        onRemoved.accept(path);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if a path is present.
+   */
+  boolean contains(String path) {
+    return topicCounts.containsKey(path);
+  }
+
+  /**
+   * Removes all topics.
+   */
+  void clear() {
+    topics.clear();
+    topicCounts.clear();
+  }
+
+}
@@ -0,0 +1,162 @@
+package edu.wpi.first.shuffleboard.plugin.networktables.sources;
+
+import edu.wpi.first.shuffleboard.plugin.networktables.util.NetworkTableUtils;
+
+import edu.wpi.first.networktables.GenericSubscriber;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
+import edu.wpi.first.networktables.Topic;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Shares a single NetworkTables listener between all network table sources. Instead of every source registering its
+ * own prefix listener and filtering out the events for unrelated topics, listeners are indexed by the exact topic or
+ * table they are interested in. Each event is dispatched with one hash lookup for the topic itself and one for each
+ * table that contains it, so the cost of an update does not depend on how many sources exist.
+ */
+final class TopicListenerMultiplexer {
+
+  private static final TopicListenerMultiplexer defaultInstance =
+      new TopicListenerMultiplexer(NetworkTableInstance.getDefault());
+
+  private final NetworkTableInstance inst;
+  private final Map<String, List<ValueListener>> topicListeners = new ConcurrentHashMap<>();
+  private final Map<String, List<ValueListener>> tableListeners = new ConcurrentHashMap<>();
+
+  @FunctionalInterface
+  interface ValueListener {
+
+    /**
+     * Called when the value of a topic changes.
+     *
+     * @param topicName the name of the topic that changed
+     * @param value     the new value of the topic, or {@code null} if the topic was unpublished
+     */
+    void onValueChange(String topicName, NetworkTableValue value);
+
+  }
+
+  TopicListenerMultiplexer(NetworkTableInstance inst) {
+    this.inst = inst;
+    inst.addListener(
+        new String[] {""},
+        EnumSet.of(
+            NetworkTableEvent.Kind.kImmediate,
+            NetworkTableEvent.Kind.kUnpublish,
+            NetworkTableEvent.Kind.kValueAll),
+        this::dispatch);
+  }
+
+  /**
+   * Gets the multiplexer for the default NetworkTables instance.
+   */
+  static TopicListenerMultiplexer getDefault() {
+    return defaultInstance;
+  }
+
+  /**
+   * Adds a listener for a single topic. The listener is immediately called with the current value of the topic, if it
+   * has one.
+   *
+   * @param topicName the full name of the topic, eg "/SmartDashboard/foo"
+   * @param listener  the listener to add
+   */
+  void addTopicListener(String topicName, ValueListener listener) {
+    add(topicListeners, topicName, listener);
+    Topic topic = inst.getTopic(topicName);
+    if (topic.exists()) {
+      notifyCurrentValue(topic, listener);
+    }
+  }
+
+  /**
+   * Removes a listener for a single topic.
+   */
+  void removeTopicListener(String topicName, ValueListener listener) {
+    remove(topicListeners, topicName, listener);
+  }
+
+  /**
+   * Adds a listener for every topic in a table and its subtables. The listener is immediately called with the current
+   * values of all the topics in the table.
+   *
+   * @param tablePath the full path of the table, eg "/SmartDashboard". Use "/" for the root table
+   * @param listener  the listener to add
+   */
+  void addTableListener(String tablePath, ValueListener listener) {
+    add(tableListeners, tablePath, listener);
+    final String prefix = tablePath.endsWith("/") ? tablePath : tablePath + "/";
+    for (Topic topic : inst.getTopics(prefix)) {
+      notifyCurrentValue(topic, listener);
+    }
+  }
+
+  /**
+   * Removes a listener for a table.
+   */
+  void removeTableListener(String tablePath, ValueListener listener) {
+    remove(tableListeners, tablePath, listener);
+  }
+
+  private static void add(Map<String, List<ValueListener>> listeners, String key, ValueListener listener) {
+    listeners.compute(key, (__, list) -> {
+      List<ValueListener> result = list == null ? new CopyOnWriteArrayList<>() : list;
+      result.add(listener);
+      return result;
+    });
+  }
+
+  private static void remove(Map<String, List<ValueListener>> listeners, String key, ValueListener listener) {
+    listeners.computeIfPresent(key, (__, list) -> {
+      list.remove(listener);
+      return list.isEmpty() ? null : list;
+    });
+  }
+
+  private static void notifyCurrentValue(Topic topic, ValueListener listener) {
+    // The shared listener already subscribes to every topic, so a new subscriber starts out with the cached value.
+    // Close it right away; unlike an entry, it would otherwise stay open for as long as the application runs
+    final NetworkTableValue value;
+    try (GenericSubscriber subscriber = topic.genericSubscribe()) {
+      value = subscriber.get();
+    }
+    if (value.isValid()) {
+      listener.onValueChange(topic.getName(), value);
+    }
+  }
+
+  private void dispatch(NetworkTableEvent event) {
+    final NetworkTableValue value;
+    if (event.is(NetworkTableEvent.Kind.kUnpublish)) {
+      value = null;
+    } else if (event.valueData != null) {
+      value = event.valueData.value;
+    } else {
+      return;
+    }
+    final String name = NetworkTableUtils.topicNameForEvent(event);
+    notifyListeners(topicListeners.get(name), name, value);
+    if (tableListeners.isEmpty() || !name.startsWith("/")) {
+      return;
+    }
+    notifyListeners(tableListeners.get("/"), name, value);
+    for (int i = name.indexOf('/', 1); i > 0; i = name.indexOf('/', i + 1)) {
+      notifyListeners(tableListeners.get(name.substring(0, i)), name, value);
+    }
+  }
+
+  private static void notifyListeners(List<ValueListener> listeners, String name, NetworkTableValue value) {
+    if (listeners != null) {
+      for (ValueListener listener : listeners) {
+        listener.onValueChange(name, value);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,54 @@
+package edu.wpi.first.shuffleboard.plugin.networktables;
+
+import org.junit.jupiter.api.Test;
+
+import static edu.wpi.first.shuffleboard.plugin.networktables.NetworkTableRecorder.toNanoTime;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NetworkTableRecorderTest {
+
+  @Test
+  public void testPastValue() {
+    assertEquals(1_000_000_000L - 2_500_000L, toNanoTime(7_500, 10_000, 1_000_000_000L, 0));
+  }
+
+  @Test
+  public void testUnknownTimeUsesCurrentTime() {
+    assertAll(
+        () -> assertEquals(1234L, toNanoTime(0, 10_000, 1234L, 0)),
+        () -> assertEquals(1234L, toNanoTime(-1, 10_000, 1234L, 0))
+    );
+  }
+
+  @Test
+  public void testFutureTimeUsesCurrentTime() {
+    assertEquals(1234L, toNanoTime(10_001, 10_000, 1234L, 0));
+  }
+
+  @Test
+  public void testValueBeforeLastSaveUsesLastSaveTime() {
+    // Set 2.5ms ago, but the recording was saved 1ms ago
+    final long lastSave = 1_000_000_000L - 1_000_000L;
+    assertEquals(lastSave, toNanoTime(7_500, 10_000, 1_000_000_000L, lastSave));
+  }
+
+  @Test
+  public void testResentValueFromBeforeRecordingStarted() {
+    // A retained value set an hour ago and resent after reconnecting
+    final long nanoNow = 5_000_000_000_000L;
+    final long lastSave = nanoNow - 500_000_000L;
+    assertEquals(lastSave, toNanoTime(1_000, 3_600_000_001_000L, nanoNow, lastSave));
+  }
+
+  @Test
+  public void testLastSaveTimeWrapsAround() {
+    // System.nanoTime() can wrap around; only the difference between times is meaningful
+    assertAll(
+        () -> assertEquals(Long.MIN_VALUE, toNanoTime(9_999, 10_000, Long.MIN_VALUE + 1_000L, Long.MAX_VALUE)),
+        () -> assertEquals(Long.MIN_VALUE + 100L,
+            toNanoTime(9_998, 10_000, Long.MIN_VALUE + 1_100L, Long.MIN_VALUE + 100L))
+    );
+  }
+
+}
@@ -2,6 +2,7 @@ package edu.wpi.first.shuffleboard.plugin.networktables.sources;
 
 import edu.wpi.first.shuffleboard.api.data.DataTypes;
 import edu.wpi.first.shuffleboard.api.data.MapData;
+import edu.wpi.first.shuffleboard.api.properties.AsyncProperty;
 import edu.wpi.first.shuffleboard.api.util.AsyncUtils;
 import edu.wpi.first.shuffleboard.api.util.FxUtils;
 import edu.wpi.first.shuffleboard.plugin.networktables.util.NetworkTableUtils;
@@ -21,6 +22,9 @@ import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Tag;
 import org.testfx.framework.junit5.ApplicationTest;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertAll;
@@ -38,6 +42,7 @@ public class CompositeNetworkTableSourceTest extends ApplicationTest {
   private static final String tableName = "/CompositeNetworkTableSourceTest";
 
   private final NetworkTableInstance ntInstance = NetworkTableInstance.getDefault();
+  private final List<Runnable> asyncTasks = new ArrayList<>();
 
   private void waitForNtEvents() {
     if (!ntInstance.waitForListenerQueue(0.5)) {
@@ -45,6 +50,14 @@ public class CompositeNetworkTableSourceTest extends ApplicationTest {
     }
   }
 
+  private void runAsyncTasks() {
+    while (!asyncTasks.isEmpty()) {
+      List<Runnable> tasks = new ArrayList<>(asyncTasks);
+      asyncTasks.clear();
+      tasks.forEach(Runnable::run);
+    }
+  }
+
   @BeforeAll
   public static void clinit() {
     NetworkTableSourceType.setInstance(new NetworkTableSourceType(new NetworkTablesPlugin()));
@@ -125,4 +138,59 @@ public class CompositeNetworkTableSourceTest extends ApplicationTest {
 
     source.close();
   }
+
+  @RepeatedTest(10)
+  @SuppressWarnings("unchecked")
+  public void testBatchOfChangesSetsDataOnce() {
+    final CompositeNetworkTableSource<MapData> source
+        = new CompositeNetworkTableSource<>(tableName, DataTypes.Map);
+    final NetworkTable table = ntInstance.getTable(tableName);
+    final AsyncProperty<MapData> data = (AsyncProperty<MapData>) source.dataProperty();
+    final List<MapData> updates = new ArrayList<>();
+    data.addImmediateListener((__, oldData, newData) -> updates.add(newData));
+    AsyncUtils.setAsyncRunner(asyncTasks::add);
+
+    table.getEntry("a").setDouble(1.0);
+    table.getEntry("b").setString("foo");
+    table.getEntry("c").setBoolean(true);
+    waitForNtEvents();
+    runAsyncTasks();
+
+    assertAll(
+        () -> assertEquals(1, updates.size(), "All changes should have been applied in one update"),
+        () -> assertEquals(1.0, updates.get(0).get("a")),
+        () -> assertEquals("foo", updates.get(0).get("b")),
+        () -> assertEquals(true, updates.get(0).get("c")),
+        () -> assertTrue(source.isActive(), "Source not active")
+    );
+    source.close();
+  }
+
+  @RepeatedTest(10)
+  public void testTypeChangeResolvesTypeAgain() {
+    final CompositeNetworkTableSource<MapData> source
+        = new CompositeNetworkTableSource<>(tableName, DataTypes.Map);
+    final NetworkTable table = ntInstance.getTable(tableName);
+
+    table.getEntry("value").setString("foo");
+    waitForNtEvents();
+    assertTrue(source.isActive(), "Source should be active before a type is set");
+
+    table.getEntry(".type").setString("String");
+    waitForNtEvents();
+    assertFalse(source.isActive(), "Source should be inactive after .type changed to a different type");
+
+    table.getEntry(".type").setString("Map");
+    waitForNtEvents();
+    assertTrue(source.isActive(), "Source should be active after .type changed back");
+
+    table.getEntry("~TYPE~").setString("String");
+    waitForNtEvents();
+    assertFalse(source.isActive(), "Source should be inactive after ~TYPE~ changed to a different type");
+
+    table.getEntry("~TYPE~").unpublish();
+    waitForNtEvents();
+    assertTrue(source.isActive(), "Source should be active after ~TYPE~ was removed");
+    source.close();
+  }
 }
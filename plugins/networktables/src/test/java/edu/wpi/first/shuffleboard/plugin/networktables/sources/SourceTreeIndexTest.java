@@ -0,0 +1,73 @@
+package edu.wpi.first.shuffleboard.plugin.networktables.sources;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SourceTreeIndexTest {
+
+  private final SourceTreeIndex index = new SourceTreeIndex();
+
+  @Test
+  public void testAddReportsNewPaths() {
+    List<String> added = new ArrayList<>();
+    assertTrue(index.add(List.of("/", "/a", "/a/b"), added::add));
+    assertTrue(index.add(List.of("/", "/a", "/a/c"), added::add));
+    assertEquals(List.of("/", "/a", "/a/b", "/a/c"), added);
+  }
+
+  @Test
+  public void testAddExistingTopic() {
+    index.add(List.of("/", "/a"), __ -> {
+    });
+    List<String> added = new ArrayList<>();
+    assertFalse(index.add(List.of("/", "/a"), added::add));
+    assertEquals(List.of(), added);
+  }
+
+  @Test
+  public void testTableRemovedWithLastTopic() {
+    index.add(List.of("/", "/a", "/a/b"), __ -> {
+    });
+    index.add(List.of("/", "/a", "/a/c"), __ -> {
+    });
+    List<String> removed = new ArrayList<>();
+
+    assertTrue(index.remove(List.of("/", "/a", "/a/b"), removed::add));
+    assertAll(
+        () -> assertEquals(List.of("/a/b"), removed),
+        () -> assertTrue(index.contains("/a")),
+        () -> assertFalse(index.contains("/a/b"))
+    );
+
+    assertTrue(index.remove(List.of("/", "/a", "/a/c"), removed::add));
+    assertEquals(List.of("/a/b", "/", "/a", "/a/c"), removed);
+  }
+
+  @Test
+  public void testTopicThatIsAlsoATable() {
+    index.add(List.of("/", "/a"), __ -> {
+    });
+    index.add(List.of("/", "/a", "/a/b"), __ -> {
+    });
+    List<String> removed = new ArrayList<>();
+    index.remove(List.of("/", "/a"), removed::add);
+    assertAll(
+        () -> assertEquals(List.of(), removed),
+        () -> assertTrue(index.contains("/a"), "Table should still exist while it contains a topic")
+    );
+  }
+
+  @Test
+  public void testRemoveMissingTopic() {
+    assertFalse(index.remove(List.of("/", "/a"), __ -> {
+    }));
+  }
+
+}
@@ -0,0 +1,91 @@
+package edu.wpi.first.shuffleboard.plugin.networktables.sources;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TopicListenerMultiplexerTest {
+
+  private NetworkTableInstance inst;
+  private TopicListenerMultiplexer multiplexer;
+
+  @BeforeEach
+  public void setUp() {
+    inst = NetworkTableInstance.create();
+    multiplexer = new TopicListenerMultiplexer(inst);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    inst.close();
+  }
+
+  private void waitForNtEvents() {
+    assertTrue(inst.waitForListenerQueue(1.0), "Timed out while waiting for listeners to fire");
+  }
+
+  @Test
+  public void testTopicListenerOnlyGetsExactTopic() {
+    List<String> updates = new CopyOnWriteArrayList<>();
+    multiplexer.addTopicListener("/S", (name, value) -> updates.add(name + "=" + value.getValue()));
+
+    inst.getEntry("/SmartDashboard/foo").setString("unrelated");
+    inst.getEntry("/S").setString("related");
+    waitForNtEvents();
+
+    assertEquals(List.of("/S=related"), updates);
+  }
+
+  @Test
+  public void testTableListenerGetsNestedTopics() {
+    List<String> updates = new CopyOnWriteArrayList<>();
+    multiplexer.addTableListener("/Table", (name, value) -> updates.add(name));
+
+    inst.getEntry("/Table/a").setDouble(1);
+    inst.getEntry("/Table/sub/b").setDouble(2);
+    inst.getEntry("/TableOther/c").setDouble(3);
+    waitForNtEvents();
+
+    assertEquals(List.of("/Table/a", "/Table/sub/b"), updates);
+  }
+
+  @Test
+  public void testExistingValuesAreSentToNewListeners() {
+    inst.getEntry("/Table/a").setDouble(1);
+    inst.getEntry("/Table/b").setDouble(2);
+    waitForNtEvents();
+
+    List<String> topicUpdates = new CopyOnWriteArrayList<>();
+    List<String> tableUpdates = new CopyOnWriteArrayList<>();
+    multiplexer.addTopicListener("/Table/a", (name, value) -> topicUpdates.add(name));
+    multiplexer.addTableListener("/Table", (name, value) -> tableUpdates.add(name));
+
+    assertAll(
+        () -> assertEquals(List.of("/Table/a"), topicUpdates),
+        () -> assertEquals(2, tableUpdates.size())
+    );
+  }
+
+  @Test
+  public void testRemoveListener() {
+    List<String> updates = new CopyOnWriteArrayList<>();
+    TopicListenerMultiplexer.ValueListener listener = (name, value) -> updates.add(name);
+    multiplexer.addTopicListener("/foo", listener);
+    multiplexer.removeTopicListener("/foo", listener);
+
+    inst.getEntry("/foo").setBoolean(true);
+    waitForNtEvents();
+
+    assertEquals(List.of(), updates);
+  }
+
+}